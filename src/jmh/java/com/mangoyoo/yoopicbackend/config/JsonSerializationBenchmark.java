@@ -0,0 +1,67 @@
+package com.mangoyoo.yoopicbackend.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mangoyoo.yoopicbackend.model.vo.PictureVO;
+import com.mangoyoo.yoopicbackend.model.vo.UserVO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片列表 JSON 序列化基准：项目的 ObjectMapper（Long 转字符串）vs 默认 ObjectMapper
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper projectObjectMapper;
+
+    private ObjectMapper defaultObjectMapper;
+
+    private List<PictureVO> pictureVOList;
+
+    @Setup
+    public void setup() {
+        projectObjectMapper = new JsonConfig().jacksonObjectMapper(new Jackson2ObjectMapperBuilder());
+        defaultObjectMapper = new Jackson2ObjectMapperBuilder().build();
+        pictureVOList = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            UserVO userVO = new UserVO();
+            userVO.setId(1900000000000000002L + i);
+            userVO.setUserName("user" + i);
+            userVO.setCreateTime(new Date());
+            PictureVO pictureVO = new PictureVO();
+            pictureVO.setId(1900000000000000001L + i);
+            pictureVO.setUrl("https://example.com/public/" + i + ".webp");
+            pictureVO.setName("图片" + i);
+            pictureVO.setTags(Arrays.asList("海边", "夕阳"));
+            pictureVO.setPicSize(1024L * 1024);
+            pictureVO.setPicWidth(1920);
+            pictureVO.setPicHeight(1080);
+            pictureVO.setUserId(userVO.getId());
+            pictureVO.setCreateTime(new Date());
+            pictureVO.setUser(userVO);
+            pictureVOList.add(pictureVO);
+        }
+    }
+
+    @Benchmark
+    public byte[] projectMapper() throws JsonProcessingException {
+        return projectObjectMapper.writeValueAsBytes(pictureVOList);
+    }
+
+    @Benchmark
+    public byte[] defaultMapper() throws JsonProcessingException {
+        return defaultObjectMapper.writeValueAsBytes(pictureVOList);
+    }
+}
@@ -0,0 +1,38 @@
+package com.mangoyoo.yoopicbackend.model.auth;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限上下文判空基准（反射读取所有字段）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthContextBenchmark {
+
+    private SpaceUserAuthContext emptyContext;
+
+    private SpaceUserAuthContext spaceContext;
+
+    @Setup
+    public void setup() {
+        emptyContext = new SpaceUserAuthContext();
+        spaceContext = new SpaceUserAuthContext();
+        spaceContext.setSpaceId(1900000000000000003L);
+    }
+
+    @Benchmark
+    public boolean emptyContext() {
+        return StpInterfaceImpl.isAllFieldsNull(emptyContext);
+    }
+
+    @Benchmark
+    public boolean spaceContext() {
+        return StpInterfaceImpl.isAllFieldsNull(spaceContext);
+    }
+}
@@ -0,0 +1,56 @@
+package com.mangoyoo.yoopicbackend.model.vo;
+
+import com.mangoyoo.yoopicbackend.model.entity.Picture;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片实体与封装类互转基准
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PictureVOBenchmark {
+
+    private Picture picture;
+
+    private PictureVO pictureVO;
+
+    @Setup
+    public void setup() {
+        picture = new Picture();
+        picture.setId(1900000000000000001L);
+        picture.setUrl("https://example.com/public/1900000000000000001/2025-01-01_abc.webp");
+        picture.setThumbnailUrl("https://example.com/public/1900000000000000001/2025-01-01_abc_thumbnail.webp");
+        picture.setName("夕阳下的海边");
+        picture.setIntroduction("傍晚时分拍摄的海边风景");
+        picture.setCategory("风景");
+        picture.setTags("[\"海边\",\"夕阳\",\"风景\",\"旅行\"]");
+        picture.setPicSize(1024L * 1024);
+        picture.setPicWidth(1920);
+        picture.setPicHeight(1080);
+        picture.setPicScale(1.78);
+        picture.setPicFormat("webp");
+        picture.setPicColor("0xFF8800");
+        picture.setUserId(1900000000000000002L);
+        picture.setCreateTime(new Date());
+        picture.setEditTime(new Date());
+        picture.setUpdateTime(new Date());
+        pictureVO = PictureVO.objToVo(picture);
+    }
+
+    @Benchmark
+    public PictureVO objToVo() {
+        return PictureVO.objToVo(picture);
+    }
+
+    @Benchmark
+    public Picture voToObj() {
+        return PictureVO.voToObj(pictureVO);
+    }
+}
@@ -0,0 +1,60 @@
+package com.mangoyoo.yoopicbackend.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.mangoyoo.yoopicbackend.dto.picture.PictureQueryRequest;
+import com.mangoyoo.yoopicbackend.model.entity.Picture;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片查询条件构造基准（不依赖 Spring 容器，不含搜索词以避免访问搜索索引）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PictureQueryWrapperBenchmark {
+
+    private final PictureServiceImpl pictureService = new PictureServiceImpl();
+
+    private PictureQueryRequest simpleRequest;
+
+    private PictureQueryRequest fullRequest;
+
+    @Setup
+    public void setup() {
+        simpleRequest = new PictureQueryRequest();
+        simpleRequest.setNullSpaceId(true);
+        simpleRequest.setReviewStatus(1);
+        simpleRequest.setSortField("createTime");
+        simpleRequest.setSortOrder("descend");
+
+        fullRequest = new PictureQueryRequest();
+        fullRequest.setSpaceId(1900000000000000003L);
+        fullRequest.setUserId(1900000000000000002L);
+        fullRequest.setCategory("风景");
+        fullRequest.setTags(Arrays.asList("海边", "夕阳", "旅行"));
+        fullRequest.setPicFormat("webp");
+        fullRequest.setPicWidth(1920);
+        fullRequest.setPicHeight(1080);
+        fullRequest.setReviewStatus(1);
+        fullRequest.setSortField("createTime");
+        fullRequest.setSortOrder("ascend");
+    }
+
+    @Benchmark
+    public String simpleQuery() {
+        QueryWrapper<Picture> queryWrapper = pictureService.getQueryWrapper(simpleRequest);
+        return queryWrapper.getCustomSqlSegment();
+    }
+
+    @Benchmark
+    public String fullQuery() {
+        QueryWrapper<Picture> queryWrapper = pictureService.getQueryWrapper(fullRequest);
+        return queryWrapper.getCustomSqlSegment();
+    }
+}
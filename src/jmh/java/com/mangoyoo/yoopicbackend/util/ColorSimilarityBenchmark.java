@@ -0,0 +1,91 @@
+package com.mangoyoo.yoopicbackend.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.*;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * 颜色相似度计算基准：逐个比较 vs 批量计算，全量排序 vs 有界堆 top-K
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ColorSimilarityBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private int targetRgb;
+
+    private Color targetColor;
+
+    private int[] packed;
+
+    private Color[] colors;
+
+    private String[] hexColors;
+
+    private int[] distances;
+
+    private final RgbDistanceKernel scalarKernel = new ScalarRgbDistanceKernel();
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        targetRgb = 0x336699;
+        targetColor = new Color(targetRgb);
+        packed = random.ints(size, 0, 0x1000000).toArray();
+        colors = new Color[size];
+        hexColors = new String[size];
+        for (int i = 0; i < size; i++) {
+            colors[i] = new Color(packed[i]);
+            hexColors[i] = String.format("0x%06X", packed[i]);
+        }
+        distances = new int[size];
+    }
+
+    @Benchmark
+    public void pairwiseSimilarity(Blackhole blackhole) {
+        for (Color color : colors) {
+            blackhole.consume(ColorSimilarUtils.calculateSimilarity(targetColor, color));
+        }
+    }
+
+    @Benchmark
+    public int[] scalarSquaredDistances() {
+        scalarKernel.squaredDistances(targetRgb, packed, 0, size, distances);
+        return distances;
+    }
+
+    @Benchmark
+    public int[] batchSquaredDistances() {
+        ColorSimilarUtils.squaredDistances(targetRgb, packed, 0, size, distances);
+        return distances;
+    }
+
+    /**
+     * 原先的做法：逐个解析十六进制颜色并全量排序后取前 10
+     */
+    @Benchmark
+    public int[] sortedTop10FromHex() {
+        return IntStream.range(0, size)
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> -ColorSimilarUtils.calculateSimilarity(targetColor, Color.decode(hexColors[i]))))
+                .limit(10)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    @Benchmark
+    public int[] heapTop10() {
+        return ColorSimilarUtils.topKSimilar(targetRgb, packed, 10);
+    }
+}
@@ -4,13 +4,26 @@ import com.mangoyoo.yoopicbackend.api.imagesearch.model.ImageSearchResult;
 import com.mangoyoo.yoopicbackend.api.imagesearch.sub.GetImageFirstUrlApi;
 import com.mangoyoo.yoopicbackend.api.imagesearch.sub.GetImageListApi;
 import com.mangoyoo.yoopicbackend.api.imagesearch.sub.GetImagePageUrlApi;
+import com.mangoyoo.yoopicbackend.exception.BusinessException;
+import com.mangoyoo.yoopicbackend.exception.ErrorCode;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 @Slf4j
 public class ImageSearchApiFacade {
 
+    /**
+     * 每个步骤的超时时间（各接口自身的 HTTP 超时为 5 秒，这里多留一些余量）
+     */
+    private static final long STAGE_TIMEOUT_SECONDS = 8;
+
     /**
      * 搜索图片
      *
@@ -24,6 +37,40 @@ public class ImageSearchApiFacade {
         return imageList;
     }
 
+    /**
+     * 异步搜索图片，三个步骤依次在 executor 中执行，每个步骤单独超时
+     *
+     * @param imageUrl 图片地址
+     * @param executor 执行器（建议使用虚拟线程）
+     * @return 搜索结果，失败时以 BusinessException 结束
+     */
+    public static CompletableFuture<List<ImageSearchResult>> searchImageAsync(String imageUrl, Executor executor) {
+        return stage("获取图片页面地址", () -> GetImagePageUrlApi.getImagePageUrl(imageUrl), executor)
+                .thenCompose(imagePageUrl -> stage("获取图片列表页面地址",
+                        () -> GetImageFirstUrlApi.getImageFirstUrl(imagePageUrl), executor))
+                .thenCompose(imageFirstUrl -> stage("获取图片列表",
+                        () -> GetImageListApi.getImageList(imageFirstUrl), executor));
+    }
+
+    /**
+     * 执行一个步骤，超时转换为 BusinessException
+     */
+    private static <T> CompletableFuture<T> stage(String stageName, Supplier<T> supplier, Executor executor) {
+        return CompletableFuture.supplyAsync(supplier, executor)
+                .orTimeout(STAGE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        log.warn("以图搜图超时，步骤：{}", stageName);
+                        throw new BusinessException(ErrorCode.OPERATION_ERROR, "搜索超时");
+                    }
+                    if (cause instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
+
     public static void main(String[] args) {
         // 测试以图搜图功能
         String imageUrl = "https://www.codefather.cn/logo.png";
@@ -24,7 +24,7 @@ public class GetImageListApi {
     public static List<ImageSearchResult> getImageList(String url) {
         try {
             // 发起GET请求
-            HttpResponse response = HttpUtil.createGet(url).execute();
+            HttpResponse response = HttpUtil.createGet(url).timeout(5000).execute();
 
             // 获取响应内容
             int statusCode = response.getStatus();
@@ -41,6 +41,16 @@ public class CosClientConfig {
      */
     private String bucket;
 
+    /**
+     * 是否以数据流的方式上传图片（不写临时文件，图片在堆内存中缓冲），默认开启
+     */
+    private boolean streamingUpload = true;
+
+    /**
+     * 是否按文件内容去重（相同内容复用已上传的对象），默认开启
+     */
+    private boolean dedupUpload = true;
+
     @Bean
     public COSClient cosClient() {
         // 初始化用户身份信息(secretId, secretKey)
@@ -0,0 +1,34 @@
+package com.mangoyoo.yoopicbackend.config;
+
+import com.mangoyoo.yoopicbackend.manager.websocket.broker.LocalPictureEditBroker;
+import com.mangoyoo.yoopicbackend.manager.websocket.broker.PictureEditBroker;
+import com.mangoyoo.yoopicbackend.manager.websocket.broker.RedisPictureEditBroker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+
+/**
+ * 图片协同编辑消息代理配置：picture-edit.cluster.mode = local（默认，单节点）/ redis（多节点，通过 Redis 广播和加锁）
+ */
+@Configuration
+public class PictureEditBrokerConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "picture-edit.cluster.mode", havingValue = "local", matchIfMissing = true)
+    public PictureEditBroker localPictureEditBroker() {
+        return new LocalPictureEditBroker();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "picture-edit.cluster.mode", havingValue = "redis")
+    public PictureEditBroker redisPictureEditBroker(StringRedisTemplate stringRedisTemplate,
+                                                    RedisMessageListenerContainer redisMessageListenerContainer,
+                                                    @Value("${picture-edit.cluster.lock-lease:30000}") long lockLease) {
+        return new RedisPictureEditBroker(stringRedisTemplate, redisMessageListenerContainer, Duration.ofMillis(lockLease));
+    }
+}
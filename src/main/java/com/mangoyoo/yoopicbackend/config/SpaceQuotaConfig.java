@@ -0,0 +1,32 @@
+package com.mangoyoo.yoopicbackend.config;
+
+import com.mangoyoo.yoopicbackend.manager.quota.LocalSpaceQuotaStore;
+import com.mangoyoo.yoopicbackend.manager.quota.RedisSpaceQuotaStore;
+import com.mangoyoo.yoopicbackend.manager.quota.SpaceQuotaStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * 空间额度计数存储配置：space.quota.store = redis（默认，多节点共享）/ local（单节点内存计数）
+ */
+@Configuration
+public class SpaceQuotaConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "space.quota.store", havingValue = "redis", matchIfMissing = true)
+    public SpaceQuotaStore redisSpaceQuotaStore(StringRedisTemplate stringRedisTemplate,
+                                                @Value("${space.quota.reservation-lease:1800000}") long reservationLease) {
+        return new RedisSpaceQuotaStore(stringRedisTemplate, Duration.ofMillis(reservationLease));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "space.quota.store", havingValue = "local")
+    public SpaceQuotaStore localSpaceQuotaStore(@Value("${space.quota.reservation-lease:1800000}") long reservationLease) {
+        return new LocalSpaceQuotaStore(Duration.ofMillis(reservationLease));
+    }
+}
@@ -9,11 +9,16 @@ import com.mangoyoo.yoopicbackend.dto.picture.*;
 import com.mangoyoo.yoopicbackend.service.PictureService;
 import com.mangoyoo.yoopicbackend.service.UserService;
 import com.mangoyoo.yoopicbackend.api.aliyunai.model.CreateOutPaintingTaskResponse;
-import com.mangoyoo.yoopicbackend.api.imagesearch.ImageSearchApiFacade;
 import com.mangoyoo.yoopicbackend.api.imagesearch.model.ImageSearchResult;
 import com.mangoyoo.yoopicbackend.common.DeleteRequest;
 import com.mangoyoo.yoopicbackend.common.PictureTagCategory;
 import com.mangoyoo.yoopicbackend.exception.ThrowUtils;
+import com.mangoyoo.yoopicbackend.manager.cache.ImageSearchCacheManager;
+import com.mangoyoo.yoopicbackend.manager.cache.PictureListCacheManager;
+import com.mangoyoo.yoopicbackend.manager.color.PictureColorIndexManager;
+import com.mangoyoo.yoopicbackend.manager.similar.PictureHashIndexManager;
+import com.mangoyoo.yoopicbackend.manager.search.PictureSearchManager;
+import com.mangoyoo.yoopicbackend.manager.stat.SpaceStatManager;
 import com.mangoyoo.yoopicbackend.model.auth.SpaceUserAuthManager;
 import com.mangoyoo.yoopicbackend.model.auth.SpaceUserPermissionConstant;
 import com.mangoyoo.yoopicbackend.model.auth.StpKit;
@@ -22,12 +27,17 @@ import com.mangoyoo.yoopicbackend.model.entity.Picture;
 import com.mangoyoo.yoopicbackend.model.entity.Space;
 import com.mangoyoo.yoopicbackend.model.entity.User;
 import com.mangoyoo.yoopicbackend.model.enums.PictureReviewStatusEnum;
+import com.mangoyoo.yoopicbackend.model.vo.CursorPageVO;
+import com.mangoyoo.yoopicbackend.model.vo.PictureBatchUploadProgressVO;
 import com.mangoyoo.yoopicbackend.model.vo.PictureVO;
 import com.mangoyoo.yoopicbackend.service.SpaceService;
+import com.mangoyoo.yoopicbackend.service.dao.PictureTagDAO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import com.mangoyoo.yoopicbackend.annotation.AuthCheck;
@@ -37,11 +47,13 @@ import com.mangoyoo.yoopicbackend.exception.ErrorCode;
 import com.mangoyoo.yoopicbackend.model.constant.UserConstant;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import cn.hutool.core.util.StrUtil;
 @Slf4j
@@ -60,12 +72,22 @@ public class PictureController {
     private AliYunAiApi aliYunAiApi;
     @Resource
     private SpaceUserAuthManager spaceUserAuthManager;
-//    private final Cache<String, String> LOCAL_CACHE =
-//            (Cache<String, String>) Caffeine.newBuilder().initialCapacity(1024)
-//                    .maximumSize(10000L)
-//                    // 缓存 5 分钟移除
-//                    .expireAfterWrite(5L, TimeUnit.MINUTES)
-//                    .build();
+    @Resource
+    private PictureListCacheManager pictureListCacheManager;
+    @Resource
+    private ImageSearchCacheManager imageSearchCacheManager;
+    @Resource
+    private PictureTagDAO pictureTagDAO;
+    @Resource
+    private PictureSearchManager pictureSearchManager;
+    @Resource
+    private PictureColorIndexManager pictureColorIndexManager;
+    @Resource
+    private PictureHashIndexManager pictureHashIndexManager;
+    @Resource
+    private SpaceStatManager spaceStatManager;
+    @Resource
+    private TransactionTemplate transactionTemplate;
 
 
     /**
@@ -120,9 +142,21 @@ public class PictureController {
         // 补充审核参数
         User loginUser = userService.getLoginUser(request);
         pictureService.fillReviewParams(picture, loginUser);
-        // 操作数据库
-        boolean result = pictureService.updateById(picture);
-        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 操作数据库，图片和标签索引在同一个事务中更新
+        transactionTemplate.execute(status -> {
+            boolean result = pictureService.updateById(picture);
+            ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+            pictureTagDAO.syncPictureTags(id, picture.getTags(), oldPicture.getSpaceId(), picture.getReviewStatus());
+            return true;
+        });
+        spaceStatManager.onPictureUpdated(oldPicture, picture);
+        pictureSearchManager.refresh(id);
+        pictureColorIndexManager.refresh(id);
+        pictureHashIndexManager.refresh(id);
+        // 公共图库的图片发生变化，清理列表缓存
+        if (oldPicture.getSpaceId() == null) {
+            pictureListCacheManager.invalidateAll();
+        }
         return ResultUtils.success(true);
     }
 
@@ -209,12 +243,63 @@ public class PictureController {
             boolean hasPermission = StpKit.SPACE.hasPermission(SpaceUserPermissionConstant.PICTURE_VIEW);
             ThrowUtils.throwIf(!hasPermission, ErrorCode.NO_AUTH_ERROR);
         }
+        if (spaceId == null) {
+            // 公共图库走多级缓存
+            Page<PictureVO> pictureVOPage = pictureListCacheManager.getPictureVOPage(pictureQueryRequest, () -> {
+                Page<Picture> picturePage = pictureService.page(new Page<>(current, size), pictureService.getQueryWrapper(pictureQueryRequest));
+                return pictureService.getPictureVOPage(picturePage, request);
+            });
+            return ResultUtils.success(pictureVOPage);
+        }
         // 查询数据库
         Page<Picture> picturePage = pictureService.page(new Page<>(current, size), pictureService.getQueryWrapper(pictureQueryRequest));
         // 获取封装类
         return ResultUtils.success(pictureService.getPictureVOPage(picturePage, request));
     }
 
+    /**
+     * 全文搜索图片（按相关度排序）
+     */
+    @PostMapping("/search/text")
+    public BaseResponse<Page<PictureVO>> searchPictureByText(@RequestBody PictureQueryRequest pictureQueryRequest, HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        // 限制爬虫
+        ThrowUtils.throwIf(pictureQueryRequest.getPageSize() > 20, ErrorCode.PARAMS_ERROR);
+        // 空间权限校验
+        Long spaceId = pictureQueryRequest.getSpaceId();
+        if (spaceId == null) {
+            // 普通用户默认只能查看已过审的公开数据
+            pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
+            pictureQueryRequest.setNullSpaceId(true);
+        } else {
+            boolean hasPermission = StpKit.SPACE.hasPermission(SpaceUserPermissionConstant.PICTURE_VIEW);
+            ThrowUtils.throwIf(!hasPermission, ErrorCode.NO_AUTH_ERROR);
+        }
+        return ResultUtils.success(pictureService.searchPictureVOByText(pictureQueryRequest, request));
+    }
+
+    /**
+     * 游标分页获取图片列表（封装类），适用于无限滚动，不返回总数
+     */
+    @PostMapping("/list/cursor/vo")
+    public BaseResponse<CursorPageVO<PictureVO>> listPictureVOByCursor(@RequestBody PictureQueryByCursorRequest pictureQueryByCursorRequest,
+                                                                     HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureQueryByCursorRequest == null, ErrorCode.PARAMS_ERROR);
+        // 限制爬虫
+        ThrowUtils.throwIf(pictureQueryByCursorRequest.getPageSize() > 20, ErrorCode.PARAMS_ERROR);
+        // 空间权限校验
+        Long spaceId = pictureQueryByCursorRequest.getSpaceId();
+        if (spaceId == null) {
+            // 普通用户默认只能查看已过审的公开数据
+            pictureQueryByCursorRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
+            pictureQueryByCursorRequest.setNullSpaceId(true);
+        } else {
+            boolean hasPermission = StpKit.SPACE.hasPermission(SpaceUserPermissionConstant.PICTURE_VIEW);
+            ThrowUtils.throwIf(!hasPermission, ErrorCode.NO_AUTH_ERROR);
+        }
+        return ResultUtils.success(pictureService.listPictureVOByCursor(pictureQueryByCursorRequest, request));
+    }
+
     /**
      * 编辑图片（给用户使用）
      */
@@ -228,6 +313,25 @@ public class PictureController {
         this.pictureService.editPicture(pictureEditRequest,loginUser);
         return ResultUtils.success(true);
     }
+    /**
+     * 根据 picture 表回填标签索引表（仅管理员可用，可重复执行）
+     */
+    @PostMapping("/tag/backfill")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Long> backfillPictureTags() {
+        return ResultUtils.success(pictureTagDAO.backfillPictureTags());
+    }
+
+    /**
+     * 在后台为历史图片计算感知哈希（仅管理员可用，可重复执行，进度见日志）
+     */
+    @PostMapping("/hash/backfill")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Boolean> backfillPictureHash() {
+        ThrowUtils.throwIf(!pictureHashIndexManager.startBackfill(), ErrorCode.OPERATION_ERROR, "回填任务正在执行");
+        return ResultUtils.success(true);
+    }
+
     @GetMapping("/tag_category")
     public BaseResponse<PictureTagCategory> listPictureTagCategory() {
         PictureTagCategory pictureTagCategory = new PictureTagCategory();
@@ -246,44 +350,6 @@ public class PictureController {
         pictureService.doPictureReview(pictureReviewRequest, loginUser);
         return ResultUtils.success(true);
     }
-//    @PostMapping("/list/page/vo/cache")
-//    public BaseResponse<Page<PictureVO>> listPictureVOByPageWithCache(@RequestBody PictureQueryRequest pictureQueryRequest,
-//                                                                      HttpServletRequest request) {
-//        long current = pictureQueryRequest.getCurrent();
-//        long size = pictureQueryRequest.getPageSize();
-//        // 限制爬虫
-//        ThrowUtils.throwIf(size > 20, ErrorCode.PARAMS_ERROR);
-//        // 普通用户默认只能查看已过审的数据
-//        pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
-//
-//        // 构建缓存 key
-//        String queryCondition = JSONUtil.toJsonStr(pictureQueryRequest);
-//        String hashKey = DigestUtils.md5DigestAsHex(queryCondition.getBytes());
-//        String redisKey = "yupicture:listPictureVOByPage:" + hashKey;
-//        // 从 Redis 缓存中查询
-//        ValueOperations<String, String> valueOps = stringRedisTemplate.opsForValue();
-//        String cachedValue = valueOps.get(redisKey);
-//        if (cachedValue != null) {
-//            // 如果缓存命中，返回结果
-//            Page<PictureVO> cachedPage = JSONUtil.toBean(cachedValue, Page.class);
-//            return ResultUtils.success(cachedPage);
-//        }
-//
-//        // 查询数据库
-//        Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-//                pictureService.getQueryWrapper(pictureQueryRequest));
-//        // 获取封装类
-//        Page<PictureVO> pictureVOPage = pictureService.getPictureVOPage(picturePage, request);
-//
-//        // 存入 Redis 缓存
-//        String cacheValue = JSONUtil.toJsonStr(pictureVOPage);
-//        // 5 - 10 分钟随机过期，防止雪崩
-//        int cacheExpireTime = 300 +  RandomUtil.randomInt(0, 300);
-//        valueOps.set(redisKey, cacheValue, cacheExpireTime, TimeUnit.SECONDS);
-//
-//        // 返回结果
-//        return ResultUtils.success(pictureVOPage);
-//    }
     /**
      * 通过 URL 上传图片（可重新上传）
      */
@@ -310,18 +376,72 @@ public class PictureController {
     }
 
     /**
-     * 以图搜图
+     * 批量抓取并创建图片（SSE 推送上传进度）
+     */
+    @PostMapping(value = "/upload/batch/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public SseEmitter uploadPictureByBatchStream(
+            @RequestBody PictureUploadByBatchRequest pictureUploadByBatchRequest,
+            HttpServletRequest request
+    ) {
+        ThrowUtils.throwIf(pictureUploadByBatchRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        SseEmitter emitter = new SseEmitter(300000L);
+        Thread.ofVirtual().name("picture-batch-upload").start(() -> {
+            try {
+                pictureService.uploadPictureByBatch(pictureUploadByBatchRequest, loginUser, progress -> {
+                    try {
+                        emitter.send(SseEmitter.event().name(progress.getStage()).data(progress));
+                    } catch (Exception e) {
+                        // 客户端断开不影响后台继续上传
+                        log.warn("推送批量上传进度失败: {}", e.getMessage());
+                    }
+                });
+                emitter.complete();
+            } catch (Exception e) {
+                log.error("批量上传图片失败", e);
+                try {
+                    PictureBatchUploadProgressVO progress = new PictureBatchUploadProgressVO();
+                    progress.setStage("error");
+                    // 只把业务异常的提示返回给客户端，其他异常的细节只记录在日志中
+                    progress.setMessage(e instanceof BusinessException ? e.getMessage() : "批量上传失败，请稍后重试");
+                    emitter.send(SseEmitter.event().name("error").data(progress));
+                } catch (Exception ignored) {
+                }
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * 以图搜图（外部接口，结果有缓存；异步返回，不占用请求线程）
      */
     @PostMapping("/search/picture")
-    public BaseResponse<List<ImageSearchResult>> searchPictureByPicture(@RequestBody SearchPictureByPictureRequest searchPictureByPictureRequest) {
+    public CompletableFuture<BaseResponse<List<ImageSearchResult>>> searchPictureByPicture(@RequestBody SearchPictureByPictureRequest searchPictureByPictureRequest) {
         ThrowUtils.throwIf(searchPictureByPictureRequest == null, ErrorCode.PARAMS_ERROR);
         Long pictureId = searchPictureByPictureRequest.getPictureId();
         ThrowUtils.throwIf(pictureId == null || pictureId <= 0, ErrorCode.PARAMS_ERROR);
         Picture oldPicture = pictureService.getById(pictureId);
         ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
-        List<ImageSearchResult> resultList = ImageSearchApiFacade.searchImage(oldPicture.getThumbnailUrl());
-        return ResultUtils.success(resultList);
+        ThrowUtils.throwIf(StrUtil.isBlank(oldPicture.getThumbnailUrl()), ErrorCode.OPERATION_ERROR, "图片没有缩略图");
+        return imageSearchCacheManager.searchImage(oldPicture.getThumbnailUrl())
+                .thenApply(ResultUtils::success);
+    }
+    /**
+     * 以图搜图（本地相似图片搜索，只在图片所在的空间或公共图库中查找）
+     */
+    @PostMapping("/search/similar")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_VIEW)
+    public BaseResponse<List<PictureVO>> searchPictureBySimilarity(@RequestBody SearchPictureBySimilarityRequest searchPictureBySimilarityRequest,
+                                                                   HttpServletRequest request) {
+        ThrowUtils.throwIf(searchPictureBySimilarityRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        List<PictureVO> result = pictureService.searchPictureBySimilarity(searchPictureBySimilarityRequest.getPictureId(),
+                searchPictureBySimilarityRequest.getMaxDistance(), loginUser);
+        return ResultUtils.success(result);
     }
+
     @PostMapping("/search/color")
     @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_VIEW)
     public BaseResponse<List<PictureVO>> searchPictureByColor(@RequestBody SearchPictureByColorRequest searchPictureByColorRequest, HttpServletRequest request) {
@@ -329,7 +449,7 @@ public class PictureController {
         String picColor = searchPictureByColorRequest.getPicColor();
         Long spaceId = searchPictureByColorRequest.getSpaceId();
         User loginUser = userService.getLoginUser(request);
-        List<PictureVO> result = pictureService.searchPictureByColor(spaceId, picColor, loginUser);
+        List<PictureVO> result = pictureService.searchPictureByColor(spaceId, picColor, searchPictureByColorRequest.getMetric(), loginUser);
         return ResultUtils.success(result);
     }
     @PostMapping("/edit/batch")
@@ -9,6 +9,7 @@ import com.mangoyoo.yoopicbackend.common.BaseResponse;
 import com.mangoyoo.yoopicbackend.exception.BusinessException;
 import com.mangoyoo.yoopicbackend.exception.ErrorCode;
 import com.mangoyoo.yoopicbackend.exception.ThrowUtils;
+import com.mangoyoo.yoopicbackend.manager.quota.SpaceQuotaManager;
 import com.mangoyoo.yoopicbackend.model.auth.SpaceUserAuthManager;
 import com.mangoyoo.yoopicbackend.model.constant.UserConstant;
 import com.mangoyoo.yoopicbackend.model.entity.Space;
@@ -43,6 +44,8 @@ public class SpaceController {
     private SpaceAnalyzeService spaceAnalyzeService;
     @Resource
     private SpaceUserAuthManager spaceUserAuthManager;
+    @Resource
+    private SpaceQuotaManager spaceQuotaManager;
 
     @PostMapping("/update")
     @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
@@ -64,6 +67,9 @@ public class SpaceController {
         // 操作数据库
         boolean result = spaceService.updateById(space);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 同步额度上限
+        Space newSpace = spaceService.getById(id);
+        spaceQuotaManager.updateLimit(id, newSpace.getMaxCount(), newSpace.getMaxSize());
         return ResultUtils.success(true);
     }
     @PostMapping("/add")
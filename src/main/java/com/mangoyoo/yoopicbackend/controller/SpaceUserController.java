@@ -11,6 +11,7 @@ import com.mangoyoo.yoopicbackend.dto.space.SpaceUserQueryRequest;
 import com.mangoyoo.yoopicbackend.exception.BusinessException;
 import com.mangoyoo.yoopicbackend.exception.ErrorCode;
 import com.mangoyoo.yoopicbackend.exception.ThrowUtils;
+import com.mangoyoo.yoopicbackend.model.auth.SpaceUserAuthManager;
 import com.mangoyoo.yoopicbackend.model.auth.SpaceUserPermissionConstant;
 import com.mangoyoo.yoopicbackend.model.auth.annotation.SaSpaceCheckPermission;
 import com.mangoyoo.yoopicbackend.model.entity.User;
@@ -39,6 +40,9 @@ public class SpaceUserController {
     @Resource
     private UserService userService;
 
+    @Resource
+    private SpaceUserAuthManager spaceUserAuthManager;
+
     /**
      * 添加成员到空间
      */
@@ -47,6 +51,7 @@ public class SpaceUserController {
     public BaseResponse<Long> addSpaceUser(@RequestBody SpaceUserAddRequest spaceUserAddRequest, HttpServletRequest request) {
         ThrowUtils.throwIf(spaceUserAddRequest == null, ErrorCode.PARAMS_ERROR);
         long id = spaceUserService.addSpaceUser(spaceUserAddRequest);
+        spaceUserAuthManager.evictPermission(spaceUserAddRequest.getSpaceId(), spaceUserAddRequest.getUserId());
         return ResultUtils.success(id);
     }
 
@@ -67,6 +72,7 @@ public class SpaceUserController {
         // 操作数据库
         boolean result = spaceUserService.removeById(id);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        spaceUserAuthManager.evictPermission(oldSpaceUser.getSpaceId(), oldSpaceUser.getUserId());
         return ResultUtils.success(true);
     }
 
@@ -123,6 +129,7 @@ public class SpaceUserController {
         // 操作数据库
         boolean result = spaceUserService.updateById(spaceUser);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        spaceUserAuthManager.evictPermission(oldSpaceUser.getSpaceId(), oldSpaceUser.getUserId());
         return ResultUtils.success(true);
     }
 
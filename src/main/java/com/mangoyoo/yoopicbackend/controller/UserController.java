@@ -11,6 +11,7 @@ import com.mangoyoo.yoopicbackend.common.DeleteRequest;
 import com.mangoyoo.yoopicbackend.exception.BusinessException;
 import com.mangoyoo.yoopicbackend.exception.ErrorCode;
 import com.mangoyoo.yoopicbackend.exception.ThrowUtils;
+import com.mangoyoo.yoopicbackend.manager.cache.UserVOCacheManager;
 import com.mangoyoo.yoopicbackend.model.constant.UserConstant;
 import com.mangoyoo.yoopicbackend.model.entity.User;
 import com.mangoyoo.yoopicbackend.model.vo.LoginUserVO;
@@ -29,6 +30,9 @@ public class UserController {
     @Resource
     private UserService userService;
 
+    @Resource
+    private UserVOCacheManager userVOCacheManager;
+
     /**
      * 用户注册
      */
@@ -118,6 +122,7 @@ public class UserController {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
         boolean b = userService.removeById(deleteRequest.getId());
+        userVOCacheManager.invalidate(deleteRequest.getId());
         return ResultUtils.success(b);
     }
 
@@ -134,6 +139,7 @@ public class UserController {
         BeanUtils.copyProperties(userUpdateRequest, user);
         boolean result = userService.updateById(user);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        userVOCacheManager.invalidate(user.getId());
         return ResultUtils.success(true);
     }
 
@@ -183,6 +189,7 @@ public class UserController {
         BeanUtils.copyProperties(userVOUpdateRequest, user);
         boolean result = userService.updateById(user);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        userVOCacheManager.invalidate(user.getId());
         return ResultUtils.success(true);
     }
 
@@ -211,6 +218,7 @@ public class UserController {
 
         UserVO userVO = userService.setUserAvatar(multipartFile, userAvatarUpdateRequest, loginUser);
         ThrowUtils.throwIf(userVO == null || userVO.getId() == null, ErrorCode.OPERATION_ERROR);
+        userVOCacheManager.invalidate(userVO.getId());
         return ResultUtils.success(userVO);
     }
     /**
@@ -53,6 +53,10 @@ public class UploadPictureResult {
      * 图片主色调
      */
     private String picColor;
+    /**
+     * 图片感知哈希，计算失败时为空
+     */
+    private Long picHash;
 
 }
 
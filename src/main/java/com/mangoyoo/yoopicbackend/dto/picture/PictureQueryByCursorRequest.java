@@ -0,0 +1,21 @@
+package com.mangoyoo.yoopicbackend.dto.picture;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serializable;
+
+/**
+ * 游标分页查询图片请求（current 参数无效，翻页依赖 cursor）
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class PictureQueryByCursorRequest extends PictureQueryRequest implements Serializable {
+
+    /**
+     * 游标，首次查询不传，之后传上一页返回的 nextCursor
+     */
+    private String cursor;
+
+    private static final long serialVersionUID = 1L;
+}
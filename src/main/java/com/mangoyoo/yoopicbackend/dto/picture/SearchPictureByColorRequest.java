@@ -17,5 +17,10 @@ public class SearchPictureByColorRequest implements Serializable {
      */
     private Long spaceId;
 
+    /**
+     * 颜色距离：rgb（默认）/ lab
+     */
+    private String metric;
+
     private static final long serialVersionUID = 1L;
 }
@@ -0,0 +1,21 @@
+package com.mangoyoo.yoopicbackend.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+public class SearchPictureBySimilarityRequest implements Serializable {
+
+    /**
+     * 图片 id
+     */
+    private Long pictureId;
+
+    /**
+     * 最大汉明距离（0 - 20，越小越相似），为空时使用默认值
+     */
+    private Integer maxDistance;
+
+    private static final long serialVersionUID = 1L;
+}
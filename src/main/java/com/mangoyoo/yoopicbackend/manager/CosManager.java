@@ -7,6 +7,7 @@ import com.qcloud.cos.COSClient;
 import com.qcloud.cos.exception.CosClientException;
 import com.qcloud.cos.model.COSObject;
 import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.ObjectMetadata;
 import com.qcloud.cos.model.PutObjectRequest;
 import com.qcloud.cos.model.PutObjectResult;
 import com.qcloud.cos.model.ciModel.persistence.CIObject;
@@ -16,6 +17,7 @@ import org.springframework.stereotype.Component;
 
 import jakarta.annotation.Resource;
 import java.io.File;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -40,6 +42,21 @@ public class CosManager {
         return cosClient.putObject(putObjectRequest);
     }
 
+    /**
+     * 以数据流的方式上传对象
+     *
+     * @param key           唯一键
+     * @param inputStream   数据流
+     * @param contentLength 数据长度
+     */
+    public PutObjectResult putObject(String key, InputStream inputStream, long contentLength) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(contentLength);
+        PutObjectRequest putObjectRequest =
+                new PutObjectRequest(cosClientConfig.getBucket(), key, inputStream, objectMetadata);
+        return cosClient.putObject(putObjectRequest);
+    }
+
     /**
      * 上传对象（附带图片信息）
      *
@@ -49,6 +66,30 @@ public class CosManager {
     public PutObjectResult putPictureObject(String key, File file) {
         PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
                 file);
+        putObjectRequest.setPicOperations(buildPicOperations(key));
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 以数据流的方式上传对象（附带图片信息），不需要先写入临时文件
+     *
+     * @param key           唯一键
+     * @param inputStream   数据流
+     * @param contentLength 数据长度，必须准确
+     */
+    public PutObjectResult putPictureObject(String key, InputStream inputStream, long contentLength) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(contentLength);
+        PutObjectRequest putObjectRequest =
+                new PutObjectRequest(cosClientConfig.getBucket(), key, inputStream, objectMetadata);
+        putObjectRequest.setPicOperations(buildPicOperations(key));
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 构造图片处理参数：返回原图信息，并生成 webp 压缩图和缩略图
+     */
+    private PicOperations buildPicOperations(String key) {
         // 对图片进行处理（获取基本信息也被视作为一种处理）
         PicOperations picOperations = new PicOperations();
         // 1 表示返回原图信息
@@ -77,9 +118,7 @@ public class CosManager {
         rules.add(thumbnailRule);
         // 构造处理参数
         picOperations.setRules(rules);
-        putObjectRequest.setPicOperations(picOperations);
-        return cosClient.putObject(putObjectRequest);
-
+        return picOperations;
     }
 
 
@@ -108,6 +147,19 @@ public class CosManager {
         uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + compressedCiObject.getKey());
         return uploadPictureResult;
     }
+    /**
+     * 从访问地址中提取对象 key（去掉域名部分）
+     *
+     * @param url 访问地址
+     */
+    public String getObjectKey(String url) {
+        String hostPrefix = cosClientConfig.getHost() + "/";
+        if (url.startsWith(hostPrefix)) {
+            return url.substring(hostPrefix.length());
+        }
+        return url.replaceFirst("^https?://[^/]+/", "");
+    }
+
     /**
      * 删除对象
      *
@@ -0,0 +1,125 @@
+package com.mangoyoo.yoopicbackend.manager.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.mangoyoo.yoopicbackend.api.imagesearch.ImageSearchApiFacade;
+import com.mangoyoo.yoopicbackend.api.imagesearch.model.ImageSearchResult;
+import com.mangoyoo.yoopicbackend.exception.BusinessException;
+import com.mangoyoo.yoopicbackend.exception.ErrorCode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 以图搜图（外部接口）结果缓存
+ * <p>
+ * 1. 以缩略图地址为 key（上传按内容去重，相同图片共用同一地址），成功结果缓存 30 分钟；
+ * 2. 失败和空结果也缓存一小段时间（负缓存），避免上游异常时被反复调用；
+ * 3. 同一 key 的并发请求只会触发一次外部调用，其余请求复用同一个 future；
+ * 4. 外部调用在虚拟线程中异步执行，不占用 Tomcat 工作线程。
+ */
+@Slf4j
+@Component
+public class ImageSearchCacheManager {
+
+    private static final long SUCCESS_EXPIRE_MINUTES = 30;
+
+    private static final long EMPTY_EXPIRE_MINUTES = 5;
+
+    private static final long FAILURE_EXPIRE_SECONDS = 60;
+
+    private final ExecutorService searchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AsyncCache<String, SearchOutcome> resultCache = Caffeine.newBuilder()
+            .maximumSize(10000L)
+            .expireAfter(new Expiry<String, SearchOutcome>() {
+                @Override
+                public long expireAfterCreate(String key, SearchOutcome value, long currentTime) {
+                    return value.expireNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, SearchOutcome value, long currentTime, long currentDuration) {
+                    return value.expireNanos();
+                }
+
+                @Override
+                public long expireAfterRead(String key, SearchOutcome value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .buildAsync();
+
+    /**
+     * 以图搜图，优先使用缓存
+     *
+     * @param thumbnailUrl 图片缩略图地址
+     * @return 搜索结果，失败时以 BusinessException 结束
+     */
+    public CompletableFuture<List<ImageSearchResult>> searchImage(String thumbnailUrl) {
+        return resultCache.get(thumbnailUrl, (key, executor) ->
+                        ImageSearchApiFacade.searchImageAsync(key, searchExecutor)
+                                .handle((resultList, e) -> e == null
+                                        ? SearchOutcome.success(resultList)
+                                        : SearchOutcome.failure(e)))
+                .thenApply(SearchOutcome::getOrThrow);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        searchExecutor.shutdownNow();
+    }
+
+    /**
+     * 一次搜索的结果（成功的结果列表或失败原因）
+     */
+    private static final class SearchOutcome {
+
+        private final List<ImageSearchResult> resultList;
+
+        private final String errorMessage;
+
+        private SearchOutcome(List<ImageSearchResult> resultList, String errorMessage) {
+            this.resultList = resultList;
+            this.errorMessage = errorMessage;
+        }
+
+        static SearchOutcome success(List<ImageSearchResult> resultList) {
+            return new SearchOutcome(resultList == null ? Collections.emptyList() : Collections.unmodifiableList(resultList), null);
+        }
+
+        static SearchOutcome failure(Throwable e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof BusinessException) {
+                return new SearchOutcome(null, cause.getMessage());
+            }
+            log.error("以图搜图失败", cause);
+            return new SearchOutcome(null, "搜索失败");
+        }
+
+        List<ImageSearchResult> getOrThrow() {
+            if (errorMessage != null) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, errorMessage);
+            }
+            return resultList;
+        }
+
+        long expireNanos() {
+            if (errorMessage != null) {
+                return TimeUnit.SECONDS.toNanos(FAILURE_EXPIRE_SECONDS);
+            }
+            return resultList.isEmpty()
+                    ? TimeUnit.MINUTES.toNanos(EMPTY_EXPIRE_MINUTES)
+                    : TimeUnit.MINUTES.toNanos(SUCCESS_EXPIRE_MINUTES);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.mangoyoo.yoopicbackend.manager.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.mangoyoo.yoopicbackend.dto.picture.PictureQueryRequest;
+import com.mangoyoo.yoopicbackend.manager.cluster.ClusterEventBus;
+import com.mangoyoo.yoopicbackend.model.vo.PictureVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 公共图库分页列表多级缓存（Caffeine 本地缓存 -> Redis -> 数据库）
+ * <p>
+ * 1. 缓存 key 由查询条件规范化后计算摘要得到，字段顺序、标签顺序不影响命中；
+ * 2. 同一 key 的并发未命中只会有一个线程回源，其余线程等待其结果，防止缓存击穿；
+ * 3. 本地缓存和 Redis 的过期时间都带随机抖动，防止缓存雪崩；
+ * 4. 公共图库图片发生变化时通过递增 Redis 中的版本号整体失效，无需扫描删除 key；
+ *    同时通过 {@link ClusterEventBus} 通知其他节点清空本地缓存。广播消息丢失时（如订阅连接断开），
+ *    其他节点的本地缓存最多在过期时间（30 - 45 秒）后恢复一致。
+ */
+@Slf4j
+@Component
+public class PictureListCacheManager {
+
+    private static final String CACHE_KEY_PREFIX = "yoopic:listPictureVOByPage:";
+
+    /**
+     * 缓存版本号，图片变更时递增，旧版本的 key 自然过期
+     */
+    private static final String CACHE_VERSION_KEY = CACHE_KEY_PREFIX + "version";
+
+    /**
+     * 节点间广播失效的主题
+     */
+    private static final String INVALIDATE_TOPIC = "picture-list:invalidate";
+
+    /**
+     * 本地缓存 30 - 45 秒随机过期（广播丢失时的兜底）
+     */
+    private static final int LOCAL_EXPIRE_SECONDS = 30;
+
+    private static final int LOCAL_EXPIRE_JITTER_SECONDS = 15;
+
+    /**
+     * Redis 缓存 5 - 10 分钟随机过期
+     */
+    private static final int REDIS_EXPIRE_SECONDS = 300;
+
+    private static final int REDIS_EXPIRE_JITTER_SECONDS = 300;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ClusterEventBus clusterEventBus;
+
+    private final Cache<String, Page<PictureVO>> localCache = Caffeine.newBuilder()
+            .initialCapacity(1024)
+            .maximumSize(10000L)
+            .expireAfter(new Expiry<String, Page<PictureVO>>() {
+                @Override
+                public long expireAfterCreate(String key, Page<PictureVO> value, long currentTime) {
+                    return randomExpireNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, Page<PictureVO> value, long currentTime, long currentDuration) {
+                    return randomExpireNanos();
+                }
+
+                @Override
+                public long expireAfterRead(String key, Page<PictureVO> value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    /**
+     * 正在回源的请求，用于合并同一 key 的并发加载
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Page<PictureVO>>> loadingMap = new ConcurrentHashMap<>();
+
+    /**
+     * 本地失效代数，回源期间发生过失效则结果不写入本地缓存
+     */
+    private final AtomicLong localGeneration = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        clusterEventBus.subscribe(INVALIDATE_TOPIC, message -> invalidateLocal());
+    }
+
+    /**
+     * 获取公共图库分页数据，依次查询本地缓存、Redis，均未命中时调用 loader 查询数据库
+     *
+     * @param pictureQueryRequest 查询条件
+     * @param loader              数据库查询逻辑
+     * @return 分页数据
+     */
+    public Page<PictureVO> getPictureVOPage(PictureQueryRequest pictureQueryRequest, Supplier<Page<PictureVO>> loader) {
+        String cacheKey = buildCacheKey(pictureQueryRequest);
+        // 1. 本地缓存
+        Page<PictureVO> cachedPage = localCache.getIfPresent(cacheKey);
+        if (cachedPage != null) {
+            return cachedPage;
+        }
+        // 2. 合并并发回源
+        CompletableFuture<Page<PictureVO>> future = new CompletableFuture<>();
+        CompletableFuture<Page<PictureVO>> loadingFuture = loadingMap.putIfAbsent(cacheKey, future);
+        if (loadingFuture != null) {
+            try {
+                return loadingFuture.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+        try {
+            long generation = localGeneration.get();
+            Page<PictureVO> page = loadFromRedisOrDb(cacheKey, loader);
+            if (generation == localGeneration.get()) {
+                localCache.put(cacheKey, page);
+            }
+            future.complete(page);
+            return page;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingMap.remove(cacheKey, future);
+        }
+    }
+
+    /**
+     * 公共图库的图片发生变更（上传、编辑、删除、审核）后调用，使所有分页缓存失效
+     */
+    public void invalidateAll() {
+        invalidateLocal();
+        try {
+            stringRedisTemplate.opsForValue().increment(CACHE_VERSION_KEY);
+        } catch (Exception e) {
+            log.error("递增图片列表缓存版本失败", e);
+        }
+        clusterEventBus.publish(INVALIDATE_TOPIC, "");
+    }
+
+    private void invalidateLocal() {
+        localGeneration.incrementAndGet();
+        localCache.invalidateAll();
+    }
+
+    private Page<PictureVO> loadFromRedisOrDb(String cacheKey, Supplier<Page<PictureVO>> loader) {
+        String redisKey = null;
+        try {
+            String version = StrUtil.blankToDefault(stringRedisTemplate.opsForValue().get(CACHE_VERSION_KEY), "0");
+            redisKey = CACHE_KEY_PREFIX + version + ":" + cacheKey;
+            String cachedValue = stringRedisTemplate.opsForValue().get(redisKey);
+            if (cachedValue != null) {
+                return fromCacheValue(cachedValue);
+            }
+        } catch (Exception e) {
+            // Redis 不可用时直接回源数据库
+            log.warn("读取图片列表 Redis 缓存失败，直接查询数据库", e);
+        }
+        Page<PictureVO> page = loader.get();
+        if (redisKey != null) {
+            try {
+                int expireSeconds = REDIS_EXPIRE_SECONDS + RandomUtil.randomInt(0, REDIS_EXPIRE_JITTER_SECONDS);
+                stringRedisTemplate.opsForValue().set(redisKey, toCacheValue(page), expireSeconds, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("写入图片列表 Redis 缓存失败", e);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * 构建规范化的缓存 key，只包含会影响查询结果的字段
+     */
+    static String buildCacheKey(PictureQueryRequest pictureQueryRequest) {
+        StringBuilder sb = new StringBuilder(128);
+        appendField(sb, "current", pictureQueryRequest.getCurrent());
+        appendField(sb, "pageSize", pictureQueryRequest.getPageSize());
+        appendField(sb, "sortField", StrUtil.trimToNull(pictureQueryRequest.getSortField()));
+        appendField(sb, "sortOrder", StrUtil.trimToNull(pictureQueryRequest.getSortOrder()));
+        appendField(sb, "id", pictureQueryRequest.getId());
+        appendField(sb, "name", StrUtil.trimToNull(pictureQueryRequest.getName()));
+        appendField(sb, "introduction", StrUtil.trimToNull(pictureQueryRequest.getIntroduction()));
+        appendField(sb, "category", StrUtil.trimToNull(pictureQueryRequest.getCategory()));
+        List<String> tags = pictureQueryRequest.getTags();
+        if (CollUtil.isNotEmpty(tags)) {
+            // 标签之间是与的关系，与顺序无关
+            TreeSet<String> sortedTags = new TreeSet<>();
+            for (String tag : tags) {
+                if (tag != null) {
+                    sortedTags.add(tag);
+                }
+            }
+            appendField(sb, "tags", String.join(",", sortedTags));
+        }
+        appendField(sb, "picSize", pictureQueryRequest.getPicSize());
+        appendField(sb, "picWidth", pictureQueryRequest.getPicWidth());
+        appendField(sb, "picHeight", pictureQueryRequest.getPicHeight());
+        appendField(sb, "picScale", pictureQueryRequest.getPicScale());
+        appendField(sb, "picFormat", StrUtil.trimToNull(pictureQueryRequest.getPicFormat()));
+        appendField(sb, "searchText", StrUtil.trimToNull(pictureQueryRequest.getSearchText()));
+        appendField(sb, "userId", pictureQueryRequest.getUserId());
+        appendField(sb, "reviewStatus", pictureQueryRequest.getReviewStatus());
+        appendField(sb, "reviewMessage", StrUtil.trimToNull(pictureQueryRequest.getReviewMessage()));
+        appendField(sb, "reviewerId", pictureQueryRequest.getReviewerId());
+        appendField(sb, "spaceId", pictureQueryRequest.getSpaceId());
+        appendField(sb, "nullSpaceId", pictureQueryRequest.isNullSpaceId());
+        if (pictureQueryRequest.getStartEditTime() != null) {
+            appendField(sb, "startEditTime", pictureQueryRequest.getStartEditTime().getTime());
+        }
+        if (pictureQueryRequest.getEndEditTime() != null) {
+            appendField(sb, "endEditTime", pictureQueryRequest.getEndEditTime().getTime());
+        }
+        return DigestUtil.md5Hex(sb.toString());
+    }
+
+    private static void appendField(StringBuilder sb, String name, Object value) {
+        if (value == null) {
+            return;
+        }
+        // 对值中的分隔符做转义，避免不同条件拼接出相同的字符串
+        String str = String.valueOf(value).replace("\\", "\\\\").replace(";", "\\;");
+        sb.append(name).append('=').append(str).append(';');
+    }
+
+    private static String toCacheValue(Page<PictureVO> page) {
+        JSONObject jsonObject = JSONUtil.createObj()
+                .set("current", page.getCurrent())
+                .set("size", page.getSize())
+                .set("total", page.getTotal())
+                .set("records", page.getRecords());
+        return jsonObject.toString();
+    }
+
+    private static Page<PictureVO> fromCacheValue(String cacheValue) {
+        JSONObject jsonObject = JSONUtil.parseObj(cacheValue);
+        Page<PictureVO> page = new Page<>(jsonObject.getLong("current"), jsonObject.getLong("size"), jsonObject.getLong("total"));
+        page.setRecords(jsonObject.getJSONArray("records").toList(PictureVO.class));
+        return page;
+    }
+
+    private static long randomExpireNanos() {
+        return TimeUnit.SECONDS.toNanos(LOCAL_EXPIRE_SECONDS + RandomUtil.randomInt(0, LOCAL_EXPIRE_JITTER_SECONDS));
+    }
+}
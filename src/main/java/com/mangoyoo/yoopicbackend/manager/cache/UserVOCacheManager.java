@@ -0,0 +1,127 @@
+package com.mangoyoo.yoopicbackend.manager.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.mangoyoo.yoopicbackend.manager.cluster.ClusterEventBus;
+import com.mangoyoo.yoopicbackend.mapper.UserMapper;
+import com.mangoyoo.yoopicbackend.model.entity.User;
+import com.mangoyoo.yoopicbackend.model.vo.UserVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户封装类本地缓存
+ * <p>
+ * 图片、空间、空间成员等列表都要关联查询创建用户，而同一页中的用户高度重复，
+ * 这里按用户 id 缓存 {@link UserVO}，未命中的 id 合并为一次批量查询。
+ * 用户信息修改、删除后调用 {@link #invalidate(Long)}，通过 {@link ClusterEventBus} 通知其他节点失效，
+ * 同时失效内嵌了 UserVO 的公共图库分页缓存。
+ * 缓存的对象会被多个响应共享，调用方不要修改。
+ */
+@Slf4j
+@Component
+public class UserVOCacheManager {
+
+    /**
+     * 只查询封装类需要的字段，避免加载密码等敏感信息
+     */
+    private static final String[] USER_VO_COLUMNS = {"id", "userAccount", "userName", "userAvatar", "userProfile", "userRole", "createTime"};
+
+    /**
+     * 节点间广播失效的主题
+     */
+    private static final String INVALIDATE_TOPIC = "user-vo:invalidate";
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private ClusterEventBus clusterEventBus;
+
+    @Resource
+    private PictureListCacheManager pictureListCacheManager;
+
+    private final LoadingCache<Long, UserVO> userVOCache = Caffeine.newBuilder()
+            .maximumSize(10000L)
+            .expireAfterWrite(5, TimeUnit.MINUTES)
+            .build(new CacheLoader<>() {
+                @Override
+                public UserVO load(Long userId) {
+                    return loadAll(Collections.singleton(userId)).get(userId);
+                }
+
+                @Override
+                public Map<Long, UserVO> loadAll(Set<? extends Long> userIds) {
+                    return loadUserVOMap(userIds);
+                }
+            });
+
+    @PostConstruct
+    public void init() {
+        clusterEventBus.subscribe(INVALIDATE_TOPIC, message -> userVOCache.invalidate(Long.valueOf(message)));
+    }
+
+    /**
+     * 获取单个用户的封装类
+     *
+     * @param userId 用户 id
+     * @return 用户不存在时返回 null
+     */
+    public UserVO get(Long userId) {
+        if (userId == null || userId <= 0) {
+            return null;
+        }
+        return userVOCache.get(userId);
+    }
+
+    /**
+     * 批量获取用户封装类，未命中的 id 只查询一次数据库
+     *
+     * @param userIds 用户 id
+     * @return 用户 id => 封装类，不存在的用户不在结果中
+     */
+    public Map<Long, UserVO> getAll(Collection<Long> userIds) {
+        if (CollUtil.isEmpty(userIds)) {
+            return Collections.emptyMap();
+        }
+        Set<Long> validUserIds = new HashSet<>(userIds.size());
+        for (Long userId : userIds) {
+            if (userId != null && userId > 0) {
+                validUserIds.add(userId);
+            }
+        }
+        return userVOCache.getAll(validUserIds);
+    }
+
+    /**
+     * 用户信息变更后使缓存失效
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        userVOCache.invalidate(userId);
+        clusterEventBus.publish(INVALIDATE_TOPIC, String.valueOf(userId));
+        // 公共图库的分页缓存中包含创建者信息
+        pictureListCacheManager.invalidateAll();
+    }
+
+    private Map<Long, UserVO> loadUserVOMap(Collection<? extends Long> userIds) {
+        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select(USER_VO_COLUMNS).in("id", userIds);
+        List<User> userList = userMapper.selectList(queryWrapper);
+        Map<Long, UserVO> userVOMap = new HashMap<>(userList.size() * 2);
+        for (User user : userList) {
+            userVOMap.put(user.getId(), UserVO.objToVo(user));
+        }
+        return userVOMap;
+    }
+}
@@ -0,0 +1,72 @@
+package com.mangoyoo.yoopicbackend.manager.cluster;
+
+import cn.hutool.core.util.IdUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * 节点间事件广播（基于 Redis pub/sub）
+ * <p>
+ * 本地缓存、内存索引发生变化时，通过它通知其他节点同步处理。发布节点自己的变更已在本地直接处理，
+ * 收到自己发布的消息时忽略。pub/sub 不保证送达（订阅连接断开期间的消息会丢失），订阅方仍需依靠过期时间或定时重建兜底。
+ */
+@Slf4j
+@Component
+public class ClusterEventBus {
+
+    private static final String CHANNEL_PREFIX = "yoopic:cluster:";
+
+    /**
+     * 本节点 id，用于忽略自己发布的消息
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 订阅其他节点发布的事件
+     *
+     * @param topic    主题
+     * @param listener 事件处理，在订阅线程中执行，应尽快返回
+     */
+    public void subscribe(String topic, Consumer<String> listener) {
+        String prefix = nodeId + "\n";
+        redisMessageListenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            int separator = body.indexOf('\n');
+            if (separator < 0 || body.startsWith(prefix)) {
+                return;
+            }
+            try {
+                listener.accept(body.substring(separator + 1));
+            } catch (Exception e) {
+                log.error("处理节点间事件失败, topic = {}", topic, e);
+            }
+        }, new ChannelTopic(CHANNEL_PREFIX + topic));
+    }
+
+    /**
+     * 发布事件给其他节点，发布失败时只记录日志
+     *
+     * @param topic   主题
+     * @param message 事件内容
+     */
+    public void publish(String topic, String message) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL_PREFIX + topic, nodeId + "\n" + message);
+        } catch (Exception e) {
+            log.error("发布节点间事件失败, topic = {}", topic, e);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.mangoyoo.yoopicbackend.manager.color;
+
+import com.mangoyoo.yoopicbackend.util.ColorSimilarUtils;
+import com.mangoyoo.yoopicbackend.util.TopKHeap;
+
+/**
+ * 三维均匀网格，用于颜色最近邻查询
+ * <p>
+ * 颜色坐标按所在网格排序后连续存放（类似 CSR 结构），查询时从目标所在网格开始逐层向外扩展，
+ * 当已找到 K 个结果且下一层网格中的点不可能更近时提前结束。
+ * RGB 网格额外保存按网格排序后的打包颜色，单个网格内的距离通过 {@link ColorSimilarUtils#squaredDistances} 批量计算。
+ */
+final class ColorGrid {
+
+    static final int CELLS_PER_AXIS = 8;
+
+    private static final int CELL_COUNT = CELLS_PER_AXIS * CELLS_PER_AXIS * CELLS_PER_AXIS;
+
+    private static final float[] RGB_MIN = {0, 0, 0};
+
+    private static final float[] RGB_MAX = {256, 256, 256};
+
+    private final float[] min;
+
+    private final float[] cellWidth;
+
+    /**
+     * 最窄的网格边长，用于估算下一层网格的最近距离
+     */
+    private final float minCellWidth;
+
+    /**
+     * 第 i 个网格的数据位于 [cellStart[i], cellStart[i + 1])
+     */
+    private final int[] cellStart;
+
+    /**
+     * 按网格排序后的条目对应的原始下标
+     */
+    private final int[] entries;
+
+    /**
+     * 按网格排序后的坐标，每个条目 3 个分量
+     */
+    private final float[] coords;
+
+    /**
+     * 按网格排序后的打包 RGB 颜色，仅 RGB 网格有值
+     */
+    private final int[] packedRgb;
+
+    /**
+     * 单个网格中的最大条目数，用于分配批量计算的距离缓冲区
+     */
+    private final int maxCellSize;
+
+    private ColorGrid(float[] min, float[] cellWidth, int[] cellStart, int[] entries, float[] coords, int[] packedRgb) {
+        this.min = min;
+        this.cellWidth = cellWidth;
+        this.minCellWidth = Math.min(cellWidth[0], Math.min(cellWidth[1], cellWidth[2]));
+        this.cellStart = cellStart;
+        this.entries = entries;
+        this.coords = coords;
+        this.packedRgb = packedRgb;
+        int maxCellSize = 0;
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            maxCellSize = Math.max(maxCellSize, cellStart[cell + 1] - cellStart[cell]);
+        }
+        this.maxCellSize = maxCellSize;
+    }
+
+    /**
+     * 构建 RGB 网格
+     *
+     * @param colors 打包的 RGB 颜色
+     */
+    static ColorGrid buildRgb(int[] colors) {
+        float[] points = new float[colors.length * 3];
+        for (int i = 0; i < colors.length; i++) {
+            points[i * 3] = (colors[i] >> 16) & 0xFF;
+            points[i * 3 + 1] = (colors[i] >> 8) & 0xFF;
+            points[i * 3 + 2] = colors[i] & 0xFF;
+        }
+        return build(points, RGB_MIN, RGB_MAX, colors);
+    }
+
+    /**
+     * 构建网格
+     *
+     * @param points 原始坐标，每个条目 3 个分量
+     * @param min    各轴最小值
+     * @param max    各轴最大值
+     */
+    static ColorGrid build(float[] points, float[] min, float[] max) {
+        return build(points, min, max, null);
+    }
+
+    private static ColorGrid build(float[] points, float[] min, float[] max, int[] colors) {
+        int count = points.length / 3;
+        float[] cellWidth = new float[3];
+        for (int axis = 0; axis < 3; axis++) {
+            cellWidth[axis] = (max[axis] - min[axis]) / CELLS_PER_AXIS;
+        }
+        // 计数排序：先统计每个网格的条目数，再计算起始位置
+        int[] cellOfEntry = new int[count];
+        int[] cellStart = new int[CELL_COUNT + 1];
+        for (int i = 0; i < count; i++) {
+            int cell = cellIndex(cellCoord(points[i * 3], min[0], cellWidth[0]),
+                    cellCoord(points[i * 3 + 1], min[1], cellWidth[1]),
+                    cellCoord(points[i * 3 + 2], min[2], cellWidth[2]));
+            cellOfEntry[i] = cell;
+            cellStart[cell + 1]++;
+        }
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        int[] cursor = new int[CELL_COUNT];
+        System.arraycopy(cellStart, 0, cursor, 0, CELL_COUNT);
+        int[] entries = new int[count];
+        float[] coords = new float[count * 3];
+        int[] packedRgb = colors == null ? null : new int[count];
+        for (int i = 0; i < count; i++) {
+            int position = cursor[cellOfEntry[i]]++;
+            entries[position] = i;
+            coords[position * 3] = points[i * 3];
+            coords[position * 3 + 1] = points[i * 3 + 1];
+            coords[position * 3 + 2] = points[i * 3 + 2];
+            if (packedRgb != null) {
+                packedRgb[position] = colors[i];
+            }
+        }
+        return new ColorGrid(min, cellWidth, cellStart, entries, coords, packedRgb);
+    }
+
+    /**
+     * 查找离目标最近的 K 个条目
+     *
+     * @param heap 结果堆，堆中的下标为按网格排序后的位置，可通过 {@link #entryAt(int)} 转换为原始下标
+     */
+    void nearest(float x, float y, float z, TopKHeap heap) {
+        int cx = cellCoord(x, min[0], cellWidth[0]);
+        int cy = cellCoord(y, min[1], cellWidth[1]);
+        int cz = cellCoord(z, min[2], cellWidth[2]);
+        int[] distances = packedRgb == null ? null : new int[maxCellSize];
+        for (int ring = 0; ring < CELLS_PER_AXIS; ring++) {
+            if (ring > 0 && heap.isFull()) {
+                // 第 ring 层网格中的点与目标至少相隔 (ring - 1) 个完整网格
+                float bound = (ring - 1) * minCellWidth;
+                if (heap.worstDistance() <= bound * bound) {
+                    return;
+                }
+            }
+            scanRing(cx, cy, cz, ring, x, y, z, heap, distances);
+        }
+    }
+
+    /**
+     * 按网格排序后的位置转换为原始下标
+     */
+    int entryAt(int position) {
+        return entries[position];
+    }
+
+    private void scanRing(int cx, int cy, int cz, int ring, float x, float y, float z, TopKHeap heap, int[] distances) {
+        for (int dx = -ring; dx <= ring; dx++) {
+            int gx = cx + dx;
+            if (gx < 0 || gx >= CELLS_PER_AXIS) {
+                continue;
+            }
+            for (int dy = -ring; dy <= ring; dy++) {
+                int gy = cy + dy;
+                if (gy < 0 || gy >= CELLS_PER_AXIS) {
+                    continue;
+                }
+                boolean onFace = Math.abs(dx) == ring || Math.abs(dy) == ring;
+                // 不在外表面上的 (dx, dy) 只需要扫描 dz = ±ring 两个网格
+                int step = onFace || ring == 0 ? 1 : 2 * ring;
+                for (int dz = -ring; dz <= ring; dz += step) {
+                    int gz = cz + dz;
+                    if (gz < 0 || gz >= CELLS_PER_AXIS) {
+                        continue;
+                    }
+                    int cell = cellIndex(gx, gy, gz);
+                    int from = cellStart[cell];
+                    int to = cellStart[cell + 1];
+                    if (distances != null) {
+                        scanRgbCell(from, to, (int) x << 16 | (int) y << 8 | (int) z, heap, distances);
+                    } else {
+                        scanCell(from, to, x, y, z, heap);
+                    }
+                }
+            }
+        }
+    }
+
+    private void scanCell(int from, int to, float x, float y, float z, TopKHeap heap) {
+        for (int position = from; position < to; position++) {
+            float d0 = coords[position * 3] - x;
+            float d1 = coords[position * 3 + 1] - y;
+            float d2 = coords[position * 3 + 2] - z;
+            heap.offer(position, d0 * d0 + d1 * d1 + d2 * d2);
+        }
+    }
+
+    private void scanRgbCell(int from, int to, int targetRgb, TopKHeap heap, int[] distances) {
+        if (from == to) {
+            return;
+        }
+        ColorSimilarUtils.squaredDistances(targetRgb, packedRgb, from, to, distances);
+        float worst = heap.worstDistance();
+        for (int i = 0; i < to - from; i++) {
+            if (distances[i] < worst) {
+                heap.offer(from + i, distances[i]);
+                worst = heap.worstDistance();
+            }
+        }
+    }
+
+    private static int cellCoord(float value, float min, float width) {
+        int coord = (int) ((value - min) / width);
+        return Math.max(0, Math.min(CELLS_PER_AXIS - 1, coord));
+    }
+
+    private static int cellIndex(int x, int y, int z) {
+        return (x * CELLS_PER_AXIS + y) * CELLS_PER_AXIS + z;
+    }
+}
@@ -0,0 +1,300 @@
+package com.mangoyoo.yoopicbackend.manager.color;
+
+import com.mangoyoo.yoopicbackend.model.enums.ColorMetricEnum;
+import com.mangoyoo.yoopicbackend.util.ColorSimilarUtils;
+import com.mangoyoo.yoopicbackend.util.TopKHeap;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 图片主色调索引（纯内存，不依赖 Spring，可直接单元测试）
+ * <p>
+ * 按空间分别维护图片主色调，每个空间的颜色在查询前被打包为原始类型数组（RGB 和 CIELAB 各一份），
+ * 并建立均匀网格，查询最相近的 K 个颜色时只需扫描目标附近的少量网格。
+ * 快照建立之后的写入记录为少量增量，查询时同时扫描快照和增量；增量超过 {@link #MAX_DELTA_SIZE} 条后，
+ * 下一次查询才重建该空间的快照。查询本身无锁。
+ */
+public class PictureColorIndex {
+
+    /**
+     * 公共图库在索引中的空间 key（数据库中 spaceId 为 null）
+     */
+    private static final long PUBLIC_SPACE_KEY = 0L;
+
+    /**
+     * 快照之外最多保留的增量条数，超过后下一次查询重建快照
+     */
+    static final int MAX_DELTA_SIZE = 256;
+
+    private final ConcurrentHashMap<Long, SpaceColorIndex> spaceIndexMap = new ConcurrentHashMap<>();
+
+    /**
+     * 图片 id -> 所在空间 key
+     */
+    private final HashMap<Long, Long> spaceKeyMap = new HashMap<>();
+
+    /**
+     * 新增或更新图片的主色调
+     *
+     * @param pictureId 图片 id
+     * @param spaceId   空间 id，为空表示公共图库
+     * @param rgb       打包的 RGB 颜色
+     */
+    public synchronized void put(long pictureId, Long spaceId, int rgb) {
+        long spaceKey = toSpaceKey(spaceId);
+        Long oldSpaceKey = spaceKeyMap.put(pictureId, spaceKey);
+        if (oldSpaceKey != null && oldSpaceKey != spaceKey) {
+            spaceIndexMap.get(oldSpaceKey).remove(pictureId);
+        }
+        spaceIndexMap.computeIfAbsent(spaceKey, key -> new SpaceColorIndex()).put(pictureId, rgb);
+    }
+
+    /**
+     * 删除图片
+     */
+    public synchronized void remove(long pictureId) {
+        Long spaceKey = spaceKeyMap.remove(pictureId);
+        if (spaceKey != null) {
+            spaceIndexMap.get(spaceKey).remove(pictureId);
+        }
+    }
+
+    /**
+     * 空间中已索引的图片数
+     */
+    public int size(Long spaceId) {
+        SpaceColorIndex spaceColorIndex = spaceIndexMap.get(toSpaceKey(spaceId));
+        return spaceColorIndex == null ? 0 : spaceColorIndex.size();
+    }
+
+    /**
+     * 查询空间中与目标颜色最相近的 K 张图片
+     *
+     * @param spaceId   空间 id，为空表示公共图库
+     * @param targetRgb 目标颜色
+     * @param k         数量
+     * @param metric    颜色距离
+     * @return 按相似度从高到低排列的图片 id
+     */
+    public List<Long> nearest(Long spaceId, int targetRgb, int k, ColorMetricEnum metric) {
+        SpaceColorIndex spaceColorIndex = spaceIndexMap.get(toSpaceKey(spaceId));
+        if (spaceColorIndex == null || k <= 0) {
+            return Collections.emptyList();
+        }
+        return spaceColorIndex.view().nearest(targetRgb, k, metric);
+    }
+
+    private static long toSpaceKey(Long spaceId) {
+        return spaceId == null ? PUBLIC_SPACE_KEY : spaceId;
+    }
+
+    /**
+     * 单个空间的颜色数据
+     */
+    private static final class SpaceColorIndex {
+
+        private final LinkedHashMap<Long, Integer> colorMap = new LinkedHashMap<>();
+
+        private volatile ColorView view = new ColorView(ColorSnapshot.EMPTY, Collections.emptyMap(), Collections.emptySet(), false);
+
+        synchronized void put(long pictureId, int rgb) {
+            Integer oldRgb = colorMap.put(pictureId, rgb);
+            if (oldRgb == null || oldRgb != rgb) {
+                view = view.withPut(pictureId, rgb);
+            }
+        }
+
+        synchronized void remove(long pictureId) {
+            if (colorMap.remove(pictureId) != null) {
+                view = view.withRemove(pictureId);
+            }
+        }
+
+        synchronized int size() {
+            return colorMap.size();
+        }
+
+        ColorView view() {
+            ColorView current = view;
+            if (!current.rebuildRequired) {
+                return current;
+            }
+            synchronized (this) {
+                if (view.rebuildRequired) {
+                    view = new ColorView(ColorSnapshot.build(colorMap), Collections.emptyMap(), Collections.emptySet(), false);
+                }
+                return view;
+            }
+        }
+    }
+
+    /**
+     * 快照加上快照之后的增量（不可变，写入时整体替换）
+     */
+    private static final class ColorView {
+
+        final ColorSnapshot snapshot;
+
+        /**
+         * 快照之后新增或修改的颜色
+         */
+        final Map<Long, Integer> upserts;
+
+        /**
+         * 快照之后删除的图片
+         */
+        final Set<Long> removed;
+
+        /**
+         * 增量过多，下一次查询前需要重建快照（此时不再记录增量）
+         */
+        final boolean rebuildRequired;
+
+        ColorView(ColorSnapshot snapshot, Map<Long, Integer> upserts, Set<Long> removed, boolean rebuildRequired) {
+            this.snapshot = snapshot;
+            this.upserts = upserts;
+            this.removed = removed;
+            this.rebuildRequired = rebuildRequired;
+        }
+
+        ColorView withPut(long pictureId, int rgb) {
+            if (rebuildRequired || upserts.size() + removed.size() >= MAX_DELTA_SIZE) {
+                return new ColorView(snapshot, Collections.emptyMap(), Collections.emptySet(), true);
+            }
+            Map<Long, Integer> newUpserts = new HashMap<>(upserts);
+            newUpserts.put(pictureId, rgb);
+            Set<Long> newRemoved = removed;
+            if (removed.contains(pictureId)) {
+                newRemoved = new HashSet<>(removed);
+                newRemoved.remove(pictureId);
+            }
+            return new ColorView(snapshot, newUpserts, newRemoved, false);
+        }
+
+        ColorView withRemove(long pictureId) {
+            if (rebuildRequired || upserts.size() + removed.size() >= MAX_DELTA_SIZE) {
+                return new ColorView(snapshot, Collections.emptyMap(), Collections.emptySet(), true);
+            }
+            Map<Long, Integer> newUpserts = upserts;
+            if (upserts.containsKey(pictureId)) {
+                newUpserts = new HashMap<>(upserts);
+                newUpserts.remove(pictureId);
+            }
+            Set<Long> newRemoved = new HashSet<>(removed);
+            newRemoved.add(pictureId);
+            return new ColorView(snapshot, newUpserts, newRemoved, false);
+        }
+
+        /**
+         * 快照和增量合并后的 K 近邻
+         * <p>
+         * 增量放在快照条目之后编号，与快照一起进入同一个堆。快照中已修改、已删除的条目同样会入堆，
+         * 所以堆多留出增量条数的位置，取出后跳过这些过期条目，剩下的前 K 个就是准确结果。
+         */
+        List<Long> nearest(int targetRgb, int k, ColorMetricEnum metric) {
+            long[] snapshotIds = snapshot.pictureIds;
+            int staleBound = upserts.size() + removed.size();
+            int capacity = Math.min(k + staleBound, snapshotIds.length + upserts.size());
+            if (capacity <= 0) {
+                return Collections.emptyList();
+            }
+            TopKHeap heap = new TopKHeap(capacity);
+            long[] deltaIds = new long[upserts.size()];
+            float[] target = metric == ColorMetricEnum.LAB ? new float[3] : null;
+            if (target != null) {
+                ColorSimilarUtils.rgbToLab(targetRgb, target);
+            }
+            float[] lab = new float[3];
+            int i = 0;
+            for (Map.Entry<Long, Integer> entry : upserts.entrySet()) {
+                deltaIds[i] = entry.getKey();
+                float distance;
+                if (target != null) {
+                    ColorSimilarUtils.rgbToLab(entry.getValue(), lab);
+                    distance = ColorSimilarUtils.labDistanceSquared(target[0], target[1], target[2], lab[0], lab[1], lab[2]);
+                } else {
+                    distance = ColorSimilarUtils.rgbDistanceSquared(targetRgb, entry.getValue());
+                }
+                heap.offer(snapshotIds.length + i, distance);
+                i++;
+            }
+            ColorGrid grid = snapshot.search(targetRgb, target, heap);
+            int[] positions = heap.drainSortedIndexes();
+            List<Long> result = new ArrayList<>(Math.min(k, positions.length));
+            for (int position : positions) {
+                if (result.size() >= k) {
+                    break;
+                }
+                if (position >= snapshotIds.length) {
+                    result.add(deltaIds[position - snapshotIds.length]);
+                    continue;
+                }
+                long pictureId = snapshotIds[grid.entryAt(position)];
+                if (!upserts.containsKey(pictureId) && !removed.contains(pictureId)) {
+                    result.add(pictureId);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 某一时刻空间颜色数据的只读快照
+     */
+    private static final class ColorSnapshot {
+
+        private static final float[] LAB_MIN = {0, -128, -128};
+
+        private static final float[] LAB_MAX = {100.001f, 128, 128};
+
+        static final ColorSnapshot EMPTY = build(Collections.emptyMap());
+
+        final long[] pictureIds;
+
+        private final ColorGrid rgbGrid;
+
+        private final ColorGrid labGrid;
+
+        private ColorSnapshot(long[] pictureIds, ColorGrid rgbGrid, ColorGrid labGrid) {
+            this.pictureIds = pictureIds;
+            this.rgbGrid = rgbGrid;
+            this.labGrid = labGrid;
+        }
+
+        static ColorSnapshot build(Map<Long, Integer> colorMap) {
+            int count = colorMap.size();
+            long[] pictureIds = new long[count];
+            int[] colors = new int[count];
+            float[] labPoints = new float[count * 3];
+            float[] lab = new float[3];
+            int i = 0;
+            for (Map.Entry<Long, Integer> entry : colorMap.entrySet()) {
+                int rgb = entry.getValue();
+                pictureIds[i] = entry.getKey();
+                colors[i] = rgb;
+                ColorSimilarUtils.rgbToLab(rgb, lab);
+                System.arraycopy(lab, 0, labPoints, i * 3, 3);
+                i++;
+            }
+            return new ColorSnapshot(pictureIds,
+                    ColorGrid.buildRgb(colors),
+                    ColorGrid.build(labPoints, LAB_MIN, LAB_MAX));
+        }
+
+        /**
+         * 在快照中查找离目标最近的条目放入堆中
+         *
+         * @param targetLab 目标的 CIELAB 坐标，为空表示按 RGB 距离
+         * @return 使用的网格，堆中快照条目的下标通过它转换为原始下标
+         */
+        ColorGrid search(int targetRgb, float[] targetLab, TopKHeap heap) {
+            if (targetLab != null) {
+                labGrid.nearest(targetLab[0], targetLab[1], targetLab[2], heap);
+                return labGrid;
+            }
+            rgbGrid.nearest((targetRgb >> 16) & 0xFF, (targetRgb >> 8) & 0xFF, targetRgb & 0xFF, heap);
+            return rgbGrid;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.mangoyoo.yoopicbackend.manager.color;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.mangoyoo.yoopicbackend.manager.index.PictureIndexTemplate;
+import com.mangoyoo.yoopicbackend.model.entity.Picture;
+import com.mangoyoo.yoopicbackend.model.enums.ColorMetricEnum;
+import com.mangoyoo.yoopicbackend.model.enums.PictureReviewStatusEnum;
+import com.mangoyoo.yoopicbackend.util.ColorSimilarUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 图片主色调索引管理器
+ * <p>
+ * 应用启动后从 picture 表加载所有带主色调的图片构建 {@link PictureColorIndex}，之后由图片的写操作增量刷新，
+ * 加载、广播和定时同步的流程见 {@link PictureIndexTemplate}。
+ * 公共图库只索引审核通过的图片，空间内的图片全部索引。
+ */
+@Slf4j
+@Component
+public class PictureColorIndexManager extends PictureIndexTemplate {
+
+    private static final int LOAD_BATCH_SIZE = 2000;
+
+    private static final String[] INDEX_COLUMNS = {"id", "spaceId", "picColor", "reviewStatus"};
+
+    private static final String REFRESH_TOPIC = "picture-color:refresh";
+
+    private final PictureColorIndex colorIndex = new PictureColorIndex();
+
+    public PictureColorIndexManager() {
+        super("图片颜色索引", REFRESH_TOPIC, INDEX_COLUMNS, LOAD_BATCH_SIZE);
+    }
+
+    /**
+     * 查询空间中与目标颜色最相近的 K 张图片
+     *
+     * @param spaceId  空间 id，为空表示公共图库
+     * @param picColor 目标颜色（十六进制）
+     * @param k        数量
+     * @param metric   颜色距离
+     * @return 按相似度从高到低排列的图片 id
+     */
+    public List<Long> nearest(Long spaceId, String picColor, int k, ColorMetricEnum metric) {
+        return colorIndex.nearest(spaceId, ColorSimilarUtils.parseRgb(picColor), k, metric);
+    }
+
+    @Override
+    protected boolean apply(Picture picture) {
+        boolean indexable = StrUtil.isNotBlank(picture.getPicColor())
+                && (picture.getSpaceId() != null
+                || Objects.equals(picture.getReviewStatus(), PictureReviewStatusEnum.PASS.getValue()));
+        if (indexable) {
+            try {
+                colorIndex.put(picture.getId(), picture.getSpaceId(), ColorSimilarUtils.parseRgb(picture.getPicColor()));
+                return true;
+            } catch (NumberFormatException e) {
+                log.warn("图片主色调格式错误, pictureId = {}, picColor = {}", picture.getId(), picture.getPicColor());
+            }
+        }
+        colorIndex.remove(picture.getId());
+        return false;
+    }
+
+    @Override
+    protected void remove(Long pictureId) {
+        colorIndex.remove(pictureId);
+    }
+
+    @Override
+    protected void filterLoadQuery(QueryWrapper<Picture> queryWrapper) {
+        queryWrapper.isNotNull("picColor");
+    }
+
+    @Override
+    protected String buildSummary() {
+        return "，SIMD 批量计算：" + ColorSimilarUtils.isVectorized();
+    }
+}
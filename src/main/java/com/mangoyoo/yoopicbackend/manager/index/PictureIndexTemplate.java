@@ -0,0 +1,241 @@
+package com.mangoyoo.yoopicbackend.manager.index;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.mangoyoo.yoopicbackend.manager.cluster.ClusterEventBus;
+import com.mangoyoo.yoopicbackend.mapper.PictureMapper;
+import com.mangoyoo.yoopicbackend.model.entity.Picture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 picture 表的本地内存索引模板（全文搜索、主色调、感知哈希）
+ * <p>
+ * 定义索引的加载和增量刷新流程：
+ * 1. 应用启动后按 id 分批加载 picture 表构建索引，构建期间发生变更的图片在构建完成后再刷新一次，避免被旧数据覆盖；
+ * 2. 图片的写操作调用 {@link #refresh(Collection)}，以数据库中的最新数据为准刷新本节点，并广播给其他节点刷新；
+ * 3. 广播可能丢失，另外定时按 updateTime 同步最近变更的图片兜底。
+ * 子类只需要实现图片如何写入索引（{@link #apply(Picture)}）和如何从索引中移除（{@link #remove(Long)}）。
+ * 索引构建完成前 {@link #isReady()} 返回 false，调用方应回退到数据库查询。
+ */
+@Slf4j
+public abstract class PictureIndexTemplate {
+
+    /**
+     * 增量同步时向前多查的时间，覆盖提交较晚的事务和节点间的时钟误差
+     */
+    private static final long SYNC_OVERLAP_MILLIS = 60_000;
+
+    @Resource
+    protected PictureMapper pictureMapper;
+
+    @Resource
+    private ClusterEventBus clusterEventBus;
+
+    /**
+     * 索引名称，用于日志
+     */
+    private final String indexName;
+
+    /**
+     * 集群内广播刷新的主题
+     */
+    private final String refreshTopic;
+
+    /**
+     * 加载和刷新时查询的列
+     */
+    private final String[] indexColumns;
+
+    private final int loadBatchSize;
+
+    private volatile boolean ready = false;
+
+    /**
+     * 构建索引期间发生变更的图片，构建完成后再刷新一次
+     */
+    private final Set<Long> changedDuringBuild = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 增量同步的水位（数据库中的 updateTime），之后更新的图片会在下次同步时刷新
+     */
+    private volatile Date syncWatermark;
+
+    protected PictureIndexTemplate(String indexName, String refreshTopic, String[] indexColumns, int loadBatchSize) {
+        this.indexName = indexName;
+        this.refreshTopic = refreshTopic;
+        this.indexColumns = indexColumns;
+        this.loadBatchSize = loadBatchSize;
+    }
+
+    @PostConstruct
+    public void subscribeRefresh() {
+        clusterEventBus.subscribe(refreshTopic, message -> refreshLocal(parsePictureIds(message)));
+    }
+
+    /**
+     * 应用启动后异步构建索引
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        long startTime = System.currentTimeMillis();
+        long lastId = 0;
+        int total = 0;
+        try {
+            Date latestUpdateTime = pictureMapper.selectMaxUpdateTime();
+            syncWatermark = latestUpdateTime != null ? latestUpdateTime : new Date(0);
+            while (true) {
+                QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+                queryWrapper.select(indexColumns);
+                filterLoadQuery(queryWrapper);
+                queryWrapper.gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("LIMIT " + loadBatchSize);
+                List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+                if (pictureList.isEmpty()) {
+                    break;
+                }
+                for (Picture picture : pictureList) {
+                    if (apply(picture)) {
+                        total++;
+                    }
+                }
+                lastId = pictureList.get(pictureList.size() - 1).getId();
+            }
+            ready = true;
+            if (!changedDuringBuild.isEmpty()) {
+                List<Long> changedIds = new ArrayList<>(changedDuringBuild);
+                changedDuringBuild.clear();
+                refreshLocal(changedIds);
+            }
+            log.info("{}构建完成，共 {} 张图片，耗时 {} ms{}", indexName, total,
+                    System.currentTimeMillis() - startTime, buildSummary());
+        } catch (Exception e) {
+            log.error("{}构建失败，查询将回退到数据库", indexName, e);
+        }
+    }
+
+    /**
+     * 图片新增、修改、审核、删除后刷新索引（以数据库中的最新数据为准），并通知其他节点刷新
+     *
+     * @param pictureIds 发生变化的图片 id
+     */
+    public void refresh(Collection<Long> pictureIds) {
+        if (CollUtil.isEmpty(pictureIds)) {
+            return;
+        }
+        refreshLocal(pictureIds);
+        clusterEventBus.publish(refreshTopic, StrUtil.join(",", pictureIds));
+    }
+
+    /**
+     * 刷新单张图片
+     */
+    public void refresh(Long pictureId) {
+        if (pictureId != null) {
+            refresh(Collections.singletonList(pictureId));
+        }
+    }
+
+    /**
+     * 定时刷新最近更新过的图片（包括其他节点修改、删除的图片），弥补丢失的广播
+     */
+    @Scheduled(fixedDelayString = "${picture.index.sync-interval:30000}")
+    public void syncRecentChanges() {
+        Date watermark = syncWatermark;
+        if (!ready || watermark == null) {
+            return;
+        }
+        try {
+            Date latestUpdateTime = pictureMapper.selectMaxUpdateTime();
+            List<Long> pictureIds = pictureMapper.selectIdsUpdatedSince(new Date(watermark.getTime() - SYNC_OVERLAP_MILLIS));
+            for (List<Long> batch : CollUtil.split(pictureIds, loadBatchSize)) {
+                refreshLocal(batch);
+            }
+            if (latestUpdateTime != null) {
+                syncWatermark = latestUpdateTime;
+            }
+        } catch (Exception e) {
+            log.error("同步{}失败", indexName, e);
+        }
+    }
+
+    /**
+     * 只刷新本节点的索引
+     */
+    private void refreshLocal(Collection<Long> pictureIds) {
+        if (CollUtil.isEmpty(pictureIds)) {
+            return;
+        }
+        if (!ready) {
+            changedDuringBuild.addAll(pictureIds);
+        }
+        try {
+            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select(indexColumns).in("id", pictureIds);
+            Set<Long> indexedIds = new HashSet<>();
+            for (Picture picture : pictureMapper.selectList(queryWrapper)) {
+                if (apply(picture)) {
+                    indexedIds.add(picture.getId());
+                }
+            }
+            // 数据库中查不到的图片（已删除）从索引中移除
+            for (Long pictureId : pictureIds) {
+                if (!indexedIds.contains(pictureId)) {
+                    remove(pictureId);
+                }
+            }
+        } catch (Exception e) {
+            log.error("刷新{}失败, pictureIds = {}", indexName, pictureIds, e);
+        }
+    }
+
+    /**
+     * 索引是否已可用
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 启动加载时的额外过滤条件（如只加载已有指纹的图片），默认加载全部
+     */
+    protected void filterLoadQuery(QueryWrapper<Picture> queryWrapper) {
+    }
+
+    /**
+     * 构建完成日志的补充信息，默认为空
+     */
+    protected String buildSummary() {
+        return "";
+    }
+
+    /**
+     * 将图片写入索引，不满足条件的从索引中移除
+     *
+     * @param picture 只包含 indexColumns 中的列
+     * @return 是否写入了索引
+     */
+    protected abstract boolean apply(Picture picture);
+
+    /**
+     * 从索引中移除图片
+     */
+    protected abstract void remove(Long pictureId);
+
+    private static List<Long> parsePictureIds(String message) {
+        return StrUtil.split(message, ',').stream()
+                .map(Long::valueOf)
+                .toList();
+    }
+}
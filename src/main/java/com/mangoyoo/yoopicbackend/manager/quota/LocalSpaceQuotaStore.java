@@ -0,0 +1,278 @@
+package com.mangoyoo.yoopicbackend.manager.quota;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 单机模式的空间额度存储（纯内存，不依赖 Spring，可直接单元测试）
+ * <p>
+ * 按空间 id 分段加锁，不同空间的操作基本不会互相等待。只适用于单节点部署，多节点时各节点的计数互不可见。
+ */
+public class LocalSpaceQuotaStore implements SpaceQuotaStore {
+
+    private static final int STRIPES = 64;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    private final ConcurrentHashMap<Long, Counter> counterMap = new ConcurrentHashMap<>();
+
+    private final Set<Long> dirtySpaceIds = ConcurrentHashMap.newKeySet();
+
+    private final long reservationLeaseMillis;
+
+    /**
+     * 当前时间（毫秒），单元测试中可以替换
+     */
+    private final LongSupplier clock;
+
+    public LocalSpaceQuotaStore() {
+        this(DEFAULT_RESERVATION_LEASE);
+    }
+
+    public LocalSpaceQuotaStore(Duration reservationLease) {
+        this(reservationLease, System::currentTimeMillis);
+    }
+
+    LocalSpaceQuotaStore(Duration reservationLease, LongSupplier clock) {
+        this.reservationLeaseMillis = reservationLease.toMillis();
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void load(long spaceId, long usedCount, long usedSize, long maxCount, long maxSize) {
+        counterMap.computeIfAbsent(spaceId, key -> {
+            Counter counter = new Counter();
+            counter.usedCount = usedCount;
+            counter.usedSize = usedSize;
+            counter.maxCount = maxCount;
+            counter.maxSize = maxSize;
+            return counter;
+        });
+    }
+
+    @Override
+    public int reserve(long spaceId, String reservationId, long count, long size) {
+        Counter counter = counterMap.get(spaceId);
+        if (counter == null) {
+            return NOT_LOADED;
+        }
+        ReentrantLock lock = lockOf(spaceId);
+        lock.lock();
+        try {
+            long now = clock.getAsLong();
+            removeExpired(counter, now);
+            if (counter.usedCount + counter.reservedCount + count > counter.maxCount) {
+                return COUNT_EXCEEDED;
+            }
+            long usedSize = counter.usedSize + counter.reservedSize;
+            if (usedSize >= counter.maxSize || usedSize + size > counter.maxSize) {
+                return SIZE_EXCEEDED;
+            }
+            counter.reservedCount += count;
+            counter.reservedSize += size;
+            counter.reservations.put(reservationId, new long[]{count, size, now + reservationLeaseMillis});
+            return OK;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int commit(long spaceId, String reservationId, long reservedCount, long reservedSize, long actualCount, long actualSize) {
+        Counter counter = counterMap.get(spaceId);
+        if (counter == null) {
+            return NOT_LOADED;
+        }
+        ReentrantLock lock = lockOf(spaceId);
+        lock.lock();
+        try {
+            removeReservation(counter, reservationId);
+            counter.usedCount += actualCount;
+            counter.usedSize += actualSize;
+            counter.dirtyCount += actualCount;
+            counter.dirtySize += actualSize;
+            dirtySpaceIds.add(spaceId);
+            return OK;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void release(long spaceId, String reservationId, long reservedCount, long reservedSize) {
+        Counter counter = counterMap.get(spaceId);
+        if (counter == null) {
+            return;
+        }
+        ReentrantLock lock = lockOf(spaceId);
+        lock.lock();
+        try {
+            removeReservation(counter, reservationId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int applyDelta(long spaceId, long count, long size) {
+        return commit(spaceId, null, 0, 0, count, size);
+    }
+
+    @Override
+    public Map<Long, long[]> drainDirty() {
+        Map<Long, long[]> dirtyMap = new HashMap<>();
+        for (Long spaceId : dirtySpaceIds) {
+            ReentrantLock lock = lockOf(spaceId);
+            lock.lock();
+            try {
+                dirtySpaceIds.remove(spaceId);
+                Counter counter = counterMap.get(spaceId);
+                if (counter == null || (counter.dirtyCount == 0 && counter.dirtySize == 0)) {
+                    continue;
+                }
+                dirtyMap.put(spaceId, new long[]{counter.dirtyCount, counter.dirtySize});
+                counter.dirtyCount = 0;
+                counter.dirtySize = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return dirtyMap;
+    }
+
+    @Override
+    public void restoreDirty(long spaceId, long count, long size) {
+        Counter counter = counterMap.get(spaceId);
+        if (counter == null) {
+            return;
+        }
+        ReentrantLock lock = lockOf(spaceId);
+        lock.lock();
+        try {
+            counter.dirtyCount += count;
+            counter.dirtySize += size;
+            dirtySpaceIds.add(spaceId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateLimit(long spaceId, long maxCount, long maxSize) {
+        Counter counter = counterMap.get(spaceId);
+        if (counter == null) {
+            return;
+        }
+        ReentrantLock lock = lockOf(spaceId);
+        lock.lock();
+        try {
+            counter.maxCount = maxCount;
+            counter.maxSize = maxSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void reconcile(long spaceId, long usedCount, long usedSize) {
+        Counter counter = counterMap.get(spaceId);
+        if (counter == null) {
+            return;
+        }
+        ReentrantLock lock = lockOf(spaceId);
+        lock.lock();
+        try {
+            counter.usedCount = usedCount + counter.dirtyCount;
+            counter.usedSize = usedSize + counter.dirtySize;
+            removeExpired(counter, clock.getAsLong());
+            long reservedCount = 0;
+            long reservedSize = 0;
+            for (long[] reservation : counter.reservations.values()) {
+                reservedCount += reservation[0];
+                reservedSize += reservation[1];
+            }
+            counter.reservedCount = reservedCount;
+            counter.reservedSize = reservedSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(long spaceId) {
+        ReentrantLock lock = lockOf(spaceId);
+        lock.lock();
+        try {
+            counterMap.remove(spaceId);
+            dirtySpaceIds.remove(spaceId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 结算一次预占（需持有分段锁），预占不存在（已过期或已结算）时忽略
+     */
+    private static void removeReservation(Counter counter, String reservationId) {
+        long[] reservation = reservationId == null ? null : counter.reservations.remove(reservationId);
+        if (reservation != null) {
+            counter.reservedCount -= reservation[0];
+            counter.reservedSize -= reservation[1];
+        }
+    }
+
+    /**
+     * 归还租约已到期的预占（需持有分段锁）
+     */
+    private static void removeExpired(Counter counter, long now) {
+        Iterator<long[]> iterator = counter.reservations.values().iterator();
+        while (iterator.hasNext()) {
+            long[] reservation = iterator.next();
+            if (reservation[2] <= now) {
+                counter.reservedCount -= reservation[0];
+                counter.reservedSize -= reservation[1];
+                iterator.remove();
+            }
+        }
+    }
+
+    private ReentrantLock lockOf(long spaceId) {
+        return locks[(int) (spaceId ^ (spaceId >>> 32)) & (STRIPES - 1)];
+    }
+
+    /**
+     * 单个空间的额度计数，字段只在持有对应分段锁时读写
+     */
+    private static final class Counter {
+
+        private long usedCount;
+
+        private long usedSize;
+
+        private long reservedCount;
+
+        private long reservedSize;
+
+        private long dirtyCount;
+
+        private long dirtySize;
+
+        private long maxCount;
+
+        private long maxSize;
+
+        /**
+         * 有效的预占，key: 预占 id, value: {条数, 容量, 到期时间}
+         */
+        private final Map<String, long[]> reservations = new HashMap<>();
+    }
+}
@@ -0,0 +1,218 @@
+package com.mangoyoo.yoopicbackend.manager.quota;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * 基于 Redis 的空间额度存储，多节点共享
+ * <p>
+ * 每个空间一个 hash（已用、预占、待写回、上限），所有读-判断-写都在 Lua 脚本中完成，保证原子性；
+ * 有待写回变化量的空间 id 记在一个 set 中。
+ * 每次预占另外记在空间的 zset 中（成员为「预占 id:条数:容量」，分数为到期时间），提交或释放时只有成功移除成员才归还预占额度，
+ * 预占和校正时清理已到期的成员，释放失败或节点宕机遗留的预占不会永久占用额度。
+ */
+public class RedisSpaceQuotaStore implements SpaceQuotaStore {
+
+    private static final String QUOTA_KEY_PREFIX = "yoopic:space:quota:";
+
+    private static final String DIRTY_SET_KEY = QUOTA_KEY_PREFIX + "dirty";
+
+    private static final String RESERVATION_KEY_SUFFIX = ":reservations";
+
+    /**
+     * 归还已到期的预占（KEYS[3] 为预占 zset，now 为当前时间）
+     */
+    private static final String REMOVE_EXPIRED_LUA =
+            "for _, m in ipairs(redis.call('ZRANGEBYSCORE', KEYS[3], '-inf', now)) do\n" +
+            "    local _, _, c, s = string.find(m, ':(%-?%d+):(%-?%d+)$')\n" +
+            "    redis.call('HINCRBY', KEYS[1], 'reservedCount', -tonumber(c))\n" +
+            "    redis.call('HINCRBY', KEYS[1], 'reservedSize', -tonumber(s))\n" +
+            "end\n" +
+            "redis.call('ZREMRANGEBYSCORE', KEYS[3], '-inf', now)\n";
+
+    /**
+     * 结算一次预占（ARGV[1] 为预占成员），成员不存在（已过期或已结算）时不重复归还
+     */
+    private static final String REMOVE_RESERVATION_LUA =
+            "if ARGV[1] ~= '' and redis.call('ZREM', KEYS[3], ARGV[1]) == 1 then\n" +
+            "    local _, _, c, s = string.find(ARGV[1], ':(%-?%d+):(%-?%d+)$')\n" +
+            "    redis.call('HINCRBY', KEYS[1], 'reservedCount', -tonumber(c))\n" +
+            "    redis.call('HINCRBY', KEYS[1], 'reservedSize', -tonumber(s))\n" +
+            "end\n";
+
+    private static final DefaultRedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end\n" +
+            "redis.call('HSET', KEYS[1], 'usedCount', ARGV[1], 'usedSize', ARGV[2], 'maxCount', ARGV[3], 'maxSize', ARGV[4],\n" +
+            "    'reservedCount', 0, 'reservedSize', 0, 'dirtyCount', 0, 'dirtySize', 0)\n" +
+            "return 1", Long.class);
+
+    private static final DefaultRedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end\n" +
+            "local now = tonumber(ARGV[4])\n" +
+            REMOVE_EXPIRED_LUA +
+            "local q = redis.call('HMGET', KEYS[1], 'usedCount', 'usedSize', 'reservedCount', 'reservedSize', 'maxCount', 'maxSize')\n" +
+            "local count = tonumber(ARGV[2])\n" +
+            "local size = tonumber(ARGV[3])\n" +
+            "if tonumber(q[1]) + tonumber(q[3]) + count > tonumber(q[5]) then return 1 end\n" +
+            "local usedSize = tonumber(q[2]) + tonumber(q[4])\n" +
+            "if usedSize >= tonumber(q[6]) or usedSize + size > tonumber(q[6]) then return 2 end\n" +
+            "redis.call('HINCRBY', KEYS[1], 'reservedCount', count)\n" +
+            "redis.call('HINCRBY', KEYS[1], 'reservedSize', size)\n" +
+            "redis.call('ZADD', KEYS[3], now + tonumber(ARGV[5]), ARGV[1])\n" +
+            "redis.call('PEXPIRE', KEYS[3], ARGV[5])\n" +
+            "return 0", Long.class);
+
+    private static final DefaultRedisScript<Long> COMMIT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end\n" +
+            REMOVE_RESERVATION_LUA +
+            "redis.call('HINCRBY', KEYS[1], 'usedCount', ARGV[2])\n" +
+            "redis.call('HINCRBY', KEYS[1], 'usedSize', ARGV[3])\n" +
+            "redis.call('HINCRBY', KEYS[1], 'dirtyCount', ARGV[2])\n" +
+            "redis.call('HINCRBY', KEYS[1], 'dirtySize', ARGV[3])\n" +
+            "redis.call('SADD', KEYS[2], ARGV[4])\n" +
+            "return 0", Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end\n" +
+            REMOVE_RESERVATION_LUA +
+            "return 0", Long.class);
+
+    private static final DefaultRedisScript<Long> RESTORE_DIRTY_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end\n" +
+            "redis.call('HINCRBY', KEYS[1], 'dirtyCount', ARGV[1])\n" +
+            "redis.call('HINCRBY', KEYS[1], 'dirtySize', ARGV[2])\n" +
+            "redis.call('SADD', KEYS[2], ARGV[3])\n" +
+            "return 0", Long.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> DRAIN_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('SREM', KEYS[2], ARGV[1])\n" +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return {0, 0} end\n" +
+            "local q = redis.call('HMGET', KEYS[1], 'dirtyCount', 'dirtySize')\n" +
+            "redis.call('HSET', KEYS[1], 'dirtyCount', 0, 'dirtySize', 0)\n" +
+            "return {tonumber(q[1]), tonumber(q[2])}", List.class);
+
+    private static final DefaultRedisScript<Long> UPDATE_LIMIT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end\n" +
+            "redis.call('HSET', KEYS[1], 'maxCount', ARGV[1], 'maxSize', ARGV[2])\n" +
+            "return 0", Long.class);
+
+    private static final DefaultRedisScript<Long> RECONCILE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end\n" +
+            "local q = redis.call('HMGET', KEYS[1], 'dirtyCount', 'dirtySize')\n" +
+            "redis.call('HSET', KEYS[1], 'usedCount', tonumber(ARGV[1]) + tonumber(q[1]), 'usedSize', tonumber(ARGV[2]) + tonumber(q[2]))\n" +
+            "local now = tonumber(ARGV[3])\n" +
+            "redis.call('ZREMRANGEBYSCORE', KEYS[3], '-inf', now)\n" +
+            "local reservedCount = 0\n" +
+            "local reservedSize = 0\n" +
+            "for _, m in ipairs(redis.call('ZRANGE', KEYS[3], 0, -1)) do\n" +
+            "    local _, _, c, s = string.find(m, ':(%-?%d+):(%-?%d+)$')\n" +
+            "    reservedCount = reservedCount + tonumber(c)\n" +
+            "    reservedSize = reservedSize + tonumber(s)\n" +
+            "end\n" +
+            "redis.call('HSET', KEYS[1], 'reservedCount', reservedCount, 'reservedSize', reservedSize)\n" +
+            "return 0", Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final long reservationLeaseMillis;
+
+    public RedisSpaceQuotaStore(StringRedisTemplate stringRedisTemplate, Duration reservationLease) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.reservationLeaseMillis = reservationLease.toMillis();
+    }
+
+    @Override
+    public void load(long spaceId, long usedCount, long usedSize, long maxCount, long maxSize) {
+        execute(LOAD_SCRIPT, spaceId, usedCount, usedSize, maxCount, maxSize);
+    }
+
+    @Override
+    public int reserve(long spaceId, String reservationId, long count, long size) {
+        return execute(RESERVE_SCRIPT, spaceId, reservationMember(reservationId, count, size), count, size,
+                System.currentTimeMillis(), reservationLeaseMillis);
+    }
+
+    @Override
+    public int commit(long spaceId, String reservationId, long reservedCount, long reservedSize, long actualCount, long actualSize) {
+        return execute(COMMIT_SCRIPT, spaceId, reservationMember(reservationId, reservedCount, reservedSize),
+                actualCount, actualSize, spaceId);
+    }
+
+    @Override
+    public void release(long spaceId, String reservationId, long reservedCount, long reservedSize) {
+        execute(RELEASE_SCRIPT, spaceId, reservationMember(reservationId, reservedCount, reservedSize));
+    }
+
+    @Override
+    public int applyDelta(long spaceId, long count, long size) {
+        return commit(spaceId, null, 0, 0, count, size);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, long[]> drainDirty() {
+        Set<String> members = stringRedisTemplate.opsForSet().members(DIRTY_SET_KEY);
+        if (members == null || members.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, long[]> dirtyMap = new HashMap<>();
+        for (String member : members) {
+            long spaceId = Long.parseLong(member);
+            List<Long> delta = stringRedisTemplate.execute(DRAIN_SCRIPT, keys(spaceId), member);
+            if (delta == null || delta.size() < 2) {
+                continue;
+            }
+            long count = delta.get(0);
+            long size = delta.get(1);
+            if (count != 0 || size != 0) {
+                dirtyMap.put(spaceId, new long[]{count, size});
+            }
+        }
+        return dirtyMap;
+    }
+
+    @Override
+    public void restoreDirty(long spaceId, long count, long size) {
+        execute(RESTORE_DIRTY_SCRIPT, spaceId, count, size, spaceId);
+    }
+
+    @Override
+    public void updateLimit(long spaceId, long maxCount, long maxSize) {
+        execute(UPDATE_LIMIT_SCRIPT, spaceId, maxCount, maxSize);
+    }
+
+    @Override
+    public void reconcile(long spaceId, long usedCount, long usedSize) {
+        execute(RECONCILE_SCRIPT, spaceId, usedCount, usedSize, System.currentTimeMillis());
+    }
+
+    @Override
+    public void remove(long spaceId) {
+        stringRedisTemplate.delete(Arrays.asList(QUOTA_KEY_PREFIX + spaceId, QUOTA_KEY_PREFIX + spaceId + RESERVATION_KEY_SUFFIX));
+        stringRedisTemplate.opsForSet().remove(DIRTY_SET_KEY, String.valueOf(spaceId));
+    }
+
+    private int execute(DefaultRedisScript<Long> script, long spaceId, Object... args) {
+        String[] stringArgs = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            stringArgs[i] = String.valueOf(args[i]);
+        }
+        Long result = stringRedisTemplate.execute(script, keys(spaceId), (Object[]) stringArgs);
+        return result == null ? NOT_LOADED : result.intValue();
+    }
+
+    /**
+     * 预占在 zset 中的成员，为空表示没有预占（直接调整已用额度）
+     */
+    private static String reservationMember(String reservationId, long count, long size) {
+        return reservationId == null ? "" : reservationId + ":" + count + ":" + size;
+    }
+
+    private static List<String> keys(long spaceId) {
+        return Arrays.asList(QUOTA_KEY_PREFIX + spaceId, DIRTY_SET_KEY, QUOTA_KEY_PREFIX + spaceId + RESERVATION_KEY_SUFFIX);
+    }
+}
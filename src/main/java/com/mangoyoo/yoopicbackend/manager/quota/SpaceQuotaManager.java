@@ -0,0 +1,260 @@
+package com.mangoyoo.yoopicbackend.manager.quota;
+
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.mangoyoo.yoopicbackend.exception.BusinessException;
+import com.mangoyoo.yoopicbackend.exception.ErrorCode;
+import com.mangoyoo.yoopicbackend.mapper.PictureMapper;
+import com.mangoyoo.yoopicbackend.mapper.SpaceMapper;
+import com.mangoyoo.yoopicbackend.model.entity.Picture;
+import com.mangoyoo.yoopicbackend.model.entity.Space;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 空间额度管理
+ * <p>
+ * 上传前原子地预占条数和容量（并发上传不会超出上限），上传成功后按实际大小提交，失败则释放。
+ * 已用额度的变化先记在 {@link SpaceQuotaStore} 中，定时批量写回 space 表（写回延迟默认 5 秒），
+ * 避免突发上传时 space 行成为热点锁；每天再根据 picture 表重新统计真实用量进行校正。
+ */
+@Slf4j
+@Component
+public class SpaceQuotaManager {
+
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    @Resource
+    private SpaceQuotaStore spaceQuotaStore;
+
+    @Resource
+    private SpaceMapper spaceMapper;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 预占额度，额度不足时抛出业务异常
+     *
+     * @param spaceId 空间 id
+     * @param count   预占条数
+     * @param size    预占容量（预估值，提交时按实际大小修正）
+     * @return 预占凭证
+     */
+    public SpaceQuotaReservation reserve(long spaceId, long count, long size) {
+        String reservationId = IdUtil.fastSimpleUUID();
+        switch (reserveInStore(spaceId, reservationId, count, size)) {
+            case SpaceQuotaStore.OK:
+                return new SpaceQuotaReservation(spaceId, reservationId, count, size);
+            case SpaceQuotaStore.COUNT_EXCEEDED:
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间条数不足");
+            case SpaceQuotaStore.SIZE_EXCEEDED:
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间大小不足");
+            default:
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "空间额度加载失败");
+        }
+    }
+
+    /**
+     * 尝试预占额度，额度不足时返回 null（批量上传时逐张预占，额度用完即停止）
+     *
+     * @param spaceId 空间 id
+     * @param count   预占条数
+     * @param size    预占容量
+     * @return 预占凭证，额度不足时返回 null
+     */
+    public SpaceQuotaReservation tryReserve(long spaceId, long count, long size) {
+        String reservationId = IdUtil.fastSimpleUUID();
+        switch (reserveInStore(spaceId, reservationId, count, size)) {
+            case SpaceQuotaStore.OK:
+                return new SpaceQuotaReservation(spaceId, reservationId, count, size);
+            case SpaceQuotaStore.COUNT_EXCEEDED:
+            case SpaceQuotaStore.SIZE_EXCEEDED:
+                return null;
+            default:
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "空间额度加载失败");
+        }
+    }
+
+    /**
+     * 检查空间是否还能放下一张图片（不占用额度），已满时抛出业务异常
+     */
+    public void checkAvailable(long spaceId) {
+        release(reserve(spaceId, 1, 0));
+    }
+
+    /**
+     * 提交预占，按实际使用量增加已用额度（多预占的部分自动释放）
+     *
+     * @param reservation 预占凭证，为空时忽略
+     * @param actualCount 实际增加的条数
+     * @param actualSize  实际增加的容量
+     */
+    public void commit(SpaceQuotaReservation reservation, long actualCount, long actualSize) {
+        if (reservation == null || !reservation.finish()) {
+            return;
+        }
+        int result = spaceQuotaStore.commit(reservation.getSpaceId(), reservation.getReservationId(),
+                reservation.getCount(), reservation.getSize(), actualCount, actualSize);
+        if (result == SpaceQuotaStore.NOT_LOADED) {
+            updateSpaceUsage(reservation.getSpaceId(), actualCount, actualSize);
+        }
+    }
+
+    /**
+     * 释放预占（上传或入库失败）
+     *
+     * @param reservation 预占凭证，为空时忽略
+     */
+    public void release(SpaceQuotaReservation reservation) {
+        if (reservation == null || !reservation.finish()) {
+            return;
+        }
+        try {
+            spaceQuotaStore.release(reservation.getSpaceId(), reservation.getReservationId(),
+                    reservation.getCount(), reservation.getSize());
+        } catch (Exception e) {
+            // 预占在租约到期后失效，由之后的预占或校正归还
+            log.error("释放空间额度失败, spaceId = {}", reservation.getSpaceId(), e);
+        }
+    }
+
+    /**
+     * 直接调整已用额度（如删除图片时传入负数）
+     */
+    public void applyDelta(long spaceId, long count, long size) {
+        if (spaceQuotaStore.applyDelta(spaceId, count, size) == SpaceQuotaStore.NOT_LOADED) {
+            updateSpaceUsage(spaceId, count, size);
+        }
+    }
+
+    /**
+     * 空间额度上限变化（如修改空间级别）后调用
+     */
+    public void updateLimit(long spaceId, long maxCount, long maxSize) {
+        spaceQuotaStore.updateLimit(spaceId, maxCount, maxSize);
+    }
+
+    /**
+     * 空间被删除后调用
+     */
+    public void remove(long spaceId) {
+        spaceQuotaStore.remove(spaceId);
+    }
+
+    /**
+     * 定时把已用额度的变化量批量写回 space 表
+     */
+    @Scheduled(fixedDelayString = "${space.quota.flush-interval:5000}")
+    public void flush() {
+        Map<Long, long[]> dirtyMap;
+        try {
+            dirtyMap = spaceQuotaStore.drainDirty();
+        } catch (Exception e) {
+            log.error("读取待写回的空间额度失败", e);
+            return;
+        }
+        if (dirtyMap.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    dirtyMap.forEach((spaceId, delta) -> updateSpaceUsage(spaceId, delta[0], delta[1])));
+        } catch (Exception e) {
+            log.error("空间额度写回数据库失败，下次重试, spaceIds = {}", dirtyMap.keySet(), e);
+            dirtyMap.forEach((spaceId, delta) -> spaceQuotaStore.restoreDirty(spaceId, delta[0], delta[1]));
+        }
+    }
+
+    /**
+     * 每天根据 picture 表重新统计各空间的真实用量，校正 space 表和额度计数
+     * <p>
+     * 统计期间提交的上传可能被重复计算一次，会在下一次校正时修正
+     */
+    @Scheduled(cron = "${space.quota.reconcile-cron:0 30 3 * * ?}")
+    public void reconcile() {
+        long startTime = System.currentTimeMillis();
+        flush();
+        // 1. 按空间统计真实用量
+        QueryWrapper<Picture> pictureQueryWrapper = new QueryWrapper<>();
+        pictureQueryWrapper.select("spaceId", "COUNT(*) AS totalCount", "COALESCE(SUM(picSize), 0) AS totalSize")
+                .isNotNull("spaceId")
+                .groupBy("spaceId");
+        Map<Long, long[]> usageMap = new HashMap<>();
+        for (Map<String, Object> row : pictureMapper.selectMaps(pictureQueryWrapper)) {
+            usageMap.put(((Number) row.get("spaceId")).longValue(), new long[]{
+                    ((Number) row.get("totalCount")).longValue(),
+                    ((Number) row.get("totalSize")).longValue()});
+        }
+        // 2. 分批校正所有空间
+        long lastId = 0;
+        int fixedCount = 0;
+        while (true) {
+            QueryWrapper<Space> spaceQueryWrapper = new QueryWrapper<>();
+            spaceQueryWrapper.select("id", "totalCount", "totalSize")
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("LIMIT " + RECONCILE_BATCH_SIZE);
+            List<Space> spaceList = spaceMapper.selectList(spaceQueryWrapper);
+            if (spaceList.isEmpty()) {
+                break;
+            }
+            for (Space space : spaceList) {
+                long[] usage = usageMap.getOrDefault(space.getId(), new long[]{0, 0});
+                if (space.getTotalCount() == null || space.getTotalCount() != usage[0]
+                        || space.getTotalSize() == null || space.getTotalSize() != usage[1]) {
+                    UpdateWrapper<Space> updateWrapper = new UpdateWrapper<>();
+                    updateWrapper.eq("id", space.getId())
+                            .set("totalCount", usage[0])
+                            .set("totalSize", usage[1]);
+                    spaceMapper.update(null, updateWrapper);
+                    fixedCount++;
+                }
+                spaceQuotaStore.reconcile(space.getId(), usage[0], usage[1]);
+            }
+            lastId = spaceList.get(spaceList.size() - 1).getId();
+        }
+        log.info("空间额度校正完成，修正 {} 个空间，耗时 {} ms", fixedCount, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 停机前把剩余的变化量写回数据库
+     */
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    private int reserveInStore(long spaceId, String reservationId, long count, long size) {
+        int result = spaceQuotaStore.reserve(spaceId, reservationId, count, size);
+        if (result == SpaceQuotaStore.NOT_LOADED) {
+            Space space = spaceMapper.selectById(spaceId);
+            if (space == null) {
+                throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+            }
+            spaceQuotaStore.load(spaceId, space.getTotalCount(), space.getTotalSize(), space.getMaxCount(), space.getMaxSize());
+            result = spaceQuotaStore.reserve(spaceId, reservationId, count, size);
+        }
+        return result;
+    }
+
+    private void updateSpaceUsage(long spaceId, long count, long size) {
+        UpdateWrapper<Space> updateWrapper = new UpdateWrapper<>();
+        updateWrapper.eq("id", spaceId)
+                .setSql("totalCount = totalCount + " + count)
+                .setSql("totalSize = totalSize + " + size);
+        spaceMapper.update(null, updateWrapper);
+    }
+}
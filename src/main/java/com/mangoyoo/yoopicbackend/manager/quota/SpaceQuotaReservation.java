@@ -0,0 +1,51 @@
+package com.mangoyoo.yoopicbackend.manager.quota;
+
+/**
+ * 一次额度预占，上传完成后必须提交或释放（只能二选一，且只生效一次）
+ */
+public final class SpaceQuotaReservation {
+
+    private final long spaceId;
+
+    private final String reservationId;
+
+    private final long count;
+
+    private final long size;
+
+    private boolean finished;
+
+    SpaceQuotaReservation(long spaceId, String reservationId, long count, long size) {
+        this.spaceId = spaceId;
+        this.reservationId = reservationId;
+        this.count = count;
+        this.size = size;
+    }
+
+    public long getSpaceId() {
+        return spaceId;
+    }
+
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 标记为已结束，返回是否是第一次结束
+     */
+    synchronized boolean finish() {
+        if (finished) {
+            return false;
+        }
+        finished = true;
+        return true;
+    }
+}
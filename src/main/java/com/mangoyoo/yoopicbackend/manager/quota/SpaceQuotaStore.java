@@ -0,0 +1,101 @@
+package com.mangoyoo.yoopicbackend.manager.quota;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 空间额度计数存储
+ * <p>
+ * 每个空间维护已用额度（used）、预占中的额度（reserved）、尚未写回数据库的变化量（dirty）以及额度上限。
+ * 每次预占单独记录并带有租约，提交或释放时按预占 id 结算（重复结算无效）；释放失败或节点在上传途中宕机时，
+ * 预占在租约到期后自动失效，下次预占或校正时归还。
+ * 所有操作对单个空间都是原子的；空间尚未加载时返回 {@link #NOT_LOADED}，由调用方从数据库加载后重试，
+ * 或直接更新数据库。
+ */
+public interface SpaceQuotaStore {
+
+    /**
+     * 空间额度尚未加载
+     */
+    int NOT_LOADED = -1;
+
+    /**
+     * 操作成功
+     */
+    int OK = 0;
+
+    /**
+     * 条数不足
+     */
+    int COUNT_EXCEEDED = 1;
+
+    /**
+     * 容量不足
+     */
+    int SIZE_EXCEEDED = 2;
+
+    /**
+     * 预占的默认租约，需要大于一次上传（包括批量上传）的最长耗时
+     */
+    Duration DEFAULT_RESERVATION_LEASE = Duration.ofMinutes(30);
+
+    /**
+     * 加载空间额度（已加载时不覆盖）
+     */
+    void load(long spaceId, long usedCount, long usedSize, long maxCount, long maxSize);
+
+    /**
+     * 预占额度：已用 + 预占 + 本次不能超过上限（容量已满时即使本次大小为 0 也不允许），预占前先清理租约已到期的预占
+     *
+     * @param reservationId 预占 id，提交和释放时使用
+     * @return {@link #OK} / {@link #COUNT_EXCEEDED} / {@link #SIZE_EXCEEDED} / {@link #NOT_LOADED}
+     */
+    int reserve(long spaceId, String reservationId, long count, long size);
+
+    /**
+     * 提交预占：释放预占的额度（预占已过期时不再重复释放），按实际使用量增加已用额度并记为待写回
+     *
+     * @return {@link #OK} / {@link #NOT_LOADED}
+     */
+    int commit(long spaceId, String reservationId, long reservedCount, long reservedSize, long actualCount, long actualSize);
+
+    /**
+     * 释放预占的额度（预占已过期或已结算时忽略）
+     */
+    void release(long spaceId, String reservationId, long reservedCount, long reservedSize);
+
+    /**
+     * 直接调整已用额度（如删除图片）并记为待写回
+     *
+     * @return {@link #OK} / {@link #NOT_LOADED}
+     */
+    int applyDelta(long spaceId, long count, long size);
+
+    /**
+     * 取出所有待写回的变化量并清零
+     *
+     * @return 空间 id -> {条数变化, 容量变化}
+     */
+    Map<Long, long[]> drainDirty();
+
+    /**
+     * 写回数据库失败时，把变化量加回待写回
+     */
+    void restoreDirty(long spaceId, long count, long size);
+
+    /**
+     * 更新额度上限（空间未加载时忽略）
+     */
+    void updateLimit(long spaceId, long maxCount, long maxSize);
+
+    /**
+     * 用数据库中重新统计的真实用量校正已用额度（保留尚未写回的变化量，空间未加载时忽略），
+     * 同时清理租约已到期的预占，并按仍然有效的预占重新计算预占额度
+     */
+    void reconcile(long spaceId, long usedCount, long usedSize);
+
+    /**
+     * 移除空间额度（空间被删除）
+     */
+    void remove(long spaceId);
+}
@@ -0,0 +1,566 @@
+package com.mangoyoo.yoopicbackend.manager.search;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.mangoyoo.yoopicbackend.model.entity.Picture;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 图片倒排索引（纯内存，不依赖 Spring，可直接单元测试）
+ * <p>
+ * 对图片的名称、简介、标签、分类分词后建立 词项 -> 图片 的倒排表，查询时要求所有查询词都命中，
+ * 按 BM25 打分排序。倒排表按内部槽位号有序存储，求交集只和命中的文档数有关，与图片总数无关。
+ */
+public class PictureSearchIndex {
+
+    /**
+     * 各字段权重
+     */
+    private static final float NAME_WEIGHT = 3f;
+
+    private static final float TAG_WEIGHT = 2f;
+
+    private static final float CATEGORY_WEIGHT = 2f;
+
+    private static final float INTRODUCTION_WEIGHT = 1f;
+
+    private static final float BM25_K1 = 1.2f;
+
+    /**
+     * 英文前缀查询最多展开的词项数
+     */
+    private static final int MAX_PREFIX_EXPANSION = 64;
+
+    /**
+     * 公共图库在索引中的空间 id（数据库中为 null）
+     */
+    private static final long PUBLIC_SPACE_ID = 0L;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 词项 -> 倒排表，使用有序 Map 支持英文前缀查询
+     */
+    private final TreeMap<String, Postings> postingsMap = new TreeMap<>();
+
+    /**
+     * 图片 id -> 槽位
+     */
+    private final HashMap<Long, Integer> slotMap = new HashMap<>();
+
+    /**
+     * 以下数组按槽位存储文档信息，pictureIds[slot] == 0 表示已删除
+     */
+    private long[] pictureIds = new long[INITIAL_CAPACITY];
+
+    private long[] spaceIds = new long[INITIAL_CAPACITY];
+
+    private int[] reviewStatuses = new int[INITIAL_CAPACITY];
+
+    private String[][] docTerms = new String[INITIAL_CAPACITY][];
+
+    private float[][] docTermFreqs = new float[INITIAL_CAPACITY][];
+
+    private int slotCount;
+
+    private int liveCount;
+
+    /**
+     * 新增或更新图片
+     */
+    public void upsert(Picture picture) {
+        if (picture == null || picture.getId() == null) {
+            return;
+        }
+        Map<String, Float> termFreqMap = analyze(picture);
+        String[] terms = termFreqMap.keySet().toArray(new String[0]);
+        float[] freqs = new float[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            freqs[i] = termFreqMap.get(terms[i]);
+        }
+        lock.writeLock().lock();
+        try {
+            long pictureId = picture.getId();
+            Integer existingSlot = slotMap.get(pictureId);
+            int slot;
+            if (existingSlot != null) {
+                slot = existingSlot;
+                removePostings(slot);
+            } else {
+                ensureCapacity(slotCount + 1);
+                slot = slotCount++;
+                slotMap.put(pictureId, slot);
+                liveCount++;
+            }
+            pictureIds[slot] = pictureId;
+            spaceIds[slot] = picture.getSpaceId() == null ? PUBLIC_SPACE_ID : picture.getSpaceId();
+            reviewStatuses[slot] = picture.getReviewStatus() == null ? 0 : picture.getReviewStatus();
+            docTerms[slot] = terms;
+            docTermFreqs[slot] = freqs;
+            for (int i = 0; i < terms.length; i++) {
+                postingsMap.computeIfAbsent(terms[i], k -> new Postings()).add(slot, freqs[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除图片
+     */
+    public void remove(long pictureId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotMap.remove(pictureId);
+            if (slot == null) {
+                return;
+            }
+            removePostings(slot);
+            pictureIds[slot] = 0;
+            docTerms[slot] = null;
+            docTermFreqs[slot] = null;
+            liveCount--;
+            // 删除过多时压缩槽位，避免倒排表中堆积无效数据
+            if (slotCount > INITIAL_CAPACITY && liveCount < slotCount / 2) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 索引中的图片数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 搜索图片
+     *
+     * @param searchText   搜索词
+     * @param spaceId      空间 id，为空表示不限制
+     * @param nullSpaceId  是否只查公共图库
+     * @param reviewStatus 审核状态，为空表示不限制
+     * @param limit        最多返回的图片数
+     * @return 按相关度从高到低排序的图片 id 及命中总数
+     */
+    public SearchHits search(String searchText, Long spaceId, boolean nullSpaceId, Integer reviewStatus, int limit) {
+        List<String> queryTokens = new ArrayList<>(new LinkedHashSet<>(PictureSearchTokenizer.tokenizeForQuery(searchText)));
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return new SearchHits(Collections.emptyList(), 0);
+        }
+        lock.readLock().lock();
+        try {
+            // 1. 每个查询词得到一个按槽位有序的 (槽位, 得分) 列表
+            List<ScoredSlots> tokenHits = new ArrayList<>(queryTokens.size());
+            for (String token : queryTokens) {
+                ScoredSlots hits = lookup(token);
+                if (hits.size == 0) {
+                    return new SearchHits(Collections.emptyList(), 0);
+                }
+                tokenHits.add(hits);
+            }
+            // 2. 从最短的列表开始求交集，累加得分
+            tokenHits.sort(Comparator.comparingInt(hits -> hits.size));
+            ScoredSlots candidates = tokenHits.get(0);
+            for (int i = 1; i < tokenHits.size() && candidates.size > 0; i++) {
+                candidates = candidates.intersect(tokenHits.get(i));
+            }
+            // 3. 按空间、审核状态过滤，并用小顶堆取得分最高的 limit 个
+            long expectedSpaceId = spaceId != null ? spaceId : PUBLIC_SPACE_ID;
+            boolean filterSpace = spaceId != null || nullSpaceId;
+            TopSlots topSlots = new TopSlots(limit);
+            int total = 0;
+            for (int i = 0; i < candidates.size; i++) {
+                int slot = candidates.slots[i];
+                if (filterSpace && spaceIds[slot] != expectedSpaceId) {
+                    continue;
+                }
+                if (reviewStatus != null && reviewStatuses[slot] != reviewStatus) {
+                    continue;
+                }
+                total++;
+                topSlots.offer(slot, candidates.scores[i]);
+            }
+            int[] rankedSlots = topSlots.sortedSlots();
+            List<Long> pictureIdList = new ArrayList<>(rankedSlots.length);
+            for (int slot : rankedSlots) {
+                pictureIdList.add(pictureIds[slot]);
+            }
+            return new SearchHits(pictureIdList, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查找可能满足 LIKE '%searchText%' 的图片，用于缩小数据库模糊查询的范围
+     * <p>
+     * 只有查询词全部是中日韩文字时，“所有查询词都命中”的结果才一定包含子串匹配的结果：
+     * 英文 / 数字按前缀匹配，查不到单词中间的子串；只有标点的搜索词没有查询词。
+     *
+     * @param searchText    搜索词
+     * @param spaceId       空间 id，为空表示不限制
+     * @param nullSpaceId   是否只查公共图库
+     * @param reviewStatus  审核状态，为空表示不限制
+     * @param maxCandidates 最多返回的候选数
+     * @return 候选图片 id（空列表表示一定没有匹配的图片），索引无法保证结果完整或候选数超过上限时返回 null
+     */
+    public List<Long> findLikeCandidates(String searchText, Long spaceId, boolean nullSpaceId, Integer reviewStatus, int maxCandidates) {
+        List<String> queryTokens = PictureSearchTokenizer.tokenizeForQuery(searchText);
+        if (queryTokens.isEmpty() || queryTokens.stream().anyMatch(PictureSearchTokenizer::isWordToken)) {
+            return null;
+        }
+        SearchHits searchHits = search(searchText, spaceId, nullSpaceId, reviewStatus, maxCandidates);
+        return searchHits.getTotal() > maxCandidates ? null : searchHits.getPictureIds();
+    }
+
+    /**
+     * 查找单个查询词命中的文档，英文 / 数字按前缀展开
+     */
+    private ScoredSlots lookup(String token) {
+        if (!PictureSearchTokenizer.isWordToken(token)) {
+            Postings postings = postingsMap.get(token);
+            return postings == null ? ScoredSlots.EMPTY : postings.score(idf(postings.size));
+        }
+        ScoredSlots merged = ScoredSlots.EMPTY;
+        int expanded = 0;
+        for (Map.Entry<String, Postings> entry : postingsMap.subMap(token, true, token + Character.MAX_VALUE, true).entrySet()) {
+            Postings postings = entry.getValue();
+            merged = merged.union(postings.score(idf(postings.size)));
+            if (++expanded >= MAX_PREFIX_EXPANSION) {
+                break;
+            }
+        }
+        return merged;
+    }
+
+    private float idf(int docFreq) {
+        return (float) Math.log(1 + (liveCount - docFreq + 0.5) / (docFreq + 0.5));
+    }
+
+    private void removePostings(int slot) {
+        String[] terms = docTerms[slot];
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Postings postings = postingsMap.get(term);
+            if (postings != null) {
+                postings.remove(slot);
+                if (postings.size == 0) {
+                    postingsMap.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * 重新分配连续的槽位并重建倒排表
+     */
+    private void compact() {
+        long[] oldPictureIds = pictureIds;
+        long[] oldSpaceIds = spaceIds;
+        int[] oldReviewStatuses = reviewStatuses;
+        String[][] oldDocTerms = docTerms;
+        float[][] oldDocTermFreqs = docTermFreqs;
+        int oldSlotCount = slotCount;
+        int capacity = Math.max(INITIAL_CAPACITY, liveCount * 2);
+        pictureIds = new long[capacity];
+        spaceIds = new long[capacity];
+        reviewStatuses = new int[capacity];
+        docTerms = new String[capacity][];
+        docTermFreqs = new float[capacity][];
+        postingsMap.clear();
+        slotMap.clear();
+        slotCount = 0;
+        for (int oldSlot = 0; oldSlot < oldSlotCount; oldSlot++) {
+            if (oldPictureIds[oldSlot] == 0) {
+                continue;
+            }
+            int slot = slotCount++;
+            pictureIds[slot] = oldPictureIds[oldSlot];
+            spaceIds[slot] = oldSpaceIds[oldSlot];
+            reviewStatuses[slot] = oldReviewStatuses[oldSlot];
+            docTerms[slot] = oldDocTerms[oldSlot];
+            docTermFreqs[slot] = oldDocTermFreqs[oldSlot];
+            slotMap.put(pictureIds[slot], slot);
+            for (int i = 0; i < docTerms[slot].length; i++) {
+                postingsMap.computeIfAbsent(docTerms[slot][i], k -> new Postings()).add(slot, docTermFreqs[slot][i]);
+            }
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= pictureIds.length) {
+            return;
+        }
+        int capacity = Math.max(required, pictureIds.length * 2);
+        pictureIds = Arrays.copyOf(pictureIds, capacity);
+        spaceIds = Arrays.copyOf(spaceIds, capacity);
+        reviewStatuses = Arrays.copyOf(reviewStatuses, capacity);
+        docTerms = Arrays.copyOf(docTerms, capacity);
+        docTermFreqs = Arrays.copyOf(docTermFreqs, capacity);
+    }
+
+    /**
+     * 计算图片各词项的加权词频
+     */
+    private static Map<String, Float> analyze(Picture picture) {
+        Map<String, Float> termFreqMap = new LinkedHashMap<>();
+        addField(termFreqMap, picture.getName(), NAME_WEIGHT);
+        addField(termFreqMap, picture.getIntroduction(), INTRODUCTION_WEIGHT);
+        addField(termFreqMap, picture.getCategory(), CATEGORY_WEIGHT);
+        String tags = picture.getTags();
+        if (StrUtil.isNotBlank(tags) && JSONUtil.isTypeJSONArray(tags)) {
+            for (String tag : JSONUtil.toList(tags, String.class)) {
+                addField(termFreqMap, tag, TAG_WEIGHT);
+            }
+        }
+        return termFreqMap;
+    }
+
+    private static void addField(Map<String, Float> termFreqMap, String text, float weight) {
+        if (StrUtil.isBlank(text)) {
+            return;
+        }
+        for (String token : PictureSearchTokenizer.tokenizeForIndex(text)) {
+            termFreqMap.merge(token, weight, Float::sum);
+        }
+    }
+
+    /**
+     * 搜索结果
+     */
+    @Data
+    @AllArgsConstructor
+    public static class SearchHits {
+
+        /**
+         * 按相关度排序的图片 id
+         */
+        private List<Long> pictureIds;
+
+        /**
+         * 命中总数
+         */
+        private int total;
+    }
+
+    /**
+     * 倒排表：按槽位升序存储的 (槽位, 加权词频)
+     */
+    private static final class Postings {
+
+        private int[] slots = new int[4];
+
+        private float[] freqs = new float[4];
+
+        private int size;
+
+        void add(int slot, float freq) {
+            int index = Arrays.binarySearch(slots, 0, size, slot);
+            if (index >= 0) {
+                freqs[index] = freq;
+                return;
+            }
+            int insertAt = -index - 1;
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            // 新图片的槽位总是最大的，绝大多数情况下直接追加
+            System.arraycopy(slots, insertAt, slots, insertAt + 1, size - insertAt);
+            System.arraycopy(freqs, insertAt, freqs, insertAt + 1, size - insertAt);
+            slots[insertAt] = slot;
+            freqs[insertAt] = freq;
+            size++;
+        }
+
+        void remove(int slot) {
+            int index = Arrays.binarySearch(slots, 0, size, slot);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+            System.arraycopy(freqs, index + 1, freqs, index, size - index - 1);
+            size--;
+        }
+
+        ScoredSlots score(float idf) {
+            float[] scores = new float[size];
+            for (int i = 0; i < size; i++) {
+                float freq = freqs[i];
+                scores[i] = idf * freq * (BM25_K1 + 1) / (freq + BM25_K1);
+            }
+            return new ScoredSlots(Arrays.copyOf(slots, size), scores, size);
+        }
+    }
+
+    /**
+     * 按槽位升序的 (槽位, 得分) 列表
+     */
+    private static final class ScoredSlots {
+
+        static final ScoredSlots EMPTY = new ScoredSlots(new int[0], new float[0], 0);
+
+        final int[] slots;
+
+        final float[] scores;
+
+        final int size;
+
+        ScoredSlots(int[] slots, float[] scores, int size) {
+            this.slots = slots;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        /**
+         * 交集，得分相加（短列表在前时用二分跳跃查找）
+         */
+        ScoredSlots intersect(ScoredSlots other) {
+            int[] resultSlots = new int[Math.min(size, other.size)];
+            float[] resultScores = new float[resultSlots.length];
+            int count = 0;
+            int j = 0;
+            for (int i = 0; i < size && j < other.size; i++) {
+                int slot = slots[i];
+                int index = Arrays.binarySearch(other.slots, j, other.size, slot);
+                if (index >= 0) {
+                    resultSlots[count] = slot;
+                    resultScores[count] = scores[i] + other.scores[index];
+                    count++;
+                    j = index + 1;
+                } else {
+                    j = -index - 1;
+                }
+            }
+            return new ScoredSlots(resultSlots, resultScores, count);
+        }
+
+        /**
+         * 并集，同一槽位取较高得分（用于前缀展开）
+         */
+        ScoredSlots union(ScoredSlots other) {
+            if (size == 0) {
+                return other;
+            }
+            int[] resultSlots = new int[size + other.size];
+            float[] resultScores = new float[resultSlots.length];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                if (j >= other.size || (i < size && slots[i] < other.slots[j])) {
+                    resultSlots[count] = slots[i];
+                    resultScores[count++] = scores[i++];
+                } else if (i >= size || other.slots[j] < slots[i]) {
+                    resultSlots[count] = other.slots[j];
+                    resultScores[count++] = other.scores[j++];
+                } else {
+                    resultSlots[count] = slots[i];
+                    resultScores[count++] = Math.max(scores[i++], other.scores[j++]);
+                }
+            }
+            return new ScoredSlots(resultSlots, resultScores, count);
+        }
+    }
+
+    /**
+     * 固定容量的小顶堆，保留得分最高的槽位；得分相同时槽位大（较新）的优先
+     */
+    private static final class TopSlots {
+
+        private final int[] heapSlots;
+
+        private final float[] heapScores;
+
+        private int size;
+
+        TopSlots(int capacity) {
+            heapSlots = new int[capacity];
+            heapScores = new float[capacity];
+        }
+
+        void offer(int slot, float score) {
+            if (size < heapSlots.length) {
+                heapSlots[size] = slot;
+                heapScores[size] = score;
+                siftUp(size++);
+            } else if (less(heapSlots[0], heapScores[0], slot, score)) {
+                heapSlots[0] = slot;
+                heapScores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        int[] sortedSlots() {
+            int[] result = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = heapSlots[0];
+                size--;
+                heapSlots[0] = heapSlots[size];
+                heapScores[0] = heapScores[size];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        private static boolean less(int slotA, float scoreA, int slotB, float scoreB) {
+            return scoreA < scoreB || (scoreA == scoreB && slotA < slotB);
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!less(heapSlots[index], heapScores[index], heapSlots[parent], heapScores[parent])) {
+                    break;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int left = index * 2 + 1;
+                if (left >= size) {
+                    return;
+                }
+                int smallest = left;
+                int right = left + 1;
+                if (right < size && less(heapSlots[right], heapScores[right], heapSlots[left], heapScores[left])) {
+                    smallest = right;
+                }
+                if (!less(heapSlots[smallest], heapScores[smallest], heapSlots[index], heapScores[index])) {
+                    return;
+                }
+                swap(index, smallest);
+                index = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int slot = heapSlots[a];
+            heapSlots[a] = heapSlots[b];
+            heapSlots[b] = slot;
+            float score = heapScores[a];
+            heapScores[a] = heapScores[b];
+            heapScores[b] = score;
+        }
+    }
+}
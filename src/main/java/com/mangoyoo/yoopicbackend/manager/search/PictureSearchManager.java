@@ -0,0 +1,62 @@
+package com.mangoyoo.yoopicbackend.manager.search;
+
+import com.mangoyoo.yoopicbackend.manager.index.PictureIndexTemplate;
+import com.mangoyoo.yoopicbackend.model.entity.Picture;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 图片全文搜索管理器
+ * <p>
+ * 应用启动后从 picture 表分批加载数据构建 {@link PictureSearchIndex}，之后由图片的写操作增量刷新，
+ * 加载、广播和定时同步的流程见 {@link PictureIndexTemplate}。
+ * 索引构建完成前 {@link #isReady()} 返回 false，调用方应回退到数据库模糊查询。
+ */
+@Component
+public class PictureSearchManager extends PictureIndexTemplate {
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private static final String[] INDEX_COLUMNS = {"id", "name", "introduction", "category", "tags", "spaceId", "reviewStatus"};
+
+    private static final String REFRESH_TOPIC = "picture-search:refresh";
+
+    private final PictureSearchIndex searchIndex = new PictureSearchIndex();
+
+    public PictureSearchManager() {
+        super("图片搜索索引", REFRESH_TOPIC, INDEX_COLUMNS, LOAD_BATCH_SIZE);
+    }
+
+    /**
+     * 搜索图片，返回按相关度排序的图片 id
+     *
+     * @see PictureSearchIndex#search(String, Long, boolean, Integer, int)
+     */
+    public PictureSearchIndex.SearchHits search(String searchText, Long spaceId, boolean nullSpaceId, Integer reviewStatus, int limit) {
+        return searchIndex.search(searchText, spaceId, nullSpaceId, reviewStatus, limit);
+    }
+
+    /**
+     * 查找可能满足 LIKE 模糊查询的候选图片，索引未就绪或无法给出完整候选集时返回 null
+     *
+     * @see PictureSearchIndex#findLikeCandidates(String, Long, boolean, Integer, int)
+     */
+    public List<Long> findLikeCandidates(String searchText, Long spaceId, boolean nullSpaceId, Integer reviewStatus, int maxCandidates) {
+        if (!isReady()) {
+            return null;
+        }
+        return searchIndex.findLikeCandidates(searchText, spaceId, nullSpaceId, reviewStatus, maxCandidates);
+    }
+
+    @Override
+    protected boolean apply(Picture picture) {
+        searchIndex.upsert(picture);
+        return true;
+    }
+
+    @Override
+    protected void remove(Long pictureId) {
+        searchIndex.remove(pictureId);
+    }
+}
@@ -0,0 +1,107 @@
+package com.mangoyoo.yoopicbackend.manager.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 图片搜索分词器
+ * <p>
+ * 中日韩文字按 n-gram 切分（索引时同时输出单字和相邻两字），英文和数字按连续的单词切分并转小写，
+ * 其余字符（空格、标点等）作为分隔符。查询时中文连续片段只取两字组合（单字查询取单字），
+ * 这样“所有查询词都命中”就近似于原来的 LIKE '%关键词%' 子串匹配。
+ */
+public final class PictureSearchTokenizer {
+
+    private PictureSearchTokenizer() {
+        // 工具类不需要实例化
+    }
+
+    /**
+     * 索引分词
+     *
+     * @param text 文本
+     * @return 词项列表（可能重复，重复次数即词频）
+     */
+    public static List<String> tokenizeForIndex(String text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, tokens, true);
+        return tokens;
+    }
+
+    /**
+     * 查询分词
+     *
+     * @param text 查询文本
+     * @return 查询词项列表，每个词项都必须命中
+     */
+    public static List<String> tokenizeForQuery(String text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, tokens, false);
+        return tokens;
+    }
+
+    /**
+     * 是否为英文 / 数字词项（查询时按前缀匹配）
+     */
+    public static boolean isWordToken(String token) {
+        return !token.isEmpty() && !isCjk(token.codePointAt(0));
+    }
+
+    private static void tokenize(String text, List<String> tokens, boolean forIndex) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT);
+        int length = normalized.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = normalized.codePointAt(i);
+            if (isCjk(codePoint)) {
+                // 连续的中日韩文字片段
+                int start = i;
+                while (i < length && isCjk(normalized.codePointAt(i))) {
+                    i += Character.charCount(normalized.codePointAt(i));
+                }
+                appendCjkGrams(normalized.substring(start, i), tokens, forIndex);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                // 连续的英文 / 数字片段
+                int start = i;
+                while (i < length) {
+                    int cp = normalized.codePointAt(i);
+                    if (isCjk(cp) || !Character.isLetterOrDigit(cp)) {
+                        break;
+                    }
+                    i += Character.charCount(cp);
+                }
+                tokens.add(normalized.substring(start, i));
+            } else {
+                i += Character.charCount(codePoint);
+            }
+        }
+    }
+
+    private static void appendCjkGrams(String segment, List<String> tokens, boolean forIndex) {
+        int[] codePoints = segment.codePoints().toArray();
+        if (codePoints.length == 1) {
+            tokens.add(segment);
+            return;
+        }
+        for (int i = 0; i < codePoints.length; i++) {
+            if (forIndex) {
+                tokens.add(new String(codePoints, i, 1));
+            }
+            if (i + 1 < codePoints.length) {
+                tokens.add(new String(codePoints, i, 2));
+            }
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,329 @@
+package com.mangoyoo.yoopicbackend.manager.similar;
+
+import com.mangoyoo.yoopicbackend.util.PictureHashUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 图片感知哈希索引（纯内存，不依赖 Spring，可直接单元测试）
+ * <p>
+ * 按空间分别维护一棵 BK 树：汉明距离满足三角不等式，查询距离 r 以内的指纹时，
+ * 只需访问与当前节点距离在 [d - r, d + r] 范围内的子树。指纹相同的图片共用一个节点。
+ * 删除只从节点中移除图片 id，空节点超过一半时重建该空间的树。
+ */
+public class PictureHashIndex {
+
+    /**
+     * 公共图库在索引中的空间 key（数据库中 spaceId 为 null）
+     */
+    private static final long PUBLIC_SPACE_KEY = 0L;
+
+    private final ConcurrentHashMap<Long, BkTree> spaceTreeMap = new ConcurrentHashMap<>();
+
+    /**
+     * 图片 id -> {所在空间 key, 指纹}
+     */
+    private final HashMap<Long, long[]> pictureMap = new HashMap<>();
+
+    /**
+     * 新增或更新图片的指纹
+     *
+     * @param pictureId 图片 id
+     * @param spaceId   空间 id，为空表示公共图库
+     * @param hash      图片指纹
+     */
+    public synchronized void put(long pictureId, Long spaceId, long hash) {
+        long spaceKey = toSpaceKey(spaceId);
+        long[] oldEntry = pictureMap.put(pictureId, new long[]{spaceKey, hash});
+        if (oldEntry != null) {
+            if (oldEntry[0] == spaceKey && oldEntry[1] == hash) {
+                return;
+            }
+            spaceTreeMap.get(oldEntry[0]).remove(oldEntry[1], pictureId);
+        }
+        spaceTreeMap.computeIfAbsent(spaceKey, key -> new BkTree()).add(hash, pictureId);
+    }
+
+    /**
+     * 删除图片
+     */
+    public synchronized void remove(long pictureId) {
+        long[] oldEntry = pictureMap.remove(pictureId);
+        if (oldEntry != null) {
+            spaceTreeMap.get(oldEntry[0]).remove(oldEntry[1], pictureId);
+        }
+    }
+
+    /**
+     * 空间中已索引的图片数
+     */
+    public int size(Long spaceId) {
+        BkTree bkTree = spaceTreeMap.get(toSpaceKey(spaceId));
+        return bkTree == null ? 0 : bkTree.size();
+    }
+
+    /**
+     * 查询空间中与目标指纹汉明距离不超过 maxDistance 的图片
+     *
+     * @param spaceId          空间 id，为空表示公共图库
+     * @param hash             目标指纹
+     * @param maxDistance      最大汉明距离
+     * @param limit            最多返回的数量
+     * @param excludePictureId 需要排除的图片 id（一般是目标图片本身），可为空
+     * @return 按距离从小到大排列的结果
+     */
+    public List<HashMatch> search(Long spaceId, long hash, int maxDistance, int limit, Long excludePictureId) {
+        BkTree bkTree = spaceTreeMap.get(toSpaceKey(spaceId));
+        if (bkTree == null || limit <= 0 || maxDistance < 0) {
+            return Collections.emptyList();
+        }
+        long excludeId = excludePictureId == null ? -1L : excludePictureId;
+        List<HashMatch> matches = bkTree.search(hash, maxDistance, excludeId);
+        matches.sort(Comparator.comparingInt(HashMatch::getDistance).thenComparingLong(HashMatch::getPictureId));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    private static long toSpaceKey(Long spaceId) {
+        return spaceId == null ? PUBLIC_SPACE_KEY : spaceId;
+    }
+
+    /**
+     * 查询结果
+     */
+    public static final class HashMatch {
+
+        private final long pictureId;
+
+        private final int distance;
+
+        HashMatch(long pictureId, int distance) {
+            this.pictureId = pictureId;
+            this.distance = distance;
+        }
+
+        public long getPictureId() {
+            return pictureId;
+        }
+
+        /**
+         * 与目标指纹的汉明距离
+         */
+        public int getDistance() {
+            return distance;
+        }
+    }
+
+    /**
+     * 单个空间的 BK 树，写操作互斥，查询之间可以并发
+     */
+    private static final class BkTree {
+
+        /**
+         * 空节点数超过该值且超过节点总数一半时重建
+         */
+        private static final int REBUILD_MIN_EMPTY_NODES = 64;
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private Node root;
+
+        private int nodeCount;
+
+        private int emptyNodeCount;
+
+        private int size;
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return size;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void add(long hash, long pictureId) {
+            lock.writeLock().lock();
+            try {
+                insert(hash, pictureId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(long hash, long pictureId) {
+            lock.writeLock().lock();
+            try {
+                Node node = root;
+                while (node != null) {
+                    int distance = PictureHashUtils.hammingDistance(node.hash, hash);
+                    if (distance == 0) {
+                        break;
+                    }
+                    node = node.child(distance);
+                }
+                if (node == null || !node.removeId(pictureId)) {
+                    return;
+                }
+                size--;
+                if (node.idCount == 0) {
+                    emptyNodeCount++;
+                    if (emptyNodeCount > REBUILD_MIN_EMPTY_NODES && emptyNodeCount * 2 > nodeCount) {
+                        rebuild();
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        List<HashMatch> search(long hash, int maxDistance, long excludePictureId) {
+            List<HashMatch> matches = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                if (root == null) {
+                    return matches;
+                }
+                ArrayDeque<Node> stack = new ArrayDeque<>();
+                stack.push(root);
+                while (!stack.isEmpty()) {
+                    Node node = stack.pop();
+                    int distance = PictureHashUtils.hammingDistance(node.hash, hash);
+                    if (distance <= maxDistance) {
+                        for (int i = 0; i < node.idCount; i++) {
+                            if (node.ids[i] != excludePictureId) {
+                                matches.add(new HashMatch(node.ids[i], distance));
+                            }
+                        }
+                    }
+                    // 三角不等式剪枝：只有与当前节点距离在 [d - r, d + r] 内的子树才可能命中
+                    for (int i = 0; i < node.childCount; i++) {
+                        int childDistance = node.childDistances[i];
+                        if (childDistance >= distance - maxDistance && childDistance <= distance + maxDistance) {
+                            stack.push(node.children[i]);
+                        }
+                    }
+                }
+                return matches;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void insert(long hash, long pictureId) {
+            size++;
+            if (root == null) {
+                root = new Node(hash, pictureId);
+                nodeCount++;
+                return;
+            }
+            Node node = root;
+            while (true) {
+                int distance = PictureHashUtils.hammingDistance(node.hash, hash);
+                if (distance == 0) {
+                    if (node.idCount == 0) {
+                        emptyNodeCount--;
+                    }
+                    node.addId(pictureId);
+                    return;
+                }
+                Node child = node.child(distance);
+                if (child == null) {
+                    node.addChild(distance, new Node(hash, pictureId));
+                    nodeCount++;
+                    return;
+                }
+                node = child;
+            }
+        }
+
+        /**
+         * 丢弃空节点，用剩余的数据重建整棵树
+         */
+        private void rebuild() {
+            List<Node> liveNodes = new ArrayList<>(nodeCount - emptyNodeCount);
+            ArrayDeque<Node> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                if (node.idCount > 0) {
+                    liveNodes.add(node);
+                }
+                for (int i = 0; i < node.childCount; i++) {
+                    stack.push(node.children[i]);
+                }
+            }
+            root = null;
+            nodeCount = 0;
+            emptyNodeCount = 0;
+            size = 0;
+            for (Node liveNode : liveNodes) {
+                for (int i = 0; i < liveNode.idCount; i++) {
+                    insert(liveNode.hash, liveNode.ids[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * BK 树节点，子节点按与本节点的距离区分（稀疏存储，每个节点通常只有少量子节点）
+     */
+    private static final class Node {
+
+        private final long hash;
+
+        private long[] ids;
+
+        private int idCount;
+
+        private byte[] childDistances = new byte[0];
+
+        private Node[] children = new Node[0];
+
+        private int childCount;
+
+        Node(long hash, long pictureId) {
+            this.hash = hash;
+            this.ids = new long[]{pictureId};
+            this.idCount = 1;
+        }
+
+        void addId(long pictureId) {
+            if (idCount == ids.length) {
+                ids = Arrays.copyOf(ids, idCount * 2);
+            }
+            ids[idCount++] = pictureId;
+        }
+
+        boolean removeId(long pictureId) {
+            for (int i = 0; i < idCount; i++) {
+                if (ids[i] == pictureId) {
+                    ids[i] = ids[--idCount];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Node child(int distance) {
+            for (int i = 0; i < childCount; i++) {
+                if (childDistances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void addChild(int distance, Node child) {
+            if (childCount == children.length) {
+                int newLength = Math.max(4, childCount * 2);
+                childDistances = Arrays.copyOf(childDistances, newLength);
+                children = Arrays.copyOf(children, newLength);
+            }
+            childDistances[childCount] = (byte) distance;
+            children[childCount++] = child;
+        }
+    }
+}
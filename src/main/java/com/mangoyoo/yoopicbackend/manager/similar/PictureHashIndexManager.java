@@ -0,0 +1,301 @@
+package com.mangoyoo.yoopicbackend.manager.similar;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpResponse;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.mangoyoo.yoopicbackend.manager.index.PictureIndexTemplate;
+import com.mangoyoo.yoopicbackend.model.entity.Picture;
+import com.mangoyoo.yoopicbackend.model.enums.PictureReviewStatusEnum;
+import com.mangoyoo.yoopicbackend.util.PictureHashUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 图片感知哈希索引管理器（以图搜图、相似图片去重）
+ * <p>
+ * 应用启动后从 picture 表加载所有已计算指纹的图片构建 {@link PictureHashIndex}，之后由图片的写操作增量刷新，
+ * 加载、广播和定时同步的流程见 {@link PictureIndexTemplate}。
+ * 空间内的图片全部索引；公共图库中审核通过的图片用于以图搜图，待审核的图片单独索引，只参与上传时的重复判断。
+ */
+@Slf4j
+@Component
+public class PictureHashIndexManager extends PictureIndexTemplate {
+
+    /**
+     * 汉明距离不超过该值视为同一张图片，上传时拒绝
+     */
+    public static final int NEAR_DUPLICATE_DISTANCE = 3;
+
+    /**
+     * 以图搜图默认的最大汉明距离
+     */
+    public static final int DEFAULT_SIMILAR_DISTANCE = 10;
+
+    /**
+     * 以图搜图允许的最大汉明距离，再大就没有相似的意义了
+     */
+    public static final int MAX_SIMILAR_DISTANCE = 20;
+
+    private static final int LOAD_BATCH_SIZE = 2000;
+
+    private static final int BACKFILL_BATCH_SIZE = 200;
+
+    private static final int DOWNLOAD_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * 通过对象存储的数据处理把缩略图转换为小尺寸 png 再下载，webp 等格式也可以直接解码
+     */
+    private static final String HASH_IMAGE_PROCESS = "?imageMogr2/thumbnail/64x64!/format/png";
+
+    private static final String[] INDEX_COLUMNS = {"id", "spaceId", "picHash", "reviewStatus"};
+
+    private static final String REFRESH_TOPIC = "picture-hash:refresh";
+
+    private final PictureHashIndex hashIndex = new PictureHashIndex();
+
+    /**
+     * 公共图库中待审核的图片，不对外展示，只用于重复判断
+     */
+    private final PictureHashIndex reviewingIndex = new PictureHashIndex();
+
+    /**
+     * 是否有回填任务在执行
+     */
+    private final AtomicBoolean backfillRunning = new AtomicBoolean(false);
+
+    public PictureHashIndexManager() {
+        super("图片指纹索引", REFRESH_TOPIC, INDEX_COLUMNS, LOAD_BATCH_SIZE);
+    }
+
+    /**
+     * 查询空间中与目标指纹相似的图片
+     *
+     * @param spaceId          空间 id，为空表示公共图库
+     * @param picHash          目标指纹
+     * @param maxDistance      最大汉明距离
+     * @param limit            最多返回的数量
+     * @param excludePictureId 需要排除的图片 id，可为空
+     * @return 按相似度从高到低排列的图片 id
+     */
+    public List<Long> searchSimilar(Long spaceId, long picHash, int maxDistance, int limit, Long excludePictureId) {
+        return hashIndex.search(spaceId, picHash, maxDistance, limit, excludePictureId).stream()
+                .map(PictureHashIndex.HashMatch::getPictureId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 查找空间中与目标指纹几乎相同的图片，索引未就绪时不做判断
+     *
+     * @param spaceId          空间 id，为空表示公共图库
+     * @param picHash          目标指纹
+     * @param excludePictureId 需要排除的图片 id（重新上传时为图片本身），可为空
+     * @return 重复图片的 id，没有时返回 null
+     */
+    public Long findNearDuplicate(Long spaceId, long picHash, Long excludePictureId) {
+        if (!isReady()) {
+            return null;
+        }
+        List<PictureHashIndex.HashMatch> matches = hashIndex.search(spaceId, picHash, NEAR_DUPLICATE_DISTANCE, 1, excludePictureId);
+        if (matches.isEmpty() && spaceId == null) {
+            matches = reviewingIndex.search(null, picHash, NEAR_DUPLICATE_DISTANCE, 1, excludePictureId);
+        }
+        return matches.isEmpty() ? null : matches.get(0).getPictureId();
+    }
+
+    /**
+     * 根据上传时已读入内存的图片数据计算指纹
+     *
+     * @param data 图片数据
+     * @return 指纹，格式不支持（如 webp）或解码失败时返回 null
+     */
+    public Long computeHash(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return PictureHashUtils.dHash(data);
+        } catch (Exception e) {
+            log.warn("计算图片指纹失败, size = {}", data.length, e);
+            return null;
+        }
+    }
+
+    /**
+     * 根据上传时的本地临时文件计算指纹
+     *
+     * @param file 图片文件
+     * @return 指纹，格式不支持（如 webp）或解码失败时返回 null
+     */
+    public Long computeHash(File file) {
+        if (file == null) {
+            return null;
+        }
+        try {
+            return PictureHashUtils.dHash(file);
+        } catch (Exception e) {
+            log.warn("计算图片指纹失败, file = {}", file.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 下载缩略图计算图片指纹（用于没有原图数据的历史图片）
+     *
+     * @param thumbnailUrl 缩略图地址
+     * @return 指纹，下载或解码失败时返回 null
+     */
+    public Long computeHash(String thumbnailUrl) {
+        if (StrUtil.isBlank(thumbnailUrl)) {
+            return null;
+        }
+        try (HttpResponse response = HttpRequest.get(thumbnailUrl + HASH_IMAGE_PROCESS)
+                .timeout(DOWNLOAD_TIMEOUT_MILLIS)
+                .execute()) {
+            if (!response.isOk()) {
+                log.warn("下载缩略图失败, thumbnailUrl = {}, status = {}", thumbnailUrl, response.getStatus());
+                return null;
+            }
+            BufferedImage image = ImageIO.read(response.bodyStream());
+            if (image == null) {
+                log.warn("缩略图解码失败, thumbnailUrl = {}", thumbnailUrl);
+                return null;
+            }
+            return PictureHashUtils.dHash(image);
+        } catch (Exception e) {
+            log.warn("计算图片指纹失败, thumbnailUrl = {}", thumbnailUrl, e);
+            return null;
+        }
+    }
+
+    /**
+     * 在后台为还没有指纹的历史图片分页计算指纹（可重复执行）
+     *
+     * @return 是否启动了回填，已有回填任务在执行时返回 false
+     */
+    public boolean startBackfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread.ofVirtual().name("picture-hash-backfill").start(() -> {
+            try {
+                backfillPicHash();
+            } catch (Exception e) {
+                log.error("图片指纹回填失败", e);
+            } finally {
+                backfillRunning.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 在后台为上传时没能计算指纹的图片（如 webp 格式）下载缩略图计算指纹
+     *
+     * @param pictureIds 图片 id
+     */
+    public void fillPicHashAsync(Collection<Long> pictureIds) {
+        if (CollUtil.isEmpty(pictureIds)) {
+            return;
+        }
+        Thread.ofVirtual().name("picture-hash-fill").start(() -> {
+            try {
+                QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+                queryWrapper.select("id", "thumbnailUrl").isNull("picHash").in("id", pictureIds);
+                fillPicHash(pictureMapper.selectList(queryWrapper));
+            } catch (Exception e) {
+                log.error("计算图片指纹失败, pictureIds = {}", pictureIds, e);
+            }
+        });
+    }
+
+    private void backfillPicHash() {
+        long lastId = 0;
+        long total = 0;
+        while (true) {
+            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "thumbnailUrl")
+                    .isNull("picHash")
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("LIMIT " + BACKFILL_BATCH_SIZE);
+            List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+            if (pictureList.isEmpty()) {
+                break;
+            }
+            total += fillPicHash(pictureList);
+            lastId = pictureList.get(pictureList.size() - 1).getId();
+            log.info("图片指纹回填进度：已计算 {} 张图片，当前 id = {}", total, lastId);
+        }
+        log.info("图片指纹回填完成，共计算 {} 张图片", total);
+    }
+
+    /**
+     * 下载缩略图计算指纹并写回 picture 表
+     *
+     * @param pictureList 图片（需要 id、thumbnailUrl）
+     * @return 成功计算的图片数
+     */
+    private int fillPicHash(List<Picture> pictureList) {
+        List<Long> updatedIds = new ArrayList<>(pictureList.size());
+        for (Picture picture : pictureList) {
+            Long picHash = computeHash(picture.getThumbnailUrl());
+            if (picHash == null) {
+                continue;
+            }
+            Picture updatePicture = new Picture();
+            updatePicture.setId(picture.getId());
+            updatePicture.setPicHash(picHash);
+            pictureMapper.updateById(updatePicture);
+            updatedIds.add(picture.getId());
+        }
+        refresh(updatedIds);
+        return updatedIds.size();
+    }
+
+    /**
+     * 将图片写入索引，不满足条件的从索引中移除
+     *
+     * @return 是否写入了索引
+     */
+    @Override
+    protected boolean apply(Picture picture) {
+        if (picture.getPicHash() != null) {
+            if (picture.getSpaceId() != null
+                    || Objects.equals(picture.getReviewStatus(), PictureReviewStatusEnum.PASS.getValue())) {
+                reviewingIndex.remove(picture.getId());
+                hashIndex.put(picture.getId(), picture.getSpaceId(), picture.getPicHash());
+                return true;
+            }
+            if (Objects.equals(picture.getReviewStatus(), PictureReviewStatusEnum.REVIEWING.getValue())) {
+                hashIndex.remove(picture.getId());
+                reviewingIndex.put(picture.getId(), null, picture.getPicHash());
+                return true;
+            }
+        }
+        remove(picture.getId());
+        return false;
+    }
+
+    /**
+     * 从两个索引中都移除（数据库中已删除的图片）
+     */
+    @Override
+    protected void remove(Long pictureId) {
+        hashIndex.remove(pictureId);
+        reviewingIndex.remove(pictureId);
+    }
+
+    @Override
+    protected void filterLoadQuery(QueryWrapper<Picture> queryWrapper) {
+        queryWrapper.isNotNull("picHash");
+    }
+}
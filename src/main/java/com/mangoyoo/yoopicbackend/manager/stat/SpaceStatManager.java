@@ -0,0 +1,290 @@
+package com.mangoyoo.yoopicbackend.manager.stat;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.bean.copier.CopyOptions;
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ObjUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.mangoyoo.yoopicbackend.mapper.SpaceDailyStatMapper;
+import com.mangoyoo.yoopicbackend.model.entity.Picture;
+import com.mangoyoo.yoopicbackend.model.entity.SpaceDailyStat;
+import com.mangoyoo.yoopicbackend.service.dao.PictureTagDAO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.Resource;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * 空间统计管理器，维护 space_daily_stat 预聚合表
+ * <p>
+ * 按（空间，日期，维度，取值）记录图片数量和总大小，维度包括分类、标签、大小区间和上传用户。
+ * 图片新增、修改、删除后增量累加变化量；增量更新失败或与其他写入交错造成的偏差由每天的全量重建修正。
+ * 统计口径与原来直接扫描 picture 表一致：包含所有未删除的图片，不区分审核状态，因此审核操作不需要更新统计。
+ */
+@Slf4j
+@Component
+public class SpaceStatManager {
+
+    public static final String DIMENSION_CATEGORY = "category";
+
+    public static final String DIMENSION_TAG = "tag";
+
+    public static final String DIMENSION_SIZE = "size";
+
+    public static final String DIMENSION_USER = "user";
+
+    /**
+     * 公共图库在统计表中的空间 id
+     */
+    public static final long PUBLIC_SPACE_KEY = 0L;
+
+    /**
+     * 大小区间名称，顺序即展示顺序（与 SpaceDailyStatMapper.SIZE_BUCKET_SQL 保持一致）
+     */
+    public static final List<String> SIZE_BUCKETS = List.of("<100KB", "100KB-500KB", "500KB-1MB", ">1MB");
+
+    private static final int UPSERT_BATCH_SIZE = 500;
+
+    private static final String REBUILD_LOCK_KEY = "yoopic:lock:space-stat:rebuild";
+
+    /**
+     * 重建锁的租约，需要大于一次全量重建的耗时；节点宕机后锁在租约到期后自动释放
+     */
+    private static final Duration REBUILD_LOCK_LEASE = Duration.ofHours(1);
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end\n" +
+            "return 0", Long.class);
+
+    @Resource
+    private SpaceDailyStatMapper spaceDailyStatMapper;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 新增图片后调用（图片需包含 spaceId、userId、category、tags、picSize）
+     */
+    public void onPictureAdded(Collection<Picture> pictureList) {
+        Map<String, SpaceDailyStat> deltaMap = new HashMap<>();
+        for (Picture picture : pictureList) {
+            collectDelta(deltaMap, picture, 1);
+        }
+        applyDelta(deltaMap);
+    }
+
+    public void onPictureAdded(Picture picture) {
+        onPictureAdded(Collections.singletonList(picture));
+    }
+
+    /**
+     * 删除图片后调用
+     */
+    public void onPictureDeleted(Picture oldPicture) {
+        Map<String, SpaceDailyStat> deltaMap = new HashMap<>();
+        collectDelta(deltaMap, oldPicture, -1);
+        applyDelta(deltaMap);
+    }
+
+    /**
+     * 修改图片后调用
+     *
+     * @param oldPicture    修改前的完整数据
+     * @param updatePicture 本次更新的字段（为空的字段视为未修改）
+     */
+    public void onPictureUpdated(Picture oldPicture, Picture updatePicture) {
+        onPictureUpdated(Collections.singletonList(oldPicture), Collections.singletonList(updatePicture));
+    }
+
+    /**
+     * 批量修改图片后调用，两个列表按下标一一对应
+     */
+    public void onPictureUpdated(List<Picture> oldPictureList, List<Picture> updatePictureList) {
+        Map<String, SpaceDailyStat> deltaMap = new HashMap<>();
+        for (int i = 0; i < oldPictureList.size(); i++) {
+            Picture oldPicture = oldPictureList.get(i);
+            Picture newPicture = BeanUtil.copyProperties(oldPicture, Picture.class);
+            BeanUtil.copyProperties(updatePictureList.get(i), newPicture, CopyOptions.create().ignoreNullValue());
+            collectDelta(deltaMap, oldPicture, -1);
+            collectDelta(deltaMap, newPicture, 1);
+        }
+        applyDelta(deltaMap);
+    }
+
+    /**
+     * 删除空间后调用
+     */
+    public void onSpaceDeleted(long spaceId) {
+        try {
+            spaceDailyStatMapper.deleteBySpaceKey(spaceId);
+        } catch (Exception e) {
+            log.error("删除空间统计失败, spaceId = {}", spaceId, e);
+        }
+    }
+
+    /**
+     * 每天根据 picture、picture_tag 表全量重建统计
+     * <p>
+     * 多个节点的定时任务同时触发，通过 Redis 锁保证只有一个节点执行。按空间逐个重建，每个空间一个事务，
+     * 避免一次性清空整张表导致统计长时间为空，也避免长事务锁住大量 picture 行。
+     * 单个空间重建期间的增量更新会等待事务提交后再累加，可能造成少量偏差，由下一次重建修正
+     */
+    @Scheduled(cron = "${space.stat.rebuild-cron:0 0 4 * * ?}")
+    public void rebuild() {
+        String lockValue = IdUtil.fastSimpleUUID();
+        try {
+            Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK_KEY, lockValue, REBUILD_LOCK_LEASE);
+            if (!Boolean.TRUE.equals(locked)) {
+                log.info("其他节点正在重建空间统计，跳过");
+                return;
+            }
+        } catch (Exception e) {
+            log.error("获取空间统计重建锁失败", e);
+            return;
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            List<Long> spaceKeyList = spaceDailyStatMapper.selectSpaceKeys();
+            int rowCount = 0;
+            int failedCount = 0;
+            for (Long spaceKey : spaceKeyList) {
+                try {
+                    rowCount += rebuildSpace(spaceKey);
+                } catch (Exception e) {
+                    failedCount++;
+                    log.error("空间统计重建失败, spaceKey = {}", spaceKey, e);
+                }
+            }
+            log.info("空间统计重建完成，共 {} 个空间（失败 {} 个），{} 行，耗时 {} ms",
+                    spaceKeyList.size(), failedCount, rowCount, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("空间统计重建失败", e);
+        } finally {
+            try {
+                stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(REBUILD_LOCK_KEY), lockValue);
+            } catch (Exception e) {
+                // 释放失败时锁在租约到期后自动失效
+                log.error("释放空间统计重建锁失败", e);
+            }
+        }
+    }
+
+    /**
+     * 在一个事务中重建单个空间的统计
+     *
+     * @return 写入的行数
+     */
+    private int rebuildSpace(long spaceKey) {
+        Long spaceId = spaceKey == PUBLIC_SPACE_KEY ? null : spaceKey;
+        Integer rowCount = transactionTemplate.execute(status -> {
+            spaceDailyStatMapper.deleteBySpaceKey(spaceKey);
+            return spaceDailyStatMapper.rebuildFromPicture(spaceId) + spaceDailyStatMapper.rebuildTags(spaceId);
+        });
+        return ObjUtil.defaultIfNull(rowCount, 0);
+    }
+
+    /**
+     * 统计表为空时（首次上线）在启动后构建一次，多个节点同时启动时只有获取到重建锁的节点执行
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void initIfEmpty() {
+        try {
+            if (!spaceDailyStatMapper.exists(new QueryWrapper<>())) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.error("检查空间统计失败", e);
+        }
+    }
+
+    /**
+     * 图片所属的大小区间
+     */
+    public static String sizeBucket(long picSize) {
+        if (picSize < 100 * 1024) {
+            return SIZE_BUCKETS.get(0);
+        }
+        if (picSize < 500 * 1024) {
+            return SIZE_BUCKETS.get(1);
+        }
+        if (picSize < 1024 * 1024) {
+            return SIZE_BUCKETS.get(2);
+        }
+        return SIZE_BUCKETS.get(3);
+    }
+
+    private static void collectDelta(Map<String, SpaceDailyStat> deltaMap, Picture picture, int sign) {
+        if (picture == null) {
+            return;
+        }
+        long spaceKey = ObjUtil.defaultIfNull(picture.getSpaceId(), PUBLIC_SPACE_KEY);
+        // 新插入的图片实体中没有数据库生成的创建时间，按当天统计
+        Date statDate = DateUtil.beginOfDay(ObjUtil.defaultIfNull(picture.getCreateTime(), new Date()));
+        long picSize = ObjUtil.defaultIfNull(picture.getPicSize(), 0L);
+        addDelta(deltaMap, spaceKey, statDate, DIMENSION_CATEGORY, StrUtil.nullToEmpty(picture.getCategory()), sign, picSize);
+        addDelta(deltaMap, spaceKey, statDate, DIMENSION_SIZE, sizeBucket(picSize), sign, picSize);
+        if (picture.getUserId() != null) {
+            addDelta(deltaMap, spaceKey, statDate, DIMENSION_USER, String.valueOf(picture.getUserId()), sign, picSize);
+        }
+        for (String tag : PictureTagDAO.parseTags(picture.getTags())) {
+            addDelta(deltaMap, spaceKey, statDate, DIMENSION_TAG, tag, sign, picSize);
+        }
+    }
+
+    private static void addDelta(Map<String, SpaceDailyStat> deltaMap, long spaceKey, Date statDate,
+                                 String dimension, String dimKey, int sign, long picSize) {
+        String key = spaceKey + "|" + statDate.getTime() + "|" + dimension + "|" + dimKey;
+        SpaceDailyStat stat = deltaMap.computeIfAbsent(key, k -> {
+            SpaceDailyStat newStat = new SpaceDailyStat();
+            newStat.setSpaceKey(spaceKey);
+            newStat.setStatDate(statDate);
+            newStat.setDimension(dimension);
+            newStat.setDimKey(dimKey);
+            newStat.setStatCount(0L);
+            newStat.setTotalSize(0L);
+            return newStat;
+        });
+        stat.setStatCount(stat.getStatCount() + sign);
+        stat.setTotalSize(stat.getTotalSize() + sign * picSize);
+    }
+
+    /**
+     * 写入变化量，相互抵消的项不写；按唯一键排序后写入，避免并发更新时加锁顺序不同造成死锁
+     */
+    private void applyDelta(Map<String, SpaceDailyStat> deltaMap) {
+        List<SpaceDailyStat> statList = deltaMap.values().stream()
+                .filter(stat -> stat.getStatCount() != 0 || stat.getTotalSize() != 0)
+                .sorted(Comparator.comparing(SpaceDailyStat::getSpaceKey)
+                        .thenComparing(SpaceDailyStat::getStatDate)
+                        .thenComparing(SpaceDailyStat::getDimension)
+                        .thenComparing(SpaceDailyStat::getDimKey))
+                .toList();
+        if (statList.isEmpty()) {
+            return;
+        }
+        try {
+            for (List<SpaceDailyStat> batch : CollUtil.split(statList, UPSERT_BATCH_SIZE)) {
+                spaceDailyStatMapper.upsertDelta(batch);
+            }
+        } catch (Exception e) {
+            // 统计允许短暂偏差，不影响图片操作本身，由每天的全量重建修正
+            log.error("更新空间统计失败", e);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.mangoyoo.yoopicbackend.manager.upload;
+
+import cn.hutool.core.util.ObjUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import cn.hutool.json.JSONUtil;
+import com.mangoyoo.yoopicbackend.dto.file.UploadPictureResult;
+import com.mangoyoo.yoopicbackend.exception.BusinessException;
+import com.mangoyoo.yoopicbackend.exception.ErrorCode;
+import com.mangoyoo.yoopicbackend.model.vo.PictureBatchUploadProgressVO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.Resource;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * 批量抓取并上传图片
+ * <p>
+ * 分为解析页面、并发上传两个阶段（每张图片的校验、下载、上传对象存储在 {@link UrlPictureUpload} 中以流水线方式完成），
+ * 上传使用虚拟线程，总并发和每个域名的并发都有上限；在途任务数不超过剩余目标数，成功数量不会超过目标数量。
+ * 入库由调用方在所有图片上传完成后一次性批量完成。
+ */
+@Slf4j
+@Component
+public class BatchPictureUploader {
+
+    /**
+     * 同时上传的最大图片数
+     */
+    private static final int MAX_CONCURRENCY = 8;
+
+    /**
+     * 同一域名同时下载的最大图片数，避免被对方限流
+     */
+    private static final int MAX_CONCURRENCY_PER_HOST = 2;
+
+    @Resource
+    private UrlPictureUpload urlPictureUpload;
+
+    /**
+     * 从 Bing 图片搜索结果页解析图片地址
+     *
+     * @param searchText 搜索词
+     * @return 去重后的原图地址
+     */
+    public List<String> fetchPictureUrls(String searchText) {
+        // 要抓取的地址
+        String fetchUrl = String.format("https://cn.bing.com/images/async?q=%s&mmasync=1", searchText);
+        Document document;
+        try {
+            document = Jsoup.connect(fetchUrl).get();
+        } catch (IOException e) {
+            log.error("获取页面失败", e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取页面失败");
+        }
+        Element div = document.getElementsByClass("dgControl").first();
+        if (ObjUtil.isNull(div)) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取元素失败");
+        }
+        // class="iusc" 的 a 标签的 m 属性中是图片信息 JSON，murl 为原始图片地址
+        Elements linkElements = div.select("a.iusc");
+        Set<String> fileUrlSet = new LinkedHashSet<>();
+        for (Element linkElement : linkElements) {
+            String mAttr = linkElement.attr("m");
+            if (StrUtil.isBlank(mAttr)) {
+                continue;
+            }
+            try {
+                String fileUrl = JSONUtil.parseObj(mAttr).getStr("murl");
+                if (StrUtil.isBlank(fileUrl)) {
+                    continue;
+                }
+                // 处理图片上传地址，防止出现转义问题
+                int questionMarkIndex = fileUrl.indexOf("?");
+                if (questionMarkIndex > -1) {
+                    fileUrl = fileUrl.substring(0, questionMarkIndex);
+                }
+                fileUrlSet.add(fileUrl);
+            } catch (Exception e) {
+                log.info("解析图片信息失败，已跳过: {}", mAttr);
+            }
+        }
+        return new ArrayList<>(fileUrlSet);
+    }
+
+    /**
+     * 并发上传图片，直到成功数量达到目标或候选地址用完
+     *
+     * @param fileUrls         候选图片地址
+     * @param count            目标数量
+     * @param uploadPathPrefix 上传路径前缀
+     * @param progressListener 进度回调，总是在调用线程中执行
+     * @return 按完成顺序排列的上传结果
+     */
+    public List<UploadedPicture> uploadAll(List<String> fileUrls, int count, String uploadPathPrefix,
+                                           Consumer<PictureBatchUploadProgressVO> progressListener) {
+        List<UploadedPicture> uploadedList = new ArrayList<>(count);
+        Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+        int failCount = 0;
+        int next = 0;
+        int inFlight = 0;
+        boolean interrupted = false;
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        CompletionService<UploadedPicture> completionService = new ExecutorCompletionService<>(executor);
+        try (executor) {
+            while (uploadedList.size() < count) {
+                // 补充任务：在途任务数不超过总并发，也不超过剩余目标数
+                while (next < fileUrls.size() && inFlight < MAX_CONCURRENCY && uploadedList.size() + inFlight < count) {
+                    String fileUrl = fileUrls.get(next++);
+                    completionService.submit(() -> uploadOne(fileUrl, uploadPathPrefix, hostPermits));
+                    inFlight++;
+                }
+                if (inFlight == 0) {
+                    break;
+                }
+                Future<UploadedPicture> future = completionService.take();
+                inFlight--;
+                UploadedPicture uploadedPicture = getQuietly(future);
+                if (uploadedPicture != null) {
+                    uploadedList.add(uploadedPicture);
+                } else {
+                    failCount++;
+                }
+                progressListener.accept(buildProgress(uploadedPicture, count, uploadedList.size(), failCount));
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        if (interrupted) {
+            // 关闭线程池时已等到在途任务结束，它们上传的图片同样交给调用方入库或释放，不能丢弃
+            for (; inFlight > 0; inFlight--) {
+                Future<UploadedPicture> future = completionService.poll();
+                if (future != null && future.state() == Future.State.SUCCESS && future.resultNow() != null) {
+                    uploadedList.add(future.resultNow());
+                }
+            }
+            Thread.currentThread().interrupt();
+            log.warn("批量上传被中断，已上传 {} 张", uploadedList.size());
+        }
+        return uploadedList;
+    }
+
+    private UploadedPicture uploadOne(String fileUrl, String uploadPathPrefix, Map<String, Semaphore> hostPermits) throws InterruptedException {
+        String host = StrUtil.blankToDefault(URLUtil.url(fileUrl).getHost(), "");
+        Semaphore permits = hostPermits.computeIfAbsent(host, key -> new Semaphore(MAX_CONCURRENCY_PER_HOST));
+        permits.acquire();
+        try {
+            UploadPictureResult uploadPictureResult = urlPictureUpload.uploadPicture(fileUrl, uploadPathPrefix);
+            if (uploadPictureResult == null) {
+                return null;
+            }
+            return new UploadedPicture(fileUrl, uploadPictureResult);
+        } catch (Exception e) {
+            log.warn("图片上传失败, fileUrl = {}, {}", fileUrl, e.getMessage());
+            return null;
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static UploadedPicture getQuietly(Future<UploadedPicture> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            log.warn("图片上传失败", e.getCause());
+            return null;
+        }
+    }
+
+    private static PictureBatchUploadProgressVO buildProgress(UploadedPicture uploadedPicture, int count, int successCount, int failCount) {
+        PictureBatchUploadProgressVO progress = new PictureBatchUploadProgressVO();
+        progress.setStage("upload");
+        progress.setTotalCount(count);
+        progress.setSuccessCount(successCount);
+        progress.setFailCount(failCount);
+        if (uploadedPicture != null) {
+            progress.setFileUrl(uploadedPicture.getFileUrl());
+        }
+        return progress;
+    }
+
+    /**
+     * 上传成功的图片
+     */
+    @Data
+    @AllArgsConstructor
+    public static class UploadedPicture {
+
+        private String fileUrl;
+
+        private UploadPictureResult uploadPictureResult;
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -39,4 +40,10 @@ public class FilePictureUpload extends PictureUploadTemplate {
         MultipartFile multipartFile = (MultipartFile) inputSource;
         multipartFile.transferTo(file);
     }
+
+    @Override
+    protected PictureInputStream openStream(Object inputSource) throws IOException {
+        MultipartFile multipartFile = (MultipartFile) inputSource;
+        return new PictureInputStream(multipartFile.getInputStream(), multipartFile.getSize(), null);
+    }
 }
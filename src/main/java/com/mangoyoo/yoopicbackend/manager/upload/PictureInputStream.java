@@ -0,0 +1,53 @@
+package com.mangoyoo.yoopicbackend.manager.upload;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 流式上传时的图片数据流
+ */
+public class PictureInputStream implements Closeable {
+
+    /**
+     * 长度未知
+     */
+    public static final long UNKNOWN_LENGTH = -1;
+
+    private final InputStream inputStream;
+
+    private final long contentLength;
+
+    /**
+     * 数据流之外需要一并关闭的资源（如 HTTP 响应），可以为空
+     */
+    private final Closeable resource;
+
+    public PictureInputStream(InputStream inputStream, long contentLength, Closeable resource) {
+        this.inputStream = inputStream;
+        this.contentLength = contentLength;
+        this.resource = resource;
+    }
+
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * 数据长度，未知时为 {@link #UNKNOWN_LENGTH}
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            inputStream.close();
+        } finally {
+            if (resource != null) {
+                resource.close();
+            }
+        }
+    }
+}
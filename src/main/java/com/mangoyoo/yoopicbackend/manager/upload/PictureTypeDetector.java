@@ -0,0 +1,57 @@
+package com.mangoyoo.yoopicbackend.manager.upload;
+
+/**
+ * 根据文件头（魔数）识别图片类型，不依赖文件后缀和 Content-Type
+ */
+public final class PictureTypeDetector {
+
+    /**
+     * 识别图片类型需要的文件头字节数
+     */
+    public static final int HEADER_SIZE = 12;
+
+    private static final byte[] JPEG_MAGIC = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+    private static final byte[] PNG_MAGIC = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static final byte[] RIFF_MAGIC = {'R', 'I', 'F', 'F'};
+
+    private static final byte[] WEBP_MAGIC = {'W', 'E', 'B', 'P'};
+
+    private PictureTypeDetector() {
+        // 工具类不需要实例化
+    }
+
+    /**
+     * 识别图片类型
+     *
+     * @param header 文件开头的字节
+     * @param length 有效字节数
+     * @return 图片后缀（jpg / png / webp），不是允许的图片类型时返回 null
+     */
+    public static String detect(byte[] header, int length) {
+        if (startsWith(header, length, 0, JPEG_MAGIC)) {
+            return "jpg";
+        }
+        if (startsWith(header, length, 0, PNG_MAGIC)) {
+            return "png";
+        }
+        // RIFF????WEBP
+        if (startsWith(header, length, 0, RIFF_MAGIC) && startsWith(header, length, 8, WEBP_MAGIC)) {
+            return "webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, int length, int offset, byte[] magic) {
+        if (length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (header[offset + i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -5,6 +5,7 @@ import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.RandomUtil;
+import cn.hutool.crypto.digest.DigestUtil;
 import com.qcloud.cos.model.PutObjectResult;
 import com.qcloud.cos.model.ciModel.persistence.CIObject;
 import com.qcloud.cos.model.ciModel.persistence.ImageInfo;
@@ -15,22 +16,41 @@ import com.mangoyoo.yoopicbackend.dto.file.UploadPictureResult;
 import com.mangoyoo.yoopicbackend.exception.BusinessException;
 import com.mangoyoo.yoopicbackend.exception.ErrorCode;
 import com.mangoyoo.yoopicbackend.manager.CosManager;
+import com.mangoyoo.yoopicbackend.manager.similar.PictureHashIndexManager;
+import com.mangoyoo.yoopicbackend.exception.ThrowUtils;
+import com.mangoyoo.yoopicbackend.model.entity.PictureObject;
+import com.mangoyoo.yoopicbackend.service.dao.PictureObjectDAO;
 import lombok.extern.slf4j.Slf4j;
 
 import jakarta.annotation.Resource;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.util.Date;
 import java.util.List;
 
 @Slf4j
 public abstract class PictureUploadTemplate {
 
+    /**
+     * 图片最大大小
+     */
+    public static final long MAX_PICTURE_SIZE = 2 * 1024 * 1024L;
+
     @Resource
     protected CosManager cosManager;
 
     @Resource
     protected CosClientConfig cosClientConfig;
 
+    @Resource
+    private PictureObjectDAO pictureObjectDAO;
+
+    @Resource
+    private PictureHashIndexManager pictureHashIndexManager;
+
     /**
      * 模板方法，定义上传流程
      */
@@ -38,9 +58,13 @@ public abstract class PictureUploadTemplate {
         // 1. 校验图片
         validPicture(inputSource);
 
-        // 2. 图片上传地址
         String uuid = RandomUtil.randomString(16);
         String originFilename = getOriginFilename(inputSource);
+        if (cosClientConfig.isStreamingUpload()) {
+            return uploadPictureByStream(inputSource, uploadPathPrefix, originFilename, uuid);
+        }
+
+        // 2. 图片上传地址
         String uploadFilename = String.format("%s_%s.%s", DateUtil.formatDate(new Date()), uuid,
                 FileUtil.getSuffix(originFilename));
         String uploadPath = String.format("/%s/%s", uploadPathPrefix, uploadFilename);
@@ -51,22 +75,27 @@ public abstract class PictureUploadTemplate {
             file = File.createTempFile(uploadPath, null);
             // 处理文件来源（本地或 URL）
             processFile(inputSource, file);
+            // 相同内容的图片已经上传过，直接复用
+            String contentHash = null;
+            if (cosClientConfig.isDedupUpload()) {
+                contentHash = DigestUtil.sha256Hex(file);
+                UploadPictureResult reusedResult = reuseObject(contentHash, file.length(), originFilename);
+                if (reusedResult != null) {
+                    return reusedResult;
+                }
+            }
 
             // 4. 上传图片到对象存储
             PutObjectResult putObjectResult = cosManager.putPictureObject(uploadPath, file);
-            ImageInfo imageInfo = putObjectResult.getCiUploadResult().getOriginalInfo().getImageInfo();
-            ProcessResults processResults = putObjectResult.getCiUploadResult().getProcessResults();
-            List<CIObject> objectList = processResults.getObjectList();
             // 5. 封装返回结果
-            if (CollUtil.isNotEmpty(objectList)) {
-                CIObject compressedCiObject = objectList.get(0);
-                CIObject thumbnailCiObject = objectList.get(1);
-
-                // 封装压缩图返回结果
-                return buildResult(originFilename, compressedCiObject, thumbnailCiObject,imageInfo);
+            UploadPictureResult uploadPictureResult = buildResult(originFilename, putObjectResult);
+            if (uploadPictureResult != null) {
+                uploadPictureResult.setPicHash(pictureHashIndexManager.computeHash(file));
+            }
+            if (contentHash != null) {
+                uploadPictureResult = registerObject(contentHash, file.length(), uploadPictureResult);
             }
-            else
-                return  null;
+            return uploadPictureResult;
         } catch (Exception e) {
             log.error("图片上传到对象存储失败", e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
@@ -76,6 +105,151 @@ public abstract class PictureUploadTemplate {
         }
     }
 
+    /**
+     * 流式上传：不创建临时文件。
+     * 计算内容摘要和指纹需要完整的图片数据，图片会先读入堆内存（不超过 {@link #MAX_PICTURE_SIZE}）再上传，
+     * 并发上传时的内存占用按「并发数 × 2M」估算
+     */
+    private UploadPictureResult uploadPictureByStream(Object inputSource, String uploadPathPrefix, String originFilename, String uuid) {
+        boolean dedupUpload = cosClientConfig.isDedupUpload();
+        try (PictureInputStream pictureInputStream = openStream(inputSource)) {
+            // 计算指纹需要完整的图片数据
+            PreparedPicture preparedPicture = preparePicture(pictureInputStream, true);
+            // 相同内容的图片已经上传过，直接复用
+            String contentHash = null;
+            if (dedupUpload) {
+                contentHash = DigestUtil.sha256Hex(preparedPicture.data);
+                UploadPictureResult reusedResult = reuseObject(contentHash, preparedPicture.contentLength, originFilename);
+                if (reusedResult != null) {
+                    return reusedResult;
+                }
+            }
+            // 上传路径使用文件头识别出的实际图片后缀
+            String uploadFilename = String.format("%s_%s.%s", DateUtil.formatDate(new Date()), uuid, preparedPicture.suffix);
+            String uploadPath = String.format("/%s/%s", uploadPathPrefix, uploadFilename);
+            PutObjectResult putObjectResult = cosManager.putPictureObject(uploadPath,
+                    preparedPicture.inputStream, preparedPicture.contentLength);
+            UploadPictureResult uploadPictureResult = buildResult(originFilename, putObjectResult);
+            if (uploadPictureResult != null) {
+                uploadPictureResult.setPicHash(pictureHashIndexManager.computeHash(preparedPicture.data));
+            }
+            if (contentHash != null) {
+                uploadPictureResult = registerObject(contentHash, preparedPicture.contentLength, uploadPictureResult);
+            }
+            return uploadPictureResult;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("图片上传到对象存储失败", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
+        }
+    }
+
+    /**
+     * 校验数据流：根据文件头识别图片类型并校验大小
+     * <p>
+     * 需要图片数据（计算摘要、指纹）或长度未知时把数据读入堆内存，只有长度已知且不需要数据时（头像）才直接转发数据流。
+     *
+     * @param needData 是否需要完整的图片数据
+     */
+    private PreparedPicture preparePicture(PictureInputStream pictureInputStream, boolean needData) throws IOException {
+        InputStream inputStream = pictureInputStream.getInputStream();
+        long contentLength = pictureInputStream.getContentLength();
+        ThrowUtils.throwIf(contentLength > MAX_PICTURE_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过 2M");
+        // 1. 读取文件头识别类型，再把文件头拼回数据流
+        byte[] header = inputStream.readNBytes(PictureTypeDetector.HEADER_SIZE);
+        String suffix = PictureTypeDetector.detect(header, header.length);
+        ThrowUtils.throwIf(suffix == null, ErrorCode.PARAMS_ERROR, "文件类型错误");
+        inputStream = new SequenceInputStream(new ByteArrayInputStream(header), inputStream);
+        if (contentLength != PictureInputStream.UNKNOWN_LENGTH) {
+            if (!needData) {
+                return new PreparedPicture(inputStream, contentLength, suffix, null);
+            }
+            byte[] data = inputStream.readNBytes((int) contentLength);
+            if (data.length < contentLength) {
+                throw new IOException("数据流提前结束，已读取 " + data.length + " 字节，应为 " + contentLength + " 字节");
+            }
+            return new PreparedPicture(new ByteArrayInputStream(data), data.length, suffix, data);
+        }
+        // 2. 长度未知时最多多读一个字节，用于判断是否超过大小限制
+        byte[] data = inputStream.readNBytes((int) MAX_PICTURE_SIZE + 1);
+        ThrowUtils.throwIf(data.length > MAX_PICTURE_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过 2M");
+        return new PreparedPicture(new ByteArrayInputStream(data), data.length, suffix, data);
+    }
+
+    /**
+     * 按内容查找已上传的对象，找到则直接使用其处理结果
+     *
+     * @return 复用的结果，没有可复用的对象时返回 null
+     */
+    private UploadPictureResult reuseObject(String contentHash, long contentSize, String originFilename) {
+        PictureObject pictureObject;
+        try {
+            pictureObject = pictureObjectDAO.acquire(contentHash, contentSize);
+        } catch (Exception e) {
+            // 去重只是优化，查询失败时按正常流程上传
+            log.warn("查询已上传图片对象失败，按新图片上传", e);
+            return null;
+        }
+        if (pictureObject == null) {
+            return null;
+        }
+        return UploadPictureResult.builder()
+                .url(pictureObject.getUrl())
+                .thumbnailUrl(pictureObject.getThumbnailUrl())
+                .picName(FileUtil.mainName(originFilename))
+                .picSize(pictureObject.getPicSize())
+                .picWidth(pictureObject.getPicWidth())
+                .picHeight(pictureObject.getPicHeight())
+                .picScale(pictureObject.getPicScale())
+                .picFormat(pictureObject.getPicFormat())
+                .picColor(pictureObject.getPicColor())
+                .picHash(pictureObject.getPicHash())
+                .build();
+    }
+
+    /**
+     * 登记新上传的对象，供之后相同内容的上传复用
+     * <p>
+     * 并发上传了相同内容时，只保留先登记的对象，删除本次上传的文件并改用已登记对象的地址
+     */
+    private UploadPictureResult registerObject(String contentHash, long contentSize, UploadPictureResult uploadPictureResult) {
+        if (uploadPictureResult == null) {
+            return null;
+        }
+        PictureObject pictureObject = new PictureObject();
+        pictureObject.setContentHash(contentHash);
+        pictureObject.setContentSize(contentSize);
+        pictureObject.setUrl(uploadPictureResult.getUrl());
+        pictureObject.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
+        pictureObject.setPicSize(uploadPictureResult.getPicSize());
+        pictureObject.setPicWidth(uploadPictureResult.getPicWidth());
+        pictureObject.setPicHeight(uploadPictureResult.getPicHeight());
+        pictureObject.setPicScale(uploadPictureResult.getPicScale());
+        pictureObject.setPicFormat(uploadPictureResult.getPicFormat());
+        pictureObject.setPicColor(uploadPictureResult.getPicColor());
+        pictureObject.setPicHash(uploadPictureResult.getPicHash());
+        PictureObject registeredObject;
+        try {
+            registeredObject = pictureObjectDAO.register(pictureObject);
+        } catch (Exception e) {
+            log.warn("登记图片对象失败，该图片不参与去重, url = {}", uploadPictureResult.getUrl(), e);
+            return uploadPictureResult;
+        }
+        if (registeredObject == null || registeredObject == pictureObject) {
+            return uploadPictureResult;
+        }
+        try {
+            cosManager.deleteObject(cosManager.getObjectKey(uploadPictureResult.getUrl()));
+            cosManager.deleteObject(cosManager.getObjectKey(uploadPictureResult.getThumbnailUrl()));
+        } catch (Exception e) {
+            log.warn("删除重复上传的图片失败, url = {}", uploadPictureResult.getUrl(), e);
+        }
+        uploadPictureResult.setUrl(registeredObject.getUrl());
+        uploadPictureResult.setThumbnailUrl(registeredObject.getThumbnailUrl());
+        return uploadPictureResult;
+    }
+
     /**
      * 校验输入源（本地文件或 URL）
      */
@@ -91,6 +265,27 @@ public abstract class PictureUploadTemplate {
      */
     protected abstract void processFile(Object inputSource, File file) throws Exception;
 
+    /**
+     * 打开输入源的数据流（流式上传时使用）
+     */
+    protected abstract PictureInputStream openStream(Object inputSource) throws IOException;
+
+    /**
+     * 根据对象存储的处理结果封装返回结果
+     */
+    private UploadPictureResult buildResult(String originFilename, PutObjectResult putObjectResult) {
+        ImageInfo imageInfo = putObjectResult.getCiUploadResult().getOriginalInfo().getImageInfo();
+        ProcessResults processResults = putObjectResult.getCiUploadResult().getProcessResults();
+        List<CIObject> objectList = processResults.getObjectList();
+        if (CollUtil.isEmpty(objectList)) {
+            return null;
+        }
+        CIObject compressedCiObject = objectList.get(0);
+        CIObject thumbnailCiObject = objectList.get(1);
+        // 封装压缩图返回结果
+        return buildResult(originFilename, compressedCiObject, thumbnailCiObject, imageInfo);
+    }
+
     /**
      * 封装返回结果
      */
@@ -114,8 +309,6 @@ public abstract class PictureUploadTemplate {
         return uploadPictureResult;
     }
 
-// ... existing code ...
-
     /**
      * 上传用户头像
      * 与普通图片上传不同，头像只需要存储一份原始图片
@@ -127,6 +320,9 @@ public abstract class PictureUploadTemplate {
         // 2. 图片上传地址
         String uploadFilename = "UserAvatar";
         String uploadPath = String.format("/%s/%s", uploadPathPrefix, uploadFilename);
+        if (cosClientConfig.isStreamingUpload()) {
+            return uploadUserAvatarByStream(inputSource, uploadPath);
+        }
 
         File file = null;
         try {
@@ -152,7 +348,23 @@ public abstract class PictureUploadTemplate {
         }
     }
 
-// ... existing code ...
+    /**
+     * 流式上传头像
+     */
+    private UploadAvatarResult uploadUserAvatarByStream(Object inputSource, String uploadPath) {
+        try (PictureInputStream pictureInputStream = openStream(inputSource)) {
+            PreparedPicture preparedPicture = preparePicture(pictureInputStream, false);
+            cosManager.putObject(uploadPath, preparedPicture.inputStream, preparedPicture.contentLength);
+            UploadAvatarResult uploadAvatarResult = new UploadAvatarResult();
+            uploadAvatarResult.setUrl(cosClientConfig.getHost() + "/" + uploadPath);
+            return uploadAvatarResult;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("头像上传到对象存储失败", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
+        }
+    }
 
     /**
      * 删除临时文件
@@ -166,5 +378,28 @@ public abstract class PictureUploadTemplate {
             log.error("file delete error, filepath = {}", file.getAbsolutePath());
         }
     }
-}
 
+    /**
+     * 校验后的图片数据
+     */
+    private static final class PreparedPicture {
+
+        private final InputStream inputStream;
+
+        private final long contentLength;
+
+        private final String suffix;
+
+        /**
+         * 完整的图片数据，不需要时为 null（此时直接从输入源读取）
+         */
+        private final byte[] data;
+
+        private PreparedPicture(InputStream inputStream, long contentLength, String suffix, byte[] data) {
+            this.inputStream = inputStream;
+            this.contentLength = contentLength;
+            this.suffix = suffix;
+            this.data = data;
+        }
+    }
+}
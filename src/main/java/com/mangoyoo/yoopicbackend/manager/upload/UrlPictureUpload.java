@@ -12,6 +12,7 @@ import com.mangoyoo.yoopicbackend.exception.ThrowUtils;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
@@ -81,4 +82,28 @@ public class UrlPictureUpload extends PictureUploadTemplate {
         // 下载文件到临时目录
         HttpUtil.downloadFile(fileUrl, file);
     }
+
+    @Override
+    protected PictureInputStream openStream(Object inputSource) throws IOException {
+        String fileUrl = (String) inputSource;
+        // 异步读取响应体，直接把网络流交给对象存储，不下载到本地
+        HttpResponse response = HttpUtil.createGet(fileUrl).executeAsync();
+        if (response.getStatus() != HttpStatus.HTTP_OK) {
+            response.close();
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "文件下载失败");
+        }
+        // 没有 Content-Length 或使用分块传输时长度未知；
+        // 有 Content-Encoding（如 gzip）时 Content-Length 是压缩后的长度，而 bodyStream 返回解压后的数据，也按长度未知处理
+        String contentLengthStr = response.header("Content-Length");
+        long contentLength = PictureInputStream.UNKNOWN_LENGTH;
+        if (StrUtil.isNotBlank(contentLengthStr) && !response.isChunked()
+                && StrUtil.isBlank(response.header("Content-Encoding"))) {
+            try {
+                contentLength = Long.parseLong(contentLengthStr.trim());
+            } catch (NumberFormatException e) {
+                // 按长度未知处理
+            }
+        }
+        return new PictureInputStream(response.bodyStream(), contentLength, response);
+    }
 }
@@ -1,35 +1,64 @@
 package com.mangoyoo.yoopicbackend.manager.websocket;
 
 import com.mangoyoo.yoopicbackend.service.UserService;
+import com.mangoyoo.yoopicbackend.manager.websocket.broker.PictureEditBroadcastListener;
+import com.mangoyoo.yoopicbackend.manager.websocket.broker.PictureEditBroker;
+import com.mangoyoo.yoopicbackend.manager.websocket.coalesce.PictureEditActionCoalescer;
 import com.mangoyoo.yoopicbackend.manager.websocket.disruptor.PictureEditEventProducer;
+import com.mangoyoo.yoopicbackend.manager.websocket.metrics.PictureEditMetrics;
 import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditActionEnum;
 import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditMessageTypeEnum;
+import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditProtocol;
 import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditRequestMessage;
 import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditResponseMessage;
+import com.mangoyoo.yoopicbackend.manager.websocket.session.PictureEditSessionProperties;
+import com.mangoyoo.yoopicbackend.manager.websocket.session.PictureEditSessionSender;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.json.JSONUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import com.mangoyoo.yoopicbackend.model.entity.User;
+import com.mangoyoo.yoopicbackend.model.vo.UserVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * 图片编辑 WebSocket 处理器
+ * <p>
+ * 所有发往客户端的消息都经过每个会话自己的发送队列（{@link PictureEditSessionSender}）异步发送，
+ * 广播只负责入队，不会因为某个客户端网络慢而阻塞 Disruptor 的消费线程。
+ * 每条响应消息只用共享的 ObjectWriter（沿用 JsonConfig 中 Long 转 String 的配置）序列化一次，所有会话共享同一个 TextMessage。
+ * 广播和编辑锁都通过 {@link PictureEditBroker} 完成，多节点部署时同一张图片的编辑者可以连接到不同节点。
+ * 编辑动作先在一个很短的时间窗口内合并（净缩放、净旋转），窗口结束后再广播：
+ * 每个窗口只序列化并发布一条版本 2 的批量消息，协议版本 2 的客户端直接收到该消息；
+ * 接收节点上有版本 1 的客户端时才在本节点把批量消息降级为逐条的动作消息，没有时不做任何额外的序列化。
+ * 合并窗口的发送、连接关闭后的退出编辑和编辑锁失效通知都作为内部任务放入图片所在的 Disruptor 分区执行，
+ * 与该图片的其他消息严格串行，退出编辑的消息之后不会再有编辑动作。
  */
 @Component
 @Slf4j
@@ -42,12 +71,72 @@ public class PictureEditHandler extends TextWebSocketHandler {
     @Lazy
     private PictureEditEventProducer pictureEditEventProducer;
 
-    // 每张图片的编辑状态，key: pictureId, value: 当前正在编辑的用户 ID
-    private final Map<Long, Long> pictureEditingUsers = new ConcurrentHashMap<>();
+    // 会话属性中缓存的 UserVO
+    private static final String USER_VO_ATTRIBUTE = "userVO";
 
-    // 保存所有连接的会话，key: pictureId, value: 用户会话集合
+    // 保存本节点连接的会话，key: pictureId, value: 用户会话集合
     private final Map<Long, Set<WebSocketSession>> pictureSessions = new ConcurrentHashMap<>();
 
+    // 订阅和取消订阅广播的分段锁，同一张图片的订阅状态变更串行执行
+    private final Object[] subscriptionLocks = new Object[64];
+
+    // 每个会话的发送队列，key: sessionId
+    private final Map<String, PictureEditSessionSender> sessionSenders = new ConcurrentHashMap<>();
+
+    // 每张图片等待合并发送的编辑动作，key: pictureId（只在图片所在的 Disruptor 分区线程上读写）
+    private final Map<Long, PendingEditActions> pendingEditActions = new ConcurrentHashMap<>();
+
+    // 合并窗口的定时器，只负责在窗口结束时把发送任务放回图片所在的分区，不执行发送
+    private final ScheduledExecutorService coalesceScheduler = Executors.newSingleThreadScheduledExecutor();
+
+    // 执行发送任务的线程池（虚拟线程，每个会话同一时刻最多占用一个）
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Resource
+    private PictureEditSessionProperties pictureEditSessionProperties;
+
+    // 广播消息和编辑锁（单节点为内存实现，多节点为 Redis 实现）
+    @Resource
+    private PictureEditBroker pictureEditBroker;
+
+    @Resource
+    private PictureEditMetrics pictureEditMetrics;
+
+    /**
+     * Spring 容器中的 ObjectMapper（已注册 Long 转 String 的序列化器）
+     */
+    @Resource
+    private ObjectMapper objectMapper;
+
+    private ObjectWriter responseWriter;
+
+    private ObjectReader responseReader;
+
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < subscriptionLocks.length; i++) {
+            subscriptionLocks[i] = new Object();
+        }
+        responseWriter = objectMapper.writerFor(PictureEditResponseMessage.class);
+        responseReader = objectMapper.readerFor(PictureEditResponseMessage.class);
+        pictureEditBroker.setListener(new PictureEditBroadcastListener() {
+            @Override
+            public void onBroadcast(Long pictureId, String payload, String excludeSessionId, int protocolVersion) {
+                sendToLocalSessions(pictureId, payload, excludeSessionId, protocolVersion);
+            }
+
+            @Override
+            public void onLockLost(Long pictureId, Long userId, String sessionId) {
+                pictureEditEventProducer.publishTask(pictureId, PictureEditMessageTypeEnum.EXIT_EDIT.getValue(),
+                        () -> handleLockLost(pictureId, userId, sessionId));
+            }
+        });
+        pictureEditMetrics.gauge("picture.edit.sessions", "本节点的协同编辑连接数", this::getSessionCount);
+        pictureEditMetrics.gauge("picture.edit.pictures", "本节点正在协同编辑的图片数", pictureSessions::size);
+        pictureEditMetrics.gauge("picture.edit.sessions.per.picture.max", "本节点单张图片的最大连接数", this::getMaxSessionsPerPicture);
+        pictureEditMetrics.gauge("picture.edit.send.queue.bytes", "本节点所有连接待发送消息的总字节数", this::getQueuedBytes);
+    }
+
     /**
      * 连接建立成功
      *
@@ -60,14 +149,33 @@ public class PictureEditHandler extends TextWebSocketHandler {
         // 保存会话到集合中
         User user = (User) session.getAttributes().get("user");
         Long pictureId = (Long) session.getAttributes().get("pictureId");
-        pictureSessions.putIfAbsent(pictureId, ConcurrentHashMap.newKeySet());
-        pictureSessions.get(pictureId).add(session);
+        // 用户信息在连接期间不变，脱敏后的 UserVO 只生成一次
+        session.getAttributes().put(USER_VO_ATTRIBUTE, userService.getUserVO(user));
+        sessionSenders.put(session.getId(), new PictureEditSessionSender(session, sendExecutor,
+                pictureEditSessionProperties.getSendTimeLimit(),
+                pictureEditSessionProperties.getBufferSizeLimit(),
+                "drop".equalsIgnoreCase(pictureEditSessionProperties.getOverflowStrategy()),
+                pictureEditMetrics::recordDropped));
+        // compute 中只判断是否为本节点第一个会话，订阅（访问 Redis）放在 compute 之外，避免长时间占用 Map 的桶锁
+        boolean[] firstSession = new boolean[1];
+        pictureSessions.compute(pictureId, (id, sessionSet) -> {
+            if (sessionSet == null) {
+                firstSession[0] = true;
+                sessionSet = ConcurrentHashMap.newKeySet();
+            }
+            sessionSet.add(session);
+            return sessionSet;
+        });
+        if (firstSession[0]) {
+            // 本节点第一个编辑该图片的会话，开始接收其他节点的广播
+            syncSubscription(pictureId);
+        }
         // 构造响应，发送加入编辑的消息通知
         PictureEditResponseMessage pictureEditResponseMessage = new PictureEditResponseMessage();
         pictureEditResponseMessage.setType(PictureEditMessageTypeEnum.INFO.getValue());
         String message = String.format("用户 %s 加入编辑", user.getUserName());
         pictureEditResponseMessage.setMessage(message);
-        pictureEditResponseMessage.setUser(userService.getUserVO(user));
+        pictureEditResponseMessage.setUser(getUserVO(session, user));
         // 广播给所有用户
         broadcastToPicture(pictureId, pictureEditResponseMessage);
     }
@@ -100,16 +208,14 @@ public class PictureEditHandler extends TextWebSocketHandler {
      * @param pictureId
      */
     public void handleEnterEditMessage(PictureEditRequestMessage pictureEditRequestMessage, WebSocketSession session, User user, Long pictureId) throws IOException {
-        // 没有用户正在编辑该图片，才能进入编辑
-        if (!pictureEditingUsers.containsKey(pictureId)) {
-            // 设置用户正在编辑该图片
-            pictureEditingUsers.put(pictureId, user.getId());
+        // 没有用户正在编辑该图片，才能进入编辑（获取编辑锁）
+        if (pictureEditBroker.tryLock(pictureId, user.getId(), session.getId())) {
             // 构造响应，发送加入编辑的消息通知
             PictureEditResponseMessage pictureEditResponseMessage = new PictureEditResponseMessage();
             pictureEditResponseMessage.setType(PictureEditMessageTypeEnum.ENTER_EDIT.getValue());
             String message = String.format("用户 %s 开始编辑图片", user.getUserName());
             pictureEditResponseMessage.setMessage(message);
-            pictureEditResponseMessage.setUser(userService.getUserVO(user));
+            pictureEditResponseMessage.setUser(getUserVO(session, user));
             // 广播给所有用户
             broadcastToPicture(pictureId, pictureEditResponseMessage);
         }
@@ -124,8 +230,6 @@ public class PictureEditHandler extends TextWebSocketHandler {
      * @param pictureId
      */
     public void handleEditActionMessage(PictureEditRequestMessage pictureEditRequestMessage, WebSocketSession session, User user, Long pictureId) throws IOException {
-        // 正在编辑的用户
-        Long editingUserId = pictureEditingUsers.get(pictureId);
         String editAction = pictureEditRequestMessage.getEditAction();
         PictureEditActionEnum actionEnum = PictureEditActionEnum.getEnumByValue(editAction);
         if (actionEnum == null) {
@@ -133,19 +237,96 @@ public class PictureEditHandler extends TextWebSocketHandler {
             return;
         }
         // 确认是当前的编辑者
-        if (editingUserId != null && editingUserId.equals(user.getId())) {
-            // 构造响应，发送具体操作的通知
-            PictureEditResponseMessage pictureEditResponseMessage = new PictureEditResponseMessage();
-            pictureEditResponseMessage.setType(PictureEditMessageTypeEnum.EDIT_ACTION.getValue());
-            String message = String.format("%s 执行 %s", user.getUserName(), actionEnum.getText());
-            pictureEditResponseMessage.setMessage(message);
-            pictureEditResponseMessage.setEditAction(editAction);
-            pictureEditResponseMessage.setUser(userService.getUserVO(user));
-            // 广播给除了当前客户端之外的其他用户，否则会造成重复编辑
-            broadcastToPicture(pictureId, pictureEditResponseMessage, session);
+        if (!pictureEditBroker.isLockedBy(pictureId, user.getId(), session.getId())) {
+            return;
+        }
+        long coalesceWindow = pictureEditSessionProperties.getActionCoalesceWindow();
+        if (coalesceWindow <= 0) {
+            sendEditActions(pictureId, List.of(actionEnum), user, session);
+            return;
+        }
+        // 放入合并窗口，窗口内第一个动作负责安排发送
+        PendingEditActions pending = pendingEditActions.computeIfAbsent(pictureId, id -> new PendingEditActions());
+        pending.user = user;
+        pending.session = session;
+        pending.coalescer.add(actionEnum);
+        if (!pending.scheduled) {
+            pending.scheduled = true;
+            scheduleFlush(pictureId, coalesceWindow);
+        }
+    }
+
+    /**
+     * 合并窗口结束后，把发送任务放入图片所在的分区
+     *
+     * @param pictureId
+     * @param delay
+     */
+    private void scheduleFlush(Long pictureId, long delay) {
+        coalesceScheduler.schedule(() -> {
+            // 分区已满时不阻塞定时器（否则会拖慢其他图片），下一个窗口再试
+            if (!pictureEditEventProducer.tryPublishTask(pictureId, PictureEditMessageTypeEnum.EDIT_ACTION.getValue(),
+                    () -> flushEditActions(pictureId))) {
+                scheduleFlush(pictureId, delay);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 发送合并窗口内的编辑动作（在图片所在的分区线程上执行）
+     *
+     * @param pictureId
+     */
+    private void flushEditActions(Long pictureId) {
+        PendingEditActions pending = pendingEditActions.get(pictureId);
+        if (pending == null) {
+            return;
+        }
+        int received = pending.coalescer.getPendingCount();
+        List<PictureEditActionEnum> actions = pending.coalescer.drain();
+        User user = pending.user;
+        WebSocketSession session = pending.session;
+        pending.scheduled = false;
+        // 已经退出编辑或编辑锁已失效，剩余的动作不再发送
+        if (received == 0 || !pictureEditBroker.isLockedBy(pictureId, user.getId(), session.getId())) {
+            return;
+        }
+        pictureEditMetrics.recordCoalesced(received, actions.size());
+        try {
+            sendEditActions(pictureId, actions, user, session);
+        } catch (Exception e) {
+            log.error("编辑动作发送失败, pictureId = {}", pictureId, e);
         }
     }
 
+    /**
+     * 广播编辑动作给除了当前客户端之外的其他用户（否则会造成重复编辑）。
+     * 只发布一条版本 2 的批量消息，版本 1 的会话由接收节点降级（见 {@link #downgradeToV1(String)}）
+     *
+     * @param pictureId
+     * @param actions
+     * @param user
+     * @param session
+     */
+    private void sendEditActions(Long pictureId, List<PictureEditActionEnum> actions, User user, WebSocketSession session) throws IOException {
+        if (actions.isEmpty()) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        String excludeSessionId = session.getId();
+        PictureEditResponseMessage batchMessage = new PictureEditResponseMessage();
+        batchMessage.setType(PictureEditMessageTypeEnum.EDIT_ACTION.getValue());
+        String actionTexts = actions.stream().map(PictureEditActionEnum::getText).collect(Collectors.joining("、"));
+        batchMessage.setMessage(String.format("%s 执行 %s", user.getUserName(), actionTexts));
+        List<String> editActions = new ArrayList<>(actions.size());
+        for (PictureEditActionEnum action : actions) {
+            editActions.add(action.getValue());
+        }
+        batchMessage.setEditActions(editActions);
+        batchMessage.setUser(getUserVO(session, user));
+        pictureEditBroker.publish(pictureId, responseWriter.writeValueAsString(batchMessage), excludeSessionId, PictureEditProtocol.V2);
+        pictureEditMetrics.recordBroadcast(PictureEditMessageTypeEnum.EDIT_ACTION.getValue(), System.nanoTime() - startTime);
+    }
 
     /**
      * 退出编辑状态
@@ -156,19 +337,60 @@ public class PictureEditHandler extends TextWebSocketHandler {
      * @param pictureId
      */
     public void handleExitEditMessage(PictureEditRequestMessage pictureEditRequestMessage, WebSocketSession session, User user, Long pictureId) throws IOException {
-        // 正在编辑的用户
-        Long editingUserId = pictureEditingUsers.get(pictureId);
-        // 确认是当前的编辑者
-        if (editingUserId != null && editingUserId.equals(user.getId())) {
-            // 移除用户正在编辑该图片
-            pictureEditingUsers.remove(pictureId);
+        // 先发送还在合并窗口中的编辑动作，保证退出消息在最后
+        PendingEditActions pending = pendingEditActions.get(pictureId);
+        if (pending != null && pending.session != null && session.getId().equals(pending.session.getId())) {
+            flushEditActions(pictureId);
+        }
+        // 确认是当前的编辑者，并释放编辑锁
+        if (pictureEditBroker.unlock(pictureId, user.getId(), session.getId())) {
             // 构造响应，发送退出编辑的消息通知
             PictureEditResponseMessage pictureEditResponseMessage = new PictureEditResponseMessage();
             pictureEditResponseMessage.setType(PictureEditMessageTypeEnum.EXIT_EDIT.getValue());
             String message = String.format("用户 %s 退出编辑图片", user.getUserName());
             pictureEditResponseMessage.setMessage(message);
-            pictureEditResponseMessage.setUser(userService.getUserVO(user));
+            pictureEditResponseMessage.setUser(getUserVO(session, user));
+            broadcastToPicture(pictureId, pictureEditResponseMessage);
+        }
+    }
+
+    /**
+     * 编辑锁失效（续期失败）：丢弃还没发送的编辑动作，通知所有用户该用户已退出编辑（在图片所在的分区线程上执行）
+     *
+     * @param pictureId
+     * @param userId
+     * @param sessionId
+     */
+    private void handleLockLost(Long pictureId, Long userId, String sessionId) {
+        PendingEditActions pending = pendingEditActions.get(pictureId);
+        if (pending != null) {
+            pending.coalescer.drain();
+        }
+        // 失去锁的会话连接在本节点（可能已断开），从会话中取用户信息
+        WebSocketSession editorSession = null;
+        Set<WebSocketSession> sessionSet = pictureSessions.get(pictureId);
+        if (sessionSet != null) {
+            for (WebSocketSession session : sessionSet) {
+                User sessionUser = (User) session.getAttributes().get("user");
+                if (session.getId().equals(sessionId) && sessionUser != null && userId.equals(sessionUser.getId())) {
+                    editorSession = session;
+                    break;
+                }
+            }
+        }
+        PictureEditResponseMessage pictureEditResponseMessage = new PictureEditResponseMessage();
+        pictureEditResponseMessage.setType(PictureEditMessageTypeEnum.EXIT_EDIT.getValue());
+        if (editorSession != null) {
+            User user = (User) editorSession.getAttributes().get("user");
+            pictureEditResponseMessage.setMessage(String.format("用户 %s 的编辑锁已失效，退出编辑图片", user.getUserName()));
+            pictureEditResponseMessage.setUser(getUserVO(editorSession, user));
+        } else {
+            pictureEditResponseMessage.setMessage("编辑锁已失效，退出编辑图片");
+        }
+        try {
             broadcastToPicture(pictureId, pictureEditResponseMessage);
+        } catch (Exception e) {
+            log.error("编辑锁失效通知发送失败, pictureId = {}", pictureId, e);
         }
     }
 
@@ -185,54 +407,139 @@ public class PictureEditHandler extends TextWebSocketHandler {
         // 从 Session 属性中获取到公共参数
         User user = (User) session.getAttributes().get("user");
         Long pictureId = (Long) session.getAttributes().get("pictureId");
-        // 移除当前用户的编辑状态
-        handleExitEditMessage(null, session, user, pictureId);
         // 删除会话
-        Set<WebSocketSession> sessionSet = pictureSessions.get(pictureId);
-        if (sessionSet != null) {
+        sessionSenders.remove(session.getId());
+        boolean[] lastSession = new boolean[1];
+        pictureSessions.computeIfPresent(pictureId, (id, sessionSet) -> {
             sessionSet.remove(session);
             if (sessionSet.isEmpty()) {
-                pictureSessions.remove(pictureId);
+                lastSession[0] = true;
+                return null;
             }
+            return sessionSet;
+        });
+        if (lastSession[0]) {
+            // 本节点已没有编辑该图片的会话，不再接收广播
+            syncSubscription(pictureId);
         }
+        // 移除当前用户的编辑状态，和该图片的编辑动作在同一个分区上串行处理，保证退出消息在最后
+        pictureEditEventProducer.publishTask(pictureId, PictureEditMessageTypeEnum.EXIT_EDIT.getValue(), () -> {
+            try {
+                handleExitEditMessage(null, session, user, pictureId);
+            } catch (Exception e) {
+                log.error("退出编辑失败, pictureId = {}", pictureId, e);
+            }
+            if (!pictureSessions.containsKey(pictureId)) {
+                pendingEditActions.remove(pictureId);
+            }
+        });
         // 通知其他用户，该用户已经离开编辑
         PictureEditResponseMessage pictureEditResponseMessage = new PictureEditResponseMessage();
         pictureEditResponseMessage.setType(PictureEditMessageTypeEnum.INFO.getValue());
         String message = String.format("用户 %s 离开编辑", user.getUserName());
         pictureEditResponseMessage.setMessage(message);
-        pictureEditResponseMessage.setUser(userService.getUserVO(user));
+        pictureEditResponseMessage.setUser(getUserVO(session, user));
         broadcastToPicture(pictureId, pictureEditResponseMessage);
     }
 
     /**
-     * 广播给该图片的所有用户（支持排除掉某个 Session）
+     * 按本节点当前是否还有该图片的会话订阅或取消订阅广播。
+     * 在 compute 之外执行，按图片分段加锁并重新读取会话集合，最后执行的一次总是与最新状态一致，
+     * 不会出现「旧会话的取消订阅」晚于「新会话的订阅」执行而丢失订阅的情况
+     *
+     * @param pictureId
+     */
+    private void syncSubscription(Long pictureId) {
+        synchronized (subscriptionLocks[Math.floorMod(pictureId.hashCode(), subscriptionLocks.length)]) {
+            if (pictureSessions.containsKey(pictureId)) {
+                pictureEditBroker.subscribe(pictureId);
+            } else {
+                pictureEditBroker.unsubscribe(pictureId);
+            }
+        }
+    }
+
+    /**
+     * 广播给该图片的所有用户（支持排除掉某个 Session），多节点部署时其他节点上的用户也能收到
      *
      * @param pictureId
      * @param pictureEditResponseMessage
      * @param excludeSession
      */
     private void broadcastToPicture(Long pictureId, PictureEditResponseMessage pictureEditResponseMessage, WebSocketSession excludeSession) throws IOException {
+        long startTime = System.nanoTime();
+        // 只序列化一次，所有会话共享
+        String message = responseWriter.writeValueAsString(pictureEditResponseMessage);
+        pictureEditBroker.publish(pictureId, message, excludeSession == null ? null : excludeSession.getId(), PictureEditProtocol.ALL);
+        pictureEditMetrics.recordBroadcast(pictureEditResponseMessage.getType(), System.nanoTime() - startTime);
+    }
+
+    /**
+     * 发送广播消息给本节点编辑该图片的会话。
+     * 版本 2 的消息（编辑动作的批量消息）在遇到第一个版本 1 的会话时才降级，本节点没有版本 1 的会话时不做任何转换
+     *
+     * @param pictureId
+     * @param message
+     * @param excludeSessionId
+     * @param protocolVersion
+     */
+    private void sendToLocalSessions(Long pictureId, String message, String excludeSessionId, int protocolVersion) {
         Set<WebSocketSession> sessionSet = pictureSessions.get(pictureId);
         if (CollUtil.isNotEmpty(sessionSet)) {
-            // 创建 ObjectMapper
-            ObjectMapper objectMapper = new ObjectMapper();
-            // 配置序列化：将 Long 类型转为 String，解决丢失精度问题
-            SimpleModule module = new SimpleModule();
-            module.addSerializer(Long.class, ToStringSerializer.instance);
-            module.addSerializer(Long.TYPE, ToStringSerializer.instance); // 支持 long 基本类型
-            objectMapper.registerModule(module);
-            // 序列化为 JSON 字符串
-            String message = objectMapper.writeValueAsString(pictureEditResponseMessage);
             TextMessage textMessage = new TextMessage(message);
+            List<TextMessage> downgradedMessages = null;
             for (WebSocketSession session : sessionSet) {
                 // 排除掉的 session 不发送
-                if (excludeSession != null && session.equals(excludeSession)) {
+                if (excludeSessionId != null && excludeSessionId.equals(session.getId())) {
+                    continue;
+                }
+                int sessionVersion = getProtocolVersion(session);
+                if (protocolVersion == PictureEditProtocol.V2 && sessionVersion == PictureEditProtocol.V1) {
+                    if (downgradedMessages == null) {
+                        downgradedMessages = downgradeToV1(message);
+                    }
+                    downgradedMessages.forEach(downgradedMessage -> sendToSession(session, downgradedMessage));
+                    continue;
+                }
+                // 只发送给对应协议版本的会话
+                if (protocolVersion != PictureEditProtocol.ALL && protocolVersion != sessionVersion) {
                     continue;
                 }
-                if (session.isOpen()) {
-                    session.sendMessage(textMessage);
+                sendToSession(session, textMessage);
+            }
+        }
+    }
+
+    /**
+     * 把版本 2 的批量编辑动作消息拆成版本 1 的逐条消息
+     *
+     * @param batchPayload
+     * @return
+     */
+    private List<TextMessage> downgradeToV1(String batchPayload) {
+        try {
+            PictureEditResponseMessage batchMessage = responseReader.readValue(batchPayload);
+            if (CollUtil.isEmpty(batchMessage.getEditActions())) {
+                return List.of();
+            }
+            String userName = batchMessage.getUser() == null ? null : batchMessage.getUser().getUserName();
+            List<TextMessage> textMessages = new ArrayList<>(batchMessage.getEditActions().size());
+            for (String editAction : batchMessage.getEditActions()) {
+                PictureEditActionEnum action = PictureEditActionEnum.getEnumByValue(editAction);
+                if (action == null) {
+                    continue;
                 }
+                PictureEditResponseMessage pictureEditResponseMessage = new PictureEditResponseMessage();
+                pictureEditResponseMessage.setType(PictureEditMessageTypeEnum.EDIT_ACTION.getValue());
+                pictureEditResponseMessage.setMessage(String.format("%s 执行 %s", userName, action.getText()));
+                pictureEditResponseMessage.setEditAction(action.getValue());
+                pictureEditResponseMessage.setUser(batchMessage.getUser());
+                textMessages.add(toTextMessage(pictureEditResponseMessage));
             }
+            return textMessages;
+        } catch (IOException e) {
+            log.error("编辑动作消息降级失败", e);
+            return List.of();
         }
     }
 
@@ -245,4 +552,102 @@ public class PictureEditHandler extends TextWebSocketHandler {
     private void broadcastToPicture(Long pictureId, PictureEditResponseMessage pictureEditResponseMessage) throws IOException {
         broadcastToPicture(pictureId, pictureEditResponseMessage, null);
     }
-}
\ No newline at end of file
+
+    /**
+     * 发送消息给单个会话（异步入队，不阻塞）
+     *
+     * @param session
+     * @param textMessage
+     */
+    public void sendToSession(WebSocketSession session, TextMessage textMessage) {
+        PictureEditSessionSender sender = sessionSenders.get(session.getId());
+        if (sender != null) {
+            sender.send(textMessage);
+        }
+    }
+
+    /**
+     * 将响应消息序列化为 WebSocket 文本消息
+     *
+     * @param pictureEditResponseMessage
+     * @return
+     */
+    public TextMessage toTextMessage(PictureEditResponseMessage pictureEditResponseMessage) throws JsonProcessingException {
+        return new TextMessage(responseWriter.writeValueAsBytes(pictureEditResponseMessage));
+    }
+
+    /**
+     * 获取会话对应的 UserVO（连接建立时已缓存）
+     *
+     * @param session
+     * @param user
+     * @return
+     */
+    public UserVO getUserVO(WebSocketSession session, User user) {
+        Object userVO = session.getAttributes().get(USER_VO_ATTRIBUTE);
+        if (userVO instanceof UserVO) {
+            return (UserVO) userVO;
+        }
+        return userService.getUserVO(user);
+    }
+
+    /**
+     * 本节点的连接数
+     */
+    public int getSessionCount() {
+        return sessionSenders.size();
+    }
+
+    /**
+     * 本节点每张图片的连接数，key: pictureId
+     */
+    public Map<Long, Integer> getPictureSessionCounts() {
+        Map<Long, Integer> pictureSessionCounts = new HashMap<>();
+        pictureSessions.forEach((pictureId, sessionSet) -> pictureSessionCounts.put(pictureId, sessionSet.size()));
+        return pictureSessionCounts;
+    }
+
+    /**
+     * 本节点所有连接待发送消息的总字节数
+     */
+    public long getQueuedBytes() {
+        long queuedBytes = 0;
+        for (PictureEditSessionSender sender : sessionSenders.values()) {
+            queuedBytes += sender.getQueuedBytes();
+        }
+        return queuedBytes;
+    }
+
+    private int getMaxSessionsPerPicture() {
+        int max = 0;
+        for (Set<WebSocketSession> sessionSet : pictureSessions.values()) {
+            max = Math.max(max, sessionSet.size());
+        }
+        return max;
+    }
+
+    private static int getProtocolVersion(WebSocketSession session) {
+        Object protocolVersion = session.getAttributes().get(PictureEditProtocol.ATTRIBUTE);
+        return protocolVersion instanceof Integer ? (Integer) protocolVersion : PictureEditProtocol.V1;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        coalesceScheduler.shutdownNow();
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * 一张图片在合并窗口内的编辑动作（同一时刻只有一个编辑者）
+     */
+    private static class PendingEditActions {
+
+        private final PictureEditActionCoalescer coalescer = new PictureEditActionCoalescer();
+
+        private User user;
+
+        private WebSocketSession session;
+
+        private boolean scheduled;
+    }
+}
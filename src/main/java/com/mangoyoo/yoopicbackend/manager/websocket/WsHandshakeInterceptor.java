@@ -5,6 +5,7 @@ import cn.hutool.core.util.StrUtil;
 import com.mangoyoo.yoopicbackend.service.PictureService;
 import com.mangoyoo.yoopicbackend.service.UserService;
 import com.mangoyoo.yoopicbackend.enums.SpaceTypeEnum;
+import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditProtocol;
 import com.mangoyoo.yoopicbackend.model.auth.SpaceUserAuthManager;
 import com.mangoyoo.yoopicbackend.model.auth.SpaceUserPermissionConstant;
 import com.mangoyoo.yoopicbackend.model.entity.Picture;
@@ -22,7 +23,6 @@ import org.springframework.web.socket.server.HandshakeInterceptor;
 
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
-import java.util.List;
 import java.util.Map;
 
 @Component
@@ -75,8 +75,7 @@ public class WsHandshakeInterceptor implements HandshakeInterceptor {
                     return false;
                 }
             }
-            List<String> permissionList = spaceUserAuthManager.getPermissionList(space, loginUser);
-            if (!permissionList.contains(SpaceUserPermissionConstant.PICTURE_EDIT)) {
+            if (!spaceUserAuthManager.hasPermission(space, loginUser, SpaceUserPermissionConstant.PICTURE_EDIT)) {
                 log.error("没有图片编辑权限，拒绝握手");
                 return false;
             }
@@ -84,6 +83,8 @@ public class WsHandshakeInterceptor implements HandshakeInterceptor {
             attributes.put("user", loginUser);
             attributes.put("userId", loginUser.getId());
             attributes.put("pictureId", Long.valueOf(pictureId)); // 记得转换为 Long 类型
+            // 协商协议版本
+            attributes.put(PictureEditProtocol.ATTRIBUTE, PictureEditProtocol.negotiate(servletRequest.getParameter("protocolVersion")));
         }
         return true;
     }
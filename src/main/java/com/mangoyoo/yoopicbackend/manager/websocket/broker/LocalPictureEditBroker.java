@@ -0,0 +1,55 @@
+package com.mangoyoo.yoopicbackend.manager.websocket.broker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 单节点内存实现，广播直接交给本节点的监听器，编辑锁保存在本地 Map 中
+ */
+public class LocalPictureEditBroker implements PictureEditBroker {
+
+    // 每张图片的编辑状态，key: pictureId, value: 当前正在编辑的会话（会话 id + 用户 id）
+    private final Map<Long, String> pictureEditingUsers = new ConcurrentHashMap<>();
+
+    private volatile PictureEditBroadcastListener listener;
+
+    @Override
+    public void setListener(PictureEditBroadcastListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void subscribe(Long pictureId) {
+    }
+
+    @Override
+    public void unsubscribe(Long pictureId) {
+    }
+
+    @Override
+    public void publish(Long pictureId, String payload, String excludeSessionId, int protocolVersion) {
+        PictureEditBroadcastListener currentListener = listener;
+        if (currentListener != null) {
+            currentListener.onBroadcast(pictureId, payload, excludeSessionId, protocolVersion);
+        }
+    }
+
+    @Override
+    public boolean tryLock(Long pictureId, Long userId, String sessionId) {
+        return pictureEditingUsers.putIfAbsent(pictureId, lockOwner(userId, sessionId)) == null;
+    }
+
+    @Override
+    public boolean isLockedBy(Long pictureId, Long userId, String sessionId) {
+        return lockOwner(userId, sessionId).equals(pictureEditingUsers.get(pictureId));
+    }
+
+    @Override
+    public boolean unlock(Long pictureId, Long userId, String sessionId) {
+        return pictureEditingUsers.remove(pictureId, lockOwner(userId, sessionId));
+    }
+
+    private static String lockOwner(Long userId, String sessionId) {
+        return sessionId + ":" + userId;
+    }
+}
@@ -0,0 +1,28 @@
+package com.mangoyoo.yoopicbackend.manager.websocket.broker;
+
+/**
+ * 图片协同编辑广播消息监听器
+ */
+public interface PictureEditBroadcastListener {
+
+    /**
+     * 收到某张图片的广播消息
+     *
+     * @param pictureId        图片 id
+     * @param payload          已序列化的消息
+     * @param excludeSessionId 不需要接收的会话 id，可以为空
+     * @param protocolVersion  只发送给使用该协议版本的会话，0 表示所有会话；
+     *                         版本 2 的批量编辑动作消息由接收节点降级后发送给版本 1 的会话
+     */
+    void onBroadcast(Long pictureId, String payload, String excludeSessionId, int protocolVersion);
+
+    /**
+     * 本节点会话持有的编辑锁已失效（续期失败，租约过期后可能已被其他会话获取）
+     *
+     * @param pictureId 图片 id
+     * @param userId    失去编辑锁的用户 id
+     * @param sessionId 失去编辑锁的会话 id
+     */
+    default void onLockLost(Long pictureId, Long userId, String sessionId) {
+    }
+}
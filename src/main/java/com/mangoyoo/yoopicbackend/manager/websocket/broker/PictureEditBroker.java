@@ -0,0 +1,58 @@
+package com.mangoyoo.yoopicbackend.manager.websocket.broker;
+
+import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditProtocol;
+
+/**
+ * 图片协同编辑消息代理
+ * <p>
+ * 负责把某张图片的广播消息分发到所有节点，以及维护每张图片的编辑锁（同一时刻只有一个会话可以编辑）。
+ * 编辑锁的持有者是用户的某个会话，同一用户在其他标签页或其他节点上的会话不能操作这把锁。
+ * 单节点部署使用 {@link LocalPictureEditBroker}，多节点部署使用 {@link RedisPictureEditBroker}。
+ */
+public interface PictureEditBroker {
+
+    /**
+     * 设置广播消息监听器，收到消息后由监听器发送给本节点的会话
+     */
+    void setListener(PictureEditBroadcastListener listener);
+
+    /**
+     * 本节点开始接收某张图片的广播（该图片在本节点有了第一个会话）
+     */
+    void subscribe(Long pictureId);
+
+    /**
+     * 本节点停止接收某张图片的广播（该图片在本节点的会话全部断开）
+     */
+    void unsubscribe(Long pictureId);
+
+    /**
+     * 广播消息给所有节点上编辑该图片的会话
+     *
+     * @param pictureId        图片 id
+     * @param payload          已序列化的消息
+     * @param excludeSessionId 不需要接收的会话 id（只在本节点生效），可以为空
+     * @param protocolVersion  只发送给使用该协议版本的会话，{@link PictureEditProtocol#ALL} 表示所有会话；
+     *                         版本 2 的批量编辑动作消息由接收节点降级后发送给版本 1 的会话
+     */
+    void publish(Long pictureId, String payload, String excludeSessionId, int protocolVersion);
+
+    /**
+     * 尝试为用户的会话获取图片的编辑锁
+     *
+     * @return 是否获取成功，已被其他会话持有时返回 false
+     */
+    boolean tryLock(Long pictureId, Long userId, String sessionId);
+
+    /**
+     * 用户的会话是否持有图片的编辑锁
+     */
+    boolean isLockedBy(Long pictureId, Long userId, String sessionId);
+
+    /**
+     * 释放会话持有的编辑锁，锁不属于该会话时不做任何操作
+     *
+     * @return 是否释放成功
+     */
+    boolean unlock(Long pictureId, Long userId, String sessionId);
+}
@@ -0,0 +1,196 @@
+package com.mangoyoo.yoopicbackend.manager.websocket.broker;
+
+import cn.hutool.core.util.IdUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 Redis 的多节点实现
+ * <p>
+ * 1. 每张图片一个 pub/sub 频道，消息格式为「来源节点 id + 换行 + 协议版本 + 换行 + 消息内容」。发布节点直接分发给本节点的会话，
+ *    收到自己发布的消息时忽略，其他节点收到后分发给各自的会话；
+ * 2. 编辑锁是一个带过期时间（租约）的 key，值为「节点 id:会话 id:用户 id」，释放和续期时比较完整的值，
+ *    同一用户在其他节点或其他标签页上的会话不会误删、误续别人的锁。持有锁的节点定时续期（心跳），
+ *    节点宕机后锁在租约到期后自动释放。本节点持有的锁同时记录在本地，判断是否持有锁时不需要访问 Redis。
+ */
+@Slf4j
+public class RedisPictureEditBroker implements PictureEditBroker {
+
+    private static final String CHANNEL_PREFIX = "yoopic:picture:edit:channel:";
+
+    private static final String LOCK_KEY_PREFIX = "yoopic:picture:edit:lock:";
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end\n" +
+            "return 0", Long.class);
+
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end\n" +
+            "return 0", Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final Duration lockLease;
+
+    /**
+     * 本节点 id，用于忽略自己发布的消息
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    /**
+     * 本节点订阅的频道，key: pictureId
+     */
+    private final Map<Long, MessageListener> channelListeners = new ConcurrentHashMap<>();
+
+    /**
+     * 本节点会话持有的编辑锁，key: pictureId
+     */
+    private final Map<Long, LockHolder> localLocks = new ConcurrentHashMap<>();
+
+    private volatile PictureEditBroadcastListener listener;
+
+    public RedisPictureEditBroker(StringRedisTemplate stringRedisTemplate,
+                                  RedisMessageListenerContainer listenerContainer, Duration lockLease) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.lockLease = lockLease;
+    }
+
+    @Override
+    public void setListener(PictureEditBroadcastListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void subscribe(Long pictureId) {
+        channelListeners.computeIfAbsent(pictureId, id -> {
+            MessageListener messageListener = (message, pattern) -> onMessage(id, message);
+            listenerContainer.addMessageListener(messageListener, new ChannelTopic(CHANNEL_PREFIX + id));
+            return messageListener;
+        });
+    }
+
+    @Override
+    public void unsubscribe(Long pictureId) {
+        MessageListener messageListener = channelListeners.remove(pictureId);
+        if (messageListener != null) {
+            listenerContainer.removeMessageListener(messageListener, new ChannelTopic(CHANNEL_PREFIX + pictureId));
+        }
+    }
+
+    @Override
+    public void publish(Long pictureId, String payload, String excludeSessionId, int protocolVersion) {
+        // 本节点的会话直接分发，不经过 Redis
+        dispatch(pictureId, payload, excludeSessionId, protocolVersion);
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL_PREFIX + pictureId, nodeId + "\n" + protocolVersion + "\n" + payload);
+        } catch (Exception e) {
+            log.error("图片编辑消息发布失败, pictureId = {}", pictureId, e);
+        }
+    }
+
+    private void onMessage(Long pictureId, Message message) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int nodeSeparator = body.indexOf('\n');
+        int versionSeparator = nodeSeparator < 0 ? -1 : body.indexOf('\n', nodeSeparator + 1);
+        if (versionSeparator < 0 || body.startsWith(nodeId + "\n")) {
+            return;
+        }
+        int protocolVersion;
+        try {
+            protocolVersion = Integer.parseInt(body.substring(nodeSeparator + 1, versionSeparator));
+        } catch (NumberFormatException e) {
+            log.warn("忽略格式错误的图片编辑消息, pictureId = {}", pictureId);
+            return;
+        }
+        // 其他节点的消息，排除的会话不在本节点
+        dispatch(pictureId, body.substring(versionSeparator + 1), null, protocolVersion);
+    }
+
+    private void dispatch(Long pictureId, String payload, String excludeSessionId, int protocolVersion) {
+        PictureEditBroadcastListener currentListener = listener;
+        if (currentListener != null) {
+            currentListener.onBroadcast(pictureId, payload, excludeSessionId, protocolVersion);
+        }
+    }
+
+    @Override
+    public boolean tryLock(Long pictureId, Long userId, String sessionId) {
+        LockHolder holder = new LockHolder(userId, sessionId, nodeId + ":" + sessionId + ":" + userId);
+        Boolean success = stringRedisTemplate.opsForValue()
+                .setIfAbsent(LOCK_KEY_PREFIX + pictureId, holder.value(), lockLease);
+        if (Boolean.TRUE.equals(success)) {
+            localLocks.put(pictureId, holder);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isLockedBy(Long pictureId, Long userId, String sessionId) {
+        LockHolder holder = localLocks.get(pictureId);
+        return holder != null && holder.isOwnedBy(userId, sessionId);
+    }
+
+    @Override
+    public boolean unlock(Long pictureId, Long userId, String sessionId) {
+        LockHolder holder = localLocks.get(pictureId);
+        if (holder == null || !holder.isOwnedBy(userId, sessionId) || !localLocks.remove(pictureId, holder)) {
+            return false;
+        }
+        Long result = stringRedisTemplate.execute(UNLOCK_SCRIPT,
+                Collections.singletonList(LOCK_KEY_PREFIX + pictureId), holder.value());
+        return result != null && result > 0;
+    }
+
+    /**
+     * 心跳：为本节点持有的编辑锁续期，续期失败（租约已过期并被他人获取）时放弃本地记录，并通知监听器
+     */
+    @Scheduled(fixedDelayString = "${picture-edit.cluster.heartbeat-interval:10000}")
+    public void renewLocks() {
+        localLocks.forEach((pictureId, holder) -> {
+            try {
+                Long result = stringRedisTemplate.execute(RENEW_SCRIPT,
+                        Collections.singletonList(LOCK_KEY_PREFIX + pictureId),
+                        holder.value(), String.valueOf(lockLease.toMillis()));
+                if ((result == null || result == 0) && localLocks.remove(pictureId, holder)) {
+                    log.warn("图片编辑锁已失效, pictureId = {}, userId = {}", pictureId, holder.userId());
+                    PictureEditBroadcastListener currentListener = listener;
+                    if (currentListener != null) {
+                        currentListener.onLockLost(pictureId, holder.userId(), holder.sessionId());
+                    }
+                }
+            } catch (Exception e) {
+                log.error("图片编辑锁续期失败, pictureId = {}", pictureId, e);
+            }
+        });
+    }
+
+    /**
+     * 本节点持有的一把编辑锁
+     *
+     * @param userId    持有锁的用户 id
+     * @param sessionId 持有锁的会话 id
+     * @param value     写入 Redis 的锁值（节点 id:会话 id:用户 id）
+     */
+    private record LockHolder(Long userId, String sessionId, String value) {
+
+        boolean isOwnedBy(Long userId, String sessionId) {
+            return this.userId.equals(userId) && this.sessionId.equals(sessionId);
+        }
+    }
+}
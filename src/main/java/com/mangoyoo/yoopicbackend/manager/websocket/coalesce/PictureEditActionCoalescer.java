@@ -0,0 +1,78 @@
+package com.mangoyoo.yoopicbackend.manager.websocket.coalesce;
+
+import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditActionEnum;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 编辑动作合并器
+ * <p>
+ * 放大/缩小、左旋/右旋分别累计为净缩放次数和净旋转次数（旋转按 4 次一周取模），取出时换算为最少的动作序列。
+ * 缩放和旋转互不影响先后顺序，合并后的结果与逐个执行原始动作一致。
+ * 非线程安全，不加锁：每个实例只属于一张图片，只在该图片所在的 Disruptor 分区线程上读写（线程封闭）。
+ */
+public class PictureEditActionCoalescer {
+
+    /**
+     * 净缩放次数，正数为放大
+     */
+    private int netZoom;
+
+    /**
+     * 净旋转次数，正数为右旋
+     */
+    private int netRotation;
+
+    private int pendingCount;
+
+    /**
+     * 加入一个动作
+     */
+    public void add(PictureEditActionEnum action) {
+        switch (action) {
+            case ZOOM_IN -> netZoom++;
+            case ZOOM_OUT -> netZoom--;
+            case ROTATE_RIGHT -> netRotation++;
+            case ROTATE_LEFT -> netRotation--;
+        }
+        pendingCount++;
+    }
+
+    /**
+     * 已加入但尚未取出的原始动作数量
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * 取出合并后的动作并清空，相互抵消时返回空列表
+     */
+    public List<PictureEditActionEnum> drain() {
+        if (pendingCount == 0) {
+            return Collections.emptyList();
+        }
+        List<PictureEditActionEnum> actions = new ArrayList<>();
+        PictureEditActionEnum zoomAction = netZoom > 0 ? PictureEditActionEnum.ZOOM_IN : PictureEditActionEnum.ZOOM_OUT;
+        for (int i = 0; i < Math.abs(netZoom); i++) {
+            actions.add(zoomAction);
+        }
+        // 右旋 3 次等于左旋 1 次
+        switch (Math.floorMod(netRotation, 4)) {
+            case 1 -> actions.add(PictureEditActionEnum.ROTATE_RIGHT);
+            case 2 -> {
+                actions.add(PictureEditActionEnum.ROTATE_RIGHT);
+                actions.add(PictureEditActionEnum.ROTATE_RIGHT);
+            }
+            case 3 -> actions.add(PictureEditActionEnum.ROTATE_LEFT);
+            default -> {
+            }
+        }
+        netZoom = 0;
+        netRotation = 0;
+        pendingCount = 0;
+        return actions;
+    }
+}
@@ -0,0 +1,29 @@
+package com.mangoyoo.yoopicbackend.manager.websocket.disruptor;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 图片协同编辑事件队列配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture-edit.disruptor")
+@Data
+public class PictureEditDisruptorProperties {
+
+    /**
+     * 分区数量（环形队列个数），同一张图片的事件总是进入同一个分区，按顺序处理
+     */
+    private int partitions = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+
+    /**
+     * 每个分区的环形队列大小，必须是 2 的幂
+     */
+    private int bufferSize = 1024 * 32;
+
+    /**
+     * 消费者等待策略：blocking（默认，CPU 占用低）、sleeping、yielding、busy-spin（延迟最低，独占 CPU）
+     */
+    private String waitStrategy = "blocking";
+}
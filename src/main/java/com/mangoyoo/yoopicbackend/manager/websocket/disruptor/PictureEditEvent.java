@@ -9,7 +9,12 @@ import org.springframework.web.socket.WebSocketSession;
 public class PictureEditEvent {
 
     /**
-     * 消息
+     * 消息类型，用于统计（内部任务使用其所属的消息类型）
+     */
+    private String type;
+
+    /**
+     * 消息，内部任务为空
      */
     private PictureEditRequestMessage pictureEditRequestMessage;
 
@@ -28,5 +33,28 @@ public class PictureEditEvent {
      */
     private Long pictureId;
 
+    /**
+     * 进入队列的时间（System.nanoTime），用于统计排队时间
+     */
+    private long publishTime;
+
+    /**
+     * 内部任务（合并窗口到期后的发送、连接关闭后的退出编辑、编辑锁失效通知），
+     * 由图片所在分区的消费线程执行，与该图片的客户端消息串行；为空表示客户端消息
+     */
+    private Runnable task;
+
+    /**
+     * 处理完成后清空引用
+     */
+    public void clear() {
+        this.type = null;
+        this.pictureEditRequestMessage = null;
+        this.session = null;
+        this.user = null;
+        this.pictureId = null;
+        this.publishTime = 0;
+        this.task = null;
+    }
 }
 
@@ -1,31 +1,96 @@
 package com.mangoyoo.yoopicbackend.manager.websocket.disruptor;
 
 import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.lmax.disruptor.*;
 import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import jakarta.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * 图片协同编辑事件队列
+ * <p>
+ * 按图片 id 分区：每个分区是一个独立的 Disruptor，只有一个消费线程，
+ * 同一张图片的事件严格按发布顺序处理，不同图片的事件在不同分区上并行，某个分区处理慢不会拖住其他图片。
+ */
+@Slf4j
 @Configuration
 public class PictureEditEventDisruptorConfig {
 
     @Resource
-    private PictureEditEventWorkHandler pictureEditEventWorkHandler;
-
-    @Bean("pictureEditEventDisruptor")
-    public Disruptor<PictureEditEvent> messageModelRingBuffer() {
-        // ringBuffer 的大小
-        int bufferSize = 1024 * 256;
-        Disruptor<PictureEditEvent> disruptor = new Disruptor<>(
-                PictureEditEvent::new,
-                bufferSize,
-                ThreadFactoryBuilder.create().setNamePrefix("pictureEditEventDisruptor").build()
-        );
-        // 设置消费者
-        disruptor.handleEventsWithWorkerPool(pictureEditEventWorkHandler);
-        // 开启 disruptor
-        disruptor.start();
-        return disruptor;
+    private PictureEditEventHandler pictureEditEventHandler;
+
+    @Resource
+    private PictureEditDisruptorProperties pictureEditDisruptorProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Bean("pictureEditEventDisruptors")
+    public List<Disruptor<PictureEditEvent>> pictureEditEventDisruptors() {
+        int partitions = pictureEditDisruptorProperties.getPartitions();
+        int bufferSize = pictureEditDisruptorProperties.getBufferSize();
+        if (partitions <= 0 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("picture-edit.disruptor 配置错误：partitions 必须大于 0，buffer-size 必须是 2 的幂");
+        }
+        List<Disruptor<PictureEditEvent>> disruptors = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            Disruptor<PictureEditEvent> disruptor = new Disruptor<>(
+                    PictureEditEvent::new,
+                    bufferSize,
+                    ThreadFactoryBuilder.create().setNamePrefix("pictureEditEventDisruptor-" + i + "-").build(),
+                    // WebSocket 消息由多个容器线程并发发布
+                    ProducerType.MULTI,
+                    createWaitStrategy(pictureEditDisruptorProperties.getWaitStrategy())
+            );
+            // 设置消费者，每个分区单线程消费
+            disruptor.handleEventsWith(pictureEditEventHandler);
+            // 单个事件处理失败只记录日志，不能让消费线程退出
+            disruptor.setDefaultExceptionHandler(new ExceptionHandler<>() {
+                @Override
+                public void handleEventException(Throwable ex, long sequence, PictureEditEvent event) {
+                    log.error("处理图片编辑事件失败, sequence = {}", sequence, ex);
+                }
+
+                @Override
+                public void handleOnStartException(Throwable ex) {
+                    log.error("图片编辑事件队列启动失败", ex);
+                }
+
+                @Override
+                public void handleOnShutdownException(Throwable ex) {
+                    log.error("图片编辑事件队列关闭失败", ex);
+                }
+            });
+            // 开启 disruptor
+            disruptor.start();
+            RingBuffer<PictureEditEvent> ringBuffer = disruptor.getRingBuffer();
+            Gauge.builder("picture.edit.disruptor.remaining.capacity", ringBuffer, RingBuffer::remainingCapacity)
+                    .description("图片编辑事件队列剩余容量")
+                    .tag("partition", String.valueOf(i))
+                    .register(meterRegistry);
+            disruptors.add(disruptor);
+        }
+        Gauge.builder("picture.edit.disruptor.buffer.size", () -> bufferSize)
+                .description("图片编辑事件队列每个分区的容量")
+                .register(meterRegistry);
+        return disruptors;
+    }
+
+    private static WaitStrategy createWaitStrategy(String waitStrategy) {
+        return switch (waitStrategy == null ? "blocking" : waitStrategy) {
+            case "sleeping" -> new SleepingWaitStrategy();
+            case "yielding" -> new YieldingWaitStrategy();
+            case "busy-spin" -> new BusySpinWaitStrategy();
+            case "blocking" -> new BlockingWaitStrategy();
+            default -> throw new IllegalArgumentException("不支持的等待策略：" + waitStrategy);
+        };
     }
 }
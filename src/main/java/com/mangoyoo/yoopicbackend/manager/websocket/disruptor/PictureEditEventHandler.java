@@ -1,35 +1,50 @@
 package com.mangoyoo.yoopicbackend.manager.websocket.disruptor;
 
-import cn.hutool.json.JSONUtil;
-import com.lmax.disruptor.WorkHandler;
+import com.lmax.disruptor.EventHandler;
 import com.mangoyoo.yoopicbackend.manager.websocket.PictureEditHandler;
-import com.mangoyoo.yoopicbackend.service.UserService;
+import com.mangoyoo.yoopicbackend.manager.websocket.metrics.PictureEditMetrics;
 import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditMessageTypeEnum;
 import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditRequestMessage;
 import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditResponseMessage;
 import com.mangoyoo.yoopicbackend.model.entity.User;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import jakarta.annotation.Resource;
 
 /**
- * 图片编辑事件处理器（消费者）
+ * 图片编辑事件处理器（消费者），每个分区由一个线程调用
  */
 @Component
 @Slf4j
-public class PictureEditEventWorkHandler implements WorkHandler<PictureEditEvent> {
+public class PictureEditEventHandler implements EventHandler<PictureEditEvent> {
 
     @Resource
     private PictureEditHandler pictureEditHandler;
 
     @Resource
-    private UserService userService;
+    private PictureEditMetrics pictureEditMetrics;
 
     @Override
-    public void onEvent(PictureEditEvent pictureEditEvent) throws Exception {
+    public void onEvent(PictureEditEvent pictureEditEvent, long sequence, boolean endOfBatch) throws Exception {
+        String type = pictureEditEvent.getType();
+        long startTime = System.nanoTime();
+        pictureEditMetrics.recordQueueWait(type, startTime - pictureEditEvent.getPublishTime());
+        try {
+            handleEvent(pictureEditEvent);
+        } finally {
+            pictureEditMetrics.recordHandle(type, System.nanoTime() - startTime);
+            // 释放对会话和消息的引用，避免环形队列长期持有已关闭的会话
+            pictureEditEvent.clear();
+        }
+    }
+
+    private void handleEvent(PictureEditEvent pictureEditEvent) throws Exception {
+        if (pictureEditEvent.getTask() != null) {
+            pictureEditEvent.getTask().run();
+            return;
+        }
         PictureEditRequestMessage pictureEditRequestMessage = pictureEditEvent.getPictureEditRequestMessage();
         WebSocketSession session = pictureEditEvent.getSession();
         User user = pictureEditEvent.getUser();
@@ -53,8 +68,8 @@ public class PictureEditEventWorkHandler implements WorkHandler<PictureEditEvent
                 PictureEditResponseMessage pictureEditResponseMessage = new PictureEditResponseMessage();
                 pictureEditResponseMessage.setType(PictureEditMessageTypeEnum.ERROR.getValue());
                 pictureEditResponseMessage.setMessage("消息类型错误");
-                pictureEditResponseMessage.setUser(userService.getUserVO(user));
-                session.sendMessage(new TextMessage(JSONUtil.toJsonStr(pictureEditResponseMessage)));
+                pictureEditResponseMessage.setUser(pictureEditHandler.getUserVO(session, user));
+                pictureEditHandler.sendToSession(session, pictureEditHandler.toTextMessage(pictureEditResponseMessage));
                 break;
         }
     }
@@ -1,7 +1,9 @@
 package com.mangoyoo.yoopicbackend.manager.websocket.disruptor;
 
+import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
+import com.mangoyoo.yoopicbackend.manager.websocket.metrics.PictureEditMetrics;
 import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditRequestMessage;
 import com.mangoyoo.yoopicbackend.model.entity.User;
 import lombok.extern.slf4j.Slf4j;
@@ -10,6 +12,7 @@ import org.springframework.web.socket.WebSocketSession;
 
 import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
+import java.util.List;
 
 /**
  * 图片编辑事件生产者
@@ -19,10 +22,13 @@ import jakarta.annotation.Resource;
 public class PictureEditEventProducer {
 
     @Resource
-    private Disruptor<PictureEditEvent> pictureEditEventDisruptor;
+    private List<Disruptor<PictureEditEvent>> pictureEditEventDisruptors;
+
+    @Resource
+    private PictureEditMetrics pictureEditMetrics;
 
     /**
-     * 发布事件
+     * 发布事件，同一张图片的事件进入同一个分区
      *
      * @param pictureEditRequestMessage
      * @param session
@@ -30,16 +36,66 @@ public class PictureEditEventProducer {
      * @param pictureId
      */
     public void publishEvent(PictureEditRequestMessage pictureEditRequestMessage, WebSocketSession session, User user, Long pictureId) {
-        RingBuffer<PictureEditEvent> ringBuffer = pictureEditEventDisruptor.getRingBuffer();
+        RingBuffer<PictureEditEvent> ringBuffer = pictureEditEventDisruptors.get(partitionOf(pictureId)).getRingBuffer();
         // 获取到可以防止事件的位置
         long next = ringBuffer.next();
         PictureEditEvent pictureEditEvent = ringBuffer.get(next);
+        pictureEditEvent.setType(pictureEditRequestMessage.getType());
         pictureEditEvent.setPictureEditRequestMessage(pictureEditRequestMessage);
         pictureEditEvent.setSession(session);
         pictureEditEvent.setUser(user);
         pictureEditEvent.setPictureId(pictureId);
+        pictureEditEvent.setPublishTime(System.nanoTime());
         // 发布事件
         ringBuffer.publish(next);
+        pictureEditMetrics.recordPublished(pictureEditRequestMessage.getType());
+    }
+
+    /**
+     * 发布内部任务，在图片所在分区的消费线程上执行（分区已满时等待）
+     *
+     * @param pictureId 图片 id
+     * @param type      任务所属的消息类型，用于统计
+     * @param task      任务
+     */
+    public void publishTask(Long pictureId, String type, Runnable task) {
+        RingBuffer<PictureEditEvent> ringBuffer = pictureEditEventDisruptors.get(partitionOf(pictureId)).getRingBuffer();
+        publishTask(ringBuffer, ringBuffer.next(), pictureId, type, task);
+    }
+
+    /**
+     * 尝试发布内部任务，分区已满时不等待
+     *
+     * @return 是否发布成功
+     */
+    public boolean tryPublishTask(Long pictureId, String type, Runnable task) {
+        RingBuffer<PictureEditEvent> ringBuffer = pictureEditEventDisruptors.get(partitionOf(pictureId)).getRingBuffer();
+        long next;
+        try {
+            next = ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            return false;
+        }
+        publishTask(ringBuffer, next, pictureId, type, task);
+        return true;
+    }
+
+    private void publishTask(RingBuffer<PictureEditEvent> ringBuffer, long next, Long pictureId, String type, Runnable task) {
+        PictureEditEvent pictureEditEvent = ringBuffer.get(next);
+        pictureEditEvent.setType(type);
+        pictureEditEvent.setPictureId(pictureId);
+        pictureEditEvent.setTask(task);
+        pictureEditEvent.setPublishTime(System.nanoTime());
+        ringBuffer.publish(next);
+        pictureEditMetrics.recordPublished(type);
+    }
+
+    /**
+     * 图片所在的分区（对 id 做一次混洗，避免连续 id 集中在少数分区）
+     */
+    int partitionOf(Long pictureId) {
+        long hash = pictureId == null ? 0 : pictureId * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(hash ^ (hash >>> 32), (long) pictureEditEventDisruptors.size());
     }
 
     /**
@@ -47,7 +103,6 @@ public class PictureEditEventProducer {
      */
     @PreDestroy
     public void destroy() {
-        pictureEditEventDisruptor.shutdown();
+        pictureEditEventDisruptors.forEach(Disruptor::shutdown);
     }
 }
-
@@ -0,0 +1,64 @@
+package com.mangoyoo.yoopicbackend.manager.websocket.metrics;
+
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.mangoyoo.yoopicbackend.manager.websocket.PictureEditHandler;
+import com.mangoyoo.yoopicbackend.manager.websocket.disruptor.PictureEditEvent;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 图片协同编辑状态端点（管理端口，默认 8124 上的 /actuator/pictureedit）
+ * <p>
+ * 返回本节点当前的连接数、待发送字节数、各分区的队列积压，以及连接数最多的图片，便于排查单个节点的负载。
+ * 随时间变化的指标（耗时、丢弃数量等）见同一端口上 /actuator/prometheus 中 picture_edit_* 开头的指标。
+ */
+@Component
+@Endpoint(id = "pictureedit")
+public class PictureEditEndpoint {
+
+    /**
+     * 返回的图片数量上限
+     */
+    private static final int TOP_PICTURE_LIMIT = 20;
+
+    @Resource
+    @Lazy
+    private PictureEditHandler pictureEditHandler;
+
+    @Resource
+    private List<Disruptor<PictureEditEvent>> pictureEditEventDisruptors;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<Long, Integer> pictureSessionCounts = pictureEditHandler.getPictureSessionCounts();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("sessions", pictureEditHandler.getSessionCount());
+        status.put("pictures", pictureSessionCounts.size());
+        status.put("queuedBytes", pictureEditHandler.getQueuedBytes());
+        // 每个分区已入队、尚未处理的事件数
+        List<Long> partitionBacklogs = new ArrayList<>(pictureEditEventDisruptors.size());
+        for (Disruptor<PictureEditEvent> disruptor : pictureEditEventDisruptors) {
+            RingBuffer<PictureEditEvent> ringBuffer = disruptor.getRingBuffer();
+            partitionBacklogs.add(ringBuffer.getBufferSize() - ringBuffer.remainingCapacity());
+        }
+        status.put("partitionBacklogs", partitionBacklogs);
+        // 连接数最多的图片，key 转为字符串避免前端丢失精度
+        Map<String, Integer> topPictures = new LinkedHashMap<>();
+        pictureSessionCounts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue(Comparator.reverseOrder()))
+                .limit(TOP_PICTURE_LIMIT)
+                .forEach(entry -> topPictures.put(String.valueOf(entry.getKey()), entry.getValue()));
+        status.put("topPictures", topPictures);
+        return status;
+    }
+}
@@ -0,0 +1,135 @@
+package com.mangoyoo.yoopicbackend.manager.websocket.metrics;
+
+import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditMessageTypeEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 图片协同编辑运行指标
+ * <p>
+ * 按消息类型统计事件数量、排队时间、处理耗时和广播耗时，按原因统计丢弃的消息，
+ * 通过独立管理端口（默认 8124）上的 /actuator/prometheus 端点暴露（只开放 health、prometheus、pictureedit 三个端点）。
+ * 消息类型来自客户端，只使用已定义的类型作为标签，其他值统一记为 UNKNOWN，避免标签数量无限增长。
+ */
+@Component
+public class PictureEditMetrics {
+
+    private static final String UNKNOWN_TYPE = "UNKNOWN";
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Counter> publishedCounters = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> queueWaitTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> handleTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> broadcastTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> droppedCounters = new ConcurrentHashMap<>();
+
+    private DistributionSummary coalescedSummary;
+
+    private Counter savedActionCounter;
+
+    @PostConstruct
+    public void init() {
+        coalescedSummary = DistributionSummary.builder("picture.edit.actions.coalesced")
+                .description("每个合并窗口收到的原始编辑动作数量")
+                .register(meterRegistry);
+        savedActionCounter = Counter.builder("picture.edit.actions.saved")
+                .description("合并后少发送的编辑动作数量")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 注册一个数值型的 gauge
+     */
+    public void gauge(String name, String description, Supplier<Number> supplier) {
+        Gauge.builder(name, supplier).description(description).register(meterRegistry);
+    }
+
+    /**
+     * 事件进入 Disruptor 队列
+     */
+    public void recordPublished(String type) {
+        publishedCounters.computeIfAbsent(normalizeType(type), t -> Counter.builder("picture.edit.events.published")
+                .description("进入队列的图片编辑事件数量")
+                .tag("type", t)
+                .register(meterRegistry)).increment();
+    }
+
+    /**
+     * 事件从进入队列到开始处理的等待时间
+     */
+    public void recordQueueWait(String type, long nanos) {
+        queueWaitTimers.computeIfAbsent(normalizeType(type), t -> Timer.builder("picture.edit.event.queue.wait")
+                .description("图片编辑事件在队列中的等待时间")
+                .tag("type", t)
+                .register(meterRegistry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 事件处理耗时
+     */
+    public void recordHandle(String type, long nanos) {
+        handleTimers.computeIfAbsent(normalizeType(type), t -> Timer.builder("picture.edit.event.handle")
+                .description("图片编辑事件的处理耗时")
+                .tag("type", t)
+                .register(meterRegistry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 一次广播的耗时（序列化、发布、放入本节点各会话的发送队列）
+     */
+    public void recordBroadcast(String type, long nanos) {
+        broadcastTimers.computeIfAbsent(normalizeType(type), t -> Timer.builder("picture.edit.broadcast")
+                .description("图片编辑消息的广播耗时")
+                .tag("type", t)
+                .register(meterRegistry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 未能发送给客户端的消息
+     *
+     * @param reason 原因：overflow（超出缓冲丢弃最早的消息）、slow_consumer（断开过慢的连接）、closed（连接已关闭）
+     * @param count  消息数量
+     */
+    public void recordDropped(String reason, int count) {
+        if (count <= 0) {
+            return;
+        }
+        droppedCounters.computeIfAbsent(reason, r -> Counter.builder("picture.edit.messages.dropped")
+                .description("未能发送给客户端的图片编辑消息数量")
+                .tag("reason", r)
+                .register(meterRegistry)).increment(count);
+    }
+
+    /**
+     * 编辑动作合并
+     *
+     * @param received 收到的原始动作数量
+     * @param sent     合并后发送的动作数量
+     */
+    public void recordCoalesced(int received, int sent) {
+        coalescedSummary.record(received);
+        savedActionCounter.increment(Math.max(0, received - sent));
+    }
+
+    private static String normalizeType(String type) {
+        PictureEditMessageTypeEnum typeEnum = PictureEditMessageTypeEnum.getEnumByValue(type);
+        return typeEnum == null ? UNKNOWN_TYPE : typeEnum.getValue();
+    }
+}
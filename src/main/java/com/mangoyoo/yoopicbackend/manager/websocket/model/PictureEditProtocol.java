@@ -0,0 +1,48 @@
+package com.mangoyoo.yoopicbackend.manager.websocket.model;
+
+import cn.hutool.core.util.NumberUtil;
+
+/**
+ * 图片协同编辑协议版本
+ * <p>
+ * 客户端在握手时通过 protocolVersion 参数声明支持的版本，不传时为 1：
+ * <ul>
+ *     <li>1：每个编辑动作一条 EDIT_ACTION 消息（editAction）</li>
+ *     <li>2：合并后的编辑动作在一条 EDIT_ACTION 消息中批量发送（editActions）</li>
+ * </ul>
+ */
+public final class PictureEditProtocol {
+
+    public static final int V1 = 1;
+
+    public static final int V2 = 2;
+
+    /**
+     * 服务端支持的最高版本
+     */
+    public static final int LATEST = V2;
+
+    /**
+     * 广播给所有版本的会话
+     */
+    public static final int ALL = 0;
+
+    /**
+     * 会话属性中保存协商后版本的 key
+     */
+    public static final String ATTRIBUTE = "protocolVersion";
+
+    private PictureEditProtocol() {
+    }
+
+    /**
+     * 根据客户端声明的版本协商实际使用的版本（不超过服务端支持的最高版本）
+     */
+    public static int negotiate(String clientVersion) {
+        if (!NumberUtil.isInteger(clientVersion)) {
+            return V1;
+        }
+        int version = Integer.parseInt(clientVersion);
+        return Math.max(V1, Math.min(version, LATEST));
+    }
+}
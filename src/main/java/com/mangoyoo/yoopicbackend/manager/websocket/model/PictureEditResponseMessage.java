@@ -3,6 +3,9 @@ import com.mangoyoo.yoopicbackend.model.vo.UserVO;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -23,6 +26,11 @@ public class PictureEditResponseMessage {
      */
     private String editAction;
 
+    /**
+     * 合并后批量发送的编辑动作（协议版本 2）
+     */
+    private List<String> editActions;
+
     /**
      * 用户信息
      */
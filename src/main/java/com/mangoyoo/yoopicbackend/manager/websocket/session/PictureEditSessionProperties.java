@@ -0,0 +1,34 @@
+package com.mangoyoo.yoopicbackend.manager.websocket.session;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 图片协同编辑会话发送配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture-edit.session")
+@Data
+public class PictureEditSessionProperties {
+
+    /**
+     * 单次发送允许的最长时间（毫秒），超过后认为客户端过慢
+     */
+    private long sendTimeLimit = 5000;
+
+    /**
+     * 每个会话待发送消息的最大字节数
+     */
+    private long bufferSizeLimit = 512 * 1024;
+
+    /**
+     * 超出限制后的处理方式：terminate（默认，断开连接，客户端重连后重新同步）或 drop（丢弃最早的消息）
+     */
+    private String overflowStrategy = "terminate";
+
+    /**
+     * 编辑动作合并窗口（毫秒），窗口内的缩放、旋转合并后再广播，0 表示不合并
+     */
+    private long actionCoalesceWindow = 50;
+}
@@ -0,0 +1,171 @@
+package com.mangoyoo.yoopicbackend.manager.websocket.session;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * 单个 WebSocket 会话的异步发送队列
+ * <p>
+ * WebSocketSession 不是线程安全的，且 sendMessage 会阻塞到数据写出。这里把消息放入有界队列后立即返回，
+ * 由一个后台任务按顺序逐条发送（同一时刻每个会话最多一个发送任务），广播方的开销与客户端快慢无关。
+ * 与 ConcurrentWebSocketSessionDecorator 类似，限制待发送的字节数和单次发送耗时，超出后断开连接或丢弃最早的消息。
+ */
+@Slf4j
+public class PictureEditSessionSender {
+
+    private final WebSocketSession session;
+
+    private final Executor executor;
+
+    private final long sendTimeLimit;
+
+    private final long bufferSizeLimit;
+
+    private final boolean dropOnOverflow;
+
+    /**
+     * 消息被丢弃时的回调（原因，数量），用于统计
+     */
+    private final ObjIntConsumer<String> dropListener;
+
+    private final Queue<TextMessage> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong queuedBytes = new AtomicLong();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    /**
+     * 当前这次发送的开始时间，0 表示没有正在进行的发送
+     */
+    private volatile long sendStartTime;
+
+    private volatile boolean closed;
+
+    /**
+     * @param session         原始会话
+     * @param executor        执行发送任务的线程池
+     * @param sendTimeLimit   单次发送允许的最长时间（毫秒）
+     * @param bufferSizeLimit 待发送消息的最大字节数
+     * @param dropOnOverflow  超出限制时丢弃最早的消息，否则断开连接
+     * @param dropListener    消息被丢弃时的回调（原因，数量）
+     */
+    public PictureEditSessionSender(WebSocketSession session, Executor executor, long sendTimeLimit,
+                                    long bufferSizeLimit, boolean dropOnOverflow, ObjIntConsumer<String> dropListener) {
+        this.session = session;
+        this.executor = executor;
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.dropOnOverflow = dropOnOverflow;
+        this.dropListener = dropListener;
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    /**
+     * 异步发送消息，不会阻塞
+     *
+     * @return 消息是否进入发送队列
+     */
+    public boolean send(TextMessage message) {
+        if (closed || !session.isOpen()) {
+            dropListener.accept("closed", 1);
+            return false;
+        }
+        // 上一条消息迟迟发不出去，说明客户端过慢
+        long startTime = sendStartTime;
+        if (startTime > 0 && System.currentTimeMillis() - startTime > sendTimeLimit && !dropOnOverflow) {
+            closeSlowSession("发送超时");
+            dropListener.accept("slow_consumer", 1);
+            return false;
+        }
+        queuedBytes.addAndGet(message.getPayloadLength());
+        queue.offer(message);
+        if (queuedBytes.get() > bufferSizeLimit) {
+            if (!dropOnOverflow) {
+                closeSlowSession("待发送消息过多");
+                return false;
+            }
+            // 丢弃最早的消息直到回到限制以内
+            int droppedCount = 0;
+            while (queuedBytes.get() > bufferSizeLimit) {
+                TextMessage dropped = queue.poll();
+                if (dropped == null) {
+                    break;
+                }
+                queuedBytes.addAndGet(-dropped.getPayloadLength());
+                droppedCount++;
+            }
+            dropListener.accept("overflow", droppedCount);
+        }
+        scheduleDrain();
+        return true;
+    }
+
+    /**
+     * 待发送的字节数
+     */
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    private void scheduleDrain() {
+        if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            TextMessage message;
+            while (!closed && (message = queue.poll()) != null) {
+                queuedBytes.addAndGet(-message.getPayloadLength());
+                if (!session.isOpen()) {
+                    continue;
+                }
+                sendStartTime = System.currentTimeMillis();
+                try {
+                    session.sendMessage(message);
+                } catch (Exception e) {
+                    log.warn("WebSocket 消息发送失败，断开连接, sessionId = {}", session.getId(), e);
+                    closeSlowSession("发送失败");
+                } finally {
+                    sendStartTime = 0;
+                }
+            }
+        } finally {
+            draining.set(false);
+        }
+        // 释放标记后可能有新消息入队
+        if (!closed) {
+            scheduleDrain();
+        }
+    }
+
+    private void closeSlowSession(String reason) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        int droppedCount = queue.size();
+        queue.clear();
+        queuedBytes.set(0);
+        dropListener.accept("slow_consumer", droppedCount);
+        log.info("关闭过慢的 WebSocket 连接（{}）, sessionId = {}", reason, session.getId());
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (Exception e) {
+            log.warn("关闭 WebSocket 连接失败, sessionId = {}", session.getId(), e);
+        }
+    }
+}
@@ -2,6 +2,11 @@ package com.mangoyoo.yoopicbackend.mapper;
 
 import com.mangoyoo.yoopicbackend.model.entity.Picture;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Date;
+import java.util.List;
 
 /**
 * @author 67622
@@ -11,6 +16,19 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 */
 public interface PictureMapper extends BaseMapper<Picture> {
 
+    /**
+     * 查询图片表最新的更新时间（包括已逻辑删除的图片）
+     */
+    @Select("SELECT MAX(updateTime) FROM picture")
+    Date selectMaxUpdateTime();
+
+    /**
+     * 查询指定时间之后更新过的图片 id（包括已逻辑删除的图片），用于内存索引的增量同步
+     *
+     * @param since 起始时间（含）
+     */
+    @Select("SELECT id FROM picture WHERE updateTime >= #{since}")
+    List<Long> selectIdsUpdatedSince(@Param("since") Date since);
 }
 
 
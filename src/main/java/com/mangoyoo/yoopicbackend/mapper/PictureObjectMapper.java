@@ -0,0 +1,12 @@
+package com.mangoyoo.yoopicbackend.mapper;
+
+import com.mangoyoo.yoopicbackend.model.entity.PictureObject;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+* @description 针对表【picture_object(图片存储对象)】的数据库操作Mapper
+* @Entity com.mangoyoo.yoopicbackend.model.entity.PictureObject
+*/
+public interface PictureObjectMapper extends BaseMapper<PictureObject> {
+
+}
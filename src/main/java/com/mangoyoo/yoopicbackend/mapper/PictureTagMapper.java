@@ -0,0 +1,12 @@
+package com.mangoyoo.yoopicbackend.mapper;
+
+import com.mangoyoo.yoopicbackend.model.entity.PictureTag;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+* @description 针对表【picture_tag(图片标签)】的数据库操作Mapper
+* @Entity com.mangoyoo.yoopicbackend.model.entity.PictureTag
+*/
+public interface PictureTagMapper extends BaseMapper<PictureTag> {
+
+}
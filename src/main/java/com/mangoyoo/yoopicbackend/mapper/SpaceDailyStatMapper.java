@@ -0,0 +1,83 @@
+package com.mangoyoo.yoopicbackend.mapper;
+
+import com.mangoyoo.yoopicbackend.model.entity.SpaceDailyStat;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+* @description 针对表【space_daily_stat(空间按天统计)】的数据库操作Mapper
+* @Entity com.mangoyoo.yoopicbackend.model.entity.SpaceDailyStat
+*/
+public interface SpaceDailyStatMapper extends BaseMapper<SpaceDailyStat> {
+
+    /**
+     * 大小区间的 SQL 表达式，区间名称与 SpaceStatManager 中的保持一致
+     */
+    String SIZE_BUCKET_SQL = "CASE WHEN p.picSize < 102400 THEN '<100KB'"
+            + " WHEN p.picSize < 512000 THEN '100KB-500KB'"
+            + " WHEN p.picSize < 1048576 THEN '500KB-1MB'"
+            + " ELSE '>1MB' END";
+
+    /**
+     * 批量累加统计值（不存在则插入）
+     *
+     * @param statList 变化量，statCount、totalSize 可以为负数
+     */
+    @Insert({"<script>",
+            "INSERT INTO space_daily_stat (spaceKey, statDate, dimension, dimKey, statCount, totalSize) VALUES ",
+            "<foreach collection='list' item='item' separator=','>",
+            "(#{item.spaceKey}, #{item.statDate}, #{item.dimension}, #{item.dimKey}, #{item.statCount}, #{item.totalSize})",
+            "</foreach>",
+            " ON DUPLICATE KEY UPDATE statCount = statCount + VALUES(statCount), totalSize = totalSize + VALUES(totalSize)",
+            "</script>"})
+    int upsertDelta(@Param("list") List<SpaceDailyStat> statList);
+
+    /**
+     * 删除空间的全部统计
+     */
+    @Delete("DELETE FROM space_daily_stat WHERE spaceKey = #{spaceKey}")
+    int deleteBySpaceKey(@Param("spaceKey") long spaceKey);
+
+    /**
+     * 需要重建统计的空间：有未删除图片的空间和已有统计的空间（后者可能已经没有图片，重建时清空）
+     */
+    @Select("SELECT DISTINCT IFNULL(spaceId, 0) FROM picture WHERE isDelete = 0"
+            + " UNION SELECT DISTINCT spaceKey FROM space_daily_stat")
+    List<Long> selectSpaceKeys();
+
+    /**
+     * 根据 picture 表重建一个空间的分类、大小区间和上传用户三个维度
+     *
+     * @param spaceId 空间 id，为 null 表示公共图库
+     */
+    @Insert("INSERT INTO space_daily_stat (spaceKey, statDate, dimension, dimKey, statCount, totalSize)"
+            + " SELECT IFNULL(p.spaceId, 0), DATE(p.createTime), 'category', IFNULL(p.category, ''), COUNT(*), IFNULL(SUM(p.picSize), 0)"
+            + " FROM picture p WHERE p.isDelete = 0 AND p.spaceId <=> #{spaceId}"
+            + " GROUP BY IFNULL(p.spaceId, 0), DATE(p.createTime), IFNULL(p.category, '')"
+            + " UNION ALL"
+            + " SELECT IFNULL(p.spaceId, 0), DATE(p.createTime), 'size', " + SIZE_BUCKET_SQL + ", COUNT(*), IFNULL(SUM(p.picSize), 0)"
+            + " FROM picture p WHERE p.isDelete = 0 AND p.spaceId <=> #{spaceId}"
+            + " GROUP BY IFNULL(p.spaceId, 0), DATE(p.createTime), " + SIZE_BUCKET_SQL
+            + " UNION ALL"
+            + " SELECT IFNULL(p.spaceId, 0), DATE(p.createTime), 'user', CAST(p.userId AS CHAR), COUNT(*), IFNULL(SUM(p.picSize), 0)"
+            + " FROM picture p WHERE p.isDelete = 0 AND p.spaceId <=> #{spaceId}"
+            + " GROUP BY IFNULL(p.spaceId, 0), DATE(p.createTime), p.userId")
+    int rebuildFromPicture(@Param("spaceId") Long spaceId);
+
+    /**
+     * 根据 picture_tag 表重建一个空间的标签维度
+     *
+     * @param spaceId 空间 id，为 null 表示公共图库
+     */
+    @Insert("INSERT INTO space_daily_stat (spaceKey, statDate, dimension, dimKey, statCount, totalSize)"
+            + " SELECT IFNULL(p.spaceId, 0), DATE(p.createTime), 'tag', t.tag, COUNT(*), IFNULL(SUM(p.picSize), 0)"
+            + " FROM picture_tag t JOIN picture p ON p.id = t.pictureId AND p.isDelete = 0"
+            + " WHERE p.spaceId <=> #{spaceId}"
+            + " GROUP BY IFNULL(p.spaceId, 0), DATE(p.createTime), t.tag")
+    int rebuildTags(@Param("spaceId") Long spaceId);
+}
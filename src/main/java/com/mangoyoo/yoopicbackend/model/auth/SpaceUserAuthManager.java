@@ -1,8 +1,15 @@
 package com.mangoyoo.yoopicbackend.model.auth;
 
+import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.io.resource.ResourceUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mangoyoo.yoopicbackend.exception.BusinessException;
+import com.mangoyoo.yoopicbackend.exception.ErrorCode;
+import com.mangoyoo.yoopicbackend.manager.cluster.ClusterEventBus;
+import com.mangoyoo.yoopicbackend.mapper.SpaceMapper;
 import com.mangoyoo.yoopicbackend.model.entity.Space;
 import com.mangoyoo.yoopicbackend.model.entity.User;
 import com.mangoyoo.yoopicbackend.service.SpaceUserService;
@@ -10,85 +17,304 @@ import com.mangoyoo.yoopicbackend.service.UserService;
 import com.mangoyoo.yoopicbackend.enums.SpaceRoleEnum;
 import com.mangoyoo.yoopicbackend.enums.SpaceTypeEnum;
 import generator.domain.SpaceUser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
-import java.util.ArrayList;
+import java.io.File;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
+/**
+ * 空间成员权限管理
+ * <p>
+ * 1. 角色权限配置（spaceUserAuthConfig.json）启动时编译为 {@link SpaceUserAuthTable}，权限判断为 O(1) 的位运算；
+ *    配置了 space.auth.config-file 时从外部文件加载，文件修改后自动重新编译并整体替换；
+ * 2. 用户在空间中的有效角色按（用户 id，空间 id）缓存：同一个请求内只解析一次（请求级缓存），
+ *    不同请求之间共享一个短过期时间的本地缓存。空间成员增删改、空间删除时主动失效本节点的缓存，
+ *    并通过 {@link ClusterEventBus} 通知其他节点失效（广播丢失时最多在过期时间 30 秒后生效）。
+ *    缓存的是角色而不是权限列表，权限配置热更新后立即生效。
+ */
+@Slf4j
 @Component
 public class SpaceUserAuthManager {
 
+    private static final String DEFAULT_CONFIG_RESOURCE = "biz/spaceUserAuthConfig.json";
+
+    /**
+     * 请求级缓存在 request attribute 中的 key
+     */
+    private static final String REQUEST_CACHE_ATTRIBUTE = SpaceUserAuthManager.class.getName() + ".roleCache";
+
+    /**
+     * 没有任何权限时缓存的角色（Caffeine 不能缓存 null）
+     */
+    private static final String NO_ROLE = "";
+
+    /**
+     * 节点间广播失效的主题，消息为「空间 id」（整个空间）或「空间 id,用户 id」（单个成员）
+     */
+    private static final String EVICT_TOPIC = "space-auth:evict";
+
     @Resource
     private SpaceUserService spaceUserService;
 
     @Resource
     private UserService userService;
 
-    public static final SpaceUserAuthConfig SPACE_USER_AUTH_CONFIG;
+    @Resource
+    private SpaceMapper spaceMapper;
+
+    @Resource
+    private ClusterEventBus clusterEventBus;
+
+    /**
+     * 外部权限配置文件路径，为空时使用 classpath 中的默认配置
+     */
+    @Value("${space.auth.config-file:}")
+    private String configFile;
+
+    private volatile SpaceUserAuthTable authTable;
 
-    static {
-        String json = ResourceUtil.readUtf8Str("biz/spaceUserAuthConfig.json");
-        SPACE_USER_AUTH_CONFIG = JSONUtil.toBean(json, SpaceUserAuthConfig.class);
+    /**
+     * 已加载的外部配置文件修改时间
+     */
+    private long configLastModified;
+
+    private final Cache<RoleKey, String> roleCache = Caffeine.newBuilder()
+            .maximumSize(10000L)
+            .expireAfterWrite(Duration.ofSeconds(30))
+            .build();
+
+    @PostConstruct
+    public void init() {
+        clusterEventBus.subscribe(EVICT_TOPIC, this::onEvictMessage);
+        if (StrUtil.isBlank(configFile)) {
+            authTable = compile(ResourceUtil.readUtf8Str(DEFAULT_CONFIG_RESOURCE));
+            return;
+        }
+        File file = FileUtil.file(configFile);
+        configLastModified = file.lastModified();
+        authTable = compile(FileUtil.readUtf8String(file));
+        log.info("已加载外部空间权限配置 {}", file.getAbsolutePath());
     }
 
     /**
-     * 根据角色获取权限列表
+     * 定时检查外部配置文件，修改后重新编译；新配置不合法时保留旧配置
      */
-    public List<String> getPermissionsByRole(String spaceUserRole) {
-        if (StrUtil.isBlank(spaceUserRole)) {
-            return new ArrayList<>();
+    @Scheduled(fixedDelayString = "${space.auth.reload-interval:10000}")
+    public void reloadIfChanged() {
+        if (StrUtil.isBlank(configFile)) {
+            return;
+        }
+        File file = FileUtil.file(configFile);
+        long lastModified = file.lastModified();
+        if (lastModified == 0 || lastModified == configLastModified) {
+            return;
         }
-        // 找到匹配的角色
-        SpaceUserRole role = SPACE_USER_AUTH_CONFIG.getRoles().stream()
-                .filter(r -> spaceUserRole.equals(r.getKey()))
-                .findFirst()
-                .orElse(null);
-        if (role == null) {
-            return new ArrayList<>();
+        try {
+            authTable = compile(FileUtil.readUtf8String(file));
+            log.info("空间权限配置已重新加载 {}", file.getAbsolutePath());
+        } catch (Exception e) {
+            log.error("空间权限配置不合法，继续使用旧配置 {}", file.getAbsolutePath(), e);
         }
-        return role.getPermissions();
+        configLastModified = lastModified;
+    }
+
+    private static SpaceUserAuthTable compile(String json) {
+        return SpaceUserAuthTable.compile(JSONUtil.toBean(json, SpaceUserAuthConfig.class));
+    }
+
+    /**
+     * 根据角色获取权限列表（只读）
+     */
+    public List<String> getPermissionsByRole(String spaceUserRole) {
+        return authTable.getPermissions(spaceUserRole);
+    }
+
+    /**
+     * 角色是否拥有某个权限
+     */
+    public boolean hasPermission(String spaceUserRole, String permission) {
+        return authTable.hasPermission(spaceUserRole, permission);
     }
+
+    /**
+     * 获取用户在空间中的权限列表（带缓存）
+     *
+     * @param space     空间，为空表示公共图库
+     * @param loginUser 登录用户
+     * @return 权限列表（只读）
+     */
     public List<String> getPermissionList(Space space, User loginUser) {
+        return getPermissionsByRole(getSpaceRole(space, loginUser));
+    }
+
+    /**
+     * 根据空间 id 获取用户在空间中的权限列表（带缓存，未命中时才查询空间）
+     *
+     * @param spaceId   空间 id
+     * @param loginUser 登录用户
+     * @return 权限列表（只读）
+     */
+    public List<String> getPermissionList(long spaceId, User loginUser) {
+        return getPermissionsByRole(getSpaceRole(spaceId, loginUser));
+    }
+
+    /**
+     * 用户在空间中是否拥有某个权限（带缓存）
+     *
+     * @param space      空间，为空表示公共图库
+     * @param loginUser  登录用户
+     * @param permission 权限键
+     */
+    public boolean hasPermission(Space space, User loginUser, String permission) {
+        return hasPermission(getSpaceRole(space, loginUser), permission);
+    }
+
+    /**
+     * 空间成员变化（添加、修改角色、移除）后调用
+     */
+    public void evictPermission(Long spaceId, Long userId) {
+        if (spaceId != null && userId != null) {
+            roleCache.invalidate(new RoleKey(userId, spaceId));
+            clusterEventBus.publish(EVICT_TOPIC, spaceId + "," + userId);
+        }
+    }
+
+    /**
+     * 空间删除后调用
+     */
+    public void evictSpace(Long spaceId) {
+        if (spaceId != null) {
+            evictSpaceLocal(spaceId);
+            clusterEventBus.publish(EVICT_TOPIC, String.valueOf(spaceId));
+        }
+    }
+
+    private void evictSpaceLocal(long spaceId) {
+        roleCache.asMap().keySet().removeIf(key -> key.spaceId() == spaceId);
+    }
+
+    /**
+     * 其他节点广播的失效消息
+     */
+    private void onEvictMessage(String message) {
+        try {
+            List<String> parts = StrUtil.split(message, ',');
+            long spaceId = Long.parseLong(parts.get(0));
+            if (parts.size() > 1) {
+                roleCache.invalidate(new RoleKey(Long.parseLong(parts.get(1)), spaceId));
+            } else {
+                evictSpaceLocal(spaceId);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("忽略格式错误的空间权限失效消息: {}", message);
+        }
+    }
+
+    private String getSpaceRole(Space space, User loginUser) {
         if (loginUser == null) {
-            return new ArrayList<>();
+            return NO_ROLE;
         }
-        // 管理员权限
-        List<String> ADMIN_PERMISSIONS = getPermissionsByRole(SpaceRoleEnum.ADMIN.getValue());
+        if (space == null) {
+            return resolveSpaceRole(null, loginUser);
+        }
+        return getCachedSpaceRole(space.getId(), loginUser, () -> space);
+    }
+
+    private String getSpaceRole(long spaceId, User loginUser) {
+        return getCachedSpaceRole(spaceId, loginUser, () -> {
+            Space space = spaceMapper.selectById(spaceId);
+            if (space == null) {
+                throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "未找到空间信息");
+            }
+            return space;
+        });
+    }
+
+    private String getCachedSpaceRole(long spaceId, User loginUser, Supplier<Space> spaceSupplier) {
+        RoleKey key = new RoleKey(loginUser.getId(), spaceId);
+        Map<RoleKey, String> requestCache = getRequestCache();
+        if (requestCache != null) {
+            String spaceRole = requestCache.get(key);
+            if (spaceRole != null) {
+                return spaceRole;
+            }
+        }
+        String spaceRole = roleCache.get(key, k -> resolveSpaceRole(spaceSupplier.get(), loginUser));
+        if (requestCache != null) {
+            requestCache.put(key, spaceRole);
+        }
+        return spaceRole;
+    }
+
+    /**
+     * 当前请求的角色缓存，不在请求线程中时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<RoleKey, String> getRequestCache() {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes == null) {
+            return null;
+        }
+        Object requestCache = requestAttributes.getAttribute(REQUEST_CACHE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (requestCache == null) {
+            requestCache = new HashMap<RoleKey, String>();
+            requestAttributes.setAttribute(REQUEST_CACHE_ATTRIBUTE, requestCache, RequestAttributes.SCOPE_REQUEST);
+        }
+        return (Map<RoleKey, String>) requestCache;
+    }
+
+    /**
+     * 计算用户在空间中的有效角色（不走缓存），没有权限时返回 NO_ROLE
+     */
+    private String resolveSpaceRole(Space space, User loginUser) {
+        // 管理员角色
+        String adminRole = SpaceRoleEnum.ADMIN.getValue();
         // 公共图库
         if (space == null) {
             if (userService.isAdmin(loginUser)) {
-                return ADMIN_PERMISSIONS;
+                return adminRole;
             }
-            return new ArrayList<>();
+            return NO_ROLE;
         }
         SpaceTypeEnum spaceTypeEnum = SpaceTypeEnum.getEnumByValue(space.getSpaceType());
         if (spaceTypeEnum == null) {
-            return new ArrayList<>();
+            return NO_ROLE;
         }
-        // 根据空间获取对应的权限
+        // 根据空间获取对应的角色
         switch (spaceTypeEnum) {
             case PRIVATE:
                 // 私有空间，仅本人或管理员有所有权限
                 if (space.getUserId().equals(loginUser.getId()) || userService.isAdmin(loginUser)) {
-                    return ADMIN_PERMISSIONS;
+                    return adminRole;
                 } else {
-                    return new ArrayList<>();
+                    return NO_ROLE;
                 }
             case TEAM:
-                // 团队空间，查询 SpaceUser 并获取角色和权限
+                // 团队空间，查询 SpaceUser 并获取角色
                 SpaceUser spaceUser = spaceUserService.lambdaQuery()
                         .eq(SpaceUser::getSpaceId, space.getId())
                         .eq(SpaceUser::getUserId, loginUser.getId())
                         .one();
                 if (spaceUser == null) {
-                    return new ArrayList<>();
+                    return NO_ROLE;
                 } else {
-                    return getPermissionsByRole(spaceUser.getSpaceRole());
+                    return StrUtil.nullToEmpty(spaceUser.getSpaceRole());
                 }
         }
-        return new ArrayList<>();
+        return NO_ROLE;
     }
 
+    private record RoleKey(long userId, long spaceId) {
+    }
 }
-
@@ -0,0 +1,110 @@
+package com.mangoyoo.yoopicbackend.model.auth;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+
+import java.util.*;
+
+/**
+ * 编译后的空间角色权限表（不可变，可在多线程间共享）
+ * <p>
+ * 每个权限对应 long 中的一位，角色对应所拥有权限的位掩码，权限判断只需一次哈希查找和一次位运算；
+ * 每个角色的权限列表也预先生成为只读列表，获取时不再遍历配置、不再分配新对象。
+ * 配置变化时重新编译一份新表整体替换，不修改旧表。
+ */
+public final class SpaceUserAuthTable {
+
+    private static final int MAX_PERMISSIONS = Long.SIZE;
+
+    private final Map<String, Long> permissionBits;
+
+    private final Map<String, Long> roleMasks;
+
+    private final Map<String, List<String>> rolePermissions;
+
+    private SpaceUserAuthTable(Map<String, Long> permissionBits, Map<String, Long> roleMasks,
+                               Map<String, List<String>> rolePermissions) {
+        this.permissionBits = permissionBits;
+        this.roleMasks = roleMasks;
+        this.rolePermissions = rolePermissions;
+    }
+
+    /**
+     * 编译权限配置，配置不合法时抛出 IllegalArgumentException
+     *
+     * @param authConfig 权限配置（spaceUserAuthConfig.json）
+     * @return 权限表
+     */
+    public static SpaceUserAuthTable compile(SpaceUserAuthConfig authConfig) {
+        if (authConfig == null || CollUtil.isEmpty(authConfig.getPermissions())) {
+            throw new IllegalArgumentException("权限配置为空");
+        }
+        List<SpaceUserPermission> permissions = authConfig.getPermissions();
+        if (permissions.size() > MAX_PERMISSIONS) {
+            throw new IllegalArgumentException("权限数量不能超过 " + MAX_PERMISSIONS);
+        }
+        Map<String, Long> permissionBits = new HashMap<>();
+        for (SpaceUserPermission permission : permissions) {
+            String key = permission.getKey();
+            if (StrUtil.isBlank(key) || permissionBits.containsKey(key)) {
+                throw new IllegalArgumentException("权限键为空或重复：" + key);
+            }
+            permissionBits.put(key, 1L << permissionBits.size());
+        }
+        Map<String, Long> roleMasks = new HashMap<>();
+        Map<String, List<String>> rolePermissions = new HashMap<>();
+        for (SpaceUserRole role : CollUtil.emptyIfNull(authConfig.getRoles())) {
+            String roleKey = role.getKey();
+            if (StrUtil.isBlank(roleKey) || roleMasks.containsKey(roleKey)) {
+                throw new IllegalArgumentException("角色键为空或重复：" + roleKey);
+            }
+            long mask = 0;
+            List<String> permissionList = new ArrayList<>();
+            for (String permissionKey : CollUtil.emptyIfNull(role.getPermissions())) {
+                Long bit = permissionBits.get(permissionKey);
+                if (bit == null) {
+                    throw new IllegalArgumentException("角色 " + roleKey + " 引用了未定义的权限：" + permissionKey);
+                }
+                if ((mask & bit) == 0) {
+                    mask |= bit;
+                    permissionList.add(permissionKey);
+                }
+            }
+            roleMasks.put(roleKey, mask);
+            rolePermissions.put(roleKey, List.copyOf(permissionList));
+        }
+        return new SpaceUserAuthTable(Map.copyOf(permissionBits), Map.copyOf(roleMasks), Map.copyOf(rolePermissions));
+    }
+
+    /**
+     * 角色是否拥有某个权限
+     */
+    public boolean hasPermission(String role, String permission) {
+        long mask = getRoleMask(role);
+        if (mask == 0 || permission == null) {
+            return false;
+        }
+        Long bit = permissionBits.get(permission);
+        return bit != null && (mask & bit) != 0;
+    }
+
+    /**
+     * 角色的权限位掩码，未知角色返回 0
+     */
+    public long getRoleMask(String role) {
+        if (role == null) {
+            return 0;
+        }
+        return roleMasks.getOrDefault(role, 0L);
+    }
+
+    /**
+     * 角色的权限列表（只读），未知角色返回空列表
+     */
+    public List<String> getPermissions(String role) {
+        if (role == null) {
+            return Collections.emptyList();
+        }
+        return rolePermissions.getOrDefault(role, Collections.emptyList());
+    }
+}
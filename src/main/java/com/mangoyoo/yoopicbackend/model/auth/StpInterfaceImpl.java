@@ -14,14 +14,11 @@ import com.mangoyoo.yoopicbackend.exception.BusinessException;
 import com.mangoyoo.yoopicbackend.exception.ErrorCode;
 import com.mangoyoo.yoopicbackend.model.constant.UserConstant;
 import com.mangoyoo.yoopicbackend.model.entity.Picture;
-import com.mangoyoo.yoopicbackend.model.entity.Space;
 import com.mangoyoo.yoopicbackend.model.entity.User;
 import com.mangoyoo.yoopicbackend.service.PictureService;
-import com.mangoyoo.yoopicbackend.service.SpaceService;
 import com.mangoyoo.yoopicbackend.service.SpaceUserService;
 import com.mangoyoo.yoopicbackend.service.UserService;
 import com.mangoyoo.yoopicbackend.enums.SpaceRoleEnum;
-import com.mangoyoo.yoopicbackend.enums.SpaceTypeEnum;
 import generator.domain.SpaceUser;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -39,15 +36,16 @@ import java.util.*;
 @Component    // 保证此类被 SpringBoot 扫描，完成 Sa-Token 的自定义权限验证扩展
 public class StpInterfaceImpl implements StpInterface {
 
+    private static final String AUTH_CONTEXT_ATTRIBUTE = StpInterfaceImpl.class.getName() + ".authContext";
+
+    private static final String PERMISSION_LIST_ATTRIBUTE = StpInterfaceImpl.class.getName() + ".permissionList.";
+
     @Value("${server.servlet.context-path}")
     private String contextPath;
 
     @Resource
     private UserService userService;
 
-    @Resource
-    private SpaceService spaceService;
-
     @Resource
     private SpaceUserService spaceUserService;
 
@@ -69,8 +67,20 @@ public class StpInterfaceImpl implements StpInterface {
         list.add("super-admin");
         return list;
     }
+    /**
+     * 从请求中解析权限上下文，同一个请求只解析一次请求体
+     */
     private SpaceUserAuthContext getAuthContextByRequest() {
         HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+        Object cachedContext = request.getAttribute(AUTH_CONTEXT_ATTRIBUTE);
+        if (cachedContext instanceof SpaceUserAuthContext spaceUserAuthContext) {
+            return spaceUserAuthContext;
+        }
+        SpaceUserAuthContext authRequest = parseAuthContext(request);
+        request.setAttribute(AUTH_CONTEXT_ATTRIBUTE, authRequest);
+        return authRequest;
+    }
+    private SpaceUserAuthContext parseAuthContext(HttpServletRequest request) {
         String contentType = request.getHeader(Header.CONTENT_TYPE.getValue());
         SpaceUserAuthContext authRequest;
         // 兼容 get 和 post 操作
@@ -102,11 +112,24 @@ public class StpInterfaceImpl implements StpInterface {
         }
         return authRequest;
     }
+    @SuppressWarnings("unchecked")
     public List<String> getPermissionList(Object loginId, String loginType) {
         // 判断 loginType，仅对类型为 "space" 进行权限校验
         if (!StpKit.SPACE_TYPE.equals(loginType)) {
             return new ArrayList<>();
         }
+        // 同一个请求内多次校验只计算一次
+        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+        String resultAttribute = PERMISSION_LIST_ATTRIBUTE + loginId;
+        Object cachedPermissionList = request.getAttribute(resultAttribute);
+        if (cachedPermissionList instanceof List) {
+            return (List<String>) cachedPermissionList;
+        }
+        List<String> permissionList = resolvePermissionList(loginId);
+        request.setAttribute(resultAttribute, permissionList);
+        return permissionList;
+    }
+    private List<String> resolvePermissionList(Object loginId) {
         // 管理员权限，表示权限校验通过
         List<String> ADMIN_PERMISSIONS = spaceUserAuthManager.getPermissionsByRole(SpaceRoleEnum.ADMIN.getValue());
         // 获取上下文对象
@@ -133,16 +156,8 @@ public class StpInterfaceImpl implements StpInterface {
             if (spaceUser == null) {
                 throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "未找到空间用户信息");
             }
-            // 取出当前登录用户对应的 spaceUser
-            SpaceUser loginSpaceUser = spaceUserService.lambdaQuery()
-                    .eq(SpaceUser::getSpaceId, spaceUser.getSpaceId())
-                    .eq(SpaceUser::getUserId, userId)
-                    .one();
-            if (loginSpaceUser == null) {
-                return new ArrayList<>();
-            }
-            // 这里会导致管理员在私有空间没有权限，可以再查一次库处理
-            return spaceUserAuthManager.getPermissionsByRole(loginSpaceUser.getSpaceRole());
+            // 取出当前登录用户在该空间的权限（带缓存）
+            return spaceUserAuthManager.getPermissionList(spaceUser.getSpaceId(), loginUser);
         }
         // 如果没有 spaceUserId，尝试通过 spaceId 或 pictureId 获取 Space 对象并处理
         Long spaceId = authContext.getSpaceId();
@@ -171,32 +186,10 @@ public class StpInterfaceImpl implements StpInterface {
                 }
             }
         }
-        // 获取 Space 对象
-        Space space = spaceService.getById(spaceId);
-        if (space == null) {
-            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "未找到空间信息");
-        }
-        // 根据 Space 类型判断权限
-        if (space.getSpaceType() == SpaceTypeEnum.PRIVATE.getValue()) {
-            // 私有空间，仅本人或管理员有权限
-            if (space.getUserId().equals(userId) || userService.isAdmin(loginUser)) {
-                return ADMIN_PERMISSIONS;
-            } else {
-                return new ArrayList<>();
-            }
-        } else {
-            // 团队空间，查询 SpaceUser 并获取角色和权限
-            spaceUser = spaceUserService.lambdaQuery()
-                    .eq(SpaceUser::getSpaceId, spaceId)
-                    .eq(SpaceUser::getUserId, userId)
-                    .one();
-            if (spaceUser == null) {
-                return new ArrayList<>();
-            }
-            return spaceUserAuthManager.getPermissionsByRole(spaceUser.getSpaceRole());
-        }
+        // 根据 Space 类型判断权限（私有空间仅本人或管理员有权限，团队空间按成员角色），按（用户，空间）缓存
+        return spaceUserAuthManager.getPermissionList(spaceId, loginUser);
     }
-    private boolean isAllFieldsNull(Object object) {
+    static boolean isAllFieldsNull(Object object) {
         if (object == null) {
             return true; // 对象本身为空
         }
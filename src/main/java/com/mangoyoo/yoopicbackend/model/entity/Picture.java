@@ -128,6 +128,11 @@ public class Picture implements Serializable {
      */
     private String picColor;
 
+    /**
+     * 图片感知哈希（缩略图的 64 位 dHash）
+     */
+    private Long picHash;
+
     @TableField(exist = false)
     private static final long serialVersionUID = 1L;
 }
\ No newline at end of file
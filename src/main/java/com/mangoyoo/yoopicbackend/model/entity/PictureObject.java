@@ -0,0 +1,96 @@
+package com.mangoyoo.yoopicbackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.Data;
+
+/**
+ * 图片存储对象（按内容去重后的对象存储文件，多张图片可以引用同一个对象）
+ * @TableName picture_object
+ */
+@TableName(value ="picture_object")
+@Data
+public class PictureObject implements Serializable {
+    /**
+     * id
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 原始文件内容的 SHA-256（十六进制）
+     */
+    private String contentHash;
+
+    /**
+     * 原始文件大小
+     */
+    private Long contentSize;
+
+    /**
+     * 压缩图 url
+     */
+    private String url;
+
+    /**
+     * 缩略图 url
+     */
+    private String thumbnailUrl;
+
+    /**
+     * 压缩图体积
+     */
+    private Long picSize;
+
+    /**
+     * 图片宽度
+     */
+    private Integer picWidth;
+
+    /**
+     * 图片高度
+     */
+    private Integer picHeight;
+
+    /**
+     * 图片宽高比例
+     */
+    private Double picScale;
+
+    /**
+     * 图片格式
+     */
+    private String picFormat;
+
+    /**
+     * 图片主色调
+     */
+    private String picColor;
+
+    /**
+     * 图片感知哈希
+     */
+    private Long picHash;
+
+    /**
+     * 引用计数（引用该对象的图片数），减到 0 时删除对象存储中的文件
+     */
+    private Integer refCount;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,51 @@
+package com.mangoyoo.yoopicbackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.Data;
+
+/**
+ * 图片标签（picture.tags 的拆分索引表）
+ * @TableName picture_tag
+ */
+@TableName(value ="picture_tag")
+@Data
+public class PictureTag implements Serializable {
+    /**
+     * id
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 图片 id
+     */
+    private Long pictureId;
+
+    /**
+     * 标签
+     */
+    private String tag;
+
+    /**
+     * 空间 id（为空表示公共空间）
+     */
+    private Long spaceId;
+
+    /**
+     * 图片审核状态，和 picture.reviewStatus 保持一致
+     */
+    private Integer reviewStatus;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
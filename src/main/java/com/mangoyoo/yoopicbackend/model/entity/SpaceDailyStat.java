@@ -0,0 +1,61 @@
+package com.mangoyoo.yoopicbackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.Data;
+
+/**
+ * 空间按天统计（空间分析的预聚合结果）
+ * @TableName space_daily_stat
+ */
+@TableName(value ="space_daily_stat")
+@Data
+public class SpaceDailyStat implements Serializable {
+    /**
+     * id
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 空间 id，公共图库为 0
+     */
+    private Long spaceKey;
+
+    /**
+     * 统计日期（图片创建日期）
+     */
+    private Date statDate;
+
+    /**
+     * 统计维度：category/tag/size/user
+     */
+    private String dimension;
+
+    /**
+     * 维度取值：分类、标签、大小区间或用户 id
+     */
+    private String dimKey;
+
+    /**
+     * 图片数量
+     */
+    private Long statCount;
+
+    /**
+     * 图片总大小
+     */
+    private Long totalSize;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,33 @@
+package com.mangoyoo.yoopicbackend.model.enums;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.Getter;
+
+@Getter
+public enum ColorMetricEnum {
+    RGB("RGB 欧氏距离", "rgb"),
+    LAB("CIELAB 色差（ΔE）", "lab");
+
+    private final String text;
+    private final String value;
+
+    ColorMetricEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举，为空或无法识别时使用默认的 RGB
+     */
+    public static ColorMetricEnum getEnumByValueOrDefault(String value) {
+        if (StrUtil.isBlank(value)) {
+            return RGB;
+        }
+        for (ColorMetricEnum colorMetricEnum : ColorMetricEnum.values()) {
+            if (colorMetricEnum.value.equalsIgnoreCase(value)) {
+                return colorMetricEnum;
+            }
+        }
+        return RGB;
+    }
+}
@@ -0,0 +1,31 @@
+package com.mangoyoo.yoopicbackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 游标分页结果（不返回总数）
+ */
+@Data
+public class CursorPageVO<T> implements Serializable {
+
+    /**
+     * 当前页数据
+     */
+    private List<T> records = new ArrayList<>();
+
+    /**
+     * 下一页游标，没有更多数据时为空
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有更多数据
+     */
+    private Boolean hasMore = false;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,44 @@
+package com.mangoyoo.yoopicbackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 批量抓取上传图片的进度
+ */
+@Data
+public class PictureBatchUploadProgressVO implements Serializable {
+
+    /**
+     * 阶段：parse-解析页面 upload-上传中 save-写入数据库 done-完成 error-失败
+     */
+    private String stage;
+
+    /**
+     * 当前处理的图片地址
+     */
+    private String fileUrl;
+
+    /**
+     * 目标数量
+     */
+    private Integer totalCount;
+
+    /**
+     * 已成功上传的数量
+     */
+    private Integer successCount;
+
+    /**
+     * 上传失败的数量
+     */
+    private Integer failCount;
+
+    /**
+     * 提示信息
+     */
+    private String message;
+
+    private static final long serialVersionUID = 1L;
+}
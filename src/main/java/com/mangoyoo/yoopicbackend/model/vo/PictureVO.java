@@ -2,8 +2,8 @@ package com.mangoyoo.yoopicbackend.model.vo;
 
 import cn.hutool.json.JSONUtil;
 import com.mangoyoo.yoopicbackend.model.entity.Picture;
+import com.mangoyoo.yoopicbackend.util.PictureTagUtils;
 import lombok.Data;
-import org.springframework.beans.BeanUtils;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -118,10 +118,27 @@ public class PictureVO implements Serializable {
         if (pictureVO == null) {
             return null;
         }
+        // 手动赋值，避免 BeanUtils 反射拷贝
         Picture picture = new Picture();
-        BeanUtils.copyProperties(pictureVO, picture);
+        picture.setId(pictureVO.getId());
+        picture.setUrl(pictureVO.getUrl());
+        picture.setThumbnailUrl(pictureVO.getThumbnailUrl());
+        picture.setName(pictureVO.getName());
+        picture.setIntroduction(pictureVO.getIntroduction());
         // 类型不同，需要转换
         picture.setTags(JSONUtil.toJsonStr(pictureVO.getTags()));
+        picture.setCategory(pictureVO.getCategory());
+        picture.setPicSize(pictureVO.getPicSize());
+        picture.setPicWidth(pictureVO.getPicWidth());
+        picture.setPicHeight(pictureVO.getPicHeight());
+        picture.setPicScale(pictureVO.getPicScale());
+        picture.setPicFormat(pictureVO.getPicFormat());
+        picture.setPicColor(pictureVO.getPicColor());
+        picture.setUserId(pictureVO.getUserId());
+        picture.setSpaceId(pictureVO.getSpaceId());
+        picture.setCreateTime(pictureVO.getCreateTime());
+        picture.setEditTime(pictureVO.getEditTime());
+        picture.setUpdateTime(pictureVO.getUpdateTime());
         return picture;
     }
 
@@ -132,10 +149,27 @@ public class PictureVO implements Serializable {
         if (picture == null) {
             return null;
         }
+        // 手动赋值，避免 BeanUtils 反射拷贝
         PictureVO pictureVO = new PictureVO();
-        BeanUtils.copyProperties(picture, pictureVO);
-        // 类型不同，需要转换
-        pictureVO.setTags(JSONUtil.toList(picture.getTags(), String.class));
+        pictureVO.setId(picture.getId());
+        pictureVO.setUrl(picture.getUrl());
+        pictureVO.setThumbnailUrl(picture.getThumbnailUrl());
+        pictureVO.setName(picture.getName());
+        pictureVO.setIntroduction(picture.getIntroduction());
+        // 类型不同，需要转换（解析结果有缓存，不可修改）
+        pictureVO.setTags(PictureTagUtils.parseTags(picture.getTags()));
+        pictureVO.setCategory(picture.getCategory());
+        pictureVO.setPicSize(picture.getPicSize());
+        pictureVO.setPicWidth(picture.getPicWidth());
+        pictureVO.setPicHeight(picture.getPicHeight());
+        pictureVO.setPicScale(picture.getPicScale());
+        pictureVO.setPicFormat(picture.getPicFormat());
+        pictureVO.setPicColor(picture.getPicColor());
+        pictureVO.setUserId(picture.getUserId());
+        pictureVO.setSpaceId(picture.getSpaceId());
+        pictureVO.setCreateTime(picture.getCreateTime());
+        pictureVO.setEditTime(picture.getEditTime());
+        pictureVO.setUpdateTime(picture.getUpdateTime());
         return pictureVO;
     }
 }
@@ -2,7 +2,6 @@ package com.mangoyoo.yoopicbackend.model.vo;
 
 import com.mangoyoo.yoopicbackend.model.entity.Space;
 import lombok.Data;
-import org.springframework.beans.BeanUtils;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -92,7 +91,18 @@ public class SpaceVO implements Serializable {
             return null;
         }
         Space space = new Space();
-        BeanUtils.copyProperties(spaceVO, space);
+        space.setId(spaceVO.getId());
+        space.setSpaceName(spaceVO.getSpaceName());
+        space.setSpaceLevel(spaceVO.getSpaceLevel());
+        space.setSpaceType(spaceVO.getSpaceType());
+        space.setMaxSize(spaceVO.getMaxSize());
+        space.setMaxCount(spaceVO.getMaxCount());
+        space.setTotalSize(spaceVO.getTotalSize());
+        space.setTotalCount(spaceVO.getTotalCount());
+        space.setUserId(spaceVO.getUserId());
+        space.setCreateTime(spaceVO.getCreateTime());
+        space.setEditTime(spaceVO.getEditTime());
+        space.setUpdateTime(spaceVO.getUpdateTime());
         return space;
     }
 
@@ -107,7 +117,18 @@ public class SpaceVO implements Serializable {
             return null;
         }
         SpaceVO spaceVO = new SpaceVO();
-        BeanUtils.copyProperties(space, spaceVO);
+        spaceVO.setId(space.getId());
+        spaceVO.setSpaceName(space.getSpaceName());
+        spaceVO.setSpaceLevel(space.getSpaceLevel());
+        spaceVO.setSpaceType(space.getSpaceType());
+        spaceVO.setMaxSize(space.getMaxSize());
+        spaceVO.setMaxCount(space.getMaxCount());
+        spaceVO.setTotalSize(space.getTotalSize());
+        spaceVO.setTotalCount(space.getTotalCount());
+        spaceVO.setUserId(space.getUserId());
+        spaceVO.setCreateTime(space.getCreateTime());
+        spaceVO.setEditTime(space.getEditTime());
+        spaceVO.setUpdateTime(space.getUpdateTime());
         return spaceVO;
     }
 }
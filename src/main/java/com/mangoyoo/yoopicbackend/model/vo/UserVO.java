@@ -1,5 +1,6 @@
 package com.mangoyoo.yoopicbackend.model.vo;
 
+import com.mangoyoo.yoopicbackend.model.entity.User;
 import lombok.Data;
 
 import java.io.Serializable;
@@ -44,4 +45,25 @@ public class UserVO implements Serializable {
     private Date createTime;
 
     private static final long serialVersionUID = 1L;
+
+    /**
+     * 对象转封装类
+     *
+     * @param user
+     * @return
+     */
+    public static UserVO objToVo(User user) {
+        if (user == null) {
+            return null;
+        }
+        UserVO userVO = new UserVO();
+        userVO.setId(user.getId());
+        userVO.setUserAccount(user.getUserAccount());
+        userVO.setUserName(user.getUserName());
+        userVO.setUserAvatar(user.getUserAvatar());
+        userVO.setUserProfile(user.getUserProfile());
+        userVO.setUserRole(user.getUserRole());
+        userVO.setCreateTime(user.getCreateTime());
+        return userVO;
+    }
 }
@@ -7,12 +7,15 @@ import com.mangoyoo.yoopicbackend.dto.picture.*;
 import com.mangoyoo.yoopicbackend.model.entity.Picture;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.mangoyoo.yoopicbackend.model.entity.User;
+import com.mangoyoo.yoopicbackend.model.vo.CursorPageVO;
+import com.mangoyoo.yoopicbackend.model.vo.PictureBatchUploadProgressVO;
 import com.mangoyoo.yoopicbackend.model.vo.PictureVO;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.Map;
 
 /**
@@ -37,6 +40,24 @@ public interface PictureService extends IService<Picture> {
 
     Page<PictureVO> getPictureVOPage(Page<Picture> picturePage, HttpServletRequest request);
 
+    /**
+     * 全文搜索图片（按相关度排序），搜索索引未就绪时回退到数据库查询
+     *
+     * @param pictureQueryRequest 查询条件，searchText 不能为空
+     * @param request
+     * @return 分页结果
+     */
+    Page<PictureVO> searchPictureVOByText(PictureQueryRequest pictureQueryRequest, HttpServletRequest request);
+
+    /**
+     * 游标分页获取图片封装（不查询总数，按 排序字段 + id 定位下一页）
+     *
+     * @param pictureQueryByCursorRequest 查询条件
+     * @param request
+     * @return 当前页数据和下一页游标
+     */
+    CursorPageVO<PictureVO> listPictureVOByCursor(PictureQueryByCursorRequest pictureQueryByCursorRequest, HttpServletRequest request);
+
     void validPicture(Picture picture);
     /**
      * 图片审核
@@ -59,6 +80,20 @@ public interface PictureService extends IService<Picture> {
             User loginUser
     );
 
+    /**
+     * 批量抓取和创建图片，并回调上传进度
+     *
+     * @param pictureUploadByBatchRequest
+     * @param loginUser
+     * @param progressListener 进度回调
+     * @return 成功创建的图片数
+     */
+    Integer uploadPictureByBatch(
+            PictureUploadByBatchRequest pictureUploadByBatchRequest,
+            User loginUser,
+            Consumer<PictureBatchUploadProgressVO> progressListener
+    );
+
 
     @Async
     void clearPictureFile(Picture oldPicture);
@@ -69,7 +104,26 @@ public interface PictureService extends IService<Picture> {
 
     void editPicture(PictureEditRequest pictureEditRequest, User loginUser);
 
-    List<PictureVO> searchPictureByColor(Long spaceId, String picColor, User loginUser);
+    /**
+     * 按颜色搜索空间内的图片
+     *
+     * @param spaceId   空间 id
+     * @param picColor  目标颜色
+     * @param metric    颜色距离：rgb（默认）/ lab
+     * @param loginUser 登录用户
+     * @return 最相近的 12 张图片
+     */
+    List<PictureVO> searchPictureByColor(Long spaceId, String picColor, String metric, User loginUser);
+
+    /**
+     * 在图片所在的空间（或公共图库）中搜索相似图片（基于本地感知哈希索引）
+     *
+     * @param pictureId   图片 id
+     * @param maxDistance 最大汉明距离，为空时使用默认值
+     * @param loginUser   登录用户
+     * @return 按相似度从高到低排列的图片
+     */
+    List<PictureVO> searchPictureBySimilarity(Long pictureId, Integer maxDistance, User loginUser);
 
     @Transactional(rollbackFor = Exception.class)
     void editPictureByBatch(PictureEditByBatchRequest pictureEditByBatchRequest, User loginUser);
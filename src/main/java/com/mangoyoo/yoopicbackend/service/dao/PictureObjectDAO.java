@@ -0,0 +1,114 @@
+package com.mangoyoo.yoopicbackend.service.dao;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.mangoyoo.yoopicbackend.mapper.PictureObjectMapper;
+import com.mangoyoo.yoopicbackend.model.entity.PictureObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+/**
+ * 图片存储对象表操作（按内容去重 + 引用计数）
+ * <p>
+ * 上传时先按内容摘要查找已有对象，命中则引用计数加一并复用；图片删除或被替换时引用计数减一，
+ * 减到 0 的对象由调用方删除对象存储中的文件。引用计数只在大于 0 时才能增加，
+ * 避免复用一个正在被删除的对象。
+ */
+@Slf4j
+@Service
+public class PictureObjectDAO extends ServiceImpl<PictureObjectMapper, PictureObject> {
+
+    /**
+     * 释放引用的结果
+     */
+    public enum ReleaseResult {
+        /**
+         * 该 url 不是去重上传的对象（历史数据），由调用方自行判断能否删除
+         */
+        NOT_TRACKED,
+        /**
+         * 仍有其他图片引用，不能删除文件
+         */
+        REFERENCED,
+        /**
+         * 已无引用，记录已删除，调用方应删除文件
+         */
+        RELEASED
+    }
+
+    /**
+     * 按内容查找已有对象，找到则引用计数加一
+     *
+     * @param contentHash 内容摘要
+     * @param contentSize 内容大小
+     * @return 已有对象，不存在时返回 null
+     */
+    public PictureObject acquire(String contentHash, long contentSize) {
+        UpdateWrapper<PictureObject> updateWrapper = new UpdateWrapper<>();
+        updateWrapper.eq("contentHash", contentHash)
+                .eq("contentSize", contentSize)
+                .gt("refCount", 0)
+                .setSql("refCount = refCount + 1");
+        if (!this.update(updateWrapper)) {
+            return null;
+        }
+        QueryWrapper<PictureObject> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("contentHash", contentHash).eq("contentSize", contentSize);
+        return this.getOne(queryWrapper);
+    }
+
+    /**
+     * 登记新上传的对象（引用计数为 1）
+     * <p>
+     * 并发上传相同内容时只有一个能登记成功，其余的会改为引用已登记的对象，
+     * 此时返回值的 url 与传入的不同，调用方应删除自己刚上传的文件。
+     *
+     * @param pictureObject 新上传的对象
+     * @return 最终使用的对象；无法登记时（同内容的旧对象正在被删除）返回 null，调用方直接使用自己上传的文件
+     */
+    public PictureObject register(PictureObject pictureObject) {
+        pictureObject.setRefCount(1);
+        try {
+            this.save(pictureObject);
+            return pictureObject;
+        } catch (DuplicateKeyException e) {
+            PictureObject existObject = acquire(pictureObject.getContentHash(), pictureObject.getContentSize());
+            if (existObject == null) {
+                log.warn("图片对象登记失败，将不参与去重, url = {}", pictureObject.getUrl());
+            }
+            return existObject;
+        }
+    }
+
+    /**
+     * 释放一个引用
+     *
+     * @param url 图片 url
+     * @return 释放结果
+     */
+    public ReleaseResult release(String url) {
+        if (StrUtil.isBlank(url)) {
+            return ReleaseResult.NOT_TRACKED;
+        }
+        PictureObject pictureObject = this.lambdaQuery()
+                .select(PictureObject::getId)
+                .eq(PictureObject::getUrl, url)
+                .last("LIMIT 1")
+                .one();
+        if (pictureObject == null) {
+            return ReleaseResult.NOT_TRACKED;
+        }
+        UpdateWrapper<PictureObject> updateWrapper = new UpdateWrapper<>();
+        updateWrapper.eq("id", pictureObject.getId())
+                .gt("refCount", 0)
+                .setSql("refCount = refCount - 1");
+        this.update(updateWrapper);
+        // 只有引用计数为 0 时才能删除成功，并发释放时只有一个调用方会拿到 RELEASED
+        QueryWrapper<PictureObject> removeWrapper = new QueryWrapper<>();
+        removeWrapper.eq("id", pictureObject.getId()).eq("refCount", 0);
+        return this.remove(removeWrapper) ? ReleaseResult.RELEASED : ReleaseResult.REFERENCED;
+    }
+}
@@ -0,0 +1,185 @@
+package com.mangoyoo.yoopicbackend.service.dao;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.mangoyoo.yoopicbackend.exception.ErrorCode;
+import com.mangoyoo.yoopicbackend.exception.ThrowUtils;
+import com.mangoyoo.yoopicbackend.mapper.PictureMapper;
+import com.mangoyoo.yoopicbackend.mapper.PictureTagMapper;
+import com.mangoyoo.yoopicbackend.model.entity.Picture;
+import com.mangoyoo.yoopicbackend.model.entity.PictureTag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.Resource;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 图片标签索引表操作，picture.tags 每次变更都要同步到 picture_tag
+ */
+@Slf4j
+@Service
+public class PictureTagDAO extends ServiceImpl<PictureTagMapper, PictureTag> {
+
+    /**
+     * 按单个标签过滤图片的条件（走 picture_tag 的 tag 索引），用于 QueryWrapper.apply
+     */
+    public static final String TAG_FILTER_SQL = "id IN (SELECT pictureId FROM picture_tag WHERE tag = {0})";
+
+    /**
+     * 单个标签的最大长度，与 picture_tag.tag 的 varchar(128) 一致
+     */
+    public static final int MAX_TAG_LENGTH = 128;
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 同步单张图片的标签
+     *
+     * @param pictureId    图片 id
+     * @param tags         标签 JSON 字符串
+     * @param spaceId      空间 id
+     * @param reviewStatus 审核状态
+     */
+    public void syncPictureTags(Long pictureId, String tags, Long spaceId, Integer reviewStatus) {
+        Picture picture = new Picture();
+        picture.setId(pictureId);
+        picture.setTags(tags);
+        picture.setSpaceId(spaceId);
+        picture.setReviewStatus(reviewStatus);
+        syncPictureTags(Collections.singletonList(picture));
+    }
+
+    /**
+     * 批量同步图片的标签（先删后插），图片需要包含 id、tags、spaceId、reviewStatus
+     */
+    public void syncPictureTags(List<Picture> pictureList) {
+        if (CollUtil.isEmpty(pictureList)) {
+            return;
+        }
+        List<Long> pictureIdList = pictureList.stream().map(Picture::getId).collect(Collectors.toList());
+        this.removeByPictureIds(pictureIdList);
+        List<PictureTag> pictureTagList = new ArrayList<>();
+        for (Picture picture : pictureList) {
+            for (String tag : parseTags(picture.getTags())) {
+                PictureTag pictureTag = new PictureTag();
+                pictureTag.setPictureId(picture.getId());
+                pictureTag.setTag(tag);
+                pictureTag.setSpaceId(picture.getSpaceId());
+                pictureTag.setReviewStatus(picture.getReviewStatus());
+                pictureTagList.add(pictureTag);
+            }
+        }
+        if (!pictureTagList.isEmpty()) {
+            this.saveBatch(pictureTagList);
+        }
+    }
+
+    /**
+     * 同步图片的审核状态
+     */
+    public void updateReviewStatus(Long pictureId, Integer reviewStatus) {
+        this.lambdaUpdate()
+                .eq(PictureTag::getPictureId, pictureId)
+                .set(PictureTag::getReviewStatus, reviewStatus)
+                .update();
+    }
+
+    /**
+     * 删除图片对应的标签
+     */
+    public void removeByPictureIds(Collection<Long> pictureIdList) {
+        if (CollUtil.isEmpty(pictureIdList)) {
+            return;
+        }
+        this.lambdaUpdate().in(PictureTag::getPictureId, pictureIdList).remove();
+    }
+
+    /**
+     * 根据 picture 表全量回填 picture_tag，按 id 分批处理，可重复执行
+     *
+     * @return 处理的图片数量
+     */
+    public long backfillPictureTags() {
+        long lastId = 0;
+        long total = 0;
+        while (true) {
+            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "tags", "spaceId", "reviewStatus")
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("LIMIT " + BACKFILL_BATCH_SIZE);
+            List<Picture> pictureList = pictureMapper.selectList(queryWrapper);
+            if (pictureList.isEmpty()) {
+                break;
+            }
+            transactionTemplate.executeWithoutResult(status -> this.syncPictureTags(pictureList));
+            total += pictureList.size();
+            lastId = pictureList.get(pictureList.size() - 1).getId();
+            log.info("picture_tag 回填进度：已处理 {} 张图片，当前 id = {}", total, lastId);
+        }
+        return total;
+    }
+
+    /**
+     * 解析标签 JSON，去除首尾空白、空标签和重复标签（空间统计也按同样的规则计数）
+     * <p>
+     * picture_tag 使用 utf8mb4_unicode_ci 排序规则，不区分大小写和重音，"Cat" 和 "cat" 会违反唯一索引，
+     * 因此按 {@link #normalizeTag(String)} 的结果去重，保留第一次出现的写法。超长的标签无法入库，直接忽略。
+     */
+    public static Set<String> parseTags(String tags) {
+        if (StrUtil.isBlank(tags) || !JSONUtil.isTypeJSONArray(tags)) {
+            return Collections.emptySet();
+        }
+        Map<String, String> tagMap = new LinkedHashMap<>();
+        for (String tag : JSONUtil.toList(tags, String.class)) {
+            if (StrUtil.isBlank(tag)) {
+                continue;
+            }
+            String trimmedTag = tag.trim();
+            if (trimmedTag.length() > MAX_TAG_LENGTH) {
+                continue;
+            }
+            tagMap.putIfAbsent(normalizeTag(trimmedTag), trimmedTag);
+        }
+        return new LinkedHashSet<>(tagMap.values());
+    }
+
+    /**
+     * 标签的比较键：去除首尾空白、转小写、去除重音符号，与数据库排序规则的比较结果保持一致
+     */
+    public static String normalizeTag(String tag) {
+        String lowerCaseTag = tag.trim().toLowerCase(Locale.ROOT);
+        return COMBINING_MARKS.matcher(Normalizer.normalize(lowerCaseTag, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    /**
+     * 校验标签长度
+     *
+     * @param tags 标签列表
+     */
+    public static void validTags(Collection<String> tags) {
+        if (CollUtil.isEmpty(tags)) {
+            return;
+        }
+        for (String tag : tags) {
+            ThrowUtils.throwIf(tag != null && tag.trim().length() > MAX_TAG_LENGTH, ErrorCode.PARAMS_ERROR,
+                    "标签长度不能超过 " + MAX_TAG_LENGTH);
+        }
+    }
+}
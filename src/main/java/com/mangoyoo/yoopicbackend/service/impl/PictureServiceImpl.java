@@ -1,6 +1,7 @@
 package com.mangoyoo.yoopicbackend.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.codec.Base64;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.StrUtil;
@@ -10,6 +11,16 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.mangoyoo.yoopicbackend.dto.picture.*;
+import com.mangoyoo.yoopicbackend.manager.cache.PictureListCacheManager;
+import com.mangoyoo.yoopicbackend.manager.upload.BatchPictureUploader;
+import com.mangoyoo.yoopicbackend.manager.cache.UserVOCacheManager;
+import com.mangoyoo.yoopicbackend.manager.color.PictureColorIndexManager;
+import com.mangoyoo.yoopicbackend.manager.similar.PictureHashIndexManager;
+import com.mangoyoo.yoopicbackend.manager.search.PictureSearchIndex;
+import com.mangoyoo.yoopicbackend.manager.search.PictureSearchManager;
+import com.mangoyoo.yoopicbackend.manager.quota.SpaceQuotaManager;
+import com.mangoyoo.yoopicbackend.manager.quota.SpaceQuotaReservation;
+import com.mangoyoo.yoopicbackend.manager.stat.SpaceStatManager;
 import com.mangoyoo.yoopicbackend.manager.upload.PictureUploadTemplate;
 import com.mangoyoo.yoopicbackend.model.vo.UserVO;
 import com.mangoyoo.yoopicbackend.service.PictureService;
@@ -26,18 +37,20 @@ import com.mangoyoo.yoopicbackend.manager.upload.UrlPictureUpload;
 import com.mangoyoo.yoopicbackend.model.entity.Picture;
 import com.mangoyoo.yoopicbackend.model.entity.Space;
 import com.mangoyoo.yoopicbackend.model.entity.User;
+import com.mangoyoo.yoopicbackend.model.enums.ColorMetricEnum;
 import com.mangoyoo.yoopicbackend.model.enums.PictureReviewStatusEnum;
+import com.mangoyoo.yoopicbackend.model.vo.CursorPageVO;
+import com.mangoyoo.yoopicbackend.model.vo.PictureBatchUploadProgressVO;
 import com.mangoyoo.yoopicbackend.model.vo.PictureVO;
 import com.mangoyoo.yoopicbackend.mapper.PictureMapper;
 import com.mangoyoo.yoopicbackend.service.SpaceService;
+import com.mangoyoo.yoopicbackend.service.dao.PictureObjectDAO;
+import com.mangoyoo.yoopicbackend.service.dao.PictureTagDAO;
 import com.mangoyoo.yoopicbackend.util.ColorSimilarUtils;
 import com.mangoyoo.yoopicbackend.util.ColorTransformUtils;
+import com.mangoyoo.yoopicbackend.util.PictureHashUtils;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import org.springframework.beans.BeanUtils;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -48,10 +61,11 @@ import java.awt.*;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import com.mangoyoo.yoopicbackend.exception.BusinessException;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
 
 /**
 * @author 67622
@@ -64,6 +78,23 @@ import org.springframework.transaction.support.TransactionTemplate;
 public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         implements PictureService {
 
+    /**
+     * 游标分页支持的排序字段（必须非空，且和 id 一起能命中索引）
+     */
+    private static final Set<String> CURSOR_SORT_FIELDS = Set.of("createTime", "editTime", "id");
+
+    private static final String CURSOR_SEPARATOR = ",";
+
+    /**
+     * 搜索索引最多取多少个候选图片（列表查询超过该数量时直接走 LIKE）
+     */
+    private static final int MAX_SEARCH_CANDIDATES = 1000;
+
+    /**
+     * 以图搜图最多返回的图片数
+     */
+    private static final int MAX_SIMILAR_RESULTS = 20;
+
     @Resource
     private FilePictureUpload filePictureUpload;
 
@@ -79,6 +110,26 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
     private TransactionTemplate transactionTemplate;
     @Resource
     private AliYunAiApi aliYunAiApi;
+    @Resource
+    private PictureListCacheManager pictureListCacheManager;
+    @Resource
+    private PictureTagDAO pictureTagDAO;
+    @Resource
+    private PictureObjectDAO pictureObjectDAO;
+    @Resource
+    private PictureSearchManager pictureSearchManager;
+    @Resource
+    private PictureColorIndexManager pictureColorIndexManager;
+    @Resource
+    private PictureHashIndexManager pictureHashIndexManager;
+    @Resource
+    private UserVOCacheManager userVOCacheManager;
+    @Resource
+    private BatchPictureUploader batchPictureUploader;
+    @Resource
+    private SpaceQuotaManager spaceQuotaManager;
+    @Resource
+    private SpaceStatManager spaceStatManager;
     @Override
     public PictureVO uploadPicture(Object inputSource, PictureUploadRequest pictureUploadRequest, User loginUser) {
         // 校验参数
@@ -93,22 +144,19 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 //            if (!loginUser.getId().equals(space.getUserId())) {
 //                throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间权限");
 //            }
-            // 校验额度
-            if (space.getTotalCount() >= space.getMaxCount()) {
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间条数不足");
-            }
-            if (space.getTotalSize() >= space.getMaxSize()) {
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间大小不足");
-            }
         }
         // 判断是新增还是删除
         Long pictureId = null;
         if (pictureUploadRequest != null) {
             pictureId = pictureUploadRequest.getId();
         }
+        if (pictureUploadRequest != null) {
+            PictureTagDAO.validTags(pictureUploadRequest.getTags());
+        }
         // 如果是更新，判断图片是否存在
+        Picture oldPicture = null;
         if (pictureId != null) {
-            Picture oldPicture = this.getById(pictureId);
+            oldPicture = this.getById(pictureId);
             ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
             // 改为使用统一的权限校验
 //            // 仅本人或管理员可编辑图片
@@ -143,7 +191,47 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         if (inputSource instanceof String) {
             pictureUploadTemplate = urlPictureUpload;
         }
-        UploadPictureResult uploadPictureResult = pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix);
+        // 原子预占空间额度（更新图片不占用条数），上传或入库失败时释放
+        // 本地文件上传前就知道大小，先预占，额度不足时不必上传
+        long quotaCount = oldPicture == null ? 1 : 0;
+        SpaceQuotaReservation quotaReservation = null;
+        if (spaceId != null && inputSource instanceof MultipartFile multipartFile) {
+            quotaReservation = spaceQuotaManager.reserve(spaceId, quotaCount, multipartFile.getSize());
+        }
+        UploadPictureResult uploadPictureResult;
+        Long picHash;
+        try {
+            uploadPictureResult = pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix);
+            // 拒绝与空间中已有图片几乎相同的图片
+            picHash = uploadPictureResult.getPicHash();
+            if (picHash != null) {
+                Long duplicatePictureId = pictureHashIndexManager.findNearDuplicate(spaceId, picHash, pictureId);
+                if (duplicatePictureId != null) {
+                    releaseUploadedFile(uploadPictureResult);
+                    // 只向图片的上传者透露图片 id，其他用户的待审核或私有图片不能暴露
+                    Picture duplicatePicture = this.lambdaQuery()
+                            .select(Picture::getUserId)
+                            .eq(Picture::getId, duplicatePictureId)
+                            .one();
+                    if (duplicatePicture != null && loginUser.getId().equals(duplicatePicture.getUserId())) {
+                        throw new BusinessException(ErrorCode.OPERATION_ERROR, "已存在相同的图片（id = " + duplicatePictureId + "）");
+                    }
+                    throw new BusinessException(ErrorCode.OPERATION_ERROR, "已存在相同的图片");
+                }
+            }
+            // URL 图片下载前不知道大小，处理完成后按实际存储的大小预占
+            if (spaceId != null && quotaReservation == null) {
+                try {
+                    quotaReservation = spaceQuotaManager.reserve(spaceId, quotaCount, uploadPictureResult.getPicSize());
+                } catch (RuntimeException e) {
+                    releaseUploadedFile(uploadPictureResult);
+                    throw e;
+                }
+            }
+        } catch (RuntimeException e) {
+            spaceQuotaManager.release(quotaReservation);
+            throw e;
+        }
         // 构造要入库的图片信息
         Picture picture = new Picture();
         picture.setSpaceId(spaceId); // 指定空间 id
@@ -165,6 +253,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 //        picture.setPicColor(uploadPictureResult.getPicColor());
         // 转换为标准颜色
         picture.setPicColor(ColorTransformUtils.getStandardColor(uploadPictureResult.getPicColor()));
+        picture.setPicHash(picHash);
         picture.setUserId(loginUser.getId());
         // 补充审核参数
         this.fillReviewParams(picture, loginUser);
@@ -177,23 +266,46 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         }
         // 开启事务
         Long finalSpaceId = spaceId;
-        transactionTemplate.execute(status -> {
-            // 插入数据
-            boolean result = this.saveOrUpdate(picture);
-            ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片上传失败，数据库操作失败");
-            if (finalSpaceId != null) {
-                // 更新空间的使用额度
-                boolean update = spaceService.lambdaUpdate()
-                        .eq(Space::getId, finalSpaceId)
-                        .setSql("totalSize = totalSize + " + picture.getPicSize())
-                        .setSql("totalCount = totalCount + 1")
-                        .update();
-                ThrowUtils.throwIf(!update, ErrorCode.OPERATION_ERROR, "额度更新失败");
-            }
-            return picture;
-        });
-        // 可自行实现，如果是更新，可以清理图片资源
-        // this.clearPictureFile(oldPicture);
+        try {
+            transactionTemplate.execute(status -> {
+                // 插入数据
+                boolean result = this.saveOrUpdate(picture);
+                ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片上传失败，数据库操作失败");
+                // 同步标签索引
+                pictureTagDAO.syncPictureTags(picture.getId(), picture.getTags(), finalSpaceId, picture.getReviewStatus());
+                return picture;
+            });
+        } catch (RuntimeException e) {
+            // 上传时已增加了对象的引用计数，入库失败要释放
+            releaseUploadedFile(uploadPictureResult);
+            spaceQuotaManager.release(quotaReservation);
+            throw e;
+        }
+        // 提交空间额度（更新图片只计算大小的变化），由额度管理器批量写回 space 表
+        if (quotaReservation != null) {
+            long oldPicSize = oldPicture == null ? 0 : ObjUtil.defaultIfNull(oldPicture.getPicSize(), 0L);
+            spaceQuotaManager.commit(quotaReservation, quotaCount, picture.getPicSize() - oldPicSize);
+        }
+        if (oldPicture == null) {
+            spaceStatManager.onPictureAdded(picture);
+        } else {
+            spaceStatManager.onPictureUpdated(oldPicture, picture);
+        }
+        pictureSearchManager.refresh(picture.getId());
+        pictureColorIndexManager.refresh(picture.getId());
+        pictureHashIndexManager.refresh(picture.getId());
+        // 上传时没能计算指纹的图片（如 webp 格式）在后台根据缩略图补算
+        if (picHash == null) {
+            pictureHashIndexManager.fillPicHashAsync(Collections.singletonList(picture.getId()));
+        }
+        // 公共图库的图片发生变化，清理列表缓存
+        if (finalSpaceId == null) {
+            pictureListCacheManager.invalidateAll();
+        }
+        // 如果是更新，释放原图片文件的引用
+        if (oldPicture != null) {
+            this.clearPictureFile(oldPicture);
+        }
         return PictureVO.objToVo(picture);
     }
 
@@ -229,7 +341,16 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         boolean nullSpaceId = pictureQueryRequest.isNullSpaceId();
         // 从多字段中搜索
         if (StrUtil.isNotBlank(searchText)) {
-            // 需要拼接查询条件
+            // 内存倒排索引能给出完整的候选集时先按 id 缩小范围，是否匹配仍以 LIKE 为准，排序和分页不受影响
+            List<Long> candidateIds = pictureSearchManager.findLikeCandidates(searchText, spaceId, nullSpaceId, reviewStatus,
+                    MAX_SEARCH_CANDIDATES);
+            if (candidateIds != null) {
+                if (candidateIds.isEmpty()) {
+                    queryWrapper.apply("1 = 0");
+                } else {
+                    queryWrapper.in("id", candidateIds);
+                }
+            }
             queryWrapper.and(qw -> qw.like("name", searchText)
                     .or()
                     .like("introduction", searchText)
@@ -252,10 +373,10 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         queryWrapper.isNull(nullSpaceId, "spaceId");
         queryWrapper.ge(ObjUtil.isNotEmpty(startEditTime), "editTime", startEditTime);
         queryWrapper.lt(ObjUtil.isNotEmpty(endEditTime), "editTime", endEditTime);
-// JSON 数组查询
+        // 标签查询走 picture_tag 索引表
         if (CollUtil.isNotEmpty(tags)) {
             for (String tag : tags) {
-                queryWrapper.like("tags", "\"" + tag + "\"");
+                queryWrapper.apply(PictureTagDAO.TAG_FILTER_SQL, tag);
             }
         }
 
@@ -269,12 +390,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         // 对象转封装类
         PictureVO pictureVO = PictureVO.objToVo(picture);
         // 关联查询用户信息
-        Long userId = picture.getUserId();
-        if (userId != null && userId > 0) {
-            User user = userService.getById(userId);
-            UserVO userVO = userService.getUserVO(user);
-            pictureVO.setUser(userVO);
-        }
+        pictureVO.setUser(userVOCacheManager.get(picture.getUserId()));
         return pictureVO;
     }
     /**
@@ -291,20 +407,121 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         List<PictureVO> pictureVOList = pictureList.stream().map(PictureVO::objToVo).collect(Collectors.toList());
         // 1. 关联查询用户信息
         Set<Long> userIdSet = pictureList.stream().map(Picture::getUserId).collect(Collectors.toSet());
-        Map<Long, List<User>> userIdUserListMap = userService.listByIds(userIdSet).stream()
-                .collect(Collectors.groupingBy(User::getId));
+        Map<Long, UserVO> userIdUserVOMap = userVOCacheManager.getAll(userIdSet);
         // 2. 填充信息
-        pictureVOList.forEach(pictureVO -> {
-            Long userId = pictureVO.getUserId();
-            User user = null;
-            if (userIdUserListMap.containsKey(userId)) {
-                user = userIdUserListMap.get(userId).get(0);
-            }
-            pictureVO.setUser(userService.getUserVO(user));
-        });
+        pictureVOList.forEach(pictureVO -> pictureVO.setUser(userIdUserVOMap.get(pictureVO.getUserId())));
         pictureVOPage.setRecords(pictureVOList);
         return pictureVOPage;
     }
+    @Override
+    public Page<PictureVO> searchPictureVOByText(PictureQueryRequest pictureQueryRequest, HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureQueryRequest == null || StrUtil.isBlank(pictureQueryRequest.getSearchText()),
+                ErrorCode.PARAMS_ERROR, "搜索词不能为空");
+        long current = pictureQueryRequest.getCurrent();
+        long size = pictureQueryRequest.getPageSize();
+        if (!pictureSearchManager.isReady()) {
+            // 索引未就绪，回退到数据库查询
+            Page<Picture> picturePage = this.page(new Page<>(current, size), this.getQueryWrapper(pictureQueryRequest));
+            return this.getPictureVOPage(picturePage, request);
+        }
+        // 1. 从索引中取出排名在当前页及之前的图片 id
+        int limit = (int) Math.min(current * size, MAX_SEARCH_CANDIDATES);
+        PictureSearchIndex.SearchHits searchHits = pictureSearchManager.search(pictureQueryRequest.getSearchText(),
+                pictureQueryRequest.getSpaceId(), pictureQueryRequest.isNullSpaceId(), pictureQueryRequest.getReviewStatus(), limit);
+        List<Long> rankedIds = searchHits.getPictureIds();
+        Page<Picture> picturePage = new Page<>(current, size, Math.min(searchHits.getTotal(), MAX_SEARCH_CANDIDATES));
+        int fromIndex = (int) Math.min((current - 1) * size, rankedIds.size());
+        List<Long> pageIds = rankedIds.subList(fromIndex, rankedIds.size());
+        if (pageIds.isEmpty()) {
+            return this.getPictureVOPage(picturePage, request);
+        }
+        // 2. 一次批量查询补全图片信息，并按相关度顺序排列
+        Map<Long, Picture> pictureMap = this.listByIds(pageIds).stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+        List<Picture> pictureList = pageIds.stream()
+                .map(pictureMap::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        picturePage.setRecords(pictureList);
+        return this.getPictureVOPage(picturePage, request);
+    }
+
+    @Override
+    public CursorPageVO<PictureVO> listPictureVOByCursor(PictureQueryByCursorRequest pictureQueryByCursorRequest, HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureQueryByCursorRequest == null, ErrorCode.PARAMS_ERROR);
+        int size = pictureQueryByCursorRequest.getPageSize();
+        ThrowUtils.throwIf(size <= 0, ErrorCode.PARAMS_ERROR);
+        String sortField = StrUtil.blankToDefault(pictureQueryByCursorRequest.getSortField(), "createTime");
+        ThrowUtils.throwIf(!CURSOR_SORT_FIELDS.contains(sortField), ErrorCode.PARAMS_ERROR, "不支持的排序字段");
+        boolean ascend = "ascend".equals(pictureQueryByCursorRequest.getSortOrder());
+        // 排序由游标逻辑统一拼接，不使用 getQueryWrapper 中的排序
+        pictureQueryByCursorRequest.setSortField(null);
+        QueryWrapper<Picture> queryWrapper = this.getQueryWrapper(pictureQueryByCursorRequest);
+        // 解析游标，拼接定位条件：(sortField, id) 严格位于上一页最后一条之后
+        String cursor = pictureQueryByCursorRequest.getCursor();
+        if (StrUtil.isNotBlank(cursor)) {
+            String[] cursorParts = parseCursor(cursor, sortField, ascend);
+            long lastId = Long.parseLong(cursorParts[3]);
+            if ("id".equals(sortField)) {
+                queryWrapper.gt(ascend, "id", lastId).lt(!ascend, "id", lastId);
+            } else {
+                Date lastValue = new Date(Long.parseLong(cursorParts[2]));
+                queryWrapper.and(qw -> qw.gt(ascend, sortField, lastValue).lt(!ascend, sortField, lastValue)
+                        .or(subQw -> subQw.eq(sortField, lastValue)
+                                .gt(ascend, "id", lastId).lt(!ascend, "id", lastId)));
+            }
+        }
+        if (!"id".equals(sortField)) {
+            queryWrapper.orderBy(true, ascend, sortField);
+        }
+        queryWrapper.orderBy(true, ascend, "id");
+        // 多查一条用于判断是否还有下一页，不查询总数
+        Page<Picture> picturePage = this.page(new Page<>(1, size + 1, false), queryWrapper);
+        List<Picture> pictureList = picturePage.getRecords();
+        CursorPageVO<PictureVO> cursorPageVO = new CursorPageVO<>();
+        boolean hasMore = pictureList.size() > size;
+        if (hasMore) {
+            pictureList = new ArrayList<>(pictureList.subList(0, size));
+            Picture lastPicture = pictureList.get(size - 1);
+            cursorPageVO.setNextCursor(buildCursor(lastPicture, sortField, ascend));
+        }
+        cursorPageVO.setHasMore(hasMore);
+        picturePage.setRecords(pictureList);
+        cursorPageVO.setRecords(this.getPictureVOPage(picturePage, request).getRecords());
+        return cursorPageVO;
+    }
+
+    /**
+     * 游标格式：排序字段,排序方向,排序字段值,id（Base64 编码，对前端不透明）
+     */
+    private String buildCursor(Picture lastPicture, String sortField, boolean ascend) {
+        long sortValue;
+        switch (sortField) {
+            case "createTime" -> sortValue = lastPicture.getCreateTime().getTime();
+            case "editTime" -> sortValue = lastPicture.getEditTime().getTime();
+            default -> sortValue = lastPicture.getId();
+        }
+        String rawCursor = String.join(CURSOR_SEPARATOR, sortField, ascend ? "1" : "0",
+                String.valueOf(sortValue), String.valueOf(lastPicture.getId()));
+        return Base64.encodeUrlSafe(rawCursor);
+    }
+
+    private String[] parseCursor(String cursor, String sortField, boolean ascend) {
+        String[] cursorParts;
+        try {
+            cursorParts = Base64.decodeStr(cursor).split(CURSOR_SEPARATOR);
+            ThrowUtils.throwIf(cursorParts.length != 4, ErrorCode.PARAMS_ERROR, "游标格式错误");
+            Long.parseLong(cursorParts[2]);
+            Long.parseLong(cursorParts[3]);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标格式错误");
+        }
+        // 游标必须和本次查询的排序方式一致，否则定位条件没有意义
+        ThrowUtils.throwIf(!sortField.equals(cursorParts[0]) || !(ascend ? "1" : "0").equals(cursorParts[1]),
+                ErrorCode.PARAMS_ERROR, "游标与排序条件不匹配");
+        return cursorParts;
+    }
+
     @Override
     public void validPicture(Picture picture) {
         ThrowUtils.throwIf(picture == null, ErrorCode.PARAMS_ERROR);
@@ -320,6 +537,10 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         if (StrUtil.isNotBlank(introduction)) {
             ThrowUtils.throwIf(introduction.length() > 800, ErrorCode.PARAMS_ERROR, "简介过长");
         }
+        String tags = picture.getTags();
+        if (StrUtil.isNotBlank(tags) && JSONUtil.isTypeJSONArray(tags)) {
+            PictureTagDAO.validTags(JSONUtil.toList(tags, String.class));
+        }
     }
     @Override
     public void doPictureReview(PictureReviewRequest pictureReviewRequest, User loginUser) {
@@ -343,6 +564,13 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         updatePicture.setReviewTime(new Date());
         boolean result = this.updateById(updatePicture);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        pictureTagDAO.updateReviewStatus(id, reviewStatus);
+        pictureSearchManager.refresh(id);
+        pictureColorIndexManager.refresh(id);
+        pictureHashIndexManager.refresh(id);
+        if (oldPicture.getSpaceId() == null) {
+            pictureListCacheManager.invalidateAll();
+        }
     }
     @Override
     public void fillReviewParams(Picture picture, User loginUser) {
@@ -359,112 +587,228 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
     }
     @Override
     public Integer uploadPictureByBatch(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser) {
+        return uploadPictureByBatch(pictureUploadByBatchRequest, loginUser, progress -> {
+        });
+    }
+
+    @Override
+    public Integer uploadPictureByBatch(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser,
+                                        Consumer<PictureBatchUploadProgressVO> progressListener) {
+        ThrowUtils.throwIf(pictureUploadByBatchRequest == null, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
         String searchText = pictureUploadByBatchRequest.getSearchText();
+        ThrowUtils.throwIf(StrUtil.isBlank(searchText), ErrorCode.PARAMS_ERROR, "搜索词不能为空");
         String namePrefix = pictureUploadByBatchRequest.getNamePrefix();
         if (StrUtil.isBlank(namePrefix)) {
             namePrefix = searchText;
         }
         // 格式化数量
         Integer count = pictureUploadByBatchRequest.getCount();
+        ThrowUtils.throwIf(count == null || count <= 0, ErrorCode.PARAMS_ERROR, "数量错误");
         ThrowUtils.throwIf(count > 30, ErrorCode.PARAMS_ERROR, "最多 30 条");
-        // 要抓取的地址
-        String fetchUrl = String.format("https://cn.bing.com/images/async?q=%s&mmasync=1", searchText);
-        Document document;
+        PictureTagDAO.validTags(pictureUploadByBatchRequest.getTags());
+        Long spaceId = pictureUploadByBatchRequest.getSpaceId();
+        // 1. 空间已满时直接失败；入库前按每张图片的实际大小逐张预占，额度用完为止
+        if (spaceId != null) {
+            spaceQuotaManager.checkAvailable(spaceId);
+        }
+        List<SpaceQuotaReservation> quotaReservations = new ArrayList<>();
         try {
-            document = Jsoup.connect(fetchUrl).get();
-        } catch (IOException e) {
-            log.error("获取页面失败", e);
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取页面失败");
-        }
-        Element div = document.getElementsByClass("dgControl").first();
-        if (ObjUtil.isNull(div)) {
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取元素失败");
-        }
-// 修改选择器，获取class="iusc"的a标签
-        Elements linkElements = div.select("a.iusc");
-        int uploadCount = 0;
-        for (Element linkElement : linkElements) {
-            try {
-                // 获取m属性中的JSON数据
-                String mAttr = linkElement.attr("m");
-                if (StrUtil.isBlank(mAttr)) {
-                    log.info("当前元素m属性为空，已跳过");
-                    continue;
-                }
+            return savePictureBatch(pictureUploadByBatchRequest, loginUser, spaceId, namePrefix, count,
+                    quotaReservations, progressListener);
+        } finally {
+            // 未提交（失败或没有图片入库）时释放预占的额度
+            quotaReservations.forEach(spaceQuotaManager::release);
+        }
+    }
 
-                // 解析JSON获取murl(原始图片URL)
-                JSONObject jsonObject = JSONUtil.parseObj(mAttr);
-                String fileUrl = jsonObject.getStr("murl");
+    /**
+     * 批量抓取、上传并入库
+     */
+    private int savePictureBatch(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser, Long spaceId,
+                                 String namePrefix, int count, List<SpaceQuotaReservation> quotaReservations,
+                                 Consumer<PictureBatchUploadProgressVO> progressListener) {
+        String searchText = pictureUploadByBatchRequest.getSearchText();
+        String uploadPathPrefix = spaceId == null
+                ? String.format("public/%s", loginUser.getId())
+                : String.format("space/%s", spaceId);
+        // 2. 解析页面得到候选图片地址
+        progressListener.accept(buildBatchProgress("parse", count, 0, 0, "正在解析页面"));
+        List<String> fileUrls = batchPictureUploader.fetchPictureUrls(searchText);
+        // 3. 并发校验、下载并上传到对象存储
+        List<BatchPictureUploader.UploadedPicture> uploadedList =
+                batchPictureUploader.uploadAll(fileUrls, count, uploadPathPrefix, progressListener);
+        if (uploadedList.isEmpty()) {
+            return 0;
+        }
+        // 4. 一次性批量入库
+        // 上传时已增加了对象的引用计数，没有入库的图片都要释放
+        List<UploadPictureResult> unsavedResults = uploadedList.stream()
+                .map(BatchPictureUploader.UploadedPicture::getUploadPictureResult)
+                .collect(Collectors.toCollection(ArrayList::new));
+        try {
+            return savePictureList(pictureUploadByBatchRequest, loginUser, spaceId, namePrefix, count, quotaReservations,
+                    uploadedList, unsavedResults, progressListener);
+        } catch (RuntimeException e) {
+            unsavedResults.forEach(this::releaseUploadedFile);
+            throw e;
+        }
+    }
 
-                if (StrUtil.isBlank(fileUrl)) {
-                    log.info("无法获取原始图片URL，已跳过");
+    /**
+     * 过滤重复图片、逐张预占额度后批量入库（额度用完后剩余的图片不再入库），释放的或入库成功的图片从 unsavedResults 中移除
+     */
+    private int savePictureList(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser, Long spaceId,
+                                String namePrefix, int count, List<SpaceQuotaReservation> quotaReservations,
+                                List<BatchPictureUploader.UploadedPicture> uploadedList, List<UploadPictureResult> unsavedResults,
+                                Consumer<PictureBatchUploadProgressVO> progressListener) {
+        progressListener.accept(buildBatchProgress("save", count, uploadedList.size(), 0, "正在保存"));
+        List<Picture> pictureList = new ArrayList<>(uploadedList.size());
+        List<Long> batchHashes = new ArrayList<>(uploadedList.size());
+        boolean quotaExhausted = false;
+        for (BatchPictureUploader.UploadedPicture uploadedPicture : uploadedList) {
+            UploadPictureResult uploadPictureResult = uploadedPicture.getUploadPictureResult();
+            // 额度已用完，或与空间中已有图片、本批次其他图片几乎相同，都不入库
+            if (quotaExhausted || isNearDuplicateInBatch(spaceId, uploadPictureResult.getPicHash(), batchHashes)) {
+                log.info("跳过图片, fileUrl = {}, quotaExhausted = {}", uploadedPicture.getFileUrl(), quotaExhausted);
+                unsavedResults.remove(uploadPictureResult);
+                releaseUploadedFile(uploadPictureResult);
+                continue;
+            }
+            if (spaceId != null) {
+                SpaceQuotaReservation quotaReservation = spaceQuotaManager.tryReserve(spaceId, 1, uploadPictureResult.getPicSize());
+                if (quotaReservation == null) {
+                    quotaExhausted = true;
+                    log.info("空间额度已用完, spaceId = {}, fileUrl = {}", spaceId, uploadedPicture.getFileUrl());
+                    unsavedResults.remove(uploadPictureResult);
+                    releaseUploadedFile(uploadPictureResult);
                     continue;
                 }
+                quotaReservations.add(quotaReservation);
+            }
+            Picture picture = new Picture();
+            picture.setSpaceId(spaceId);
+            picture.setUrl(uploadPictureResult.getUrl());
+            picture.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
+            // 图片名称，序号连续递增
+            picture.setName(namePrefix + (pictureList.size() + 1));
+            picture.setCategory(pictureUploadByBatchRequest.getCategory());
+            picture.setTags(JSONUtil.toJsonStr(pictureUploadByBatchRequest.getTags()));
+            picture.setPicSize(uploadPictureResult.getPicSize());
+            picture.setPicWidth(uploadPictureResult.getPicWidth());
+            picture.setPicHeight(uploadPictureResult.getPicHeight());
+            picture.setPicScale(uploadPictureResult.getPicScale());
+            picture.setPicFormat(uploadPictureResult.getPicFormat());
+            picture.setPicColor(ColorTransformUtils.getStandardColor(uploadPictureResult.getPicColor()));
+            picture.setPicHash(uploadPictureResult.getPicHash());
+            picture.setUserId(loginUser.getId());
+            this.fillReviewParams(picture, loginUser);
+            pictureList.add(picture);
+        }
+        if (pictureList.isEmpty()) {
+            progressListener.accept(buildBatchProgress("done", count, 0, uploadedList.size(),
+                    quotaExhausted ? "空间额度不足" : "没有新的图片"));
+            return 0;
+        }
+        transactionTemplate.execute(status -> {
+            boolean result = this.saveBatch(pictureList);
+            ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片上传失败，数据库操作失败");
+            // 同步标签索引
+            pictureTagDAO.syncPictureTags(pictureList);
+            return true;
+        });
+        unsavedResults.clear();
+        // 提交空间额度，每张图片按实际大小预占，提交时不需要修正
+        for (SpaceQuotaReservation quotaReservation : quotaReservations) {
+            spaceQuotaManager.commit(quotaReservation, quotaReservation.getCount(), quotaReservation.getSize());
+        }
+        spaceStatManager.onPictureAdded(pictureList);
+        List<Long> pictureIdList = pictureList.stream().map(Picture::getId).collect(Collectors.toList());
+        pictureSearchManager.refresh(pictureIdList);
+        pictureColorIndexManager.refresh(pictureIdList);
+        pictureHashIndexManager.refresh(pictureIdList);
+        pictureHashIndexManager.fillPicHashAsync(pictureList.stream()
+                .filter(picture -> picture.getPicHash() == null)
+                .map(Picture::getId)
+                .collect(Collectors.toList()));
+        // 公共图库的图片发生变化，清理列表缓存
+        if (spaceId == null) {
+            pictureListCacheManager.invalidateAll();
+        }
+        progressListener.accept(buildBatchProgress("done", count, pictureList.size(), 0, "上传完成"));
+        return pictureList.size();
+    }
 
-                log.info("获取到的图片地址是：" + fileUrl);
-
-                // 处理图片上传地址，防止出现转义问题
-                int questionMarkIndex = fileUrl.indexOf("?");
-                if (questionMarkIndex > -1) {
-                    fileUrl = fileUrl.substring(0, questionMarkIndex);
-                    log.info("处理后的图片地址是：" + fileUrl);
-                }
-
-                // 上传图片
-                PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
-                if (StrUtil.isNotBlank(namePrefix)) {
-                    // 设置图片名称，序号连续递增
-                    pictureUploadRequest.setPicName(namePrefix + (uploadCount + 1));
-                    pictureUploadRequest.setSpaceId(pictureUploadByBatchRequest.getSpaceId());
-                    pictureUploadRequest.setCategory(pictureUploadByBatchRequest.getCategory());
-                    pictureUploadRequest.setTags(pictureUploadByBatchRequest.getTags());
-                }
-
-                PictureVO pictureVO = this.uploadPicture(fileUrl, pictureUploadRequest, loginUser);
-                log.info("图片上传成功, id = {}", pictureVO.getId());
-                uploadCount++;
-
-                if (uploadCount >= count) {
-                    break;
-                }
-            } catch (Exception e) {
-                log.error("图片处理或上传失败", e);
-                continue;
+    /**
+     * 判断批量上传的图片是否与空间中已有图片或本批次之前的图片几乎相同，不重复时记录其指纹
+     */
+    private boolean isNearDuplicateInBatch(Long spaceId, Long picHash, List<Long> batchHashes) {
+        if (picHash == null) {
+            return false;
+        }
+        if (pictureHashIndexManager.findNearDuplicate(spaceId, picHash, null) != null) {
+            return true;
+        }
+        for (Long batchHash : batchHashes) {
+            if (PictureHashUtils.hammingDistance(picHash, batchHash) <= PictureHashIndexManager.NEAR_DUPLICATE_DISTANCE) {
+                return true;
             }
         }
-        return uploadCount;
+        batchHashes.add(picHash);
+        return false;
+    }
+
+    /**
+     * 释放已上传但不入库的图片文件
+     */
+    private void releaseUploadedFile(UploadPictureResult uploadPictureResult) {
+        Picture uploadedPicture = new Picture();
+        uploadedPicture.setUrl(uploadPictureResult.getUrl());
+        uploadedPicture.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
+        try {
+            this.clearPictureFile(uploadedPicture);
+        } catch (Exception e) {
+            log.warn("清理未入库的图片文件失败, url = {}", uploadPictureResult.getUrl(), e);
+        }
+    }
 
+    private static PictureBatchUploadProgressVO buildBatchProgress(String stage, int totalCount, int successCount, int failCount, String message) {
+        PictureBatchUploadProgressVO progress = new PictureBatchUploadProgressVO();
+        progress.setStage(stage);
+        progress.setTotalCount(totalCount);
+        progress.setSuccessCount(successCount);
+        progress.setFailCount(failCount);
+        progress.setMessage(message);
+        return progress;
     }
+
     @Async
     @Override
     public void clearPictureFile(Picture oldPicture) {
-        // 判断该图片是否被多条记录使用
         String pictureUrl = oldPicture.getUrl();
-        long count = this.lambdaQuery()
-                .eq(Picture::getUrl, pictureUrl)
-                .count();
-        // 有不止一条记录用到了该图片，不清理
-        if (count > 1) {
+        // 按内容去重上传的图片由引用计数决定是否清理
+        PictureObjectDAO.ReleaseResult releaseResult = pictureObjectDAO.release(pictureUrl);
+        if (releaseResult == PictureObjectDAO.ReleaseResult.REFERENCED) {
             return;
         }
-        log.info(oldPicture.getUrl() + " oldPicture的URL");
-
+        if (releaseResult == PictureObjectDAO.ReleaseResult.NOT_TRACKED) {
+            // 历史图片没有引用计数，判断该图片是否被多条记录使用
+            long count = this.lambdaQuery()
+                    .eq(Picture::getUrl, pictureUrl)
+                    .count();
+            // 有记录用到了该图片，不清理
+            if (count > 0) {
+                return;
+            }
+        }
         // 从完整URL中提取对象Key（不含域名部分）
-        String url = oldPicture.getUrl();
-        // 方法1：提取域名后的部分作为对象Key
-        String objectKey = url.substring(url.indexOf(".com/") + 5);
-        // 或方法2：使用正则表达式匹配域名后的路径
-        // String objectKey = url.replaceAll("^https?://[^/]+/", "");
-
-        log.info("提取的对象Key: " + objectKey);
-        // 使用正确的对象Key删除文件
+        String objectKey = cosManager.getObjectKey(pictureUrl);
+        log.info("清理图片文件, objectKey = {}", objectKey);
         cosManager.deleteObject(objectKey);
-
-
         // 清理缩略图
         String thumbnailUrl = oldPicture.getThumbnailUrl();
         if (StrUtil.isNotBlank(thumbnailUrl)) {
-            cosManager.deleteObject(thumbnailUrl);
+            cosManager.deleteObject(cosManager.getObjectKey(thumbnailUrl));
         }
     }
 //    @Override
@@ -495,18 +839,20 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
             // 操作数据库
             boolean result = this.removeById(pictureId);
             ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
-            // 释放额度
-            Long spaceId = oldPicture.getSpaceId();
-            if (spaceId != null) {
-                boolean update = spaceService.lambdaUpdate()
-                        .eq(Space::getId, spaceId)
-                        .setSql("totalSize = totalSize - " + oldPicture.getPicSize())
-                        .setSql("totalCount = totalCount - 1")
-                        .update();
-                ThrowUtils.throwIf(!update, ErrorCode.OPERATION_ERROR, "额度更新失败");
-            }
+            pictureTagDAO.removeByPictureIds(Collections.singletonList(pictureId));
             return true;
         });
+        // 释放额度
+        if (oldPicture.getSpaceId() != null) {
+            spaceQuotaManager.applyDelta(oldPicture.getSpaceId(), -1, -ObjUtil.defaultIfNull(oldPicture.getPicSize(), 0L));
+        }
+        spaceStatManager.onPictureDeleted(oldPicture);
+        pictureSearchManager.refresh(pictureId);
+        pictureColorIndexManager.refresh(pictureId);
+        pictureHashIndexManager.refresh(pictureId);
+        if (oldPicture.getSpaceId() == null) {
+            pictureListCacheManager.invalidateAll();
+        }
         // 异步清理文件
         this.clearPictureFile(oldPicture);
     }
@@ -530,11 +876,23 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         // 补充审核参数
         this.fillReviewParams(picture, loginUser);
         // 操作数据库
-        boolean result = this.updateById(picture);
-        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        transactionTemplate.execute(status -> {
+            boolean result = this.updateById(picture);
+            ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+            // 同步标签索引
+            pictureTagDAO.syncPictureTags(id, picture.getTags(), oldPicture.getSpaceId(), picture.getReviewStatus());
+            return true;
+        });
+        spaceStatManager.onPictureUpdated(oldPicture, picture);
+        pictureSearchManager.refresh(id);
+        pictureColorIndexManager.refresh(id);
+        pictureHashIndexManager.refresh(id);
+        if (oldPicture.getSpaceId() == null) {
+            pictureListCacheManager.invalidateAll();
+        }
     }
     @Override
-    public List<PictureVO> searchPictureByColor(Long spaceId, String picColor, User loginUser) {
+    public List<PictureVO> searchPictureByColor(Long spaceId, String picColor, String metric, User loginUser) {
         // 1. 校验参数
         ThrowUtils.throwIf(spaceId == null || StrUtil.isBlank(picColor), ErrorCode.PARAMS_ERROR);
         ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
@@ -544,8 +902,21 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         if (!loginUser.getId().equals(space.getUserId())) {
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间访问权限");
         }
-        // 3. 查询该空间下所有图片（必须有主色调）
+        ColorMetricEnum colorMetricEnum = ColorMetricEnum.getEnumByValueOrDefault(metric);
+        int targetRgb;
+        try {
+            targetRgb = ColorSimilarUtils.parseRgb(picColor);
+        } catch (NumberFormatException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "颜色格式错误");
+        }
+        // 3. 优先走颜色索引，只查询最相近的 12 张图片
+        if (pictureColorIndexManager.isReady()) {
+            List<Long> pictureIds = pictureColorIndexManager.nearest(spaceId, picColor, 12, colorMetricEnum);
+            return listPictureVOInOrder(pictureIds);
+        }
+        // 4. 索引未就绪，查询该空间下所有图片（必须有主色调），只取需要的字段
         List<Picture> pictureList = this.lambdaQuery()
+                .select(Picture::getId, Picture::getPicColor)
                 .eq(Picture::getSpaceId, spaceId)
                 .isNotNull(Picture::getPicColor)
                 .list();
@@ -553,32 +924,105 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         if (CollUtil.isEmpty(pictureList)) {
             return Collections.emptyList();
         }
-        // 将目标颜色转为 Color 对象
-        Color targetColor = Color.decode(picColor);
-        // 4. 计算相似度并排序
-        List<Picture> sortedPictures = pictureList.stream()
-                .sorted(Comparator.comparingDouble(picture -> {
-                    // 提取图片主色调
-                    String hexColor = picture.getPicColor();
-                    // 没有主色调的图片放到最后
-                    if (StrUtil.isBlank(hexColor)) {
-                        return Double.MAX_VALUE;
-                    }
-                    Color pictureColor = Color.decode(hexColor);
-                    // 越大越相似
-                    return -ColorSimilarUtils.calculateSimilarity(targetColor, pictureColor);
-                }))
-                // 取前 12 个
+        // 5. 计算相似度并排序，取前 12 个（RGB 距离走批量计算）
+        if (colorMetricEnum == ColorMetricEnum.RGB) {
+            List<Long> candidateIds = new ArrayList<>(pictureList.size());
+            int[] packedColors = new int[pictureList.size()];
+            for (Picture picture : pictureList) {
+                try {
+                    packedColors[candidateIds.size()] = ColorSimilarUtils.parseRgb(picture.getPicColor());
+                    candidateIds.add(picture.getId());
+                } catch (NumberFormatException e) {
+                    log.warn("处理图片颜色失败: {}", picture.getPicColor(), e);
+                }
+            }
+            int[] topIndexes = ColorSimilarUtils.topKSimilar(targetRgb,
+                    Arrays.copyOf(packedColors, candidateIds.size()), 12);
+            List<Long> sortedIds = new ArrayList<>(topIndexes.length);
+            for (int index : topIndexes) {
+                sortedIds.add(candidateIds.get(index));
+            }
+            return listPictureVOInOrder(sortedIds);
+        }
+        List<Long> sortedIds = pictureList.stream()
+                .sorted(Comparator.comparingDouble(picture -> labDistance(targetRgb, picture.getPicColor())))
                 .limit(12)
+                .map(Picture::getId)
+                .collect(Collectors.toList());
+        return listPictureVOInOrder(sortedIds);
+    }
+
+    /**
+     * 计算 Lab 色差，越小越相似，无法解析的颜色排到最后
+     */
+    private static double labDistance(int targetRgb, String hexColor) {
+        if (StrUtil.isBlank(hexColor)) {
+            return Double.MAX_VALUE;
+        }
+        try {
+            return ColorSimilarUtils.calculateDeltaE(new Color(targetRgb), Color.decode(hexColor));
+        } catch (NumberFormatException e) {
+            return Double.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public List<PictureVO> searchPictureBySimilarity(Long pictureId, Integer maxDistance, User loginUser) {
+        // 1. 校验参数（空间权限由接口上的空间权限注解校验）
+        ThrowUtils.throwIf(pictureId == null || pictureId <= 0, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        int distance = maxDistance == null ? PictureHashIndexManager.DEFAULT_SIMILAR_DISTANCE : maxDistance;
+        ThrowUtils.throwIf(distance < 0 || distance > PictureHashIndexManager.MAX_SIMILAR_DISTANCE,
+                ErrorCode.PARAMS_ERROR, "相似度范围错误");
+        Picture picture = this.getById(pictureId);
+        ThrowUtils.throwIf(picture == null, ErrorCode.NOT_FOUND_ERROR);
+        // 2. 历史图片可能还没有指纹，临时计算
+        Long picHash = picture.getPicHash();
+        if (picHash == null) {
+            picHash = pictureHashIndexManager.computeHash(picture.getThumbnailUrl());
+            ThrowUtils.throwIf(picHash == null, ErrorCode.OPERATION_ERROR, "图片指纹计算失败");
+        }
+        Long spaceId = picture.getSpaceId();
+        // 3. 优先走指纹索引
+        if (pictureHashIndexManager.isReady()) {
+            return listPictureVOInOrder(pictureHashIndexManager.searchSimilar(spaceId, picHash, distance,
+                    MAX_SIMILAR_RESULTS, pictureId));
+        }
+        // 4. 索引未就绪，查询同一空间内所有带指纹的图片，逐个比较
+        List<Picture> pictureList = this.lambdaQuery()
+                .select(Picture::getId, Picture::getPicHash)
+                .eq(spaceId != null, Picture::getSpaceId, spaceId)
+                .isNull(spaceId == null, Picture::getSpaceId)
+                .eq(spaceId == null, Picture::getReviewStatus, PictureReviewStatusEnum.PASS.getValue())
+                .isNotNull(Picture::getPicHash)
+                .ne(Picture::getId, pictureId)
+                .list();
+        long targetHash = picHash;
+        List<Long> sortedIds = pictureList.stream()
+                .filter(candidate -> PictureHashUtils.hammingDistance(targetHash, candidate.getPicHash()) <= distance)
+                .sorted(Comparator.comparingInt(candidate -> PictureHashUtils.hammingDistance(targetHash, candidate.getPicHash())))
+                .limit(MAX_SIMILAR_RESULTS)
+                .map(Picture::getId)
                 .collect(Collectors.toList());
+        return listPictureVOInOrder(sortedIds);
+    }
 
-        // 转换为 PictureVO
-        return sortedPictures.stream()
+    /**
+     * 按给定 id 顺序批量查询图片并转换为封装类
+     */
+    private List<PictureVO> listPictureVOInOrder(List<Long> pictureIds) {
+        if (CollUtil.isEmpty(pictureIds)) {
+            return Collections.emptyList();
+        }
+        Map<Long, Picture> pictureMap = this.listByIds(pictureIds).stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+        return pictureIds.stream()
+                .map(pictureMap::get)
+                .filter(Objects::nonNull)
                 .map(PictureVO::objToVo)
                 .collect(Collectors.toList());
     }
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void editPictureByBatch(PictureEditByBatchRequest pictureEditByBatchRequest, User loginUser) {
         List<Long> pictureIdList = pictureEditByBatchRequest.getPictureIdList();
         Long spaceId = pictureEditByBatchRequest.getSpaceId();
@@ -588,6 +1032,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         // 1. 校验参数
         ThrowUtils.throwIf(spaceId == null || CollUtil.isEmpty(pictureIdList), ErrorCode.PARAMS_ERROR);
         ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        PictureTagDAO.validTags(tags);
         // 2. 校验空间权限
         Space space = spaceService.getById(spaceId);
         ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
@@ -595,9 +1040,10 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间访问权限");
         }
 
-        // 3. 查询指定图片，仅选择需要的字段
+        // 3. 查询指定图片，仅选择需要的字段（包括空间统计用到的字段）
         List<Picture> pictureList = this.lambdaQuery()
-                .select(Picture::getId, Picture::getSpaceId)
+                .select(Picture::getId, Picture::getSpaceId, Picture::getReviewStatus, Picture::getUserId,
+                        Picture::getCategory, Picture::getTags, Picture::getPicSize, Picture::getCreateTime)
                 .eq(Picture::getSpaceId, spaceId)
                 .in(Picture::getId, pictureIdList)
                 .list();
@@ -605,6 +1051,9 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         if (pictureList.isEmpty()) {
             return;
         }
+        List<Picture> oldPictureList = pictureList.stream()
+                .map(picture -> BeanUtil.copyProperties(picture, Picture.class))
+                .collect(Collectors.toList());
         // 4. 更新分类和标签
         pictureList.forEach(picture -> {
             if (StrUtil.isNotBlank(category)) {
@@ -615,9 +1064,18 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
             }
         });
 
-        // 5. 批量更新
-        boolean result = this.updateBatchById(pictureList);
-        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 5. 批量更新并同步标签索引
+        transactionTemplate.execute(status -> {
+            boolean result = this.updateBatchById(pictureList);
+            ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+            if (CollUtil.isNotEmpty(tags)) {
+                pictureTagDAO.syncPictureTags(pictureList);
+            }
+            return true;
+        });
+        // 6. 事务提交后再更新统计和搜索索引
+        spaceStatManager.onPictureUpdated(oldPictureList, pictureList);
+        pictureSearchManager.refresh(pictureList.stream().map(Picture::getId).collect(Collectors.toList()));
     }
     @Override
     public CreateOutPaintingTaskResponse createPictureOutPaintingTask(CreatePictureOutPaintingTaskRequest createPictureOutPaintingTaskRequest, User loginUser) {
@@ -738,10 +1196,10 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
             queryWrapper.eq("category", category);
         }
 
-        // 标签匹配 - 根据现有代码的逻辑，tags存储为JSON字符串
+        // 标签匹配 - 走 picture_tag 索引表
         if (CollUtil.isNotEmpty(tags)) {
             for (String tag : tags) {
-                queryWrapper.like("tags", "\"" + tag + "\"");
+                queryWrapper.apply(PictureTagDAO.TAG_FILTER_SQL, tag);
             }
         }
 
@@ -782,7 +1240,30 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         ThrowUtils.throwIf(count > 5, ErrorCode.PARAMS_ERROR, "查找数量不能超过5");
 
         try {
-            // 2. 查询公共图库下所有有主色调的图片
+            // 2. 优先走颜色索引，取公共图库中最相近的 10 张
+            if (pictureColorIndexManager.isReady()) {
+                List<Long> top10Ids;
+                try {
+                    top10Ids = pictureColorIndexManager.nearest(null, picColor, 10, ColorMetricEnum.RGB);
+                } catch (NumberFormatException e) {
+                    log.error("颜色格式错误: {}", picColor, e);
+                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "颜色格式错误，请使用十六进制格式，如 #FF0000");
+                }
+                List<String> top10Urls = CollUtil.isEmpty(top10Ids) ? Collections.emptyList() : this.lambdaQuery()
+                        .select(Picture::getUrl)
+                        .in(Picture::getId, top10Ids)
+                        .list()
+                        .stream()
+                        .map(Picture::getUrl)
+                        .filter(StrUtil::isNotBlank)
+                        .collect(Collectors.toList());
+                List<String> resultUrls = new ArrayList<>(top10Urls);
+                Collections.shuffle(resultUrls);
+                resultUrls = resultUrls.subList(0, Math.min(count, resultUrls.size()));
+                log.info("按颜色 {} 从前10张相似图片中随机选择了 {} 张", picColor, resultUrls.size());
+                return resultUrls;
+            }
+            // 3. 索引未就绪，查询公共图库下所有有主色调的图片
             List<Picture> pictureList = this.lambdaQuery()
                     .isNull(Picture::getSpaceId)  // 只查询公共图库
                     .eq(Picture::getIsDelete, 0)  // 未删除
@@ -796,34 +1277,35 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
                 return Collections.emptyList();
             }
 
-            // 3. 将目标颜色转为 Color 对象
-            Color targetColor;
+            // 3. 解析目标颜色
+            int targetRgb;
             try {
-                targetColor = Color.decode(picColor);
+                targetRgb = ColorSimilarUtils.parseRgb(picColor);
             } catch (NumberFormatException e) {
                 log.error("颜色格式错误: {}", picColor, e);
                 throw new BusinessException(ErrorCode.PARAMS_ERROR, "颜色格式错误，请使用十六进制格式，如 #FF0000");
             }
 
-            // 4. 按颜色相似度排序，先取前10张相似度最高的图片
-            List<String> top10Urls = pictureList.stream()
-                    .filter(picture -> StrUtil.isNotBlank(picture.getUrl()) && StrUtil.isNotBlank(picture.getPicColor()))
-                    .sorted(Comparator.comparingDouble(picture -> {
-                        try {
-                            // 提取图片主色调
-                            String hexColor = picture.getPicColor();
-                            Color pictureColor = Color.decode(hexColor);
-                            // 计算相似度，越大越相似，所以用负值排序（让相似度高的排在前面）
-                            return -ColorSimilarUtils.calculateSimilarity(targetColor, pictureColor);
-                        } catch (Exception e) {
-                            log.warn("处理图片颜色失败: {}", picture.getPicColor(), e);
-                            // 处理失败的图片放到最后
-                            return Double.MAX_VALUE;
-                        }
-                    }))
-                    .map(Picture::getUrl)
-                    .limit(10)  // 先取前10张
-                    .collect(Collectors.toList());
+            // 4. 打包为 RGB 数组后批量计算距离，先取前10张相似度最高的图片
+            List<String> candidateUrls = new ArrayList<>(pictureList.size());
+            int[] packedColors = new int[pictureList.size()];
+            for (Picture picture : pictureList) {
+                if (StrUtil.isBlank(picture.getUrl()) || StrUtil.isBlank(picture.getPicColor())) {
+                    continue;
+                }
+                try {
+                    packedColors[candidateUrls.size()] = ColorSimilarUtils.parseRgb(picture.getPicColor());
+                    candidateUrls.add(picture.getUrl());
+                } catch (NumberFormatException e) {
+                    log.warn("处理图片颜色失败: {}", picture.getPicColor(), e);
+                }
+            }
+            int[] topIndexes = ColorSimilarUtils.topKSimilar(targetRgb,
+                    Arrays.copyOf(packedColors, candidateUrls.size()), 10);
+            List<String> top10Urls = new ArrayList<>(topIndexes.length);
+            for (int index : topIndexes) {
+                top10Urls.add(candidateUrls.get(index));
+            }
 
             // 5. 从前10张中随机选择指定数量
             List<String> resultUrls = new ArrayList<>();
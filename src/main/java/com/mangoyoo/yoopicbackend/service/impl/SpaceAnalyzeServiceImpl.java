@@ -1,16 +1,19 @@
 package com.mangoyoo.yoopicbackend.service.impl;
 
+import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.ObjUtil;
-import cn.hutool.json.JSONUtil;
+import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.mangoyoo.yoopicbackend.manager.stat.SpaceStatManager;
+import com.mangoyoo.yoopicbackend.mapper.SpaceDailyStatMapper;
 import com.mangoyoo.yoopicbackend.model.vo.space.*;
 import com.mangoyoo.yoopicbackend.service.PictureService;
 import com.mangoyoo.yoopicbackend.service.UserService;
 import com.mangoyoo.yoopicbackend.exception.BusinessException;
 import com.mangoyoo.yoopicbackend.exception.ErrorCode;
 import com.mangoyoo.yoopicbackend.exception.ThrowUtils;
-import com.mangoyoo.yoopicbackend.model.entity.Picture;
+import com.mangoyoo.yoopicbackend.model.entity.SpaceDailyStat;
 import com.mangoyoo.yoopicbackend.model.entity.Space;
 import com.mangoyoo.yoopicbackend.model.entity.User;
 import com.mangoyoo.yoopicbackend.service.SpaceAnalyzeService;
@@ -33,6 +36,8 @@ public class SpaceAnalyzeServiceImpl implements SpaceAnalyzeService {
     private SpaceService spaceService;
     @Resource
     private PictureService pictureService;
+    @Resource
+    private SpaceDailyStatMapper spaceDailyStatMapper;
     @Override
     public void checkSpaceAnalyzeAuth(SpaceAnalyzeRequest spaceAnalyzeRequest, User loginUser) {
         // 检查权限
@@ -48,17 +53,22 @@ public class SpaceAnalyzeServiceImpl implements SpaceAnalyzeService {
             spaceService.checkSpaceAuth(loginUser, space);
         }
     }
-    private static void fillAnalyzeQueryWrapper(SpaceAnalyzeRequest spaceAnalyzeRequest, QueryWrapper<Picture> queryWrapper) {
+    /**
+     * 根据分析范围补充统计表的查询条件
+     */
+    private static void fillStatQueryWrapper(SpaceAnalyzeRequest spaceAnalyzeRequest, String dimension,
+                                             QueryWrapper<SpaceDailyStat> queryWrapper) {
+        queryWrapper.eq("dimension", dimension);
         if (spaceAnalyzeRequest.isQueryAll()) {
             return;
         }
         if (spaceAnalyzeRequest.isQueryPublic()) {
-            queryWrapper.isNull("spaceId");
+            queryWrapper.eq("spaceKey", SpaceStatManager.PUBLIC_SPACE_KEY);
             return;
         }
         Long spaceId = spaceAnalyzeRequest.getSpaceId();
         if (spaceId != null) {
-            queryWrapper.eq("spaceId", spaceId);
+            queryWrapper.eq("spaceKey", spaceId);
             return;
         }
         throw new BusinessException(ErrorCode.PARAMS_ERROR, "未指定查询范围");
@@ -78,15 +88,13 @@ public class SpaceAnalyzeServiceImpl implements SpaceAnalyzeService {
             // 仅管理员可以访问
             boolean isAdmin = userService.isAdmin(loginUser);
             ThrowUtils.throwIf(!isAdmin, ErrorCode.NO_AUTH_ERROR, "无权访问空间");
-            // 统计公共图库的资源使用
-            QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
-            queryWrapper.select("picSize");
-            if (!spaceUsageAnalyzeRequest.isQueryAll()) {
-                queryWrapper.isNull("spaceId");
-            }
-            List<Object> pictureObjList = pictureService.getBaseMapper().selectObjs(queryWrapper);
-            long usedSize = pictureObjList.stream().mapToLong(result -> result instanceof Long ? (Long) result : 0).sum();
-            long usedCount = pictureObjList.size();
+            // 统计公共图库的资源使用（每张图片恰好属于一个大小区间，汇总该维度即为总量）
+            QueryWrapper<SpaceDailyStat> queryWrapper = new QueryWrapper<>();
+            fillStatQueryWrapper(spaceUsageAnalyzeRequest, SpaceStatManager.DIMENSION_SIZE, queryWrapper);
+            queryWrapper.select("IFNULL(SUM(statCount), 0) AS usedCount", "IFNULL(SUM(totalSize), 0) AS usedSize");
+            Map<String, Object> result = CollUtil.getFirst(spaceDailyStatMapper.selectMaps(queryWrapper));
+            long usedSize = getLongValue(result, "usedSize");
+            long usedCount = getLongValue(result, "usedCount");
             // 封装返回结果
             SpaceUsageAnalyzeResponse spaceUsageAnalyzeResponse = new SpaceUsageAnalyzeResponse();
             spaceUsageAnalyzeResponse.setUsedSize(usedSize);
@@ -129,22 +137,20 @@ public class SpaceAnalyzeServiceImpl implements SpaceAnalyzeService {
         // 检查权限
         checkSpaceAnalyzeAuth(spaceCategoryAnalyzeRequest, loginUser);
 
-        // 构造查询条件
-        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
-        // 根据分析范围补充查询条件
-        fillAnalyzeQueryWrapper(spaceCategoryAnalyzeRequest, queryWrapper);
-
-        // 使用 MyBatis-Plus 分组查询
-        queryWrapper.select("category AS category",
-                        "COUNT(*) AS count",
-                        "SUM(picSize) AS totalSize")
-                .groupBy("category");
+        // 从预聚合的统计表中按分类汇总
+        QueryWrapper<SpaceDailyStat> queryWrapper = new QueryWrapper<>();
+        fillStatQueryWrapper(spaceCategoryAnalyzeRequest, SpaceStatManager.DIMENSION_CATEGORY, queryWrapper);
+        queryWrapper.select("dimKey AS category",
+                        "SUM(statCount) AS count",
+                        "SUM(totalSize) AS totalSize")
+                .groupBy("dimKey")
+                .having("SUM(statCount) > 0");
 
         // 查询并转换结果
-        return pictureService.getBaseMapper().selectMaps(queryWrapper)
+        return spaceDailyStatMapper.selectMaps(queryWrapper)
                 .stream()
                 .map(result -> {
-                    String category = result.get("category") != null ? result.get("category").toString() : "未分类";
+                    String category = StrUtil.blankToDefault((String) result.get("category"), "未分类");
                     Long count = ((Number) result.get("count")).longValue();
                     Long totalSize = ((Number) result.get("totalSize")).longValue();
                     return new SpaceCategoryAnalyzeResponse(category, count, totalSize);
@@ -158,27 +164,18 @@ public class SpaceAnalyzeServiceImpl implements SpaceAnalyzeService {
         // 检查权限
         checkSpaceAnalyzeAuth(spaceTagAnalyzeRequest, loginUser);
 
-        // 构造查询条件
-        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
-        fillAnalyzeQueryWrapper(spaceTagAnalyzeRequest, queryWrapper);
+        // 从预聚合的统计表中按标签汇总，按使用次数降序排序
+        QueryWrapper<SpaceDailyStat> queryWrapper = new QueryWrapper<>();
+        fillStatQueryWrapper(spaceTagAnalyzeRequest, SpaceStatManager.DIMENSION_TAG, queryWrapper);
+        queryWrapper.select("dimKey AS tag", "SUM(statCount) AS count")
+                .groupBy("dimKey")
+                .having("SUM(statCount) > 0")
+                .orderByDesc("count");
 
-        // 查询所有符合条件的标签
-        queryWrapper.select("tags");
-        List<String> tagsJsonList = pictureService.getBaseMapper().selectObjs(queryWrapper)
+        // 转换为响应对象
+        return spaceDailyStatMapper.selectMaps(queryWrapper)
                 .stream()
-                .filter(ObjUtil::isNotNull)
-                .map(Object::toString)
-                .collect(Collectors.toList());
-
-        // 合并所有标签并统计使用次数
-        Map<String, Long> tagCountMap = tagsJsonList.stream()
-                .flatMap(tagsJson -> JSONUtil.toList(tagsJson, String.class).stream())
-                .collect(Collectors.groupingBy(tag -> tag, Collectors.counting()));
-
-        // 转换为响应对象，按使用次数降序排序
-        return tagCountMap.entrySet().stream()
-                .sorted((e1, e2) -> Long.compare(e2.getValue(), e1.getValue())) // 降序排列
-                .map(entry -> new SpaceTagAnalyzeResponse(entry.getKey(), entry.getValue()))
+                .map(result -> new SpaceTagAnalyzeResponse((String) result.get("tag"), ((Number) result.get("count")).longValue()))
                 .collect(Collectors.toList());
     }
     @Override
@@ -188,23 +185,19 @@ public class SpaceAnalyzeServiceImpl implements SpaceAnalyzeService {
         // 检查权限
         checkSpaceAnalyzeAuth(spaceSizeAnalyzeRequest, loginUser);
 
-        // 构造查询条件
-        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
-        fillAnalyzeQueryWrapper(spaceSizeAnalyzeRequest, queryWrapper);
-
-        // 查询所有符合条件的图片大小
-        queryWrapper.select("picSize");
-        List<Long> picSizes = pictureService.getBaseMapper().selectObjs(queryWrapper)
-                .stream()
-                .map(size -> ((Number) size).longValue())
-                .collect(Collectors.toList());
+        // 从预聚合的统计表中按大小区间汇总
+        QueryWrapper<SpaceDailyStat> queryWrapper = new QueryWrapper<>();
+        fillStatQueryWrapper(spaceSizeAnalyzeRequest, SpaceStatManager.DIMENSION_SIZE, queryWrapper);
+        queryWrapper.select("dimKey AS sizeRange", "SUM(statCount) AS count")
+                .groupBy("dimKey");
 
         // 定义分段范围，注意使用有序 Map
         Map<String, Long> sizeRanges = new LinkedHashMap<>();
-        sizeRanges.put("<100KB", picSizes.stream().filter(size -> size < 100 * 1024).count());
-        sizeRanges.put("100KB-500KB", picSizes.stream().filter(size -> size >= 100 * 1024 && size < 500 * 1024).count());
-        sizeRanges.put("500KB-1MB", picSizes.stream().filter(size -> size >= 500 * 1024 && size < 1 * 1024 * 1024).count());
-        sizeRanges.put(">1MB", picSizes.stream().filter(size -> size >= 1 * 1024 * 1024).count());
+        SpaceStatManager.SIZE_BUCKETS.forEach(sizeRange -> sizeRanges.put(sizeRange, 0L));
+        for (Map<String, Object> result : spaceDailyStatMapper.selectMaps(queryWrapper)) {
+            sizeRanges.computeIfPresent((String) result.get("sizeRange"),
+                    (sizeRange, count) -> count + ((Number) result.get("count")).longValue());
+        }
 
         // 转换为响应对象
         return sizeRanges.entrySet().stream()
@@ -217,33 +210,33 @@ public class SpaceAnalyzeServiceImpl implements SpaceAnalyzeService {
         // 检查权限
         checkSpaceAnalyzeAuth(spaceUserAnalyzeRequest, loginUser);
 
-        // 构造查询条件
-        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        // 构造查询条件，从预聚合的统计表中按上传用户读取
+        QueryWrapper<SpaceDailyStat> queryWrapper = new QueryWrapper<>();
+        fillStatQueryWrapper(spaceUserAnalyzeRequest, SpaceStatManager.DIMENSION_USER, queryWrapper);
         Long userId = spaceUserAnalyzeRequest.getUserId();
-        queryWrapper.eq(ObjUtil.isNotNull(userId), "userId", userId);
-        fillAnalyzeQueryWrapper(spaceUserAnalyzeRequest, queryWrapper);
+        queryWrapper.eq(ObjUtil.isNotNull(userId), "dimKey", String.valueOf(userId));
 
         // 分析维度：每日、每周、每月
         String timeDimension = spaceUserAnalyzeRequest.getTimeDimension();
         switch (timeDimension) {
             case "day":
-                queryWrapper.select("DATE_FORMAT(createTime, '%Y-%m-%d') AS period", "COUNT(*) AS count");
+                queryWrapper.select("DATE_FORMAT(statDate, '%Y-%m-%d') AS period", "SUM(statCount) AS count");
                 break;
             case "week":
-                queryWrapper.select("YEARWEEK(createTime) AS period", "COUNT(*) AS count");
+                queryWrapper.select("YEARWEEK(statDate) AS period", "SUM(statCount) AS count");
                 break;
             case "month":
-                queryWrapper.select("DATE_FORMAT(createTime, '%Y-%m') AS period", "COUNT(*) AS count");
+                queryWrapper.select("DATE_FORMAT(statDate, '%Y-%m') AS period", "SUM(statCount) AS count");
                 break;
             default:
                 throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的时间维度");
         }
 
         // 分组和排序
-        queryWrapper.groupBy("period").orderByAsc("period");
+        queryWrapper.groupBy("period").having("SUM(statCount) > 0").orderByAsc("period");
 
         // 查询结果并转换
-        List<Map<String, Object>> queryResult = pictureService.getBaseMapper().selectMaps(queryWrapper);
+        List<Map<String, Object>> queryResult = spaceDailyStatMapper.selectMaps(queryWrapper);
         return queryResult.stream()
                 .map(result -> {
                     String period = result.get("period").toString();
@@ -269,4 +262,14 @@ public class SpaceAnalyzeServiceImpl implements SpaceAnalyzeService {
         return spaceService.list(queryWrapper);
     }
 
+    /**
+     * 读取聚合查询结果中的数值（没有数据时结果可能为空）
+     */
+    private static long getLongValue(Map<String, Object> result, String key) {
+        if (result == null) {
+            return 0;
+        }
+        Object value = result.get(key);
+        return value instanceof Number number ? number.longValue() : 0;
+    }
 }
@@ -7,6 +7,13 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.CollectionUtils;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.mangoyoo.yoopicbackend.manager.cache.UserVOCacheManager;
+import com.mangoyoo.yoopicbackend.manager.color.PictureColorIndexManager;
+import com.mangoyoo.yoopicbackend.manager.quota.SpaceQuotaManager;
+import com.mangoyoo.yoopicbackend.manager.stat.SpaceStatManager;
+import com.mangoyoo.yoopicbackend.model.auth.SpaceUserAuthManager;
+import com.mangoyoo.yoopicbackend.manager.similar.PictureHashIndexManager;
+import com.mangoyoo.yoopicbackend.manager.search.PictureSearchManager;
 import com.mangoyoo.yoopicbackend.model.entity.Picture;
 import com.mangoyoo.yoopicbackend.service.UserService;
 import com.mangoyoo.yoopicbackend.dto.space.SpaceAddRequest;
@@ -27,6 +34,7 @@ import com.mangoyoo.yoopicbackend.service.SpaceService;
 import com.mangoyoo.yoopicbackend.mapper.SpaceMapper;
 import com.mangoyoo.yoopicbackend.service.SpaceUserService;
 import com.mangoyoo.yoopicbackend.service.dao.PictureDAO;
+import com.mangoyoo.yoopicbackend.service.dao.PictureTagDAO;
 import com.mangoyoo.yoopicbackend.service.dao.SpaceDAO;
 import com.mangoyoo.yoopicbackend.service.dao.SpaceUserDAO;
 import generator.domain.SpaceUser;
@@ -72,6 +80,23 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
 //    private DynamicShardingManager dynamicShardingManager;
     @Resource
     private SpaceUserDAO spaceUserDAO;
+    @Resource
+    private SpaceQuotaManager spaceQuotaManager;
+    @Resource
+    private SpaceStatManager spaceStatManager;
+    @Resource
+    @Lazy
+    private SpaceUserAuthManager spaceUserAuthManager;
+    @Resource
+    private PictureTagDAO pictureTagDAO;
+    @Resource
+    private PictureSearchManager pictureSearchManager;
+    @Resource
+    private PictureColorIndexManager pictureColorIndexManager;
+    @Resource
+    private PictureHashIndexManager pictureHashIndexManager;
+    @Resource
+    private UserVOCacheManager userVOCacheManager;
 
     @Override
     public void validSpace(Space space, boolean add) {
@@ -187,12 +212,7 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
         // 对象转封装类
         SpaceVO spaceVO = SpaceVO.objToVo(space);
         // 关联查询用户信息
-        Long userId = space.getUserId();
-        if (userId != null && userId > 0) {
-            User user = userService.getById(userId);
-            UserVO userVO = userService.getUserVO(user);
-            spaceVO.setUser(userVO);
-        }
+        spaceVO.setUser(userVOCacheManager.get(space.getUserId()));
         return spaceVO;
     }
 
@@ -211,17 +231,9 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
         // 1,2,3,4
         Set<Long> userIdSet = spaceList.stream().map(Space::getUserId).collect(Collectors.toSet());
         // 1 => user1, 2 => user2
-        Map<Long, List<User>> userIdUserListMap = userService.listByIds(userIdSet).stream()
-                .collect(Collectors.groupingBy(User::getId));
+        Map<Long, UserVO> userIdUserVOMap = userVOCacheManager.getAll(userIdSet);
         // 2. 填充信息
-        spaceVOList.forEach(spaceVO -> {
-            Long userId = spaceVO.getUserId();
-            User user = null;
-            if (userIdUserListMap.containsKey(userId)) {
-                user = userIdUserListMap.get(userId).get(0);
-            }
-            spaceVO.setUser(userService.getUserVO(user));
-        });
+        spaceVOList.forEach(spaceVO -> spaceVO.setUser(userIdUserVOMap.get(spaceVO.getUserId())));
         spaceVOPage.setRecords(spaceVOList);
         return spaceVOPage;
     }
@@ -256,7 +268,7 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
     public boolean deleteSpace(SpaceDeleteRequest spaceDeleteRequest, User loginUser) {
         final Long spaceId = spaceDeleteRequest.getId();
         validDeleteSpace(spaceId, loginUser);
-        transactionTemplate.execute((status -> {
+        List<Picture> pictures = transactionTemplate.execute((status -> {
             // 删除空间
             ThrowUtils.throwIf(!spaceDAO.removeById(spaceId), ErrorCode.OPERATION_ERROR, "删除失败2222");
 
@@ -264,13 +276,25 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
             spaceUserDAO.remove(new QueryWrapper<SpaceUser>().eq("spaceId", spaceId));
 
             // 删除相关图片
-            List<Picture> pictures = pictureDAO.getListPageBySpaceId(spaceId, loginUser.getId());
-            if (!CollectionUtils.isEmpty(pictures)) {
-                pictureDAO.deleteBatchIds(pictures.stream().map(Picture::getId).collect(Collectors.toList()));
-                pictures.forEach(pictureService::clearPictureFile);
+            List<Picture> spacePictures = pictureDAO.getListPageBySpaceId(spaceId, loginUser.getId());
+            if (!CollectionUtils.isEmpty(spacePictures)) {
+                List<Long> pictureIdList = spacePictures.stream().map(Picture::getId).collect(Collectors.toList());
+                pictureDAO.deleteBatchIds(pictureIdList);
+                pictureTagDAO.removeByPictureIds(pictureIdList);
             }
-            return null;
+            return spacePictures;
         }));
+        // 事务提交后再刷新索引（以数据库为准，提交前查到的仍是旧数据）、通知其他节点和清理文件，回滚时不会误删
+        if (!CollectionUtils.isEmpty(pictures)) {
+            List<Long> pictureIdList = pictures.stream().map(Picture::getId).collect(Collectors.toList());
+            pictureSearchManager.refresh(pictureIdList);
+            pictureColorIndexManager.refresh(pictureIdList);
+            pictureHashIndexManager.refresh(pictureIdList);
+            pictures.forEach(pictureService::clearPictureFile);
+        }
+        spaceQuotaManager.remove(spaceId);
+        spaceStatManager.onSpaceDeleted(spaceId);
+        spaceUserAuthManager.evictSpace(spaceId);
         return true;
     }
 
@@ -13,6 +13,7 @@ import com.mangoyoo.yoopicbackend.enums.SpaceRoleEnum;
 import com.mangoyoo.yoopicbackend.exception.BusinessException;
 import com.mangoyoo.yoopicbackend.exception.ErrorCode;
 import com.mangoyoo.yoopicbackend.exception.ThrowUtils;
+import com.mangoyoo.yoopicbackend.manager.cache.UserVOCacheManager;
 import com.mangoyoo.yoopicbackend.model.entity.Space;
 import com.mangoyoo.yoopicbackend.model.entity.User;
 import com.mangoyoo.yoopicbackend.model.vo.SpaceUserVO;
@@ -46,6 +47,8 @@ public class SpaceUserServiceImpl extends ServiceImpl<SpaceUserMapper, SpaceUser
     @Lazy
     @Resource
     private SpaceService spaceService;
+    @Resource
+    private UserVOCacheManager userVOCacheManager;
     @Override
     public long addSpaceUser(SpaceUserAddRequest spaceUserAddRequest) {
         // 参数校验
@@ -100,12 +103,7 @@ public class SpaceUserServiceImpl extends ServiceImpl<SpaceUserMapper, SpaceUser
         // 对象转封装类
         SpaceUserVO spaceUserVO = SpaceUserVO.objToVo(spaceUser);
         // 关联查询用户信息
-        Long userId = spaceUser.getUserId();
-        if (userId != null && userId > 0) {
-            User user = userService.getById(userId);
-            UserVO userVO = userService.getUserVO(user);
-            spaceUserVO.setUser(userVO);
-        }
+        spaceUserVO.setUser(userVOCacheManager.get(spaceUser.getUserId()));
         // 关联查询空间信息
         Long spaceId = spaceUser.getSpaceId();
         if (spaceId != null && spaceId > 0) {
@@ -127,8 +125,7 @@ public class SpaceUserServiceImpl extends ServiceImpl<SpaceUserMapper, SpaceUser
         Set<Long> userIdSet = spaceUserList.stream().map(SpaceUser::getUserId).collect(Collectors.toSet());
         Set<Long> spaceIdSet = spaceUserList.stream().map(SpaceUser::getSpaceId).collect(Collectors.toSet());
         // 2. 批量查询用户和空间
-        Map<Long, List<User>> userIdUserListMap = userService.listByIds(userIdSet).stream()
-                .collect(Collectors.groupingBy(User::getId));
+        Map<Long, UserVO> userIdUserVOMap = userVOCacheManager.getAll(userIdSet);
         Map<Long, List<Space>> spaceIdSpaceListMap = spaceService.listByIds(spaceIdSet).stream()
                 .collect(Collectors.groupingBy(Space::getId));
         // 3. 填充 SpaceUserVO 的用户和空间信息
@@ -136,11 +133,7 @@ public class SpaceUserServiceImpl extends ServiceImpl<SpaceUserMapper, SpaceUser
             Long userId = spaceUserVO.getUserId();
             Long spaceId = spaceUserVO.getSpaceId();
             // 填充用户信息
-            User user = null;
-            if (userIdUserListMap.containsKey(userId)) {
-                user = userIdUserListMap.get(userId).get(0);
-            }
-            spaceUserVO.setUser(userService.getUserVO(user));
+            spaceUserVO.setUser(userIdUserVOMap.get(userId));
             // 填充空间信息
             Space space = null;
             if (spaceIdSpaceListMap.containsKey(spaceId)) {
@@ -187,9 +187,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         if (user == null) {
             return null;
         }
-        UserVO userVO = new UserVO();
-        BeanUtils.copyProperties(user, userVO);
-        return userVO;
+        return UserVO.objToVo(user);
     }
 
     @Override
@@ -236,9 +234,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         user.setId(loginUser.getId());
         user.setUserAvatar(uploadAvatarResult.getUrl());
         boolean result = this.updateById(user);
-        UserVO userVO = new UserVO();
-        BeanUtils.copyProperties(user, userVO);
-        return userVO;
+        return UserVO.objToVo(user);
     }
     /**
      * 修改用户密码
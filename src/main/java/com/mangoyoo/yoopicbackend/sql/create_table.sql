@@ -108,6 +108,72 @@ create table if not exists space_user
 
 
 
+-- 游标分页（按 createTime + id 定位）使用的联合索引，InnoDB 二级索引自带主键 id
+CREATE INDEX idx_spaceId_createTime ON picture (spaceId, createTime);
+CREATE INDEX idx_spaceId_reviewStatus_createTime ON picture (spaceId, reviewStatus, createTime);
+-- 按 editTime + id 游标分页（空间图库 / 公共图库）
+CREATE INDEX idx_spaceId_editTime_id ON picture (spaceId, editTime, id);
+CREATE INDEX idx_spaceId_reviewStatus_editTime_id ON picture (spaceId, reviewStatus, editTime, id);
+-- 内存索引按 updateTime 增量同步其他节点的变更
+CREATE INDEX idx_updateTime ON picture (updateTime);
+
+-- 图片标签表（picture.tags 拆分后的索引表，标签过滤走这张表）
+create table if not exists picture_tag
+(
+    id           bigint auto_increment comment 'id' primary key,
+    pictureId    bigint                             not null comment '图片 id',
+    tag          varchar(128)                       not null comment '标签',
+    spaceId      bigint                             null comment '空间 id（为空表示公共空间）',
+    reviewStatus int      default 0                 not null comment '审核状态，与图片保持一致',
+    createTime   datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    -- 索引设计
+    UNIQUE KEY uk_pictureId_tag (pictureId, tag),                          -- 同一张图片的标签不重复，也用于按图片删除
+    INDEX idx_tag_spaceId_reviewStatus (tag, spaceId, reviewStatus, pictureId) -- 按标签查图片
+) comment '图片标签' collate = utf8mb4_unicode_ci;
+
+-- 图片存储对象表（按内容去重，相同文件只上传、处理一次，引用计数归零时才删除对象存储文件）
+create table if not exists picture_object
+(
+    id           bigint auto_increment comment 'id' primary key,
+    contentHash  char(64)                           not null comment '原始文件内容的 SHA-256',
+    contentSize  bigint                             not null comment '原始文件大小',
+    url          varchar(512)                       not null comment '压缩图 url',
+    thumbnailUrl varchar(512)                       null comment '缩略图 url',
+    picSize      bigint                             null comment '压缩图体积',
+    picWidth     int                                null comment '图片宽度',
+    picHeight    int                                null comment '图片高度',
+    picScale     double                             null comment '图片宽高比例',
+    picFormat    varchar(32)                        null comment '图片格式',
+    picColor     varchar(16)                        null comment '图片主色调',
+    picHash      bigint                             null comment '图片感知哈希',
+    refCount     int      default 1                 not null comment '引用计数',
+    createTime   datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime   datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    -- 索引设计
+    UNIQUE KEY uk_contentHash_contentSize (contentHash, contentSize), -- 按内容查找已有对象
+    INDEX idx_url (url)                                                -- 删除图片时按 url 释放引用
+) comment '图片存储对象' collate = utf8mb4_unicode_ci;
+
+-- 图片感知哈希（以图搜图、相似图片去重）
+ALTER TABLE picture
+    ADD COLUMN picHash bigint null comment '图片感知哈希（缩略图的 64 位 dHash）';
+
+-- 空间按天统计表（空间分析直接读取预聚合结果，图片变更时增量维护，每天全量重建一次）
+create table if not exists space_daily_stat
+(
+    id         bigint auto_increment comment 'id' primary key,
+    spaceKey   bigint                             not null comment '空间 id，公共图库为 0',
+    statDate   date                               not null comment '统计日期（图片创建日期）',
+    dimension  varchar(16)                        not null comment '统计维度：category/tag/size/user',
+    dimKey     varchar(128)                       not null comment '维度取值：分类、标签、大小区间或用户 id',
+    statCount  bigint   default 0                 not null comment '图片数量',
+    totalSize  bigint   default 0                 not null comment '图片总大小',
+    updateTime datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    -- 索引设计
+    UNIQUE KEY uk_space_date_dimension_key (spaceKey, statDate, dimension, dimKey), -- 增量更新时按唯一键累加
+    INDEX idx_dimension_spaceKey (dimension, spaceKey)                                -- 按维度读取
+) comment '空间按天统计' collate = utf8mb4_unicode_ci;
+
 # -- 1. 首先创建与 picture 表结构相同的新表 new_picture
 # CREATE TABLE new_picture LIKE picture;
 #
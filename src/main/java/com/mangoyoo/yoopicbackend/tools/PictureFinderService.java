@@ -9,6 +9,7 @@ import com.mangoyoo.yoopicbackend.exception.ThrowUtils;
 import com.mangoyoo.yoopicbackend.mapper.PictureMapper;
 import com.mangoyoo.yoopicbackend.model.entity.Picture;
 import com.mangoyoo.yoopicbackend.model.enums.PictureReviewStatusEnum;
+import com.mangoyoo.yoopicbackend.service.dao.PictureTagDAO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -164,7 +165,7 @@ public class PictureFinderService {
         QueryWrapper<Picture> queryWrapper = buildBaseQueryWrapper();
 
         // 同时满足tag和category
-        queryWrapper.like("tags", "\"" + tag + "\"");
+        queryWrapper.apply(PictureTagDAO.TAG_FILTER_SQL, tag);
         if (StrUtil.isNotBlank(category)) {
             queryWrapper.eq("category", category);
         }
@@ -180,7 +181,7 @@ public class PictureFinderService {
 
         // tag OR category
         queryWrapper.and(qw -> {
-            qw.like("tags", "\"" + tag + "\"");
+            qw.apply(PictureTagDAO.TAG_FILTER_SQL, tag);
             if (StrUtil.isNotBlank(category)) {
                 qw.or().eq("category", category);
             }
@@ -198,7 +199,7 @@ public class PictureFinderService {
         // 同时满足所有tags
         for (String tag : tags) {
             if (StrUtil.isNotBlank(tag)) {
-                queryWrapper.like("tags", "\"" + tag + "\"");
+                queryWrapper.apply(PictureTagDAO.TAG_FILTER_SQL, tag);
             }
         }
 
@@ -223,9 +224,9 @@ public class PictureFinderService {
                 String tag = tags.get(i);
                 if (StrUtil.isNotBlank(tag)) {
                     if (i == 0) {
-                        qw.like("tags", "\"" + tag + "\"");
+                        qw.apply(PictureTagDAO.TAG_FILTER_SQL, tag);
                     } else {
-                        qw.or().like("tags", "\"" + tag + "\"");
+                        qw.or().apply(PictureTagDAO.TAG_FILTER_SQL, tag);
                     }
                 }
             }
@@ -7,10 +7,202 @@ import java.awt.*;
  */
 public class ColorSimilarUtils {
 
+    /**
+     * RGB 空间中两个颜色的最大欧氏距离
+     */
+    private static final double MAX_RGB_DISTANCE = Math.sqrt(3 * 255.0 * 255.0);
+
+    /**
+     * 计算 Lab 相似度时使用的最大色差，超过该值视为完全不相似
+     */
+    private static final double MAX_DELTA_E = 100.0;
+
+    /**
+     * D65 参考白点
+     */
+    private static final double REF_X = 0.95047;
+
+    private static final double REF_Y = 1.0;
+
+    private static final double REF_Z = 1.08883;
+
+    /**
+     * 批量计算时每次处理的颜色数，距离缓冲区按此大小分配
+     */
+    private static final int BATCH_SIZE = 1024;
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    /**
+     * 批量距离内核：启用了 jdk.incubator.vector 模块时使用 SIMD 实现，否则使用标量实现
+     */
+    private static final RgbDistanceKernel KERNEL = createKernel();
+
     private ColorSimilarUtils() {
         // 工具类不需要实例化
     }
 
+    /**
+     * 将十六进制颜色（如 0xFF0000、#FF0000）解析为打包的 RGB 整数，避免创建 Color 对象
+     *
+     * @param hexColor 十六进制颜色
+     * @return 0xRRGGBB
+     */
+    public static int parseRgb(String hexColor) {
+        return Integer.decode(hexColor.trim()) & 0xFFFFFF;
+    }
+
+    /**
+     * 两个打包 RGB 颜色的欧氏距离平方
+     */
+    public static int rgbDistanceSquared(int rgb1, int rgb2) {
+        int dr = ((rgb1 >> 16) & 0xFF) - ((rgb2 >> 16) & 0xFF);
+        int dg = ((rgb1 >> 8) & 0xFF) - ((rgb2 >> 8) & 0xFF);
+        int db = (rgb1 & 0xFF) - (rgb2 & 0xFF);
+        return dr * dr + dg * dg + db * db;
+    }
+
+    /**
+     * 批量计算目标颜色与 packed[from, to) 中每个颜色的欧氏距离平方
+     *
+     * @param targetRgb 目标颜色 0xRRGGBB
+     * @param packed    打包的 RGB 颜色
+     * @param from      起始下标（包含）
+     * @param to        结束下标（不包含）
+     * @param out       输出数组，out[i] 为 packed[from + i] 的距离平方，长度至少为 to - from
+     */
+    public static void squaredDistances(int targetRgb, int[] packed, int from, int to, int[] out) {
+        if (from < 0 || to > packed.length || from > to || out.length < to - from) {
+            throw new IndexOutOfBoundsException("from = " + from + ", to = " + to);
+        }
+        KERNEL.squaredDistances(targetRgb, packed, from, to, out);
+    }
+
+    /**
+     * 在打包的 RGB 颜色中选出与目标颜色最相似的 K 个
+     *
+     * @param targetRgb 目标颜色 0xRRGGBB
+     * @param packed    打包的 RGB 颜色
+     * @param k         数量
+     * @return 按相似度从高到低排列的下标
+     */
+    public static int[] topKSimilar(int targetRgb, int[] packed, int k) {
+        if (k <= 0 || packed.length == 0) {
+            return new int[0];
+        }
+        TopKHeap heap = new TopKHeap(Math.min(k, packed.length));
+        int[] distances = new int[Math.min(BATCH_SIZE, packed.length)];
+        for (int from = 0; from < packed.length; from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, packed.length);
+            KERNEL.squaredDistances(targetRgb, packed, from, to, distances);
+            float worst = heap.worstDistance();
+            for (int i = 0; i < to - from; i++) {
+                if (distances[i] < worst) {
+                    heap.offer(from + i, distances[i]);
+                    worst = heap.worstDistance();
+                }
+            }
+        }
+        return heap.drainSortedIndexes();
+    }
+
+    /**
+     * 批量计算是否使用了 SIMD 实现
+     */
+    public static boolean isVectorized() {
+        return !(KERNEL instanceof ScalarRgbDistanceKernel);
+    }
+
+    /**
+     * 由 RGB 欧氏距离平方计算相似度（0到1之间，1为完全相同）
+     */
+    public static double rgbSimilarity(int distanceSquared) {
+        return 1 - Math.sqrt(distanceSquared) / MAX_RGB_DISTANCE;
+    }
+
+    /**
+     * 将打包的 sRGB 颜色转换为 CIELAB（D65）
+     *
+     * @param rgb 0xRRGGBB
+     * @param lab 输出数组，依次写入 L、a、b
+     */
+    public static void rgbToLab(int rgb, float[] lab) {
+        double r = srgbToLinear((rgb >> 16) & 0xFF);
+        double g = srgbToLinear((rgb >> 8) & 0xFF);
+        double b = srgbToLinear(rgb & 0xFF);
+        double x = (0.4124564 * r + 0.3575761 * g + 0.1804375 * b) / REF_X;
+        double y = (0.2126729 * r + 0.7151522 * g + 0.0721750 * b) / REF_Y;
+        double z = (0.0193339 * r + 0.1191920 * g + 0.9503041 * b) / REF_Z;
+        double fx = labPivot(x);
+        double fy = labPivot(y);
+        double fz = labPivot(z);
+        lab[0] = (float) (116 * fy - 16);
+        lab[1] = (float) (500 * (fx - fy));
+        lab[2] = (float) (200 * (fy - fz));
+    }
+
+    /**
+     * 计算两个颜色的 CIE76 色差（ΔE），与人眼感知更接近
+     *
+     * @return 色差，0 为完全相同，一般认为小于 2.3 人眼难以区分
+     */
+    public static double calculateDeltaE(Color color1, Color color2) {
+        float[] lab1 = new float[3];
+        float[] lab2 = new float[3];
+        rgbToLab(color1.getRGB() & 0xFFFFFF, lab1);
+        rgbToLab(color2.getRGB() & 0xFFFFFF, lab2);
+        return Math.sqrt(labDistanceSquared(lab1[0], lab1[1], lab1[2], lab2[0], lab2[1], lab2[2]));
+    }
+
+    /**
+     * 基于 Lab 色差计算两个颜色的相似度
+     *
+     * @return 相似度（0到1之间，1为完全相同）
+     */
+    public static double calculateLabSimilarity(Color color1, Color color2) {
+        return labSimilarity(calculateDeltaE(color1, color2));
+    }
+
+    /**
+     * 由 Lab 色差计算相似度（0到1之间，1为完全相同）
+     */
+    public static double labSimilarity(double deltaE) {
+        return 1 - Math.min(deltaE, MAX_DELTA_E) / MAX_DELTA_E;
+    }
+
+    /**
+     * Lab 空间中的距离平方（即 ΔE 的平方）
+     */
+    public static float labDistanceSquared(float l1, float a1, float b1, float l2, float a2, float b2) {
+        float dl = l1 - l2;
+        float da = a1 - a2;
+        float db = b1 - b2;
+        return dl * dl + da * da + db * db;
+    }
+
+    private static RgbDistanceKernel createKernel() {
+        // 孵化模块默认不解析，只有存在时才加载 SIMD 实现，避免 NoClassDefFoundError
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (RgbDistanceKernel) Class.forName("com.mangoyoo.yoopicbackend.util.VectorRgbDistanceKernel")
+                        .getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // 回退到标量实现
+            }
+        }
+        return new ScalarRgbDistanceKernel();
+    }
+
+    private static double srgbToLinear(int channel) {
+        double c = channel / 255.0;
+        return c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+    }
+
+    private static double labPivot(double t) {
+        return t > 216.0 / 24389 ? Math.cbrt(t) : (24389.0 / 27 * t + 16) / 116;
+    }
+
     /**
      * 计算两个颜色的相似度
      *
@@ -19,19 +211,7 @@ public class ColorSimilarUtils {
      * @return 相似度（0到1之间，1为完全相同）
      */
     public static double calculateSimilarity(Color color1, Color color2) {
-        int r1 = color1.getRed();
-        int g1 = color1.getGreen();
-        int b1 = color1.getBlue();
-
-        int r2 = color2.getRed();
-        int g2 = color2.getGreen();
-        int b2 = color2.getBlue();
-
-        // 计算欧氏距离
-        double distance = Math.sqrt(Math.pow(r1 - r2, 2) + Math.pow(g1 - g2, 2) + Math.pow(b1 - b2, 2));
-
-        // 计算相似度
-        return 1 - distance / Math.sqrt(3 * Math.pow(255, 2));
+        return rgbSimilarity(rgbDistanceSquared(color1.getRGB(), color2.getRGB()));
     }
 
     /**
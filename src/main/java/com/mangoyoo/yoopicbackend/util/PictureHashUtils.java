@@ -0,0 +1,121 @@
+package com.mangoyoo.yoopicbackend.util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 工具类：计算图片感知哈希（dHash）
+ * <p>
+ * 图片缩放为 9x8 灰度图后，比较每行相邻像素的明暗得到 64 位指纹。缩放、压缩、轻微调色后指纹基本不变，
+ * 两张图片指纹的汉明距离越小越相似，一般 0 - 3 可视为同一张图片，10 以内视为相似图片。
+ */
+public class PictureHashUtils {
+
+    private static final int HASH_WIDTH = 9;
+
+    private static final int HASH_HEIGHT = 8;
+
+    /**
+     * 解码时抽样读取像素，短边保留到不小于该值即可
+     */
+    private static final int DECODE_MIN_SIZE = 128;
+
+    private PictureHashUtils() {
+        // 工具类不需要实例化
+    }
+
+    /**
+     * 计算图片的 dHash
+     *
+     * @param image 图片
+     * @return 64 位指纹
+     */
+    public static long dHash(BufferedImage image) {
+        BufferedImage gray = new BufferedImage(HASH_WIDTH, HASH_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = gray.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            // 透明背景按白色处理
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, HASH_WIDTH, HASH_HEIGHT);
+            graphics.drawImage(image, 0, 0, HASH_WIDTH, HASH_HEIGHT, null);
+        } finally {
+            graphics.dispose();
+        }
+        int[] pixels = gray.getRaster().getPixels(0, 0, HASH_WIDTH, HASH_HEIGHT, (int[]) null);
+        long hash = 0;
+        for (int y = 0; y < HASH_HEIGHT; y++) {
+            int rowOffset = y * HASH_WIDTH;
+            for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                hash <<= 1;
+                if (pixels[rowOffset + x] > pixels[rowOffset + x + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 解码图片数据并计算 dHash
+     *
+     * @param data 图片数据
+     * @return 64 位指纹，格式不支持时返回 null
+     */
+    public static Long dHash(byte[] data) throws IOException {
+        try (ImageInputStream imageInputStream = new MemoryCacheImageInputStream(new ByteArrayInputStream(data))) {
+            return dHash(imageInputStream);
+        }
+    }
+
+    /**
+     * 解码图片文件并计算 dHash
+     *
+     * @param file 图片文件
+     * @return 64 位指纹，格式不支持时返回 null
+     */
+    public static Long dHash(File file) throws IOException {
+        try (ImageInputStream imageInputStream = new FileImageInputStream(file)) {
+            return dHash(imageInputStream);
+        }
+    }
+
+    /**
+     * 按比例抽样解码（不需要解码出原图大小的位图）后计算 dHash
+     */
+    private static Long dHash(ImageInputStream imageInputStream) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(imageInputStream, true, true);
+            int subsampling = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / DECODE_MIN_SIZE);
+            ImageReadParam readParam = reader.getDefaultReadParam();
+            readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            return dHash(reader.read(0, readParam));
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * 计算两个指纹的汉明距离
+     *
+     * @return 0 - 64，越小越相似
+     */
+    public static int hammingDistance(long hash1, long hash2) {
+        return Long.bitCount(hash1 ^ hash2);
+    }
+}
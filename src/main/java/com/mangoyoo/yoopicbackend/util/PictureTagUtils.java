@@ -0,0 +1,49 @@
+package com.mangoyoo.yoopicbackend.util;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 图片标签工具类
+ * <p>
+ * 图片的标签以 JSON 数组字符串存储，列表接口每一行都要解析一次。标签组合的重复度很高，
+ * 这里按原始字符串缓存解析结果，返回的列表不可修改，多个图片封装类可以安全共享。
+ */
+public class PictureTagUtils {
+
+    private static final Cache<String, List<String>> TAGS_CACHE = Caffeine.newBuilder()
+            .maximumSize(10000L)
+            .build();
+
+    private PictureTagUtils() {
+        // 工具类不需要实例化
+    }
+
+    /**
+     * 解析标签 JSON 数组
+     *
+     * @param tags 标签 JSON 数组字符串，如 ["风景","海边"]
+     * @return 不可修改的标签列表，为空或格式不正确时返回空列表
+     */
+    public static List<String> parseTags(String tags) {
+        if (StrUtil.isBlank(tags)) {
+            return Collections.emptyList();
+        }
+        return TAGS_CACHE.get(tags, PictureTagUtils::doParseTags);
+    }
+
+    private static List<String> doParseTags(String tags) {
+        if (!JSONUtil.isTypeJSONArray(tags)) {
+            return Collections.emptyList();
+        }
+        List<String> tagList = JSONUtil.toList(tags, String.class);
+        // List.copyOf 不允许 null 元素
+        tagList.removeIf(tag -> tag == null);
+        return List.copyOf(tagList);
+    }
+}
@@ -0,0 +1,18 @@
+package com.mangoyoo.yoopicbackend.util;
+
+/**
+ * 批量计算 RGB 欧氏距离平方的内核
+ */
+interface RgbDistanceKernel {
+
+    /**
+     * 计算目标颜色与 packed[from, to) 中每个颜色的欧氏距离平方
+     *
+     * @param targetRgb 目标颜色 0xRRGGBB
+     * @param packed    打包的 RGB 颜色
+     * @param from      起始下标（包含）
+     * @param to        结束下标（不包含）
+     * @param out       输出数组，out[i] 为 packed[from + i] 的距离平方
+     */
+    void squaredDistances(int targetRgb, int[] packed, int from, int to, int[] out);
+}
@@ -0,0 +1,14 @@
+package com.mangoyoo.yoopicbackend.util;
+
+/**
+ * 标量实现，未启用 jdk.incubator.vector 模块时使用
+ */
+final class ScalarRgbDistanceKernel implements RgbDistanceKernel {
+
+    @Override
+    public void squaredDistances(int targetRgb, int[] packed, int from, int to, int[] out) {
+        for (int i = from; i < to; i++) {
+            out[i - from] = ColorSimilarUtils.rgbDistanceSquared(targetRgb, packed[i]);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.mangoyoo.yoopicbackend.util;
+
+/**
+ * 基于原始类型数组的有界大顶堆，用于保留距离最小的 K 个下标
+ * <p>
+ * 堆顶为当前 K 个结果中距离最大的一个，新元素只有比堆顶更近时才会入堆，整个过程不产生装箱和临时对象。
+ * 非线程安全，每次查询使用独立的实例。
+ */
+public class TopKHeap {
+
+    private final int[] indexes;
+
+    private final float[] distances;
+
+    private int size;
+
+    public TopKHeap(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k 必须大于 0");
+        }
+        this.indexes = new int[k];
+        this.distances = new float[k];
+    }
+
+    /**
+     * 尝试加入一个候选
+     *
+     * @param index    候选下标
+     * @param distance 距离，越小越相似
+     */
+    public void offer(int index, float distance) {
+        if (size < indexes.length) {
+            indexes[size] = index;
+            distances[size] = distance;
+            siftUp(size++);
+        } else if (distance < distances[0]) {
+            indexes[0] = index;
+            distances[0] = distance;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * 是否已经有 K 个结果
+     */
+    public boolean isFull() {
+        return size == indexes.length;
+    }
+
+    /**
+     * 当前结果中最大的距离，堆未满时返回正无穷
+     */
+    public float worstDistance() {
+        return isFull() ? distances[0] : Float.POSITIVE_INFINITY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 按距离从小到大取出所有下标（会清空堆）
+     */
+    public int[] drainSortedIndexes() {
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = indexes[0];
+            size--;
+            indexes[0] = indexes[size];
+            distances[0] = distances[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (distances[index] <= distances[parent]) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = index * 2 + 1;
+            if (left >= size) {
+                return;
+            }
+            int largest = left;
+            int right = left + 1;
+            if (right < size && distances[right] > distances[left]) {
+                largest = right;
+            }
+            if (distances[largest] <= distances[index]) {
+                return;
+            }
+            swap(index, largest);
+            index = largest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int index = indexes[a];
+        indexes[a] = indexes[b];
+        indexes[b] = index;
+        float distance = distances[a];
+        distances[a] = distances[b];
+        distances[b] = distance;
+    }
+}
@@ -0,0 +1,35 @@
+package com.mangoyoo.yoopicbackend.util;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于 Vector API 的 SIMD 实现，一次处理一整条向量寄存器宽度的颜色
+ * <p>
+ * 只有在启动参数包含 --add-modules jdk.incubator.vector 时才会被加载，见 {@link ColorSimilarUtils}。
+ */
+final class VectorRgbDistanceKernel implements RgbDistanceKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void squaredDistances(int targetRgb, int[] packed, int from, int to, int[] out) {
+        IntVector targetR = IntVector.broadcast(SPECIES, (targetRgb >> 16) & 0xFF);
+        IntVector targetG = IntVector.broadcast(SPECIES, (targetRgb >> 8) & 0xFF);
+        IntVector targetB = IntVector.broadcast(SPECIES, targetRgb & 0xFF);
+        int i = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        for (; i < upperBound; i += SPECIES.length()) {
+            IntVector colors = IntVector.fromArray(SPECIES, packed, i);
+            IntVector dr = colors.lanewise(VectorOperators.LSHR, 16).and(0xFF).sub(targetR);
+            IntVector dg = colors.lanewise(VectorOperators.LSHR, 8).and(0xFF).sub(targetG);
+            IntVector db = colors.and(0xFF).sub(targetB);
+            dr.mul(dr).add(dg.mul(dg)).add(db.mul(db)).intoArray(out, i - from);
+        }
+        // 不足一条向量的尾部按标量处理
+        for (; i < to; i++) {
+            out[i - from] = ColorSimilarUtils.rgbDistanceSquared(targetRgb, packed[i]);
+        }
+    }
+}
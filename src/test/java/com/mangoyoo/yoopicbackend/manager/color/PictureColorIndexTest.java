@@ -0,0 +1,110 @@
+package com.mangoyoo.yoopicbackend.manager.color;
+
+import com.mangoyoo.yoopicbackend.model.enums.ColorMetricEnum;
+import com.mangoyoo.yoopicbackend.util.ColorSimilarUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PictureColorIndexTest {
+
+    @Test
+    public void testNearestMatchesBruteForce() {
+        Random random = new Random(42);
+        PictureColorIndex colorIndex = new PictureColorIndex();
+        Map<Long, Integer> colorMap = new HashMap<>();
+        for (long id = 1; id <= 3000; id++) {
+            int rgb = random.nextInt(0x1000000);
+            colorIndex.put(id, 1L, rgb);
+            colorMap.put(id, rgb);
+        }
+        for (int i = 0; i < 50; i++) {
+            int target = random.nextInt(0x1000000);
+            for (ColorMetricEnum metric : ColorMetricEnum.values()) {
+                List<Long> actual = colorIndex.nearest(1L, target, 12, metric);
+                assertEquals(12, actual.size());
+                double[] expected = colorMap.values().stream()
+                        .mapToDouble(rgb -> distance(target, rgb, metric))
+                        .sorted()
+                        .limit(12)
+                        .toArray();
+                for (int j = 0; j < actual.size(); j++) {
+                    assertEquals(expected[j], distance(target, colorMap.get(actual.get(j)), metric), 1e-3);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSpaceIsolationAndRemove() {
+        PictureColorIndex colorIndex = new PictureColorIndex();
+        colorIndex.put(1L, null, 0xFF0000);
+        colorIndex.put(2L, 10L, 0xFF0000);
+        colorIndex.put(3L, null, 0x00FF00);
+        assertEquals(Arrays.asList(1L, 3L), colorIndex.nearest(null, 0xFE0000, 5, ColorMetricEnum.RGB));
+        assertEquals(Collections.singletonList(2L), colorIndex.nearest(10L, 0xFE0000, 5, ColorMetricEnum.LAB));
+        // 图片移动到其他空间
+        colorIndex.put(1L, 10L, 0xFF0000);
+        assertEquals(Collections.singletonList(3L), colorIndex.nearest(null, 0xFE0000, 5, ColorMetricEnum.RGB));
+        colorIndex.remove(3L);
+        assertEquals(0, colorIndex.size(null));
+        assertEquals(2, colorIndex.size(10L));
+    }
+
+    @Test
+    public void testNearestWithDeltaMatchesBruteForce() {
+        Random random = new Random(7);
+        PictureColorIndex colorIndex = new PictureColorIndex();
+        Map<Long, Integer> colorMap = new HashMap<>();
+        for (long id = 1; id <= 2000; id++) {
+            int rgb = random.nextInt(0x1000000);
+            colorIndex.put(id, 1L, rgb);
+            colorMap.put(id, rgb);
+        }
+        // 第一次查询建立快照
+        colorIndex.nearest(1L, 0, 1, ColorMetricEnum.RGB);
+        for (int round = 0; round < 20; round++) {
+            // 每轮少量修改、删除、新增，保持在增量上限以内，查询不会重建快照
+            for (int i = 0; i < 10; i++) {
+                long id = 1 + random.nextInt(2100);
+                if (random.nextBoolean()) {
+                    int rgb = random.nextInt(0x1000000);
+                    colorIndex.put(id, 1L, rgb);
+                    colorMap.put(id, rgb);
+                } else {
+                    colorIndex.remove(id);
+                    colorMap.remove(id);
+                }
+            }
+            int target = random.nextInt(0x1000000);
+            for (ColorMetricEnum metric : ColorMetricEnum.values()) {
+                List<Long> actual = colorIndex.nearest(1L, target, 12, metric);
+                assertEquals(12, actual.size());
+                assertEquals(12, new HashSet<>(actual).size());
+                double[] expected = colorMap.values().stream()
+                        .mapToDouble(rgb -> distance(target, rgb, metric))
+                        .sorted()
+                        .limit(12)
+                        .toArray();
+                for (int j = 0; j < actual.size(); j++) {
+                    assertTrue(colorMap.containsKey(actual.get(j)));
+                    assertEquals(expected[j], distance(target, colorMap.get(actual.get(j)), metric), 1e-3);
+                }
+            }
+        }
+        assertEquals(colorMap.size(), colorIndex.size(1L));
+    }
+
+    private static double distance(int target, int rgb, ColorMetricEnum metric) {
+        if (metric == ColorMetricEnum.RGB) {
+            return ColorSimilarUtils.rgbDistanceSquared(target, rgb);
+        }
+        float[] lab1 = new float[3];
+        float[] lab2 = new float[3];
+        ColorSimilarUtils.rgbToLab(target, lab1);
+        ColorSimilarUtils.rgbToLab(rgb, lab2);
+        return ColorSimilarUtils.labDistanceSquared(lab1[0], lab1[1], lab1[2], lab2[0], lab2[1], lab2[2]);
+    }
+}
@@ -0,0 +1,91 @@
+package com.mangoyoo.yoopicbackend.manager.quota;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalSpaceQuotaStoreTest {
+
+    @Test
+    public void testConcurrentReserveNeverExceedsLimit() throws Exception {
+        LocalSpaceQuotaStore store = new LocalSpaceQuotaStore();
+        store.load(1L, 90, 0, 100, Long.MAX_VALUE);
+        AtomicInteger successCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                String reservationId = UUID.randomUUID().toString();
+                if (store.reserve(1L, reservationId, 1, 1024) == SpaceQuotaStore.OK) {
+                    successCount.incrementAndGet();
+                    store.commit(1L, reservationId, 1, 1024, 1, 1000);
+                }
+                return null;
+            }));
+        }
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertEquals(10, successCount.get());
+        assertEquals(SpaceQuotaStore.COUNT_EXCEEDED, store.reserve(1L, "r", 1, 0));
+        Map<Long, long[]> dirtyMap = store.drainDirty();
+        assertArrayEquals(new long[]{10, 10000}, dirtyMap.get(1L));
+        assertTrue(store.drainDirty().isEmpty());
+    }
+
+    @Test
+    public void testReleaseAndSizeLimit() {
+        LocalSpaceQuotaStore store = new LocalSpaceQuotaStore();
+        assertEquals(SpaceQuotaStore.NOT_LOADED, store.reserve(2L, "r1", 1, 100));
+        store.load(2L, 0, 900, 10, 1000);
+        assertEquals(SpaceQuotaStore.OK, store.reserve(2L, "r1", 1, 100));
+        // 预占的容量也计入已用
+        assertEquals(SpaceQuotaStore.SIZE_EXCEEDED, store.reserve(2L, "r2", 1, 1));
+        store.release(2L, "r1", 1, 100);
+        // 重复释放不会多归还
+        store.release(2L, "r1", 1, 100);
+        assertEquals(SpaceQuotaStore.OK, store.reserve(2L, "r3", 1, 50));
+        assertEquals(SpaceQuotaStore.SIZE_EXCEEDED, store.reserve(2L, "r4", 1, 51));
+        // 修改上限后立即生效
+        store.updateLimit(2L, 10, 2000);
+        assertEquals(SpaceQuotaStore.OK, store.reserve(2L, "r5", 1, 500));
+        // 删除图片后额度归还，并记为待写回的变化量
+        store.applyDelta(2L, -1, -300);
+        assertArrayEquals(new long[]{-1, -300}, store.drainDirty().get(2L));
+    }
+
+    @Test
+    public void testLostReleaseRestoredAfterLeaseExpires() {
+        AtomicLong now = new AtomicLong(0);
+        LocalSpaceQuotaStore store = new LocalSpaceQuotaStore(Duration.ofMinutes(30), now::get);
+        store.load(3L, 0, 0, 2, 1000);
+        // 两次预占都没有释放（释放失败或节点在上传途中宕机）
+        assertEquals(SpaceQuotaStore.OK, store.reserve(3L, "lost1", 1, 400));
+        assertEquals(SpaceQuotaStore.OK, store.reserve(3L, "lost2", 1, 400));
+        store.reconcile(3L, 0, 0);
+        assertEquals(SpaceQuotaStore.COUNT_EXCEEDED, store.reserve(3L, "r1", 1, 100));
+        // 租约到期后校正时归还
+        now.set(Duration.ofMinutes(31).toMillis());
+        store.reconcile(3L, 0, 0);
+        assertEquals(SpaceQuotaStore.OK, store.reserve(3L, "r2", 2, 1000));
+        // 过期后才提交的预占不会再归还一次，只增加已用额度
+        store.commit(3L, "lost1", 1, 400, 1, 300);
+        assertEquals(SpaceQuotaStore.COUNT_EXCEEDED, store.reserve(3L, "r3", 0, 0));
+        store.release(3L, "r2", 2, 1000);
+        assertEquals(SpaceQuotaStore.OK, store.reserve(3L, "r4", 1, 700));
+        assertEquals(SpaceQuotaStore.SIZE_EXCEEDED, store.reserve(3L, "r5", 0, 1));
+    }
+}
@@ -0,0 +1,113 @@
+package com.mangoyoo.yoopicbackend.manager.search;
+
+import com.mangoyoo.yoopicbackend.model.entity.Picture;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PictureSearchIndexTest {
+
+    private static Picture picture(long id, String name, String introduction, String tags, Long spaceId, int reviewStatus) {
+        Picture picture = new Picture();
+        picture.setId(id);
+        picture.setName(name);
+        picture.setIntroduction(introduction);
+        picture.setTags(tags);
+        picture.setSpaceId(spaceId);
+        picture.setReviewStatus(reviewStatus);
+        return picture;
+    }
+
+    @Test
+    public void testTokenizer() {
+        assertEquals(Arrays.asList("蓝", "蓝色", "色", "色天", "天", "天空", "空", "sky", "2024"),
+                PictureSearchTokenizer.tokenizeForIndex("蓝色天空 Sky-2024"));
+        assertEquals(Arrays.asList("蓝色", "色天", "天空"), PictureSearchTokenizer.tokenizeForQuery("蓝色天空"));
+        assertEquals(Collections.singletonList("天"), PictureSearchTokenizer.tokenizeForQuery("天"));
+    }
+
+    @Test
+    public void testSearchLikeSubstring() {
+        PictureSearchIndex index = new PictureSearchIndex();
+        index.upsert(picture(1, "蓝色天空", null, null, null, 1));
+        index.upsert(picture(2, "天空之城", "宫崎骏动画", "[\"动漫\"]", null, 1));
+        index.upsert(picture(3, "城市夜景", "蓝天白云", null, null, 1));
+
+        assertEquals(Arrays.asList(1L, 2L), sorted(index.search("天空", null, false, null, 10).getPictureIds()));
+        // “蓝天空”不是任何文本的子串
+        assertTrue(index.search("蓝天空", null, false, null, 10).getPictureIds().isEmpty());
+        assertEquals(Collections.singletonList(2L), index.search("动漫", null, false, null, 10).getPictureIds());
+        assertEquals(Collections.singletonList(3L), index.search("白", null, false, null, 10).getPictureIds());
+    }
+
+    @Test
+    public void testRankingAndPrefix() {
+        PictureSearchIndex index = new PictureSearchIndex();
+        // 名称命中的权重高于简介
+        index.upsert(picture(1, "风景", "一只猫", null, null, 1));
+        index.upsert(picture(2, "猫咪", null, null, null, 1));
+        index.upsert(picture(3, "Cat Wallpaper", null, null, null, 1));
+
+        assertEquals(Arrays.asList(2L, 1L), index.search("猫", null, false, null, 10).getPictureIds());
+        assertEquals(Collections.singletonList(3L), index.search("WALL", null, false, null, 10).getPictureIds());
+    }
+
+    @Test
+    public void testFilterUpdateAndRemove() {
+        PictureSearchIndex index = new PictureSearchIndex();
+        index.upsert(picture(1, "海边日落", null, null, null, 1));
+        index.upsert(picture(2, "海边日出", null, null, 100L, 0));
+
+        assertEquals(Collections.singletonList(1L), index.search("海边", null, true, 1, 10).getPictureIds());
+        assertEquals(Collections.singletonList(2L), index.search("海边", 100L, false, null, 10).getPictureIds());
+
+        index.upsert(picture(1, "雪山", null, null, null, 1));
+        assertTrue(index.search("日落", null, false, null, 10).getPictureIds().isEmpty());
+        assertEquals(Collections.singletonList(1L), index.search("雪山", null, false, null, 10).getPictureIds());
+
+        index.remove(2);
+        assertEquals(1, index.size());
+        assertEquals(0, index.search("海边", null, false, null, 10).getTotal());
+    }
+
+    @Test
+    public void testLimitKeepsTotal() {
+        PictureSearchIndex index = new PictureSearchIndex();
+        for (long id = 1; id <= 3000; id++) {
+            index.upsert(picture(id, "壁纸" + id, null, null, null, 1));
+        }
+        for (long id = 1; id <= 2000; id++) {
+            index.remove(id);
+        }
+        PictureSearchIndex.SearchHits hits = index.search("壁纸", null, false, null, 5);
+        assertEquals(1000, hits.getTotal());
+        assertEquals(5, hits.getPictureIds().size());
+        // 得分相同时较新的图片排在前面
+        assertEquals(3000L, hits.getPictureIds().get(0));
+    }
+
+    @Test
+    public void testLikeCandidates() {
+        PictureSearchIndex index = new PictureSearchIndex();
+        index.upsert(picture(1, "Concatenate", "蓝色天空", null, null, 1));
+        index.upsert(picture(2, "Cat", "天空之城", null, null, 1));
+
+        // LIKE '%cat%' 同时命中两张图片，而英文按前缀只能查到 2，索引无法给出完整候选集
+        assertNull(index.findLikeCandidates("cat", null, false, null, 10));
+        // 只有标点时没有查询词，同样交给 LIKE
+        assertNull(index.findLikeCandidates("!!", null, false, null, 10));
+        // 纯中文的候选集一定包含子串匹配的结果
+        assertEquals(Arrays.asList(1L, 2L), sorted(index.findLikeCandidates("天空", null, false, null, 10)));
+        assertTrue(index.findLikeCandidates("蓝天空", null, false, null, 10).isEmpty());
+        // 候选数超过上限时不使用索引
+        assertNull(index.findLikeCandidates("天空", null, false, null, 1));
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        return ids.stream().sorted().toList();
+    }
+}
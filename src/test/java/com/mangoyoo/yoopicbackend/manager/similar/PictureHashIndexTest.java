@@ -0,0 +1,113 @@
+package com.mangoyoo.yoopicbackend.manager.similar;
+
+import com.mangoyoo.yoopicbackend.util.PictureHashUtils;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PictureHashIndexTest {
+
+    @Test
+    public void testSearchMatchesBruteForce() {
+        Random random = new Random(42);
+        PictureHashIndex hashIndex = new PictureHashIndex();
+        Map<Long, Long> hashMap = new HashMap<>();
+        long[] bases = new long[20];
+        for (int i = 0; i < bases.length; i++) {
+            bases[i] = random.nextLong();
+        }
+        for (long id = 1; id <= 5000; id++) {
+            // 围绕少量基准指纹随机翻转若干位，模拟相似图片
+            long hash = bases[random.nextInt(bases.length)];
+            for (int flip = random.nextInt(12); flip > 0; flip--) {
+                hash ^= 1L << random.nextInt(64);
+            }
+            hashIndex.put(id, 1L, hash);
+            hashMap.put(id, hash);
+        }
+        // 删除一部分，触发重建
+        for (long id = 1; id <= 3000; id++) {
+            hashIndex.remove(id);
+            hashMap.remove(id);
+        }
+        assertEquals(2000, hashIndex.size(1L));
+        for (int i = 0; i < 30; i++) {
+            long target = bases[random.nextInt(bases.length)] ^ (1L << random.nextInt(64));
+            int maxDistance = random.nextInt(10);
+            Set<Long> expected = hashMap.entrySet().stream()
+                    .filter(entry -> PictureHashUtils.hammingDistance(target, entry.getValue()) <= maxDistance)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+            List<PictureHashIndex.HashMatch> matches = hashIndex.search(1L, target, maxDistance, Integer.MAX_VALUE, null);
+            assertEquals(expected, matches.stream().map(PictureHashIndex.HashMatch::getPictureId).collect(Collectors.toSet()));
+            for (int j = 1; j < matches.size(); j++) {
+                assertTrue(matches.get(j - 1).getDistance() <= matches.get(j).getDistance());
+            }
+        }
+    }
+
+    @Test
+    public void testSpaceIsolationAndExclude() {
+        PictureHashIndex hashIndex = new PictureHashIndex();
+        hashIndex.put(1L, null, 0xFFL);
+        hashIndex.put(2L, null, 0xFFL);
+        hashIndex.put(3L, 10L, 0xFFL);
+        List<PictureHashIndex.HashMatch> matches = hashIndex.search(null, 0xFEL, 3, 10, 1L);
+        assertEquals(1, matches.size());
+        assertEquals(2L, matches.get(0).getPictureId());
+        assertEquals(1, matches.get(0).getDistance());
+        // 图片移动到其他空间
+        hashIndex.put(2L, 10L, 0xFFL);
+        assertEquals(1, hashIndex.size(null));
+        assertEquals(2, hashIndex.size(10L));
+        hashIndex.remove(1L);
+        assertTrue(hashIndex.search(null, 0xFFL, 64, 10, null).isEmpty());
+    }
+
+    @Test
+    public void testDHashStableAfterResize() {
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.BLACK, 300, 200, Color.ORANGE));
+        graphics.fillRect(0, 0, 300, 200);
+        graphics.setColor(Color.BLUE);
+        graphics.fillOval(60, 40, 120, 100);
+        graphics.dispose();
+        BufferedImage resized = new BufferedImage(150, 100, BufferedImage.TYPE_INT_RGB);
+        Graphics2D resizedGraphics = resized.createGraphics();
+        resizedGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        resizedGraphics.drawImage(image, 0, 0, 150, 100, null);
+        resizedGraphics.dispose();
+        int distance = PictureHashUtils.hammingDistance(PictureHashUtils.dHash(image), PictureHashUtils.dHash(resized));
+        assertTrue(distance <= PictureHashIndexManager.NEAR_DUPLICATE_DISTANCE, "distance = " + distance);
+    }
+
+    @Test
+    public void testDHashFromEncodedBytes() throws IOException {
+        // 大图解码时会抽样读取，指纹应与直接缩放的结果几乎相同
+        BufferedImage image = new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.BLACK, 1600, 1200, Color.ORANGE));
+        graphics.fillRect(0, 0, 1600, 1200);
+        graphics.setColor(Color.BLUE);
+        graphics.fillOval(320, 240, 640, 480);
+        graphics.dispose();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", outputStream);
+        Long hash = PictureHashUtils.dHash(outputStream.toByteArray());
+        assertNotNull(hash);
+        int distance = PictureHashUtils.hammingDistance(PictureHashUtils.dHash(image), hash);
+        assertTrue(distance <= PictureHashIndexManager.NEAR_DUPLICATE_DISTANCE, "distance = " + distance);
+        // 无法识别的格式返回 null
+        assertNull(PictureHashUtils.dHash(new byte[]{'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'}));
+    }
+}
@@ -0,0 +1,31 @@
+package com.mangoyoo.yoopicbackend.manager.upload;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PictureTypeDetectorTest {
+
+    @Test
+    public void testDetect() {
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F', 0, 1};
+        assertEquals("jpg", PictureTypeDetector.detect(jpeg, jpeg.length));
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 0x0D};
+        assertEquals("png", PictureTypeDetector.detect(png, png.length));
+        byte[] webp = "RIFF\u0000\u0001\u0000\u0000WEBP".getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals("webp", PictureTypeDetector.detect(webp, webp.length));
+    }
+
+    @Test
+    public void testRejectUnknownOrTruncated() {
+        byte[] gif = "GIF89a\u0000\u0000\u0000\u0000\u0000\u0000".getBytes(StandardCharsets.ISO_8859_1);
+        assertNull(PictureTypeDetector.detect(gif, gif.length));
+        byte[] wav = "RIFF\u0000\u0001\u0000\u0000WAVE".getBytes(StandardCharsets.ISO_8859_1);
+        assertNull(PictureTypeDetector.detect(wav, wav.length));
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G'};
+        assertNull(PictureTypeDetector.detect(png, png.length));
+        assertNull(PictureTypeDetector.detect(new byte[0], 0));
+    }
+}
@@ -0,0 +1,46 @@
+package com.mangoyoo.yoopicbackend.manager.websocket.broker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalPictureEditBrokerTest {
+
+    @Test
+    public void testEditLock() {
+        LocalPictureEditBroker broker = new LocalPictureEditBroker();
+        assertTrue(broker.tryLock(1L, 100L, "a"));
+        // 同一时刻只有一个用户可以编辑
+        assertFalse(broker.tryLock(1L, 200L, "b"));
+        assertTrue(broker.isLockedBy(1L, 100L, "a"));
+        assertFalse(broker.isLockedBy(1L, 200L, "b"));
+        // 不是持有者不能释放
+        assertFalse(broker.unlock(1L, 200L, "b"));
+        assertTrue(broker.unlock(1L, 100L, "a"));
+        assertFalse(broker.isLockedBy(1L, 100L, "a"));
+        assertTrue(broker.tryLock(1L, 200L, "b"));
+        // 不同图片互不影响
+        assertTrue(broker.tryLock(2L, 100L, "a"));
+        // 同一用户的其他会话（其他标签页）不是持有者
+        assertFalse(broker.isLockedBy(2L, 100L, "c"));
+        assertFalse(broker.unlock(2L, 100L, "c"));
+        assertTrue(broker.isLockedBy(2L, 100L, "a"));
+    }
+
+    @Test
+    public void testPublishDeliversToListener() {
+        LocalPictureEditBroker broker = new LocalPictureEditBroker();
+        // 没有监听器时直接忽略
+        broker.publish(1L, "ignored", null, 0);
+        List<String> received = new ArrayList<>();
+        broker.setListener((pictureId, payload, excludeSessionId, protocolVersion) ->
+                received.add(pictureId + ":" + payload + ":" + excludeSessionId + ":" + protocolVersion));
+        broker.subscribe(1L);
+        broker.publish(1L, "{}", "s1", 0);
+        broker.publish(1L, "{}", null, 2);
+        assertEquals(List.of("1:{}:s1:0", "1:{}:null:2"), received);
+    }
+}
@@ -0,0 +1,49 @@
+package com.mangoyoo.yoopicbackend.manager.websocket.coalesce;
+
+import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditActionEnum;
+import com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditProtocol;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.mangoyoo.yoopicbackend.manager.websocket.model.PictureEditActionEnum.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PictureEditActionCoalescerTest {
+
+    @Test
+    public void testMergeNetZoomAndRotation() {
+        PictureEditActionCoalescer coalescer = new PictureEditActionCoalescer();
+        for (PictureEditActionEnum action : List.of(ZOOM_IN, ZOOM_IN, ZOOM_IN, ZOOM_OUT, ROTATE_RIGHT, ROTATE_RIGHT, ROTATE_RIGHT)) {
+            coalescer.add(action);
+        }
+        assertEquals(7, coalescer.getPendingCount());
+        // 右旋 3 次等于左旋 1 次
+        assertEquals(List.of(ZOOM_IN, ZOOM_IN, ROTATE_LEFT), coalescer.drain());
+        assertEquals(0, coalescer.getPendingCount());
+        assertTrue(coalescer.drain().isEmpty());
+    }
+
+    @Test
+    public void testCancelledActions() {
+        PictureEditActionCoalescer coalescer = new PictureEditActionCoalescer();
+        coalescer.add(ZOOM_OUT);
+        coalescer.add(ZOOM_IN);
+        coalescer.add(ROTATE_LEFT);
+        coalescer.add(ROTATE_LEFT);
+        coalescer.add(ROTATE_LEFT);
+        coalescer.add(ROTATE_LEFT);
+        assertTrue(coalescer.drain().isEmpty());
+        coalescer.add(ROTATE_LEFT);
+        coalescer.add(ROTATE_LEFT);
+        assertEquals(List.of(ROTATE_RIGHT, ROTATE_RIGHT), coalescer.drain());
+    }
+
+    @Test
+    public void testNegotiateProtocolVersion() {
+        assertEquals(PictureEditProtocol.V1, PictureEditProtocol.negotiate(null));
+        assertEquals(PictureEditProtocol.V1, PictureEditProtocol.negotiate("abc"));
+        assertEquals(PictureEditProtocol.V2, PictureEditProtocol.negotiate("2"));
+        assertEquals(PictureEditProtocol.LATEST, PictureEditProtocol.negotiate("99"));
+    }
+}
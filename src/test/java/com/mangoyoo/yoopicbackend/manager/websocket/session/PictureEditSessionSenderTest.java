@@ -0,0 +1,60 @@
+package com.mangoyoo.yoopicbackend.manager.websocket.session;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class PictureEditSessionSenderTest {
+
+    @Test
+    public void testSlowSessionDoesNotBlockAndIsClosed() throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getId()).thenReturn("1");
+        CountDownLatch blockLatch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            blockLatch.await();
+            return null;
+        }).when(session).sendMessage(any());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        PictureEditSessionSender sender = new PictureEditSessionSender(session, executor, 60000, 10, false, (reason, count) -> {
+        });
+        // 第一条消息被卡在发送中，后续消息入队后立即返回
+        assertTrue(sender.send(new TextMessage("12345")));
+        assertTrue(sender.send(new TextMessage("12345")));
+        // 超出缓冲上限，断开连接
+        assertFalse(sender.send(new TextMessage("12345678")));
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertFalse(sender.send(new TextMessage("1")));
+        blockLatch.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDropOldestOnOverflow() throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.isOpen()).thenReturn(true);
+        // 不执行发送任务，消息全部留在队列中
+        AtomicInteger droppedCount = new AtomicInteger();
+        PictureEditSessionSender sender = new PictureEditSessionSender(session, command -> {
+        }, 60000, 10, true, (reason, count) -> droppedCount.addAndGet(count));
+        assertTrue(sender.send(new TextMessage("12345")));
+        assertTrue(sender.send(new TextMessage("12345")));
+        assertTrue(sender.send(new TextMessage("123")));
+        assertEquals(8, sender.getQueuedBytes());
+        assertEquals(1, droppedCount.get());
+        verify(session, never()).close(any());
+    }
+}
@@ -0,0 +1,43 @@
+package com.mangoyoo.yoopicbackend.model.auth;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.json.JSONUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpaceUserAuthTableTest {
+
+    private static SpaceUserAuthConfig loadDefaultConfig() {
+        return JSONUtil.toBean(ResourceUtil.readUtf8Str("biz/spaceUserAuthConfig.json"), SpaceUserAuthConfig.class);
+    }
+
+    @Test
+    public void testMatchesConfig() {
+        SpaceUserAuthConfig authConfig = loadDefaultConfig();
+        SpaceUserAuthTable authTable = SpaceUserAuthTable.compile(authConfig);
+        for (SpaceUserRole role : authConfig.getRoles()) {
+            assertEquals(role.getPermissions(), authTable.getPermissions(role.getKey()));
+            for (SpaceUserPermission permission : authConfig.getPermissions()) {
+                assertEquals(role.getPermissions().contains(permission.getKey()),
+                        authTable.hasPermission(role.getKey(), permission.getKey()));
+            }
+        }
+        assertTrue(authTable.hasPermission("editor", SpaceUserPermissionConstant.PICTURE_EDIT));
+        assertFalse(authTable.hasPermission("viewer", SpaceUserPermissionConstant.PICTURE_EDIT));
+        assertFalse(authTable.hasPermission("unknown", SpaceUserPermissionConstant.PICTURE_VIEW));
+        assertFalse(authTable.hasPermission(null, SpaceUserPermissionConstant.PICTURE_VIEW));
+        assertTrue(authTable.getPermissions("unknown").isEmpty());
+        assertThrows(UnsupportedOperationException.class,
+                () -> authTable.getPermissions("viewer").add(SpaceUserPermissionConstant.PICTURE_DELETE));
+    }
+
+    @Test
+    public void testRejectUndefinedPermission() {
+        SpaceUserAuthConfig authConfig = loadDefaultConfig();
+        authConfig.getRoles().get(0).setPermissions(List.of("picture:undefined"));
+        assertThrows(IllegalArgumentException.class, () -> SpaceUserAuthTable.compile(authConfig));
+    }
+}
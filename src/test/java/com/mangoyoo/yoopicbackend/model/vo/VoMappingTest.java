@@ -0,0 +1,156 @@
+package com.mangoyoo.yoopicbackend.model.vo;
+
+import com.mangoyoo.yoopicbackend.model.entity.Picture;
+import com.mangoyoo.yoopicbackend.model.entity.Space;
+import com.mangoyoo.yoopicbackend.model.entity.User;
+import generator.domain.SpaceUser;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 手写的对象转换按反射逐个字段核对：实体和 VO 的同名字段都必须被复制。
+ * 实体或 VO 新增字段后，要么同步转换代码，要么显式加入排除列表，否则这里失败
+ */
+public class VoMappingTest {
+
+    /**
+     * 不返回给前端的图片字段
+     */
+    private static final Set<String> PICTURE_ONLY_FIELDS = Set.of("tags", "isDelete", "reviewStatus", "reviewMessage",
+            "reviewerId", "reviewTime", "picHash");
+
+    /**
+     * 图片 VO 中由其他数据填充的字段（tags 类型不同，单独校验）
+     */
+    private static final Set<String> PICTURE_VO_ONLY_FIELDS = Set.of("tags", "user", "permissionList");
+
+    private static final Set<String> SPACE_ONLY_FIELDS = Set.of("isDelete");
+
+    private static final Set<String> SPACE_VO_ONLY_FIELDS = Set.of("user", "permissionList");
+
+    private static final Set<String> USER_ONLY_FIELDS = Set.of("userPassword", "editTime", "updateTime", "isDelete");
+
+    private static final Set<String> SPACE_USER_VO_ONLY_FIELDS = Set.of("user", "space");
+
+    @Test
+    public void testPictureVO() throws Exception {
+        Picture picture = fill(new Picture());
+        picture.setTags("[\"a\",\"b\"]");
+        PictureVO actual = PictureVO.objToVo(picture);
+        assertMapped(picture, actual, PICTURE_ONLY_FIELDS, PICTURE_VO_ONLY_FIELDS);
+        assertEquals(Arrays.asList("a", "b"), actual.getTags());
+        // 相同的标签字符串复用同一个解析结果
+        assertSame(actual.getTags(), PictureVO.objToVo(picture).getTags());
+
+        Picture back = PictureVO.voToObj(actual);
+        assertMapped(back, actual, PICTURE_ONLY_FIELDS, PICTURE_VO_ONLY_FIELDS);
+        assertEquals(picture.getTags(), back.getTags());
+    }
+
+    @Test
+    public void testPictureVOWithInvalidTags() {
+        Picture picture = new Picture();
+        assertEquals(Collections.emptyList(), PictureVO.objToVo(picture).getTags());
+        picture.setTags("");
+        assertEquals(Collections.emptyList(), PictureVO.objToVo(picture).getTags());
+    }
+
+    @Test
+    public void testSpaceVO() throws Exception {
+        Space space = fill(new Space());
+        SpaceVO actual = SpaceVO.objToVo(space);
+        assertMapped(space, actual, SPACE_ONLY_FIELDS, SPACE_VO_ONLY_FIELDS);
+        assertMapped(SpaceVO.voToObj(actual), actual, SPACE_ONLY_FIELDS, SPACE_VO_ONLY_FIELDS);
+    }
+
+    @Test
+    public void testUserVO() throws Exception {
+        User user = fill(new User());
+        assertMapped(user, UserVO.objToVo(user), USER_ONLY_FIELDS, Collections.emptySet());
+    }
+
+    @Test
+    public void testSpaceUserVO() throws Exception {
+        SpaceUser spaceUser = fill(new SpaceUser());
+        SpaceUserVO actual = SpaceUserVO.objToVo(spaceUser);
+        assertMapped(spaceUser, actual, Collections.emptySet(), SPACE_USER_VO_ONLY_FIELDS);
+        assertMapped(SpaceUserVO.voToObj(actual), actual, Collections.emptySet(), SPACE_USER_VO_ONLY_FIELDS);
+    }
+
+    /**
+     * 为对象的每个简单类型字段填入互不相同的值
+     */
+    private static <T> T fill(T object) throws IllegalAccessException {
+        int value = 1;
+        for (Field field : instanceFields(object.getClass()).values()) {
+            Class<?> type = field.getType();
+            Object fieldValue;
+            if (type == Long.class) {
+                fieldValue = (long) value;
+            } else if (type == Integer.class) {
+                fieldValue = value;
+            } else if (type == Double.class) {
+                fieldValue = value + 0.5;
+            } else if (type == String.class) {
+                fieldValue = field.getName() + value;
+            } else if (type == Date.class) {
+                fieldValue = new Date(value);
+            } else {
+                continue;
+            }
+            field.set(object, fieldValue);
+            value++;
+        }
+        return object;
+    }
+
+    /**
+     * 核对实体和 VO 的字段：除排除列表外两边字段一一对应，且值相同
+     *
+     * @param entity           实体
+     * @param vo               VO
+     * @param entityOnlyFields 只在实体中的字段
+     * @param voOnlyFields     只在 VO 中（或类型不同需要单独校验）的字段
+     */
+    private static void assertMapped(Object entity, Object vo, Set<String> entityOnlyFields, Set<String> voOnlyFields)
+            throws IllegalAccessException {
+        Map<String, Field> entityFields = instanceFields(entity.getClass());
+        Map<String, Field> voFields = instanceFields(vo.getClass());
+        String voName = vo.getClass().getSimpleName();
+        String entityName = entity.getClass().getSimpleName();
+        // 排除列表中的字段必须真实存在，避免字段改名后排除列表失效
+        entityOnlyFields.forEach(name -> assertTrue(entityFields.containsKey(name), entityName + " 没有字段 " + name));
+        voOnlyFields.forEach(name -> assertTrue(voFields.containsKey(name), voName + " 没有字段 " + name));
+        for (Field entityField : entityFields.values()) {
+            String name = entityField.getName();
+            if (entityOnlyFields.contains(name)) {
+                continue;
+            }
+            Field voField = voFields.get(name);
+            assertNotNull(voField, entityName + "." + name + " 没有同步到 " + voName + "，不需要返回的字段请加入排除列表");
+            assertEquals(entityField.getType(), voField.getType(), name + " 的类型不一致");
+            assertEquals(entityField.get(entity), voField.get(vo), name + " 没有被复制");
+        }
+        for (String name : voFields.keySet()) {
+            if (!voOnlyFields.contains(name)) {
+                assertTrue(entityFields.containsKey(name), voName + "." + name + " 在 " + entityName + " 中不存在");
+            }
+        }
+    }
+
+    private static Map<String, Field> instanceFields(Class<?> clazz) {
+        Map<String, Field> fields = new LinkedHashMap<>();
+        for (Field field : clazz.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                field.setAccessible(true);
+                fields.put(field.getName(), field);
+            }
+        }
+        return fields;
+    }
+}
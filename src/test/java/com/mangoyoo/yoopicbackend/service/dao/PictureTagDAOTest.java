@@ -0,0 +1,27 @@
+package com.mangoyoo.yoopicbackend.service.dao;
+
+import com.mangoyoo.yoopicbackend.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PictureTagDAOTest {
+
+    @Test
+    public void testParseTagsFollowsCollation() {
+        // 与 utf8mb4_unicode_ci 一致：不区分大小写、重音，忽略首尾空白，保留第一次出现的写法
+        Set<String> tags = PictureTagDAO.parseTags("[\"Cat\", \"cat\", \" CAT \", \"café\", \"Cafe\", \"\", \"dog\"]");
+        assertEquals(List.of("Cat", "café", "dog"), List.copyOf(tags));
+    }
+
+    @Test
+    public void testTagLength() {
+        String longTag = "a".repeat(PictureTagDAO.MAX_TAG_LENGTH + 1);
+        assertTrue(PictureTagDAO.parseTags("[\"" + longTag + "\"]").isEmpty());
+        assertThrows(BusinessException.class, () -> PictureTagDAO.validTags(List.of("ok", longTag)));
+        assertDoesNotThrow(() -> PictureTagDAO.validTags(List.of("a".repeat(PictureTagDAO.MAX_TAG_LENGTH))));
+    }
+}
@@ -0,0 +1,57 @@
+package com.mangoyoo.yoopicbackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColorSimilarUtilsTest {
+
+    @Test
+    public void testSquaredDistancesMatchScalar() {
+        Random random = new Random(7);
+        int[] packed = random.ints(1000, 0, 0x1000000).toArray();
+        int target = random.nextInt(0x1000000);
+        int[] out = new int[packed.length];
+        // 起止位置不对齐向量宽度，覆盖尾部处理
+        ColorSimilarUtils.squaredDistances(target, packed, 3, 997, out);
+        for (int i = 3; i < 997; i++) {
+            assertEquals(ColorSimilarUtils.rgbDistanceSquared(target, packed[i]), out[i - 3]);
+        }
+        int[] scalarOut = new int[packed.length];
+        new ScalarRgbDistanceKernel().squaredDistances(target, packed, 0, packed.length, scalarOut);
+        ColorSimilarUtils.squaredDistances(target, packed, 0, packed.length, out);
+        assertArrayEquals(scalarOut, out);
+    }
+
+    @Test
+    public void testTopKSimilar() {
+        Random random = new Random(11);
+        int[] packed = random.ints(5000, 0, 0x1000000).toArray();
+        int target = 0x336699;
+        int[] actual = ColorSimilarUtils.topKSimilar(target, packed, 10);
+        int[] expected = IntStream.range(0, packed.length)
+                .boxed()
+                .sorted(Comparator.comparingInt(i -> ColorSimilarUtils.rgbDistanceSquared(target, packed[i])))
+                .limit(10)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        assertEquals(10, actual.length);
+        for (int i = 0; i < actual.length; i++) {
+            assertEquals(ColorSimilarUtils.rgbDistanceSquared(target, packed[expected[i]]),
+                    ColorSimilarUtils.rgbDistanceSquared(target, packed[actual[i]]));
+        }
+        assertEquals(0, ColorSimilarUtils.topKSimilar(target, new int[0], 5).length);
+        assertEquals(3, ColorSimilarUtils.topKSimilar(target, Arrays.copyOf(packed, 3), 5).length);
+    }
+
+    @Test
+    public void testCalculateSimilarity() {
+        assertEquals(1.0, ColorSimilarUtils.calculateSimilarity("0xFF0000", "0xFF0000"), 1e-9);
+        assertEquals(0.0, ColorSimilarUtils.calculateSimilarity("0x000000", "0xFFFFFF"), 1e-9);
+    }
+}